@@ -0,0 +1,10 @@
+#! /bin/sh
+# Compiles and runs the simulator benchmarks (see benchmark.BenchmarkRunner
+# for the options). The simulator must be compiled first with compile.sh.
+targetdir=benchmark/target
+
+if [ ! -d "$targetdir" ]; then mkdir $targetdir; fi
+
+javac -sourcepath benchmark/src -cp "target:lib/*" -d $targetdir benchmark/src/benchmark/*.java || exit 1
+
+java -Xmx1G -cp $targetdir:target:lib/ECLA.jar:lib/DTNConsoleConnection.jar benchmark.BenchmarkRunner $*
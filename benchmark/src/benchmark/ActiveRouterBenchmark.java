@@ -0,0 +1,61 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import java.util.List;
+
+import routing.ActiveRouter;
+import core.DTNHost;
+import core.Message;
+import core.SimClock;
+import core.World;
+
+/**
+ * Benchmark of {@link ActiveRouter#update()} with full buffers. The hosts
+ * are stationary and all within range of each other, and every buffer is
+ * filled with messages before the measurements. One operation advances the
+ * clock by one second and updates the routers of all hosts.
+ */
+public class ActiveRouterBenchmark extends Benchmark {
+	/** size of the messages (bytes) */
+	private static final int MSG_SIZE = 10000;
+	/** number of messages that fill a buffer */
+	private static final int MSGS_PER_BUFFER = 100;
+
+	private List<DTNHost> hosts;
+
+	@Override
+	public String[] getParams() {
+		return new String[] {"20", "50"};
+	}
+
+	@Override
+	public void setUp(String param) {
+		World world = BenchmarkWorld.create(Integer.parseInt(param),
+				"Group.movementModel = StationaryMovement\n" +
+				"Group.nodeLocation = 100, 100\n" +
+				"Group.bufferSize = " + (MSG_SIZE * MSGS_PER_BUFFER) + "\n" +
+				"Group.msgTtl = 10000000\n");
+		hosts = world.getHosts();
+		for (DTNHost from : hosts) {
+			for (int i=0; i<MSGS_PER_BUFFER; i++) {
+				DTNHost to = hosts.get((from.getAddress() + i + 1) %
+						hosts.size());
+				from.createNewMessage(new Message(from, to,
+						"M" + from.getAddress() + "_" + i, MSG_SIZE));
+			}
+		}
+		world.update(); // creates the connections
+	}
+
+	@Override
+	public Object run() {
+		SimClock.getInstance().advance(1);
+		for (DTNHost h : hosts) {
+			h.getRouter().update();
+		}
+		return hosts;
+	}
+}
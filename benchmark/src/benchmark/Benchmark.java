@@ -0,0 +1,51 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+/**
+ * Superclass of all benchmarks. A benchmark is set up once for each of its
+ * parameter values and then {@link #run()} (one operation) is called
+ * repeatedly by the {@link BenchmarkRunner}.
+ */
+public abstract class Benchmark {
+
+	/**
+	 * Returns the name of the benchmark
+	 * @return The name of the benchmark
+	 */
+	public String getName() {
+		return getClass().getSimpleName();
+	}
+
+	/**
+	 * Returns the parameter values the benchmark is run with. By default
+	 * the benchmark has one, empty, parameter value.
+	 * @return The parameter values
+	 */
+	public String[] getParams() {
+		return new String[] {""};
+	}
+
+	/**
+	 * Sets up the benchmark for a parameter value
+	 * @param param The parameter value
+	 * @throws Exception if the setup fails
+	 */
+	public abstract void setUp(String param) throws Exception;
+
+	/**
+	 * Runs one operation of the benchmark
+	 * @return A result of the operation (consumed by the runner so that
+	 * the operation can't be optimized away)
+	 */
+	public abstract Object run();
+
+	/**
+	 * Releases what was created in {@link #setUp(String)}
+	 */
+	public void tearDown() {
+		BenchmarkWorld.exit();
+	}
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the simulator benchmarks and reports the average time of one
+ * operation of each benchmark (and parameter value). Every benchmark is
+ * first run for a number of warm-up iterations whose results are discarded
+ * and then for a number of measured iterations. One iteration runs the
+ * benchmark's operation repeatedly for the iteration time.
+ * <P>
+ * Usage: <code>BenchmarkRunner [options] [regex]</code>, where regex selects
+ * the benchmarks to run (by name or by name/parameter). Options:
+ * <UL>
+ * <LI> -w N : number of warm-up iterations (default 3)
+ * <LI> -i N : number of measured iterations (default 5)
+ * <LI> -t S : time of one iteration in seconds (default 1)
+ * <LI> -o FILE : write the results to a CSV file
+ * <LI> -c FILE : compare the results to a CSV file written earlier with -o;
+ * if any benchmark is slower than allowed, the exit status is 1
+ * <LI> -r R : allowed slowdown compared to the -c results (default 0.1,
+ * i.e. 10%)
+ * </UL>
+ * </P>
+ */
+public class BenchmarkRunner {
+	/** all benchmarks in the order they are run */
+	private static final Benchmark[] BENCHMARKS = {
+		new WorldUpdateBenchmark(),
+		new ConnectivityGridBenchmark(),
+		new SpatialIndexBenchmark(),
+		new MultiRadioIndexBenchmark(),
+		new ShortestPathBenchmark(),
+		new ActiveRouterBenchmark(),
+		new SortByQueueModeBenchmark()
+	};
+	/** delimiter of the CSV files */
+	private static final String CSV_DELIM = ",";
+
+	/** consumes the results of the benchmark operations */
+	private static volatile int sink;
+
+	private int warmupIterations = 3;
+	private int iterations = 5;
+	private double iterationTime = 1.0;
+	private String outputFile = null;
+	private String baselineFile = null;
+	private double allowedSlowdown = 0.1;
+	private Pattern filter = null;
+	/** where the results are printed (the simulator's own output to
+	 * System.out is discarded while the benchmarks run) */
+	private PrintStream out;
+
+	/**
+	 * Runs the benchmarks
+	 * @param args Command line arguments (see the class documentation)
+	 */
+	public static void main(String[] args) {
+		java.util.Locale.setDefault(Locale.US);
+		BenchmarkRunner runner = new BenchmarkRunner();
+		try {
+			runner.parseArgs(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(2);
+		}
+		runner.out = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {}
+		}));
+		System.exit(runner.runAll() ? 0 : 1);
+	}
+
+	private void parseArgs(String[] args) {
+		for (int i=0; i<args.length; i++) {
+			String arg = args[i];
+			if (!arg.startsWith("-")) {
+				filter = Pattern.compile(arg);
+				continue;
+			}
+			if (i + 1 >= args.length) {
+				throw new IllegalArgumentException("Missing value for " + arg);
+			}
+			String value = args[++i];
+			try {
+				if (arg.equals("-w")) {
+					warmupIterations = Integer.parseInt(value);
+				} else if (arg.equals("-i")) {
+					iterations = Integer.parseInt(value);
+				} else if (arg.equals("-t")) {
+					iterationTime = Double.parseDouble(value);
+				} else if (arg.equals("-o")) {
+					outputFile = value;
+				} else if (arg.equals("-c")) {
+					baselineFile = value;
+				} else if (arg.equals("-r")) {
+					allowedSlowdown = Double.parseDouble(value);
+				} else {
+					throw new IllegalArgumentException("Unknown option " + arg);
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid value for " + arg +
+						": " + value);
+			}
+		}
+		if (iterations < 1) {
+			throw new IllegalArgumentException("At least one iteration needed");
+		}
+	}
+
+	/**
+	 * Runs all selected benchmarks
+	 * @return False if any benchmark was slower than allowed, true otherwise
+	 */
+	private boolean runAll() {
+		Map<String, Double> baseline = null;
+		List<String> results = new ArrayList<String>();
+		boolean ok = true;
+
+		if (baselineFile != null) {
+			baseline = readResults(baselineFile);
+		}
+
+		out.println(String.format("%-30s %-8s %14s %12s",
+				"Benchmark", "Param", "ns/op", "error"));
+		for (Benchmark b : BENCHMARKS) {
+			for (String param : b.getParams()) {
+				String id = b.getName() + "/" + param;
+				if (filter != null && !filter.matcher(id).find()) {
+					continue;
+				}
+				double[] result = run(b, param);
+				String line = String.format("%-30s %-8s %14.1f %12.1f",
+						b.getName(), param, result[0], result[1]);
+				if (baseline != null && baseline.containsKey(id)) {
+					double base = baseline.get(id);
+					double change = (result[0] - base) / base;
+					line += String.format(" %+6.1f%%", change * 100);
+					if (change > allowedSlowdown) {
+						line += " REGRESSION";
+						ok = false;
+					}
+				}
+				out.println(line);
+				results.add(b.getName() + CSV_DELIM + param + CSV_DELIM +
+						result[0]);
+			}
+		}
+
+		if (outputFile != null) {
+			writeResults(outputFile, results);
+		}
+		return ok;
+	}
+
+	/**
+	 * Runs one benchmark with one parameter value
+	 * @return The average time of an operation (ns) and its standard
+	 * deviation between the measured iterations
+	 */
+	private double[] run(Benchmark b, String param) {
+		double[] times = new double[iterations];
+		try {
+			b.setUp(param);
+		} catch (Exception e) {
+			throw new RuntimeException("Can't set up " + b.getName() + "/" +
+					param, e);
+		}
+		try {
+			for (int i=0; i<warmupIterations; i++) {
+				runIteration(b);
+			}
+			for (int i=0; i<iterations; i++) {
+				times[i] = runIteration(b);
+			}
+		} finally {
+			b.tearDown();
+		}
+
+		double sum = 0;
+		for (double t : times) {
+			sum += t;
+		}
+		double mean = sum / times.length;
+		double var = 0;
+		for (double t : times) {
+			var += (t - mean) * (t - mean);
+		}
+		double dev = (times.length > 1 ? Math.sqrt(var / (times.length - 1)) :
+			0);
+		return new double[] {mean, dev};
+	}
+
+	/**
+	 * Runs the operation of a benchmark repeatedly for the iteration time
+	 * @return Average time of one operation in nanoseconds
+	 */
+	private double runIteration(Benchmark b) {
+		long duration = (long)(iterationTime * 1e9);
+		long ops = 0;
+		int consumed = 0;
+		long start = System.nanoTime();
+		long now;
+		do {
+			consumed ^= System.identityHashCode(b.run());
+			ops++;
+			now = System.nanoTime();
+		} while (now - start < duration);
+		sink = consumed;
+		return (double)(now - start) / ops;
+	}
+
+	private Map<String, Double> readResults(String file) {
+		Map<String, Double> results = new HashMap<String, Double>();
+		try {
+			BufferedReader reader = new BufferedReader(new FileReader(file));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					String[] parts = line.split(CSV_DELIM, -1);
+					if (parts.length == 3) {
+						results.put(parts[0] + "/" + parts[1],
+								Double.parseDouble(parts[2]));
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Can't read " + file, e);
+		}
+		return results;
+	}
+
+	private void writeResults(String file, List<String> results) {
+		try {
+			PrintWriter out = new PrintWriter(file);
+			try {
+				for (String line : results) {
+					out.println(line);
+				}
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Can't write " + file, e);
+		}
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+
+import core.Settings;
+import core.SimClock;
+import core.SimScenario;
+import core.SimulationContext;
+import core.World;
+
+/**
+ * Creates simulation worlds for benchmarks. Every world is created in a
+ * simulation context of its own, so the benchmarks don't see each other's
+ * state. The settings don't depend on the settings files of the project,
+ * but the hosts move like in the default scenario (cars on the Helsinki
+ * map).
+ */
+public class BenchmarkWorld {
+	/** settings common to all benchmark worlds */
+	private static final String BASE_SETTINGS =
+		"Scenario.name = benchmark\n" +
+		"Scenario.simulateConnections = true\n" +
+		"Scenario.updateInterval = 1.0\n" +
+		"Scenario.endTime = 700000\n" +
+		"Scenario.nrofHostGroups = 1\n" +
+		"wifiDirectInterface.type = InterferenceLimitedInterface\n" +
+		"wifiDirectInterface.transmitSpeed = 250000k\n" +
+		"wifiDirectInterface.transmitRange = 200\n" +
+		"Group.groupID = n\n" +
+		"Group.movementModel = CarMovement\n" +
+		"Group.speed = 8.0, 11.0\n" +
+		"Group.router = EpidemicRouter\n" +
+		"Group.bufferSize = 5M\n" +
+		"Group.nrofInterfaces = 1\n" +
+		"Group.interface1 = wifiDirectInterface\n" +
+		"Group.msgTtl = 300\n" +
+		"MovementModel.rngSeed = 1\n" +
+		"MovementModel.worldSize = 4500, 3400\n" +
+		"MapBasedMovement.nrofMapFiles = 2\n" +
+		"MapBasedMovement.mapFile1 = data/roads.wkt\n" +
+		"MapBasedMovement.mapFile2 = data/main_roads.wkt\n" +
+		"Events.nrof = 0\n" +
+		"Optimization.cellSizeMult = 5\n" +
+		"Optimization.randomizeUpdateOrder = true\n";
+
+	/**
+	 * Creates a new world in a new simulation context that the calling
+	 * thread enters
+	 * @param nrofHosts Number of hosts in the world
+	 * @param extraSettings Settings that are added to (or override) the
+	 * base settings, one setting per line
+	 * @return The new world
+	 */
+	public static World create(int nrofHosts, String extraSettings) {
+		String settings = BASE_SETTINGS + "Group.nrofHosts = " + nrofHosts +
+			"\n" + extraSettings;
+		try {
+			Settings.initFromStream(new ByteArrayInputStream(
+					settings.getBytes("ISO-8859-1")));
+		} catch (UnsupportedEncodingException e) {
+			throw new AssertionError(e);
+		}
+		new SimulationContext(0).enter();
+		SimClock.getInstance().setTime(0);
+		return SimScenario.getInstance().getWorld();
+	}
+
+	/**
+	 * Returns the calling thread to the default context
+	 */
+	public static void exit() {
+		SimulationContext.exit();
+	}
+}
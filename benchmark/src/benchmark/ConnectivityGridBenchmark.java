@@ -0,0 +1,57 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import interfaces.ConnectivityGrid;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import core.DTNHost;
+import core.NetworkInterface;
+import core.World;
+
+/**
+ * Benchmark of {@link ConnectivityGrid#getNearInterfaces(NetworkInterface)}.
+ * One operation finds the near interfaces of every interface in the world.
+ */
+public class ConnectivityGridBenchmark extends Benchmark {
+	/** how many updates to run before the measurements (to spread the
+	 * hosts from their initial locations) */
+	private static final int SETUP_UPDATES = 10;
+
+	private ConnectivityGrid grid;
+	private List<NetworkInterface> interfaces;
+
+	@Override
+	public String[] getParams() {
+		return new String[] {"500", "2000"};
+	}
+
+	@Override
+	public void setUp(String param) {
+		World world = BenchmarkWorld.create(Integer.parseInt(param), "");
+		for (int i=0; i<SETUP_UPDATES; i++) {
+			world.update();
+		}
+		interfaces = new ArrayList<NetworkInterface>();
+		for (DTNHost h : world.getHosts()) {
+			interfaces.addAll(h.getInterfaces());
+		}
+		NetworkInterface ni = interfaces.get(0);
+		grid = ConnectivityGrid.ConnectivityGridFactory(
+				ni.getInterfaceType().hashCode(), ni.getTransmitRange());
+	}
+
+	@Override
+	public Object run() {
+		Collection<NetworkInterface> near = null;
+		for (NetworkInterface ni : interfaces) {
+			near = grid.getNearInterfaces(ni);
+		}
+		return near;
+	}
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import core.NetworkInterface;
+
+/**
+ * {@link SpatialIndexBenchmark} with two radios in every host: the default
+ * long-range interface and a short-range (40 m) broadcast interface. With
+ * the shared index, the hosts are indexed once for both interface types.
+ */
+public class MultiRadioIndexBenchmark extends SpatialIndexBenchmark {
+
+	@Override
+	public String[] getParams() {
+		return new String[] {"IndexedConnectivityGrid", "KDTreeOptimizer",
+				"SharedSpatialIndex"};
+	}
+
+	@Override
+	protected String getSettings(String optimizer) {
+		return super.getSettings(optimizer) +
+			"shortRangeInterface.type = SimpleBroadcastInterface\n" +
+			"shortRangeInterface.transmitSpeed = 250k\n" +
+			"shortRangeInterface.transmitRange = 40\n" +
+			"shortRangeInterface." + NetworkInterface.OPTIMIZER_S + " = " +
+			optimizer + "\n" +
+			"Group.nrofInterfaces = 2\n" +
+			"Group.interface2 = shortRangeInterface\n";
+	}
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import input.WKTMapReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import movement.map.DijkstraPathFinder;
+import movement.map.MapNode;
+
+/**
+ * Benchmark of {@link DijkstraPathFinder#getShortestPath(MapNode, MapNode)}
+ * on the <code>data/roads.wkt</code> map. Every operation finds the path
+ * between the next one of a fixed set of random node pairs.
+ */
+public class ShortestPathBenchmark extends Benchmark {
+	/** map file used in the benchmark */
+	private static final String MAP_FILE = "data/roads.wkt";
+	/** number of different node pairs */
+	private static final int NROF_PAIRS = 100;
+
+	private DijkstraPathFinder pathFinder;
+	private MapNode[][] pairs;
+	private int next;
+
+	@Override
+	public void setUp(String param) throws IOException {
+		WKTMapReader reader = new WKTMapReader(true);
+		reader.addPaths(new File(MAP_FILE), 1);
+		List<MapNode> nodes = reader.getMap().getNodes();
+
+		Random rng = new Random(1);
+		pairs = new MapNode[NROF_PAIRS][];
+		for (int i=0; i<NROF_PAIRS; i++) {
+			pairs[i] = new MapNode[] {nodes.get(rng.nextInt(nodes.size())),
+					nodes.get(rng.nextInt(nodes.size()))};
+		}
+		pathFinder = new DijkstraPathFinder(null);
+		next = 0;
+	}
+
+	@Override
+	public Object run() {
+		MapNode[] pair = pairs[next];
+		next = (next + 1) % NROF_PAIRS;
+		return pathFinder.getShortestPath(pair[0], pair[1]);
+	}
+}
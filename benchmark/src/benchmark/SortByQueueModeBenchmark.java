@@ -0,0 +1,74 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import routing.EpidemicRouter;
+import routing.MessageRouter;
+import core.DTNHost;
+import core.Message;
+import core.Settings;
+import core.World;
+
+/**
+ * Benchmark of {@link MessageRouter#sortByQueueMode(List)} in both send
+ * queue modes. One operation sorts a list of messages that is in the same
+ * (random) order before every sort.
+ */
+public class SortByQueueModeBenchmark extends Benchmark {
+	/** number of messages in the sorted list */
+	private static final int NROF_MSGS = 1000;
+
+	private SortingRouter router;
+	private List<Message> messages;
+	private List<Message> list;
+
+	@Override
+	public String[] getParams() {
+		return new String[] {MessageRouter.STR_Q_MODE_RANDOM,
+				MessageRouter.STR_Q_MODE_FIFO};
+	}
+
+	@Override
+	public void setUp(String param) {
+		World world = BenchmarkWorld.create(2, "Group." +
+				MessageRouter.SEND_QUEUE_MODE_S + " = " + param + "\n");
+		DTNHost from = world.getHosts().get(0);
+		DTNHost to = world.getHosts().get(1);
+
+		router = new SortingRouter(new Settings("Group"));
+		messages = new ArrayList<Message>();
+		Random rng = new Random(1);
+		for (int i=0; i<NROF_MSGS; i++) {
+			Message m = new Message(from, to, "M" + i, 100);
+			m.setReceiveTime(rng.nextInt(10000));
+			messages.add(m);
+		}
+		list = new ArrayList<Message>(messages);
+	}
+
+	@Override
+	public Object run() {
+		list.clear();
+		list.addAll(messages);
+		return router.sort(list);
+	}
+
+	/**
+	 * Router that gives access to the sorting
+	 */
+	private static class SortingRouter extends EpidemicRouter {
+		private SortingRouter(Settings s) {
+			super(s);
+		}
+
+		private List<?> sort(List<Message> list) {
+			return sortByQueueMode(list);
+		}
+	}
+}
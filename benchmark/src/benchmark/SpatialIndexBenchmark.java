@@ -0,0 +1,111 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import interfaces.ConnectivityOptimizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import core.Coord;
+import core.DTNHost;
+import core.NetworkInterface;
+import core.SimClock;
+import core.World;
+
+/**
+ * Benchmark of the connectivity optimizers with cars clustered on the
+ * roads of <code>data/roads.wkt</code> (and the connecting main roads of
+ * <code>data/main_roads.wkt</code>). The parameter is the optimizer
+ * (see {@link NetworkInterface#OPTIMIZER_S}). The locations of the hosts
+ * are recorded from the movement of the cars in the setup; one operation
+ * moves all hosts to the next recorded locations, updates the optimizer
+ * and counts the interfaces within range of every interface.
+ */
+public class SpatialIndexBenchmark extends Benchmark {
+	private static final int NROF_HOSTS = 1000;
+	/** how many updates to run before recording the locations */
+	private static final int SETUP_UPDATES = 10;
+	/** how many updates' locations are recorded (and replayed in a loop) */
+	private static final int RECORDED_UPDATES = 50;
+
+	private List<DTNHost> hosts;
+	private List<NetworkInterface> interfaces;
+	/** the optimizer of each interface */
+	private List<ConnectivityOptimizer> optimizers;
+	/** recorded locations of the hosts for each update */
+	private Coord[][] locations;
+	private int nextLocations;
+
+	@Override
+	public String[] getParams() {
+		return new String[] {"ConnectivityGrid", "IndexedConnectivityGrid",
+				"KDTreeOptimizer", "SharedSpatialIndex"};
+	}
+
+	/**
+	 * Returns the settings that select the optimizer for the interfaces
+	 * @param optimizer Simple class name of the optimizer
+	 * @return The settings
+	 */
+	protected String getSettings(String optimizer) {
+		return "wifiDirectInterface." + NetworkInterface.OPTIMIZER_S + " = " +
+			optimizer + "\n";
+	}
+
+	@Override
+	public void setUp(String param) {
+		World world = BenchmarkWorld.create(NROF_HOSTS, getSettings(param));
+		hosts = world.getHosts();
+		interfaces = new ArrayList<NetworkInterface>();
+		optimizers = new ArrayList<ConnectivityOptimizer>();
+		for (DTNHost h : hosts) {
+			for (NetworkInterface ni : h.getInterfaces()) {
+				interfaces.add(ni);
+				optimizers.add(ConnectivityOptimizer.getOptimizer(param,
+					ni.getInterfaceType().hashCode(), ni.getTransmitRange()));
+			}
+		}
+
+		for (int i=0; i<SETUP_UPDATES; i++) {
+			world.update();
+		}
+		locations = new Coord[RECORDED_UPDATES][hosts.size()];
+		for (int i=0; i<RECORDED_UPDATES; i++) {
+			world.update();
+			for (int j=0; j<hosts.size(); j++) {
+				locations[i][j] = hosts.get(j).getLocation().clone();
+			}
+		}
+		nextLocations = 0;
+	}
+
+	@Override
+	public Object run() {
+		SimClock.getInstance().advance(1);
+		Coord[] locs = locations[nextLocations];
+		nextLocations = (nextLocations + 1) % locations.length;
+		for (int i=0; i<locs.length; i++) {
+			hosts.get(i).setLocation(locs[i]);
+		}
+
+		int inRange = 0;
+		for (int i=0, n=interfaces.size(); i<n; i++) {
+			optimizers.get(i).updateLocation(interfaces.get(i));
+		}
+		for (int i=0, n=interfaces.size(); i<n; i++) {
+			NetworkInterface ni = interfaces.get(i);
+			for (NetworkInterface other :
+					optimizers.get(i).getNearInterfaces(ni)) {
+				if (other != ni && ni.getHost().distance(other.getHost()) <=
+						Math.min(ni.getTransmitRange(),
+								other.getTransmitRange())) {
+					inRange++;
+				}
+			}
+		}
+		return inRange;
+	}
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import core.World;
+
+/**
+ * Benchmark of one {@link World#update()} (movement, connectivity, routing
+ * and the external events of the tick) with different numbers of hosts.
+ * The message creation events are read from the matching event files in
+ * the <code>ee</code> directory.
+ */
+public class WorldUpdateBenchmark extends Benchmark {
+	/** numbers of hosts and the event files for them */
+	private static final String[][] SETUPS = {
+		{"100", "ee/70_events_100_nodes_700ks.txt"},
+		{"500", "ee/350_events_500_nodes_700ks.txt"},
+		{"1000", "ee/700_events_1000_nodes_700ks.txt"},
+		{"2000", "ee/1400_events_2000_nodes_700ks.txt"}
+	};
+
+	private World world;
+
+	@Override
+	public String[] getParams() {
+		String[] params = new String[SETUPS.length];
+		for (int i=0; i<SETUPS.length; i++) {
+			params[i] = SETUPS[i][0];
+		}
+		return params;
+	}
+
+	@Override
+	public void setUp(String param) {
+		String eventFile = null;
+		for (String[] setup : SETUPS) {
+			if (setup[0].equals(param)) {
+				eventFile = setup[1];
+			}
+		}
+		world = BenchmarkWorld.create(Integer.parseInt(param),
+				"Events.nrof = 1\n" +
+				"Events1.class = ExternalEventsQueue\n" +
+				"Events1.filePath = " + eventFile + "\n");
+	}
+
+	@Override
+	public Object run() {
+		world.update();
+		return world;
+	}
+}
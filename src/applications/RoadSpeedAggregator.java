@@ -0,0 +1,190 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package applications;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import core.DTNHost;
+import core.Road;
+
+/**
+ * Average speeds that other hosts have reported on each road. Only the
+ * latest sample of each sender counts, and samples older than the time
+ * window are dropped. The sums and counts of each road are kept up to
+ * date as samples are added and expired, so adding a sample and asking
+ * for the average of a road take constant (amortized) time.
+ */
+public class RoadSpeedAggregator {
+	/** how long a sample is valid */
+	private final double window;
+	/** the latest sample of each sender */
+	private final HashMap<DTNHost, Sample> latest;
+	/** speed sums and sample counts by road */
+	private final HashMap<Object, RoadStats> roads;
+	/** the samples in the order they were added */
+	private final ArrayDeque<Sample> samples;
+	/** number of valid samples */
+	private int size;
+
+	/**
+	 * Creates a new aggregator
+	 * @param window How long (seconds) a sample is valid after it was added
+	 */
+	public RoadSpeedAggregator(double window) {
+		this.window = window;
+		this.latest = new HashMap<DTNHost, Sample>();
+		this.roads = new HashMap<Object, RoadStats>();
+		this.samples = new ArrayDeque<Sample>();
+		this.size = 0;
+	}
+
+	/**
+	 * Adds a speed sample. The sample replaces the previous sample of the
+	 * sender. Samples must be added in time order.
+	 * @param sender The host that reported the speed
+	 * @param road The road the sender was on (null if none)
+	 * @param speed The speed of the sender
+	 * @param time When the sample was received
+	 */
+	public void addSample(DTNHost sender, Road road, double speed,
+			double time) {
+		expire(time);
+		Sample old = latest.remove(sender);
+		if (old != null) {
+			remove(old);
+		}
+		if (road == null) {
+			return;
+		}
+
+		Sample s = new Sample(sender, key(road), speed, time);
+		RoadStats stats = roads.get(s.road);
+		if (stats == null) {
+			stats = new RoadStats();
+			roads.put(s.road, stats);
+		}
+		stats.sum += speed;
+		stats.count++;
+		latest.put(sender, s);
+		samples.addLast(s);
+		size++;
+
+		if (samples.size() > 2 * size + 16) {
+			/* drop the replaced samples so a long window doesn't keep them */
+			for (Iterator<Sample> i = samples.iterator(); i.hasNext(); ) {
+				if (!i.next().valid) {
+					i.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of valid samples on a road
+	 * @param road The road
+	 * @param now Current time
+	 * @return The number of senders whose latest sample is on the road
+	 */
+	public int getNrofSamples(Road road, double now) {
+		expire(now);
+		RoadStats stats = (road == null ? null : roads.get(key(road)));
+		return (stats == null ? 0 : stats.count);
+	}
+
+	/**
+	 * Returns the average of the valid samples on a road
+	 * @param road The road
+	 * @param now Current time
+	 * @return The average speed or NaN if there are no samples
+	 */
+	public double getAverageSpeed(Road road, double now) {
+		expire(now);
+		RoadStats stats = (road == null ? null : roads.get(key(road)));
+		if (stats == null || stats.count == 0) {
+			return Double.NaN;
+		}
+		return stats.sum / stats.count;
+	}
+
+	/**
+	 * Returns the number of valid samples on all roads
+	 * @param now Current time
+	 * @return The number of valid samples
+	 */
+	public int size(double now) {
+		expire(now);
+		return size;
+	}
+
+	/**
+	 * Drops the samples that are older than the time window
+	 */
+	private void expire(double now) {
+		double oldest = now - window;
+		while (!samples.isEmpty() && samples.peekFirst().time < oldest) {
+			Sample s = samples.removeFirst();
+			if (s.valid) {
+				latest.remove(s.sender);
+				remove(s);
+			}
+		}
+	}
+
+	/**
+	 * Removes a valid sample from the sums of its road
+	 */
+	private void remove(Sample s) {
+		RoadStats stats = roads.get(s.road);
+		stats.sum -= s.speed;
+		stats.count--;
+		if (stats.count == 0) {
+			roads.remove(s.road);
+		}
+		s.valid = false;
+		size--;
+	}
+
+	/**
+	 * Returns the key of a road: the id of a road of a road network and
+	 * the name of other roads
+	 */
+	private static Object key(Road road) {
+		if (road.getId() >= 0) {
+			return road.getId();
+		}
+		return road.getRoadName();
+	}
+
+	/**
+	 * A speed sample of one sender
+	 */
+	private static class Sample {
+		private final DTNHost sender;
+		private final Object road;
+		private final double speed;
+		private final double time;
+		/** false after the sample was replaced or expired */
+		private boolean valid;
+
+		private Sample(DTNHost sender, Object road, double speed,
+				double time) {
+			this.sender = sender;
+			this.road = road;
+			this.speed = speed;
+			this.time = time;
+			this.valid = true;
+		}
+	}
+
+	/**
+	 * Speed sum and number of samples of a road
+	 */
+	private static class RoadStats {
+		private double sum;
+		private int count;
+	}
+}
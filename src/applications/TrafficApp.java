@@ -18,11 +18,12 @@ import java.util.Random;
 
 import report.TrafficAppReporter;
 import core.Application;
-import core.Connection;
+import core.Beacon;
 import core.Coord;
 import core.DTNHost;
 import core.Message;
 import core.Road;
+import core.RoadNetwork;
 import core.Settings;
 import core.SimClock;
 import core.SimScenario;
@@ -32,6 +33,7 @@ import gui.playfield.MapGraphic;
 import movement.map.SimMap;
 import movement.Path;
 import movement.map.MapNode;
+import movement.map.ReroutingEngine;
 import java.util.HashMap;
 
 /**
@@ -57,6 +59,9 @@ public class TrafficApp extends Application{
 	public static final String TRAFFIC_SEED = "seed";
 	/** Size of the ping message */
 	public static final String TRAFFIC_MESSAGE_SIZE = "pingSize";
+	/** How long (seconds) a received speed is used for the traffic
+	 * condition ({@value}). Default = 10. */
+	public static final String TRAFFIC_SAMPLE_WINDOW = "sampleWindow";
 	
 	/** Application ID */
 	public static final String APP_ID = "fi.tkk.netlab.TrafficApp";
@@ -75,8 +80,12 @@ public class TrafficApp extends Application{
 	private int		destMin=0;
 	private int		destMax=1;
 	private int		appMsgSize=1;
+	private double	sampleWindow = 10;
 	private Random	rng;
-	private List<Message> msgs_list;
+	/** speeds received from the other hosts by road */
+	private RoadSpeedAggregator speeds;
+	/** the latest road where the host was rerouted */
+	private Road reroutedOn;
 	
 	private Line2D myRoadSegment;
 	private List<Coord> road_segments;
@@ -101,6 +110,9 @@ public class TrafficApp extends Application{
 		if (s.contains(TRAFFIC_MESSAGE_SIZE)) {
 			this.appMsgSize = s.getInt(TRAFFIC_MESSAGE_SIZE);
 		}
+		if (s.contains(TRAFFIC_SAMPLE_WINDOW)) {
+			this.sampleWindow = s.getDouble(TRAFFIC_SAMPLE_WINDOW);
+		}
 		if (s.contains(TRAFFIC_DEST_RANGE)){
 			int[] destination = s.getCsvInts(TRAFFIC_DEST_RANGE,2);
 			this.destMin = destination[0];
@@ -124,8 +136,9 @@ public class TrafficApp extends Application{
 		this.destMin = a.getDestMin();
 		this.seed = a.getSeed();
 		this.appMsgSize = a.getAppMsgSize();
+		this.sampleWindow = a.sampleWindow;
 		this.rng = new Random(this.seed);
-		this.msgs_list = new ArrayList<Message>();
+		this.speeds = new RoadSpeedAggregator(this.sampleWindow);
 		this.segmentsHashMap = new HashMap<Coord, List<Coord>>();
 		this.road_segments = new ArrayList<Coord>();
 	}
@@ -145,19 +158,12 @@ public class TrafficApp extends Application{
 			 if (type==null) return msg;
 				if (msg.getTo()==host && type.equalsIgnoreCase("traffic")) {
 //					System.out.println(SimClock.getTime() + " --- " + host + " received " + msg.getFrom() + "'s message");
-					if(msgs_list!=null) {
-							for(Message mm : msgs_list) {
-								//System.out.println("msg: " + msg.getFrom() + " mm: " + mm.getFrom());
-								if(msg.getFrom().equals(mm.getFrom()))
-									
-									msgs_list.remove(mm);
-							}
-						
-					}
-					
-					msgs_list.add(msg);
+					speeds.addSample(msg.getFrom(),
+							(Road)msg.getProperty("currentRoad"),
+							(Double)msg.getProperty("speed"),
+							SimClock.getTime());
 
-					getTrafficCondition(msgs_list, host);
+					getTrafficCondition(host);
 					
 					
 				}				
@@ -166,26 +172,27 @@ public class TrafficApp extends Application{
 		return msg;
 	}
 
-	public double getTrafficCondition(List<Message> msgs, DTNHost host) {
-		this.average = 0;
-		double oppAve = 0;
-		this.nodeOnRoad = 0;
-		int oppCtr = 0;
+	/**
+	 * Computes the average speed the other hosts have reported on the
+	 * host's current road and reports the traffic condition
+	 * @param host The host
+	 * @return The average speed (NaN if there are no reports)
+	 */
+	public double getTrafficCondition(DTNHost host) {
+		double now = SimClock.getTime();
 		String condition = "";
 		
-		for(Message m : msgs) {
-			Road other = (Road) m.getProperty("currentRoad");
-			if(host.getCurrentRoad().getRoadName().equals(other.getRoadName())) {
-				this.average = this.average + (double) m.getProperty("speed");
-					this.nodeOnRoad++;
-			}
+		this.nodeOnRoad = speeds.getNrofSamples(host.getCurrentRoad(), now);
+		this.average = speeds.getAverageSpeed(host.getCurrentRoad(), now);
+		ReroutingEngine engine = getReroutingEngine(host);
+		if (engine != null && this.nodeOnRoad > 0) {
+			engine.setSpeed(host.getCurrentRoad(), this.average);
 		}
-		this.average = this.average/this.nodeOnRoad;
 		if(this.average <= 5) {
 			condition = this.TRAFFIC_HEAVY;
 //			System.out.println(host + " in " + host.getLocation() + ". HEAVY TRAFFIC in " + host.getCurrentRoad().getRoadName());
 			if(host.toString().startsWith("n")) {
-				getAlternativePath(host.getPreviousDestination(), host.getCurrentPathDestination(), host.getPath());
+				getAlternativePath(host);
 //				host.setRerouteWaypoint(host.getPreviousDestination());
 			}
 		}
@@ -195,7 +202,7 @@ public class TrafficApp extends Application{
 			condition = this.TRAFFIC_LIGHT;
 		
 		if(this.nodeOnRoad > 0) {
-			System.out.println(host + " local average on " + host.getCurrentRoad().getRoadName() + " with " + this.nodeOnRoad + " out of " + msgs.size() + " node/s : " + this.average + " " + condition);
+			System.out.println(host + " local average on " + host.getCurrentRoad().getRoadName() + " with " + this.nodeOnRoad + " out of " + speeds.size(now) + " node/s : " + this.average + " " + condition);
 			super.sendEventToListeners("ToReporter", host.getCurrentRoad().getRoadName(), SimClock.getTime(), this.average, condition, this, host);
 		}
 		
@@ -244,42 +251,64 @@ public class TrafficApp extends Application{
 		
 		double curTime = SimClock.getTime();
 
-		try {
-			for(Connection con : host.getConnections()) {
-				
-				if (con.isUp()) {
-
-					if ((curTime - this.lastAppUpdate)% 2.0 == 0) {
-						
-						// Time to send a new ping
-						String id = "traffic";
-						String idd = SimClock.getIntTime() + "-" + host+" "+host.getCurrentRoad().getRoadName()+": " + host.getCurrentSpeed();
-						
-						Message m = new Message(host, con.getOtherNode(host), id+idd, getAppMsgSize());
-						m.addProperty("type", id);
-						m.addProperty("location", host.getLocation());
-						m.addProperty("speed", host.getCurrentSpeed());
-						m.addProperty("currentRoad", host.getCurrentRoad());
-//						m.addProperty("currentRoadStatus", host.getCurrentRoadStatus());
-						m.setAppID(APP_ID);
-						host.createNewMessage(m);
-
-						super.sendEventToListeners("SentPing", null, host);
-						//System.out.println(SimClock.getTime() + " --- " + host + " has sent a msg to connection: " + con.getOtherNode(host) + " @" +m.getCreationTime());
-						this.lastAppUpdate = curTime;
-					}
-				}
-
+		if ((curTime - this.lastAppUpdate)% 2.0 == 0) {
+			// Time to send a new beacon to the connected hosts
+			int receivers = host.sendBeacon(new Beacon(host, APP_ID));
+			for (int i=0; i<receivers; i++) {
+				super.sendEventToListeners("SentPing", null, host);
+			}
+			if (receivers > 0) {
+				this.lastAppUpdate = curTime;
 			}
-			
-		}catch(Exception e) {
-
 		}
 	}
+
+	/**
+	 * Handles a beacon of a connected host: adds the host's speed to the
+	 * speeds of its road and updates the traffic condition
+	 * @param beacon The beacon
+	 * @param host The host this application instance is attached to
+	 */
+	@Override
+	public void handleBeacon(Beacon beacon, DTNHost host) {
+		speeds.addSample(beacon.getFrom(), beacon.getRoad(),
+				beacon.getSpeed(), SimClock.getTime());
+		getTrafficCondition(host);
+	}
 	
-	public void getAlternativePath(Coord start, Coord destination, Path path) {
-		System.out.println("Rerouting -- starting from: " + start + " to destination: " + destination);
-//		System.out.println("Path: " + path);
+	/**
+	 * Gives the host the fastest route (with the current road speeds) from
+	 * the end of its current road to the destination of its path. A host
+	 * is rerouted only once on each road.
+	 * @param host The host
+	 */
+	public void getAlternativePath(DTNHost host) {
+		ReroutingEngine engine = getReroutingEngine(host);
+		Path path = host.getPath();
+		Road road = host.getCurrentRoad();
+		if (engine == null || path == null || road == null ||
+				road.isSameRoad(this.reroutedOn)) {
+			return;
+		}
+		this.reroutedOn = road;
+
+		Coord start = host.getCurrentDestination();
+		Coord destination = host.getCurrentPathDestination();
+		Path p = engine.getPath(start, destination, path.getSpeed());
+		if (p != null) {
+			System.out.println("Rerouting -- starting from: " + start + " to destination: " + destination);
+			host.setReroutePath(p);
+		}
+	}
+
+	/**
+	 * Returns the rerouting engine of the host's road network
+	 * @param host The host
+	 * @return The engine or null if the host doesn't move on a map
+	 */
+	private ReroutingEngine getReroutingEngine(DTNHost host) {
+		RoadNetwork network = host.getRoadNetwork();
+		return (network == null ? null : ReroutingEngine.getInstance(network));
 	}
 
 	//compute travel time of host on current path
@@ -83,7 +83,6 @@ public class TrafficApplication extends Application{
 	private Random	rng;
 	private List<Message> msgs_list;
 	private Coord previousLocation;
-	private Coord currentLocation;
 	private String hostIsHeadingto;
 	
 	/** 
@@ -223,15 +222,15 @@ public class TrafficApplication extends Application{
 	@Override
 	public void update(DTNHost host) {
 		double curTime = SimClock.getTime();
-		this.currentLocation = host.getLocation().clone();
+		Coord currentLocation = host.getLocation();
 		
 		if(this.previousLocation == null) {
-			this.previousLocation = currentLocation; 
+			this.previousLocation = currentLocation.clone(); 
 		}
 		if(curTime - this.lastLocUpdate >= this.locInterval) {
-			this.hostIsHeadingto = getHostHeading(host, this.currentLocation, this.previousLocation);
+			this.hostIsHeadingto = getHostHeading(host, currentLocation, this.previousLocation);
 			this.lastLocUpdate = curTime;
-			this.previousLocation = this.currentLocation;
+			this.previousLocation.setLocation(currentLocation);
 		}
 		
 		
@@ -247,7 +246,7 @@ public class TrafficApplication extends Application{
 					
 					Message m = new Message(host, randomHost(), id+idd, getPingSize());
 					m.addProperty("type", id);
-					m.addProperty("location", host.getLocation());
+					m.addProperty("location", host.getLocation().clone());
 					m.addProperty("speed", host.getPath().getSpeed());
 					m.addProperty("heading", this.hostIsHeadingto);
 					m.addProperty("myPathCoords", host.getPath().getCoords());
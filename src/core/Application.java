@@ -70,6 +70,17 @@ public abstract class Application {
 	 */
 	public abstract Message handle(Message msg, DTNHost host);
 
+	/**
+	 * Handles a beacon that a connected host sent to the applications with
+	 * this application's ID (see {@link DTNHost#sendBeacon(Beacon)}). The
+	 * default implementation ignores the beacon.
+	 *
+	 * @param beacon	The received beacon.
+	 * @param host	The host this application instance is attached to.
+	 */
+	public void handleBeacon(Beacon beacon, DTNHost host) {
+	}
+
 
 	/**
 	 * Called every simulation cycle.
@@ -0,0 +1,24 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.List;
+
+/**
+ * Connection listener that can handle all the connection changes of an
+ * update round at once. When the connection events are batched (see
+ * {@link World#BATCH_CONNECTION_EVENTS_S}), the listener gets the changes
+ * only through {@link #connectionsChanged(List)}; otherwise the
+ * {@link ConnectionListener} methods are called for every change.
+ */
+public interface BatchConnectionListener extends ConnectionListener {
+
+	/**
+	 * Method is called once per update round with the connection changes
+	 * of the round, if there were any.
+	 * @param changes The changes in the order they happened
+	 */
+	public void connectionsChanged(List<ConnectionChange> changes);
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+/**
+ * A one-hop status broadcast of a host: where the host is, how fast it
+ * moves and on which road. Beacons are given directly to the applications
+ * of the connected hosts (see {@link DTNHost#sendBeacon(Beacon)} and
+ * {@link Application#handleBeacon(Beacon, DTNHost)}); they don't go
+ * through the routers, message buffers or message listeners.
+ */
+public class Beacon {
+	private final DTNHost from;
+	private final String appID;
+	private final double time;
+	private final Coord location;
+	private final double speed;
+	private final Road road;
+
+	/**
+	 * Creates a beacon with the current status of a host
+	 * @param from The host that sends the beacon
+	 * @param appID ID of the applications that receive the beacon
+	 */
+	public Beacon(DTNHost from, String appID) {
+		this.from = from;
+		this.appID = appID;
+		this.time = SimClock.getTime();
+		Coord loc = from.getLocation();
+		this.location = (loc == null ? null : loc.clone());
+		this.speed = from.getCurrentSpeed();
+		this.road = from.getCurrentRoad();
+	}
+
+	/**
+	 * Returns the host that sent the beacon
+	 * @return The sender
+	 */
+	public DTNHost getFrom() {
+		return this.from;
+	}
+
+	/**
+	 * Returns the ID of the applications that receive the beacon
+	 * @return The application ID
+	 */
+	public String getAppID() {
+		return this.appID;
+	}
+
+	/**
+	 * Returns the time when the beacon was sent
+	 * @return The creation time
+	 */
+	public double getCreationTime() {
+		return this.time;
+	}
+
+	/**
+	 * Returns the location of the sender when the beacon was sent
+	 * @return The location (or null if the sender had none)
+	 */
+	public Coord getLocation() {
+		return this.location;
+	}
+
+	/**
+	 * Returns the speed of the sender when the beacon was sent
+	 * @return The speed
+	 */
+	public double getSpeed() {
+		return this.speed;
+	}
+
+	/**
+	 * Returns the road the sender was on when the beacon was sent
+	 * @return The road (or null if the sender wasn't on a road)
+	 */
+	public Road getRoad() {
+		return this.road;
+	}
+}
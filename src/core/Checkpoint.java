@@ -0,0 +1,436 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes and reads checkpoints of the movement state of the world: the
+ * simulation time, the movement state of all hosts (locations, paths and
+ * movement models), the state shared by the movement models (e.g., their
+ * random number generator and bus control systems) and the update order of
+ * the hosts. Checkpoints are gzipped object streams.
+ * <P>
+ * A warm-up checkpoint (see {@link #WARMUP_FILE_S}) replaces the movement
+ * warm-up of later runs that have the same movement settings. Mid-run
+ * snapshots (see {@link #SNAPSHOT_TIMES_S}) can be used to resume or fork
+ * a run with {@link #RESUME_FILE_S}. Routers, connections, messages,
+ * applications and reports are not part of a checkpoint, so a resumed run
+ * starts with empty buffers and no connections, and the events of the
+ * event queues before the resume time are skipped. Movement listeners are
+ * not told about the moves that were restored from a checkpoint.
+ * </P>
+ * <P>
+ * A checkpoint can only be used with the same settings that it was written
+ * with, except for the settings that don't affect movement: reports,
+ * events, profiler, checkpoint and router settings, the number of worker
+ * threads, the route cache size, and the scenario's name and end time.
+ * </P>
+ */
+public class Checkpoint {
+	/** Checkpoint settings namespace ({@value}) */
+	public static final String CHECKPOINT_NS = "Checkpoint";
+	/**
+	 * Warm-up checkpoint file -setting id ({@value}). If the file exists and
+	 * was written with the same settings, the world is restored from it
+	 * instead of running the movement warm-up. Otherwise the warm-up is run
+	 * and the file is (re)written. Values of other settings can be filled in
+	 * the name like in report file names (e.g., %%Scenario.name%%).
+	 */
+	public static final String WARMUP_FILE_S = "warmupFile";
+	/**
+	 * Mid-run snapshot times -setting id ({@value}). Comma separated list of
+	 * simulation times. A snapshot is written after the first update at or
+	 * after each time. Requires {@link #SNAPSHOT_FILE_S}.
+	 */
+	public static final String SNAPSHOT_TIMES_S = "snapshotTimes";
+	/**
+	 * Mid-run snapshot file name prefix -setting id ({@value}). The
+	 * simulation time (in whole seconds) of the snapshot is appended to the
+	 * prefix. Setting values can be filled in like in {@link #WARMUP_FILE_S}.
+	 */
+	public static final String SNAPSHOT_FILE_S = "snapshotFile";
+	/**
+	 * Resume file -setting id ({@value}). A checkpoint to start the run from
+	 * instead of the movement warm-up.
+	 */
+	public static final String RESUME_FILE_S = "resumeFile";
+
+	/** identifier of the checkpoint format */
+	private static final String FORMAT = "ONE checkpoint 1";
+	/** namespaces of settings that don't affect movement */
+	private static final String[] IGNORED_NAMESPACES = {CHECKPOINT_NS,
+		report.Report.REPORT_NS, "Events", "Settings", "GUI",
+		TickProfiler.PROFILER_NS};
+	/** settings that don't affect movement (the other optimization
+	 * settings may change the results, e.g., the update order) */
+	private static final String[] IGNORED_SETTINGS = {
+		SimScenario.SCENARIO_NS + "." + SimScenario.NAME_S,
+		SimScenario.SCENARIO_NS + "." + SimScenario.END_TIME_S,
+		World.OPTIMIZATION_SETTINGS_NS + "." + World.WORKER_THREADS_S,
+		World.OPTIMIZATION_SETTINGS_NS + "." +
+			movement.map.RouteCache.ROUTE_CACHE_SIZE_S};
+	/** the (last part of the) name of router settings */
+	private static final String ROUTER_SETTING = SimScenario.ROUTER_S;
+
+	private final World world;
+	private final String fingerprint;
+	private String warmupFile;
+	private String resumeFile;
+	private String snapshotFile;
+	private double[] snapshotTimes;
+	private int nextSnapshot;
+
+	/**
+	 * Creates a checkpoint handler for a world based on the checkpoint
+	 * settings
+	 * @param world The world whose state is checkpointed
+	 */
+	public Checkpoint(World world) {
+		Settings s = new Settings(CHECKPOINT_NS);
+		this.world = world;
+		this.fingerprint = settingsFingerprint();
+
+		if (s.contains(WARMUP_FILE_S)) {
+			this.warmupFile = s.valueFillString(s.getSetting(WARMUP_FILE_S));
+		}
+		if (s.contains(RESUME_FILE_S)) {
+			this.resumeFile = s.valueFillString(s.getSetting(RESUME_FILE_S));
+		}
+		if (s.contains(SNAPSHOT_TIMES_S)) {
+			this.snapshotFile = s.valueFillString(
+					s.getSetting(SNAPSHOT_FILE_S));
+			this.snapshotTimes = s.getCsvDoubles(SNAPSHOT_TIMES_S);
+			Arrays.sort(this.snapshotTimes);
+		}
+		this.nextSnapshot = 0;
+	}
+
+	/**
+	 * Restores the world from the resume file, if one is set, and skips
+	 * the events before the resume time
+	 * @return True if the world was restored, false if no file was set
+	 * @throws SimError if the file can't be read or doesn't match the
+	 * settings
+	 */
+	public boolean resume() {
+		if (this.resumeFile == null) {
+			return false;
+		}
+		try {
+			if (!read(new File(this.resumeFile))) {
+				throw new SimError("Checkpoint " + this.resumeFile +
+						" was written with different settings");
+			}
+		} catch (IOException e) {
+			throw new SimError("Can't read checkpoint " + this.resumeFile +
+					": " + e, e);
+		}
+		this.world.skipEvents(SimClock.getTime());
+		while (this.snapshotTimes != null &&
+				this.nextSnapshot < this.snapshotTimes.length &&
+				this.snapshotTimes[this.nextSnapshot] <= SimClock.getTime()) {
+			this.nextSnapshot++;
+		}
+		return true;
+	}
+
+	/**
+	 * Restores the world from the warm-up checkpoint if a checkpoint file is
+	 * set and it was written with the same settings
+	 * @return True if the world was restored, false if the warm-up needs
+	 * to be run
+	 */
+	public boolean restoreWarmup() {
+		if (this.warmupFile == null || !new File(this.warmupFile).exists()) {
+			return false;
+		}
+		try {
+			return read(new File(this.warmupFile));
+		} catch (IOException e) {
+			/* e.g. written by an incompatible version; warm up again */
+			System.err.println("Ignoring warm-up checkpoint " +
+					this.warmupFile + ": " + e);
+			return false;
+		}
+	}
+
+	/**
+	 * Writes the warm-up checkpoint, if a file is set. Must be called
+	 * right after the warm-up.
+	 */
+	public void saveWarmup() {
+		if (this.warmupFile != null) {
+			write(new File(this.warmupFile));
+		}
+	}
+
+	/**
+	 * Writes a snapshot if the time of the next one has come. Should be
+	 * called after every world update.
+	 */
+	public void updated() {
+		if (this.snapshotTimes == null) {
+			return;
+		}
+		boolean due = false;
+		while (this.nextSnapshot < this.snapshotTimes.length &&
+				this.snapshotTimes[this.nextSnapshot] <= SimClock.getTime()) {
+			this.nextSnapshot++;
+			due = true;
+		}
+		if (due) {
+			write(new File(this.snapshotFile + "_" + SimClock.getIntTime()));
+		}
+	}
+
+	/**
+	 * Writes the current state of the world to a file
+	 * @param file The file to write to
+	 * @throws SimError if the state can't be written
+	 */
+	public void write(File file) {
+		List<DTNHost> hosts = this.world.getHosts();
+		ArrayList<Object[]> hostStates = new ArrayList<Object[]>();
+		for (DTNHost h : hosts) {
+			hostStates.add(h.getMovementState());
+		}
+
+		HashMap<String, Object> moduleStates = new HashMap<String, Object>();
+		for (Map.Entry<Class<?>, Object> e : SimulationContext.current().
+				getModuleStates().entrySet()) {
+			if (isMovementModule(e.getKey())) {
+				moduleStates.put(e.getKey().getName(), e.getValue());
+			}
+		}
+
+		File tmp = new File(file.getPath() + ".tmp");
+		try {
+			ObjectOutputStream out = new CheckpointOutputStream(
+					new GZIPOutputStream(new BufferedOutputStream(
+							new FileOutputStream(tmp))), hosts);
+			try {
+				out.writeUTF(FORMAT);
+				out.writeUTF(this.fingerprint);
+				out.writeDouble(SimClock.getTime());
+				out.writeInt(hosts.size());
+				out.writeObject(moduleStates);
+				out.writeObject(hostStates);
+				out.writeObject(this.world.getUpdateOrder());
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			tmp.delete();
+			throw new SimError("Can't write checkpoint " + file + ": " + e, e);
+		}
+		if (file.exists()) {
+			file.delete();
+		}
+		if (!tmp.renameTo(file)) {
+			throw new SimError("Can't write checkpoint " + file);
+		}
+	}
+
+	/**
+	 * Restores the state of the world from a file if it was written with
+	 * the same settings. Nothing is changed if the reading fails.
+	 * @param file The file to read
+	 * @return True if the state was restored, false if the settings differ
+	 * @throws IOException if the file can't be read
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean read(File file) throws IOException {
+		List<DTNHost> hosts = this.world.getHosts();
+		double time;
+		Map<String, Object> moduleStates;
+		List<Object[]> hostStates;
+		int[] updateOrder;
+
+		ObjectInputStream in = new CheckpointInputStream(
+				new GZIPInputStream(new BufferedInputStream(
+						new FileInputStream(file))), hosts);
+		try {
+			if (!FORMAT.equals(in.readUTF())) {
+				throw new IOException("Not a checkpoint file");
+			}
+			if (!this.fingerprint.equals(in.readUTF())) {
+				return false;
+			}
+			time = in.readDouble();
+			if (in.readInt() != hosts.size()) {
+				return false;
+			}
+			moduleStates = (Map<String, Object>)in.readObject();
+			hostStates = (List<Object[]>)in.readObject();
+			updateOrder = (int[])in.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e.toString());
+		} finally {
+			in.close();
+		}
+
+		for (Map.Entry<String, Object> e : moduleStates.entrySet()) {
+			try {
+				SimulationContext.setModuleState(Class.forName(e.getKey()),
+						e.getValue());
+			} catch (ClassNotFoundException ex) {
+				throw new SimError("Unknown module in checkpoint", ex);
+			}
+		}
+		for (int i=0, n=hosts.size(); i<n; i++) {
+			hosts.get(i).setMovementState(hostStates.get(i));
+		}
+		this.world.setUpdateOrder(updateOrder);
+		SimClock.getInstance().setTime(time);
+		return true;
+	}
+
+	/**
+	 * Returns true if the owner of a module state is a movement module
+	 */
+	private static boolean isMovementModule(Class<?> owner) {
+		return owner.getName().startsWith("movement.");
+	}
+
+	/**
+	 * Returns a hash of the settings that may affect movement
+	 */
+	private static String settingsFingerprint() {
+		if (Settings.props == null) {
+			Settings.init(null);
+		}
+		Set<String> ignoredNamespaces = new HashSet<String>(
+				Arrays.asList(IGNORED_NAMESPACES));
+		Set<String> ignoredSettings = new HashSet<String>(
+				Arrays.asList(IGNORED_SETTINGS));
+		Set<String> names = new TreeSet<String>(
+				Settings.props.stringPropertyNames());
+		for (String name : names) { /* routers' own namespaces */
+			if (name.endsWith("." + ROUTER_SETTING)) {
+				ignoredSettings.add(name);
+				ignoredNamespaces.add(Settings.runValue(
+						Settings.props.getProperty(name)));
+			}
+		}
+
+		StringBuilder sb = new StringBuilder();
+		for (String name : names) {
+			int dot = name.indexOf('.');
+			String ns = (dot < 0 ? "" : name.substring(0, dot));
+			if (ignoredNamespaces.contains(ns) ||
+					ignoredSettings.contains(name)) {
+				continue;
+			}
+			sb.append(name).append('=').append(
+					Settings.runValue(Settings.props.getProperty(name)));
+			sb.append('\n');
+		}
+
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-256");
+			StringBuilder hex = new StringBuilder();
+			for (byte b : md.digest(sb.toString().getBytes("UTF-8"))) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new SimError(e);
+		} catch (IOException e) {
+			throw new SimError(e);
+		}
+	}
+
+	/**
+	 * Reference to a host (or its module communication bus) in a checkpoint
+	 */
+	private static class HostRef implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private final int address;
+		private final boolean comBus;
+
+		private HostRef(int address, boolean comBus) {
+			this.address = address;
+			this.comBus = comBus;
+		}
+	}
+
+	/**
+	 * Object stream that writes references to hosts instead of the hosts
+	 */
+	private static class CheckpointOutputStream extends ObjectOutputStream {
+		private final Map<Object, HostRef> refs;
+
+		private CheckpointOutputStream(OutputStream out, List<DTNHost> hosts)
+			throws IOException {
+			super(out);
+			this.refs = new IdentityHashMap<Object, HostRef>();
+			for (DTNHost h : hosts) {
+				refs.put(h, new HostRef(h.getAddress(), false));
+				if (h.getComBus() != null) {
+					refs.put(h.getComBus(), new HostRef(h.getAddress(), true));
+				}
+			}
+			enableReplaceObject(true);
+		}
+
+		@Override
+		protected Object replaceObject(Object obj) {
+			HostRef ref = refs.get(obj);
+			return (ref != null ? ref : obj);
+		}
+	}
+
+	/**
+	 * Object stream that resolves host references to the hosts
+	 */
+	private static class CheckpointInputStream extends ObjectInputStream {
+		private final List<DTNHost> hosts;
+
+		private CheckpointInputStream(InputStream in, List<DTNHost> hosts)
+			throws IOException {
+			super(in);
+			this.hosts = hosts;
+			enableResolveObject(true);
+		}
+
+		@Override
+		protected Object resolveObject(Object obj) throws IOException {
+			if (!(obj instanceof HostRef)) {
+				return obj;
+			}
+			HostRef ref = (HostRef)obj;
+			if (ref.address < 0 || ref.address >= hosts.size()) {
+				throw new IOException("Unknown host " + ref.address);
+			}
+			DTNHost host = hosts.get(ref.address);
+			return (ref.comBus ? host.getComBus() : host);
+		}
+	}
+}
@@ -72,6 +72,9 @@ public abstract class Connection {
 	 * @param state True if the connection is up, false if not
 	 */
 	public void setUpState(boolean state) {
+		if (this.msgOnFly != null && state != this.isUp) {
+			transfersChanged(state ? 1 : -1);
+		}
 		this.isUp = state;
 	}
 
@@ -120,10 +123,36 @@ public abstract class Connection {
 	 * Calls to {@link #getMessage()} will return null after this.
 	 */
 	protected void clearMsgOnFly() {
+		if (this.msgOnFly != null && this.isUp) {
+			transfersChanged(-1);
+		}
 		this.msgOnFly = null;
 		this.msgFromNode = null;
 	}
 
+	/**
+	 * Sets the message that is currently being transferred
+	 * @param m The message
+	 */
+	protected void setMsgOnFly(Message m) {
+		assert this.msgOnFly == null : "Already transferring " + msgOnFly;
+		this.msgOnFly = m;
+		if (this.isUp) {
+			transfersChanged(1);
+		}
+	}
+
+	/**
+	 * Updates the transfer counts of the interfaces at both ends. Only the
+	 * connections that are up (i.e., in the interfaces' connection lists)
+	 * are counted.
+	 * @param delta The change of the number of transfers
+	 */
+	private void transfersChanged(int delta) {
+		this.fromInterface.transferCountChanged(delta);
+		this.toInterface.transferCountChanged(delta);
+	}
+
 	/**
 	 * Finalizes the transfer of the currently transferred message.
 	 * The message that was being transferred can <STRONG>not</STRONG> be
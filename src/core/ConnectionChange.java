@@ -0,0 +1,86 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+/**
+ * A connection that went up or down, as delivered in a batch of connection
+ * changes (see {@link ConnectionEventBatch}).
+ */
+public class ConnectionChange {
+	private final boolean up;
+	private final Connection con;
+	private final NetworkInterface ni;
+	private final NetworkInterface otherNi;
+
+	/**
+	 * Creates a new connection change
+	 * @param up True if the connection went up, false if it went down
+	 * @param con The connection
+	 * @param ni The interface that initiated the change
+	 * @param otherNi The interface at the other end of the connection
+	 */
+	public ConnectionChange(boolean up, Connection con, NetworkInterface ni,
+			NetworkInterface otherNi) {
+		this.up = up;
+		this.con = con;
+		this.ni = ni;
+		this.otherNi = otherNi;
+	}
+
+	/**
+	 * Returns true if the connection went up and false if it went down.
+	 * The current state of the connection may be different if the connection
+	 * changed again later in the same batch.
+	 * @return True for a new connection
+	 */
+	public boolean isUp() {
+		return this.up;
+	}
+
+	/**
+	 * Returns the connection that changed
+	 * @return The connection
+	 */
+	public Connection getConnection() {
+		return this.con;
+	}
+
+	/**
+	 * Returns the interface that initiated the change
+	 * @return The interface
+	 */
+	public NetworkInterface getInterface() {
+		return this.ni;
+	}
+
+	/**
+	 * Returns the interface at the other end of the connection
+	 * @return The other interface
+	 */
+	public NetworkInterface getOtherInterface() {
+		return this.otherNi;
+	}
+
+	/**
+	 * Returns the host that initiated the change
+	 * @return The host
+	 */
+	public DTNHost getHost() {
+		return this.ni.getHost();
+	}
+
+	/**
+	 * Returns the host at the other end of the connection
+	 * @return The other host
+	 */
+	public DTNHost getOtherHost() {
+		return this.otherNi.getHost();
+	}
+
+	@Override
+	public String toString() {
+		return (up ? "up " : "down ") + getHost() + "<->" + getOtherHost();
+	}
+}
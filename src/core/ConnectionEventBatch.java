@@ -0,0 +1,105 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the connection changes of an update round so that the connection
+ * listeners and the routers can be informed about them at once (see
+ * {@link World#BATCH_CONNECTION_EVENTS_S}). The connections themselves are
+ * created and torn down immediately; only the notifications are delayed.
+ */
+public class ConnectionEventBatch {
+	private List<ConnectionChange> changes;
+
+	/**
+	 * Creates a new, empty batch
+	 */
+	public ConnectionEventBatch() {
+		this.changes = new ArrayList<ConnectionChange>();
+	}
+
+	/**
+	 * Adds a connection change to the batch
+	 * @param change The change
+	 */
+	void add(ConnectionChange change) {
+		this.changes.add(change);
+	}
+
+	/**
+	 * Returns the number of changes in the batch
+	 * @return The number of changes waiting for delivery
+	 */
+	public int size() {
+		return this.changes.size();
+	}
+
+	/**
+	 * Delivers the changes of the batch and empties it. The
+	 * {@link ConnectionListener}s of the interfaces are called for every
+	 * change in order, except that each {@link BatchConnectionListener} gets
+	 * all its changes with one call. Then each host's router gets the
+	 * changes of its connections with one call.
+	 */
+	public void flush() {
+		if (this.changes.isEmpty()) {
+			return;
+		}
+		List<ConnectionChange> batch = this.changes;
+		this.changes = new ArrayList<ConnectionChange>();
+
+		Map<BatchConnectionListener, List<ConnectionChange>> listenerChanges =
+			new LinkedHashMap<BatchConnectionListener, List<ConnectionChange>>();
+		Map<DTNHost, List<ConnectionChange>> hostChanges =
+			new LinkedHashMap<DTNHost, List<ConnectionChange>>();
+
+		for (ConnectionChange c : batch) {
+			List<ConnectionListener> listeners =
+				c.getInterface().getConnectionListeners();
+			if (listeners != null) {
+				for (ConnectionListener cl : listeners) {
+					if (cl instanceof BatchConnectionListener) {
+						changesOf(listenerChanges,
+								(BatchConnectionListener)cl).add(c);
+					}
+					else {
+						c.getInterface().notifyConnectionListener(cl,
+								c.isUp(), c.getOtherInterface());
+					}
+				}
+			}
+			changesOf(hostChanges, c.getHost()).add(c);
+			changesOf(hostChanges, c.getOtherHost()).add(c);
+		}
+
+		for (Map.Entry<BatchConnectionListener, List<ConnectionChange>> e :
+				listenerChanges.entrySet()) {
+			e.getKey().connectionsChanged(e.getValue());
+		}
+		for (Map.Entry<DTNHost, List<ConnectionChange>> e :
+				hostChanges.entrySet()) {
+			e.getKey().connectionsChanged(e.getValue());
+		}
+	}
+
+	/**
+	 * Returns the list of changes of a key from a map, adding a new list
+	 * for the key if it doesn't have one yet
+	 */
+	private static <K> List<ConnectionChange> changesOf(
+			Map<K, List<ConnectionChange>> map, K key) {
+		List<ConnectionChange> list = map.get(key);
+		if (list == null) {
+			list = new ArrayList<ConnectionChange>();
+			map.put(key, list);
+		}
+		return list;
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+/**
+ * Table of the connections that are up, keyed by the addresses of the two
+ * network interfaces of a connection. Uses open addressing (linear probing)
+ * on primitive arrays, so the lookups don't allocate and take constant
+ * time regardless of the number of connections an interface has. There
+ * can be at most one connection between two interfaces.
+ */
+public class ConnectionTable {
+	/** initial number of slots (must be a power of two) */
+	private static final int INITIAL_CAPACITY = 64;
+
+	private long[] keys;
+	/** connections by slot; null for an empty slot */
+	private Connection[] values;
+	private int size;
+	private int mask;
+
+	/**
+	 * Creates a new, empty table
+	 */
+	public ConnectionTable() {
+		this.keys = new long[INITIAL_CAPACITY];
+		this.values = new Connection[INITIAL_CAPACITY];
+		this.mask = INITIAL_CAPACITY - 1;
+		this.size = 0;
+	}
+
+	/**
+	 * Returns the connection between two interfaces
+	 * @param a One interface
+	 * @param b The other interface
+	 * @return The connection or null if the interfaces are not connected
+	 */
+	public Connection get(NetworkInterface a, NetworkInterface b) {
+		long key = key(a, b);
+		for (int i = slot(key); values[i] != null; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				return values[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Adds a connection between two interfaces to the table, replacing any
+	 * previous connection between them
+	 * @param a One interface
+	 * @param b The other interface
+	 * @param con The connection
+	 */
+	public void put(NetworkInterface a, NetworkInterface b, Connection con) {
+		if (2 * (size + 1) > values.length) {
+			resize(2 * values.length);
+		}
+		long key = key(a, b);
+		int i = slot(key);
+		while (values[i] != null) {
+			if (keys[i] == key) {
+				values[i] = con;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		values[i] = con;
+		size++;
+	}
+
+	/**
+	 * Removes a connection between two interfaces from the table. Nothing
+	 * is removed if the table has a different connection between them.
+	 * @param a One interface
+	 * @param b The other interface
+	 * @param con The connection to remove
+	 * @return True if the connection was removed
+	 */
+	public boolean remove(NetworkInterface a, NetworkInterface b,
+			Connection con) {
+		long key = key(a, b);
+		int i = slot(key);
+		while (values[i] != null && keys[i] != key) {
+			i = (i + 1) & mask;
+		}
+		if (values[i] != con || con == null) {
+			return false;
+		}
+
+		/* shift the following entries of the probe sequence backwards so
+		 * that no tombstones are needed */
+		int hole = i;
+		for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+			int home = slot(keys[j]);
+			if (((j - home) & mask) >= ((j - hole) & mask)) {
+				keys[hole] = keys[j];
+				values[hole] = values[j];
+				hole = j;
+			}
+		}
+		values[hole] = null;
+		size--;
+		return true;
+	}
+
+	/**
+	 * Returns the number of connections in the table
+	 * @return The number of connections
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the key of an interface pair (same for both orders)
+	 */
+	private static long key(NetworkInterface a, NetworkInterface b) {
+		int x = a.getAddress();
+		int y = b.getAddress();
+		if (x > y) {
+			int tmp = x;
+			x = y;
+			y = tmp;
+		}
+		return ((long)x << 32) | (y & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Returns the home slot of a key
+	 */
+	private int slot(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32)) & mask;
+	}
+
+	/**
+	 * Moves the entries to new arrays of the given size
+	 */
+	private void resize(int capacity) {
+		long[] oldKeys = this.keys;
+		Connection[] oldValues = this.values;
+		this.keys = new long[capacity];
+		this.values = new Connection[capacity];
+		this.mask = capacity - 1;
+
+		for (int i=0; i<oldValues.length; i++) {
+			if (oldValues[i] != null) {
+				int j = slot(oldKeys[i]);
+				while (values[j] != null) {
+					j = (j + 1) & mask;
+				}
+				keys[j] = oldKeys[i];
+				values[j] = oldValues[i];
+			}
+		}
+	}
+}
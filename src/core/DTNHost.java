@@ -11,10 +11,13 @@ import java.util.Collection;
 import java.util.List;
 
 import movement.CarMovement;
+import movement.MapBasedMovement;
 import movement.MovementModel;
 import movement.Path;
+import movement.map.SimMap;
 import routing.MessageRouter;
 import routing.util.RoutingInfo;
+import util.Tuple;
 
 /**
  * A DTN capable host.
@@ -22,9 +25,12 @@ import routing.util.RoutingInfo;
 public class DTNHost implements Comparable<DTNHost> {
 	private static final double SAFE_OVERTAKE_DISTANCE = 10;
 	private static final double FRONT_DISTANCE = 5;
-	private static int nextAddress = 0;
 	private int address;
 
+	/* location, speed and destination coordinates are kept in the
+	 * run's host state store; location is only a view of the stored
+	 * location for the API */
+	private final HostStates states;
 	private Coord location; 	// where is the host
 	private Coord destination;	// where is it going
 	private Coord prevDestination;
@@ -33,7 +39,6 @@ public class DTNHost implements Comparable<DTNHost> {
 	private MessageRouter router;
 	private MovementModel movement;
 	private Path path;
-	private double speed;
 	private double nextTimeToMove;
 	private String name;
 	private List<MessageListener> msgListeners;
@@ -42,8 +47,39 @@ public class DTNHost implements Comparable<DTNHost> {
 	private ModuleCommunicationBus comBus;
 	
 	private Road currentRoad;
+	/** the roads of the host's map, or null if the host doesn't move on
+	 * a map */
+	private RoadNetwork roadNetwork;
 	private List<DTNHost> otherNodesOnRoad;
 	private List<DTNHost> oppositeLane;
+	/** index of the vehicles on the roads, or null if the connections are
+	 * used for finding the vehicles on the same road */
+	private RoadIndex roadIndex;
+	/** the latest beacon this host has received */
+	private Beacon lastBeacon;
+
+	/* movement state as it was at the start of the current movement phase;
+	 * other hosts' car-following reads only these (see World#moveHosts) */
+	private Coord snapLocation;
+	private Coord snapDestination;
+	private Road snapRoad;
+	private double snapSpeed;
+	/** was the movement active when the snapshot was taken */
+	private boolean snapMovementActive;
+
+	/** is the host currently moved by a parallel movement worker */
+	private boolean movingConcurrently;
+	/** movement left for the serial part of a parallel movement phase, or
+	 * NaN if there is nothing left */
+	private double deferredMovement;
+	/** was the whole move deferred to the serial part (not just the rest) */
+	private boolean deferredWholeMove;
+	/** movement listener notifications buffered by a parallel movement */
+	private List<Tuple<Coord, Double>> deferredDestinations;
+	/** console messages buffered by a parallel movement */
+	private List<String> deferredMessages;
+	/** was the radio active when a two-phase update round was prepared */
+	private boolean radioActiveNow;
 
 	static {
 		DTNSim.registerForReset(DTNHost.class.getCanonicalName());
@@ -67,6 +103,9 @@ public class DTNHost implements Comparable<DTNHost> {
 		this.comBus = comBus;
 		this.location = new Coord(0,0);
 		this.address = getNextAddress();
+		this.states = SimulationContext.current().hostStates;
+		this.states.add(this.address);
+		this.states.setLocation(this.address, this.location);
 		this.name = groupId+address;
 		this.net = new ArrayList<NetworkInterface>();
 
@@ -86,14 +125,24 @@ public class DTNHost implements Comparable<DTNHost> {
 		this.movement = mmProto.replicate();
 		this.movement.setComBus(comBus);
 		this.movement.setHost(this);
+		this.roadNetwork = findRoadNetwork();
 		setRouter(mRouterProto.replicate());
 
-		this.location = movement.getInitialLocation();
+		Coord initialLocation = movement.getInitialLocation();
+		this.location = (initialLocation == null ? null :
+			initialLocation.clone());
+		this.states.setLocation(this.address, this.location);
 
 		this.nextTimeToMove = movement.nextPathAvailable();
 		this.path = null;
 		this.otherNodesOnRoad = new ArrayList<DTNHost>();
 		this.oppositeLane = new ArrayList<DTNHost>();
+		this.deferredMovement = Double.NaN;
+		this.deferredDestinations = new ArrayList<Tuple<Coord, Double>>();
+		this.deferredMessages = new ArrayList<String>();
+		if (this.location != null) {
+			this.snapLocation = this.location.clone();
+		}
 		
 		if (movLs != null) { // inform movement listeners about the location
 			for (MovementListener l : movLs) {
@@ -107,15 +156,17 @@ public class DTNHost implements Comparable<DTNHost> {
 	 * subsequent calls.
 	 * @return The next address.
 	 */
-	private synchronized static int getNextAddress() {
-		return nextAddress++;
+	private static int getNextAddress() {
+		return SimulationContext.current().nextHostAddress++;
 	}
 
 	/**
 	 * Reset the host and its interfaces
 	 */
 	public static void reset() {
-		nextAddress = 0;
+		SimulationContext c = SimulationContext.current();
+		c.nextHostAddress = 0;
+		c.hostStates = new HostStates();
 	}
 
 	/**
@@ -183,6 +234,26 @@ public class DTNHost implements Comparable<DTNHost> {
 		this.router.changedConnection(con);
 	}
 
+	/**
+	 * Informs the router of this host about the batched connection changes
+	 * of an update round (see {@link ConnectionEventBatch}).
+	 * @param changes The changes of this host's connections in order
+	 */
+	public void connectionsChanged(List<ConnectionChange> changes) {
+		this.router.changedConnections(changes);
+	}
+
+	/**
+	 * Sets the batch where the connection changes of all the network
+	 * interfaces of this host are collected
+	 * @param batch The batch or null to inform about the changes immediately
+	 */
+	public void setConnectionBatch(ConnectionEventBatch batch) {
+		for (NetworkInterface i : net) {
+			i.setConnectionBatch(batch);
+		}
+	}
+
 	/**
 	 * Returns a copy of the list of connections this host has with other hosts
 	 * @return a copy of the list of connections this host has with other hosts
@@ -221,6 +292,36 @@ public class DTNHost implements Comparable<DTNHost> {
 	 */
 	public void setLocation(Coord location) {
 		this.location = location.clone();
+		this.states.setLocation(this.address, this.location);
+	}
+
+	/**
+	 * Returns the x coordinate of this host's location without using the
+	 * location object
+	 * @return The x coordinate
+	 */
+	public double getLocationX() {
+		return this.states.x[this.address];
+	}
+
+	/**
+	 * Returns the y coordinate of this host's location without using the
+	 * location object
+	 * @return The y coordinate
+	 */
+	public double getLocationY() {
+		return this.states.y[this.address];
+	}
+
+	/**
+	 * Returns the distance between this host and another host
+	 * @param other The other host
+	 * @return The distance
+	 */
+	public double distance(DTNHost other) {
+		double dx = getLocationX() - other.getLocationX();
+		double dy = getLocationY() - other.getLocationY();
+		return Math.sqrt(dx*dx + dy*dy);
 	}
 
 	/**
@@ -343,10 +444,22 @@ public class DTNHost implements Comparable<DTNHost> {
 	 * @param simulateConnections Should network layer be updated too
 	 */
 	public void update(boolean simulateConnections) {
+		if (updateConnectivity(simulateConnections)) {
+			this.router.update();
+		}
+	}
+
+	/**
+	 * Updates node's network layer; the first part of
+	 * {@link #update(boolean)}.
+	 * @param simulateConnections Should network layer be updated
+	 * @return True if the radio is active and the router should be updated
+	 */
+	boolean updateConnectivity(boolean simulateConnections) {
 		if (!isRadioActive()) {
 			// Make sure inactive nodes don't have connections
 			tearDownAllConnections();
-			return;
+			return false;
 		}
 
 		if (simulateConnections) {
@@ -354,9 +467,104 @@ public class DTNHost implements Comparable<DTNHost> {
 				i.update();
 			}
 		}
+		else {
+			updateForcedConnections();
+		}
+		return true;
+	}
+
+	/**
+	 * Updates node's router; the second part of {@link #update(boolean)}
+	 * and {@link #commitTwoPhaseUpdate(boolean)}.
+	 */
+	void updateRouter() {
 		this.router.update();
 	}
 
+	/**
+	 * Prepares a two-phase update of this host (see
+	 * {@link #detectConnectivityChanges()}). Checks the radio activeness and
+	 * prepares the network interfaces. Must be called for all hosts, from
+	 * a single thread, before the detection phase.
+	 * @param simulateConnections Should network layer be updated too
+	 */
+	void prepareTwoPhaseUpdate(boolean simulateConnections) {
+		this.radioActiveNow = isRadioActive();
+		if (this.radioActiveNow && simulateConnections) {
+			for (NetworkInterface i : net) {
+				i.prepareConnectivityChanges();
+			}
+		}
+	}
+
+	/**
+	 * Detection phase of a two-phase update: finds the connections to create
+	 * and tear down for all network interfaces without changing anything.
+	 * Can be called for different hosts from different threads.
+	 */
+	void detectConnectivityChanges() {
+		if (!this.radioActiveNow) {
+			return;
+		}
+		for (NetworkInterface i : net) {
+			i.detectConnectivityChanges();
+		}
+	}
+
+	/**
+	 * Commit phase of a two-phase update: applies the detected connectivity
+	 * changes and updates the router. This is the two-phase counterpart of
+	 * {@link #update(boolean)}.
+	 * @param simulateConnections Should network layer be updated too
+	 */
+	void commitTwoPhaseUpdate(boolean simulateConnections) {
+		if (commitConnectivityChanges(simulateConnections)) {
+			this.router.update();
+		}
+	}
+
+	/**
+	 * Applies the detected connectivity changes; the first part of
+	 * {@link #commitTwoPhaseUpdate(boolean)}.
+	 * @param simulateConnections Should network layer be updated
+	 * @return True if the radio is active and the router should be updated
+	 */
+	boolean commitConnectivityChanges(boolean simulateConnections) {
+		if (!this.radioActiveNow) {
+			tearDownAllConnections();
+			return false;
+		}
+
+		if (simulateConnections) {
+			for (NetworkInterface i : net) {
+				i.commitConnectivityChanges();
+			}
+		}
+		else {
+			updateForcedConnections();
+		}
+		return true;
+	}
+
+	/**
+	 * Updates the state (e.g., the transmission speeds) of the connections
+	 * when the connections are not simulated but created by external events
+	 */
+	private void updateForcedConnections() {
+		for (NetworkInterface i : net) {
+			i.connectionsUpdated();
+		}
+	}
+
+	/**
+	 * Returns true if the radio was active when the current two-phase update
+	 * round was prepared.
+	 * @return true if the radio was active
+	 */
+	boolean wasRadioActive() {
+		return this.radioActiveNow;
+	}
+
 	/**
 	 * Tears down all connections for this host.
 	 */
@@ -385,54 +593,287 @@ public class DTNHost implements Comparable<DTNHost> {
 	 */
 	public void move(double timeIncrement) {
 		double possibleMovement, posMov;
-		double distance;
 		double frontDistance;
-		double dx, dy;
 		DTNHost frontNode;
 
-		if (!isMovementActive() || SimClock.getTime() < this.nextTimeToMove) {
+		/* activeness handlers are shared by the group; workers use the
+		 * value cached to the snapshot */
+		boolean active = this.movingConcurrently ? this.snapMovementActive :
+			isMovementActive();
+		if (!active || SimClock.getTime() < this.nextTimeToMove) {
 			return;
 		}
 		if (this.destination == null) {
+			if (needsNewPath() && this.movingConcurrently) {
+				deferMove(timeIncrement, true);
+				return;
+			}
 			if (!setNextWaypoint()) {
 				return;
 			}
 		}
-		this.getOtherNodesOnMyRoad();
-		
-		frontNode = this.getFrontNode(getSameLaneNodes()); 
+		if (this.roadIndex != null) {
+			frontNode = this.roadIndex.getFrontNode(this, this.currentRoad,
+					this.location);
+			findOncomingNode();
+		}
+		else {
+			this.getOtherNodesOnMyRoad();
+			frontNode = this.getFrontNode(getSameLaneNodes());
+		}
 		if(frontNode != null) {
 			frontDistance = this.checkFrontDistance(frontNode);
 			double temp = frontDistance - (frontDistance * 0.75);	
 			posMov = temp;
-			if(this.canOvertake(getOppositeLaneNodes(), frontNode) && this.getLocation().distance(frontNode.getLocation()) < FRONT_DISTANCE) {
+			if(this.canOvertake(getOppositeLaneNodes(), frontNode) && this.getLocation().distance(frontNode.snapLocation) < FRONT_DISTANCE) {
 				overtake();
-				posMov = timeIncrement * speed;
+				posMov = timeIncrement * getCurrentSpeed();
 			}
 			possibleMovement = posMov;
 		}
 		else {
-			possibleMovement = timeIncrement * speed;
+			possibleMovement = timeIncrement * getCurrentSpeed();
 		}
-		distance = this.location.distance(this.destination);
-		
+
+		moveTowardsWaypoints(possibleMovement);
+	}
+
+	/**
+	 * Moves the node along its path for the given distance
+	 * @param possibleMovement How long distance the node moves
+	 */
+	private void moveTowardsWaypoints(double possibleMovement) {
+		final HostStates s = this.states;
+		final int a = this.address;
+		double distance;
+		double dx, dy;
+
+		distance = distanceToDestination();
 
 		while (possibleMovement >= distance) {
 			// node can move past its next destination
-			this.location.setLocation(this.destination); // snap to destination
+			storeLocation(s.destX[a], s.destY[a]); // snap to destination
 			possibleMovement -= distance;
+			if (needsNewPath() && this.movingConcurrently) {
+				deferMove(possibleMovement, false);
+				return;
+			}
 			if (!setNextWaypoint()) { // get a new waypoint
 				return; // no more waypoints left
 			}
-			distance = this.location.distance(this.destination);
+			distance = distanceToDestination();
 		}
 
 		// move towards the point for possibleMovement amount
-		dx = (possibleMovement/distance) * (this.destination.getX() -
-				this.location.getX());
-		dy = (possibleMovement/distance) * (this.destination.getY() -
-				this.location.getY());
-		this.location.translate(dx, dy);
+		dx = (possibleMovement/distance) * (s.destX[a] - s.x[a]);
+		dy = (possibleMovement/distance) * (s.destY[a] - s.y[a]);
+		storeLocation(s.x[a] + dx, s.y[a] + dy);
+	}
+
+	/**
+	 * Returns the distance from the current location to the destination
+	 */
+	private double distanceToDestination() {
+		final HostStates s = this.states;
+		double dx = s.x[this.address] - s.destX[this.address];
+		double dy = s.y[this.address] - s.destY[this.address];
+		return Math.sqrt(dx*dx + dy*dy);
+	}
+
+	/**
+	 * Sets the location to the store and updates the location view
+	 */
+	private void storeLocation(double x, double y) {
+		this.states.x[this.address] = x;
+		this.states.y[this.address] = y;
+		this.location.setLocation(x, y);
+	}
+
+	/**
+	 * Returns true if the next waypoint can't be taken from the current path
+	 * but the movement model must be asked for a new path (or wait time)
+	 * @return True if the movement model is needed for the next waypoint
+	 */
+	private boolean needsNewPath() {
+		return this.path == null || !this.path.hasNext();
+	}
+
+	/**
+	 * Leaves the rest of the current move to be done by
+	 * {@link #completeConcurrentMove()}. Used when a parallel movement worker
+	 * would need the movement model, which is not thread safe.
+	 * @param movement Time (whole move) or distance (rest of the move) left
+	 * @param wholeMove True if nothing was moved yet
+	 */
+	private void deferMove(double movement, boolean wholeMove) {
+		this.deferredMovement = movement;
+		this.deferredWholeMove = wholeMove;
+	}
+
+	/**
+	 * Copies the current location, destination, road and speed to the
+	 * snapshot that other hosts' car-following sees during the next movement
+	 * phase. Must be called from a single thread since it also checks the
+	 * movement activeness.
+	 */
+	void snapshotMovementState() {
+		if (this.location == null) {
+			this.snapLocation = null;
+		} else if (this.snapLocation == null) {
+			this.snapLocation = this.location.clone();
+		} else {
+			this.snapLocation.setLocation(this.location);
+		}
+		this.snapDestination = this.destination;
+		this.snapRoad = this.currentRoad;
+		this.snapSpeed = getCurrentSpeed();
+		this.snapMovementActive = isMovementActive();
+	}
+
+	/**
+	 * Returns the location of the latest movement snapshot
+	 * @return The location or null if the host had no location
+	 */
+	Coord getSnapshotLocation() {
+		return this.snapLocation;
+	}
+
+	/**
+	 * Returns the road of the latest movement snapshot
+	 * @return The road or null if the host wasn't on a road
+	 */
+	Road getSnapshotRoad() {
+		return this.snapRoad;
+	}
+
+	/**
+	 * Returns the road network of the map the host moves on
+	 * @return The road network or null if the movement model isn't map
+	 * based
+	 */
+	private RoadNetwork findRoadNetwork() {
+		if (this.movement instanceof MapBasedMovement) {
+			SimMap map = ((MapBasedMovement)this.movement).getMap();
+			return (map == null ? null : map.getRoadNetwork());
+		}
+		return null;
+	}
+
+	/**
+	 * Sets the road index that car-following uses instead of the
+	 * connections for finding the vehicles on the same road
+	 * @param roadIndex The index or null for using the connections
+	 */
+	void setRoadIndex(RoadIndex roadIndex) {
+		this.roadIndex = roadIndex;
+	}
+
+	/**
+	 * Sets the nearest oncoming vehicle that hasn't passed this host yet
+	 * (if any) as the only vehicle of the opposite lane
+	 */
+	private void findOncomingNode() {
+		this.oppositeLane.clear();
+		DTNHost oncoming = this.roadIndex.getOncomingNode(this,
+				this.currentRoad, this.location);
+		if (oncoming != null) {
+			this.oppositeLane.add(oncoming);
+		}
+	}
+
+	/**
+	 * Returns the movement state of this host for a checkpoint: the movement
+	 * model, path, location, destinations, road, speed and the time of the
+	 * next move.
+	 * @return The movement state
+	 * @see Checkpoint
+	 */
+	Object[] getMovementState() {
+		return new Object[] {this.movement, this.path, this.location,
+				this.destination, this.prevDestination, this.currentRoad,
+				getCurrentSpeed(), this.nextTimeToMove};
+	}
+
+	/**
+	 * Restores the movement state from a checkpoint
+	 * @param state The state returned by {@link #getMovementState()}
+	 */
+	void setMovementState(Object[] state) {
+		this.movement = (MovementModel)state[0];
+		this.path = (Path)state[1];
+		this.location = (Coord)state[2];
+		this.destination = (Coord)state[3];
+		this.prevDestination = (Coord)state[4];
+		this.currentRoad = (Road)state[5];
+		this.roadNetwork = findRoadNetwork();
+		setSpeed((Double)state[6]);
+		this.nextTimeToMove = (Double)state[7];
+		this.states.setLocation(this.address, this.location);
+		this.states.setDestination(this.address, this.destination);
+	}
+
+	/**
+	 * Moves the node like {@link #move(double)} but from a parallel movement
+	 * worker thread. Anything that needs the (shared) movement model or
+	 * movement listeners is left for {@link #completeConcurrentMove()}.
+	 * @param timeIncrement How long time the node moves
+	 */
+	void moveConcurrently(double timeIncrement) {
+		this.movingConcurrently = true;
+		try {
+			move(timeIncrement);
+		} finally {
+			this.movingConcurrently = false;
+		}
+	}
+
+	/**
+	 * Finishes a move started with {@link #moveConcurrently(double)}: prints
+	 * the buffered console messages, delivers the buffered movement listener
+	 * notifications and does the part of the move that was deferred. Must
+	 * be called from a single thread, for the hosts in the order of their
+	 * addresses.
+	 */
+	void completeConcurrentMove() {
+		for (String msg : this.deferredMessages) {
+			System.out.println(msg);
+		}
+		this.deferredMessages.clear();
+		for (Tuple<Coord, Double> d : this.deferredDestinations) {
+			for (MovementListener l : this.movListeners) {
+				l.newDestination(this, d.getKey(), d.getValue());
+			}
+		}
+		this.deferredDestinations.clear();
+
+		if (Double.isNaN(this.deferredMovement)) {
+			return;
+		}
+		double movement = this.deferredMovement;
+		this.deferredMovement = Double.NaN;
+
+		if (this.deferredWholeMove) {
+			move(movement);
+		}
+		else if (setNextWaypoint()) {
+			moveTowardsWaypoints(movement);
+		}
+	}
+
+	/**
+	 * Prints a message to the console, or buffers it for
+	 * {@link #completeConcurrentMove()} if the host is moved by a parallel
+	 * movement worker, so the output is in the same order as when moving
+	 * the hosts serially
+	 * @param msg The message
+	 */
+	private void printMessage(String msg) {
+		if (this.movingConcurrently) {
+			this.deferredMessages.add(msg);
+		}
+		else {
+			System.out.println(msg);
+		}
 	}
 
 	/**
@@ -454,17 +895,27 @@ public class DTNHost implements Comparable<DTNHost> {
 
 		this.prevDestination = this.destination;		
 		this.destination = path.getNextWaypoint();
+		this.states.setDestination(this.address, this.destination);
 		
 		if(this.prevDestination != this.destination) {
-			String roadName = this.prevDestination + ", " + this.destination;
-			this.currentRoad = new Road(roadName, this.prevDestination, this.destination);
+			this.currentRoad = (this.roadNetwork != null ?
+				this.roadNetwork.getRoad(this.prevDestination,
+						this.destination) :
+				new Road(null, this.prevDestination, this.destination));
 		}
 		
-		this.speed = path.getSpeed();
+		setSpeed(path.getSpeed());
 
 		if (this.movListeners != null) {
-			for (MovementListener l : this.movListeners) {
-				l.newDestination(this, this.destination, this.speed);
+			if (this.movingConcurrently) {
+				this.deferredDestinations.add(new Tuple<Coord, Double>(
+						this.destination, getCurrentSpeed()));
+			}
+			else {
+				for (MovementListener l : this.movListeners) {
+					l.newDestination(this, this.destination,
+							getCurrentSpeed());
+				}
 			}
 		}
 
@@ -537,6 +988,38 @@ public class DTNHost implements Comparable<DTNHost> {
 		this.router.createNewMessage(m);
 	}
 
+	/**
+	 * Sends a beacon to the applications of all hosts this host has an up
+	 * connection to. Each host gets the beacon once, right away.
+	 * @param beacon The beacon to send
+	 * @return The number of hosts the beacon was given to
+	 */
+	public int sendBeacon(Beacon beacon) {
+		int nrofReceivers = 0;
+		List<Connection> connections = getConnections();
+		for (int i=0, n=connections.size(); i<n; i++) {
+			Connection con = connections.get(i);
+			DTNHost other = con.getOtherNode(this);
+			if (con.isUp() && other.lastBeacon != beacon) {
+				other.receiveBeacon(beacon);
+				nrofReceivers++;
+			}
+		}
+		return nrofReceivers;
+	}
+
+	/**
+	 * Gives a beacon to the applications of this host
+	 * @param beacon The beacon
+	 */
+	private void receiveBeacon(Beacon beacon) {
+		this.lastBeacon = beacon;
+		for (Application app : this.router.getApplications(
+				beacon.getAppID())) {
+			app.handleBeacon(beacon, this);
+		}
+	}
+
 	/**
 	 * Deletes a message from this host
 	 * @param id Identifier of the message
@@ -587,19 +1070,35 @@ public class DTNHost implements Comparable<DTNHost> {
 		return this.path.getCoords().get(this.path.getCoords().size()-1);
 	}
 	
-	public Road<String, Coord, Coord> getCurrentRoad(){
+	public Road getCurrentRoad(){
 		return this.currentRoad;
 	}
+
+	/**
+	 * Returns the road network of the map the host moves on
+	 * @return The road network or null if the host doesn't move on a map
+	 */
+	public RoadNetwork getRoadNetwork() {
+		return this.roadNetwork;
+	}
 	
 	public List<DTNHost> getOtherNodesOnMyRoad() {
 		this.otherNodesOnRoad.clear();
 		this.oppositeLane.clear();
-		if(!this.getConnections().isEmpty()) {
+		if (this.roadIndex != null) {
+			for (DTNHost h : this.roadIndex.getHostsOnRoad(this.currentRoad)) {
+				if (h != this) {
+					this.otherNodesOnRoad.add(h);
+				}
+			}
+			findOncomingNode();
+		}
+		else if(!this.getConnections().isEmpty()) {
 			for(Connection con : this.getConnections()) {
 				Road road1, road2;
 				road1 = this.getCurrentRoad();
-				road2 = con.getOtherNode(this).getCurrentRoad();
-				if(road1.getRoadName().equals(road2.getRoadName())) {
+				road2 = con.getOtherNode(this).snapRoad;
+				if(road1.isSameRoad(road2)) {
 					this.otherNodesOnRoad.add(con.getOtherNode(this));
 				}
 				else if(isOppositeLane(road2)) {
@@ -612,7 +1111,7 @@ public class DTNHost implements Comparable<DTNHost> {
 	
 	public boolean kunNaglaposNa(DTNHost opposite) {
 		//kitaon an distance ni host tikadto ha iya waypoint(host_w) tapos icompare ngadto han distance ha host_w han node nga natapo 
-		if(this.getLocation().distance(getCurrentDestination()) < opposite.getLocation().distance(this.getCurrentDestination()))
+		if(this.getLocation().distance(getCurrentDestination()) < opposite.snapLocation.distance(this.getCurrentDestination()))
 			return true;//meaning naglapos na kamo ha kada usa 
 		return false;
 	}
@@ -627,11 +1126,15 @@ public class DTNHost implements Comparable<DTNHost> {
 	
 	public boolean oppositeLaneClear() {
 		int opposite = 0;
+		if (this.roadIndex != null) {
+			findOncomingNode();
+			return this.oppositeLane.isEmpty();
+		}
 		this.oppositeLane.clear();
 		for(Connection con : this.getConnections()) {
 			Road r1, r2;
 			r1 = this.getCurrentRoad();
-			r2 = con.getOtherNode(this).getCurrentRoad();
+			r2 = con.getOtherNode(this).snapRoad;
 			if(isOppositeLane(r2) && !kunNaglaposNa(con.getOtherNode(this))) {
 				this.oppositeLane.add(con.getOtherNode(this));
 				opposite++;
@@ -644,15 +1147,7 @@ public class DTNHost implements Comparable<DTNHost> {
 	}
 	
 	public boolean isOppositeLane(Road r) {
-		try {
-			if(this.getCurrentRoad().getStartpoint().equals(r.getEndpoint()) && this.getCurrentRoad().getEndpoint().equals(r.getStartpoint())) {
-				return true;
-			}
-		}catch(Exception e) {
-			
-		}
-		
-		return false;
+		return this.currentRoad != null && this.currentRoad.isOppositeLane(r);
 	}
 	
 	public double checkFrontDistance(List<DTNHost> sameRoadNodes) {
@@ -673,10 +1168,10 @@ public class DTNHost implements Comparable<DTNHost> {
 	
 	public double checkFrontDistance(DTNHost frontNode) {
 		double distance = 0;
-		if(this.getLocation().distance(destination) > frontNode.getLocation().distance(destination) || 
-				this.getCurrentDestination() != frontNode.getCurrentDestination()) {
-				this.slowDown(frontNode.getCurrentSpeed());
-				distance = this.getLocation().distance(frontNode.getLocation());
+		if(this.getLocation().distance(destination) > frontNode.snapLocation.distance(destination) || 
+				this.getCurrentDestination() != frontNode.snapDestination) {
+				this.slowDown(frontNode.snapSpeed);
+				distance = this.getLocation().distance(frontNode.snapLocation);
 		}
 		
 		return distance;
@@ -686,8 +1181,8 @@ public class DTNHost implements Comparable<DTNHost> {
 		DTNHost frontNode = null;
 		double frontDistance = 0, temp;
 		for(DTNHost n : sameLaneNodes) {
-			temp = this.getLocation().distance(n.getLocation());
-			if(this.getLocation().distance(destination) > n.getLocation().distance(destination))  {
+			temp = this.getLocation().distance(n.snapLocation);
+			if(this.getLocation().distance(destination) > n.snapLocation.distance(destination))  {
 				if(frontDistance == 0) {
 					frontDistance = temp;
 					frontNode = n;
@@ -709,12 +1204,12 @@ public class DTNHost implements Comparable<DTNHost> {
 //					System.out.println(this + " is farther than " + other);
 //					System.out.println(this + " distance to " + other + " : " + this.getLocation().distance(other.getLocation()));
 					if(!oppositeLaneClear()) {
-						System.out.println(this + " is slowing down bcoz mahinay an nauuna and opposite lane is not clear.");
-						this.slowDown(other.speed);
+						printMessage(this + " is slowing down bcoz mahinay an nauuna and opposite lane is not clear.");
+						this.slowDown(other.getCurrentSpeed());
 					}
 					else {
 						
-						System.out.println(this + "'s Opposite lane clear. can overtake.");
+						printMessage(this + "'s Opposite lane clear. can overtake.");
 					}
 				return true;
 				}
@@ -731,7 +1226,7 @@ public class DTNHost implements Comparable<DTNHost> {
 	}
 	
 	public void slowDown(double tempSpeed) {
-		this.speed = tempSpeed;
+		setSpeed(tempSpeed);
 //		System.out.println(this + " Check overtake");
 //		if(canOvertake()) {
 //			overtake();
@@ -739,8 +1234,8 @@ public class DTNHost implements Comparable<DTNHost> {
 	}
 	
 	public void overtake() {
-		System.out.println(this + " is Overtaking");
-		this.speed = this.path.getSpeed();
+		printMessage(this + " is Overtaking");
+		setSpeed(this.path.getSpeed());
 //		try {
 //			if(this.speed <= this.path.getSpeed()) {
 //				this.speed += this.speed * 0.5;
@@ -781,7 +1276,7 @@ public class DTNHost implements Comparable<DTNHost> {
 				if(kunNaglaposNa(opposite.get(0)))
 					return true;
 				else {
-					if(front.getLocation().distance(opposite.get(0).getLocation()) >= SAFE_OVERTAKE_DISTANCE)
+					if(front.snapLocation.distance(opposite.get(0).snapLocation) >= SAFE_OVERTAKE_DISTANCE)
 						return true; 
 				}
 //			}
@@ -801,8 +1296,11 @@ public class DTNHost implements Comparable<DTNHost> {
 	}
 	
 	public double getCurrentSpeed() {
-		// TODO Auto-generated method stub
-		return this.speed;
+		return this.states.speed[this.address];
+	}
+
+	private void setSpeed(double speed) {
+		this.states.speed[this.address] = speed;
 	}
 
 	public String getCurrentRoadStatus() {
@@ -811,8 +1309,9 @@ public class DTNHost implements Comparable<DTNHost> {
 	}
 
 	public void setRerouteWaypoint(Coord previousDestination) {
-		this.speed = this.path.getSpeed();
+		setSpeed(this.path.getSpeed());
 		this.destination = previousDestination;
+		this.states.setDestination(this.address, this.destination);
 	}
 	
 	public void setReroutePath(Path p) {
@@ -8,6 +8,9 @@ import gui.DTNSimGUI;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import ui.DTNSimTextUI;
 
@@ -20,6 +23,8 @@ public class DTNSim {
 	public static final String BATCH_MODE_FLAG = "-b";
 	/** Delimiter for batch mode index range values (colon) */
 	public static final String RANGE_DELIMETER = ":";
+	/** Delimiter for the number of concurrent batch runs (slash) */
+	public static final String PARALLEL_DELIMETER = "/";
 
 	/** Name of the static method that all resettable classes must have
 	 * @see #registerForReset(String) */
@@ -34,7 +39,10 @@ public class DTNSim {
 	 * or a with a combination of starting run and the number of runs,
 	 * delimited with a {@value #RANGE_DELIMETER}. Different settings from run
 	 * arrays are used for different runs (see
-	 * {@link Settings#setRunIndex(int)}). Following arguments are the settings
+	 * {@link Settings#setRunIndex(int)}). The runs value can be followed by
+	 * {@value #PARALLEL_DELIMETER} and the number of runs to execute at the
+	 * same time (e.g., <code>-b 1:30/8</code>); every concurrent run has a
+	 * {@link SimulationContext} of its own. Following arguments are the settings
 	 * files for the simulation run (if any). For GUI mode, the number before
 	 * settings files (if given) is the run index to use for that run.
 	 * @param args Command line arguments
@@ -42,6 +50,7 @@ public class DTNSim {
 	public static void main(String[] args) {
 		boolean batchMode = false;
 		int nrofRuns[] = {0,1};
+		int concurrentRuns = 1;
 		String confFiles[];
 		int firstConfIndex = 0;
 		int guiIndex = 0;
@@ -56,7 +65,14 @@ public class DTNSim {
                     firstConfIndex = 1;
                 }
                 else {
-                    nrofRuns = parseNrofRuns(args[1]);
+                    String runs = args[1];
+                    if (runs.contains(PARALLEL_DELIMETER)) {
+                        concurrentRuns = parseConcurrentRuns(runs.substring(
+                                runs.indexOf(PARALLEL_DELIMETER) + 1));
+                        runs = runs.substring(0,
+                                runs.indexOf(PARALLEL_DELIMETER));
+                    }
+                    nrofRuns = parseNrofRuns(runs);
                     firstConfIndex = 2;
                 }
 			}
@@ -78,11 +94,16 @@ public class DTNSim {
 
 		if (batchMode) {
 			long startTime = System.currentTimeMillis();
-			for (int i=nrofRuns[0]; i<nrofRuns[1]; i++) {
-				print("Run " + (i+1) + "/" + nrofRuns[1]);
-				Settings.setRunIndex(i);
-				resetForNextRun();
-				new DTNSimTextUI().start();
+			if (concurrentRuns > 1) {
+				runConcurrently(nrofRuns, concurrentRuns);
+			}
+			else {
+				for (int i=nrofRuns[0]; i<nrofRuns[1]; i++) {
+					print("Run " + (i+1) + "/" + nrofRuns[1]);
+					Settings.setRunIndex(i);
+					resetForNextRun();
+					new DTNSimTextUI().start();
+				}
 			}
 			double duration = (System.currentTimeMillis() - startTime)/1000.0;
 			print("---\nAll done in " + String.format("%.2f", duration) + "s");
@@ -93,6 +114,44 @@ public class DTNSim {
 		}
 	}
 
+	/**
+	 * Executes batch runs in a thread pool. Every run works in a new
+	 * {@link SimulationContext} so the runs don't share any simulation state.
+	 * @param nrofRuns The first and (last_run_index - 1) in an array
+	 * @param concurrentRuns Maximum number of runs to execute at the same time
+	 */
+	private static void runConcurrently(final int[] nrofRuns,
+			int concurrentRuns) {
+		ExecutorService pool = Executors.newFixedThreadPool(concurrentRuns);
+		List<Future<?>> runs = new ArrayList<Future<?>>();
+
+		for (int i=nrofRuns[0]; i<nrofRuns[1]; i++) {
+			final int runIndex = i;
+			runs.add(pool.submit(new Runnable() {
+				public void run() {
+					print("Run " + (runIndex+1) + "/" + nrofRuns[1]);
+					new SimulationContext(runIndex).enter();
+					try {
+						new DTNSimTextUI().start();
+					} finally {
+						SimulationContext.exit();
+					}
+				}
+			}));
+		}
+		pool.shutdown();
+
+		for (Future<?> run : runs) {
+			try {
+				run.get();
+			} catch (Exception e) {
+				System.err.println("Batch run failed: " + e.getMessage());
+				e.printStackTrace();
+				System.exit(-1);
+			}
+		}
+	}
+
 	/**
 	 * Initializes Settings
 	 * @param confFiles File name paths where to read additional settings
@@ -156,22 +215,42 @@ public class DTNSim {
 			" for resetting; class doesn't contain resetting method");
 			System.exit(-1);
 		}
-		resetList.add(c);
+		synchronized (resetList) {
+			resetList.add(c);
+		}
 	}
 
 	/**
 	 * Resets all registered classes.
 	 */
 	private static void resetForNextRun() {
-		for (Class<?> c : resetList) {
-			try {
-				Method m = c.getMethod(RESET_METHOD_NAME);
-				m.invoke(null);
-			} catch (Exception e) {
-				System.err.println("Failed to reset class " + c.getName());
-				e.printStackTrace();
-				System.exit(-1);
+		List<Class<?>> classes;
+		synchronized (resetList) {
+			classes = new ArrayList<Class<?>>(resetList);
+		}
+		for (Class<?> c : classes) {
+			resetClass(c);
+		}
+	}
+
+	/**
+	 * Calls the reset method of a class, if the class itself declares one
+	 * (reset methods inherited from superclasses are not called)
+	 * @param c The class to reset
+	 */
+	static void resetClass(Class<?> c) {
+		try {
+			Method m = c.getMethod(RESET_METHOD_NAME);
+			if (m.getDeclaringClass() != c) {
+				return; /* reset of the superclass' state */
 			}
+			m.invoke(null);
+		} catch (NoSuchMethodException e) {
+			return; /* nothing to reset */
+		} catch (Exception e) {
+			System.err.println("Failed to reset class " + c.getName());
+			e.printStackTrace();
+			System.exit(-1);
 		}
 	}
 
@@ -216,6 +295,26 @@ public class DTNSim {
 		return val;
 	}
 
+	/**
+	 * Parses the number of concurrent batch runs from a command line argument
+	 * @param arg The argument to parse
+	 * @return The number of concurrent runs
+	 */
+	private static int parseConcurrentRuns(String arg) {
+		int val = 0;
+		try {
+			val = Integer.parseInt(arg);
+		} catch (NumberFormatException e) {
+			val = 0;
+		}
+		if (val < 1) {
+			System.err.println("Invalid number of concurrent runs '" + arg +
+					"'; it must be a positive integer (e.g., '1:30/8')");
+			System.exit(-1);
+		}
+		return val;
+	}
+
 	/**
 	 * Prints text to stdout
 	 * @param txt Text to print
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Movement state of all hosts of a simulation run stored as primitive arrays
+ * indexed by host address: location, current speed and the location of the
+ * current destination (waypoint). Hosts read and write their state through
+ * the store so that the movement and the connectivity checks work on
+ * primitives; {@link Coord} objects are only used at the API edges
+ * (e.g. {@link DTNHost#getLocation()}).
+ * <P>
+ * Missing values (a host without a location or a destination) are stored
+ * as NaNs. Each host writes only its own slots, so hosts can be moved
+ * concurrently, but the store must not grow (i.e., hosts must not be
+ * created) while other threads use it.
+ * </P>
+ */
+public class HostStates {
+	/** initial capacity of the arrays */
+	private static final int INITIAL_CAPACITY = 64;
+
+	double[] x;
+	double[] y;
+	double[] speed;
+	double[] destX;
+	double[] destY;
+
+	/**
+	 * Creates a new, empty store
+	 */
+	public HostStates() {
+		this.x = newArray(INITIAL_CAPACITY);
+		this.y = newArray(INITIAL_CAPACITY);
+		this.speed = new double[INITIAL_CAPACITY];
+		this.destX = newArray(INITIAL_CAPACITY);
+		this.destY = newArray(INITIAL_CAPACITY);
+	}
+
+	private static double[] newArray(int size) {
+		double[] a = new double[size];
+		Arrays.fill(a, Double.NaN);
+		return a;
+	}
+
+	private static double[] grow(double[] a, int size, double fill) {
+		double[] b = Arrays.copyOf(a, size);
+		Arrays.fill(b, a.length, size, fill);
+		return b;
+	}
+
+	/**
+	 * Makes sure the store has slots for the given address and clears them
+	 * @param address The address of a new host
+	 */
+	void add(int address) {
+		if (address >= x.length) {
+			int size = Math.max(x.length * 2, address + 1);
+			x = grow(x, size, Double.NaN);
+			y = grow(y, size, Double.NaN);
+			speed = grow(speed, size, 0);
+			destX = grow(destX, size, Double.NaN);
+			destY = grow(destY, size, Double.NaN);
+		}
+		x[address] = y[address] = Double.NaN;
+		speed[address] = 0;
+		destX[address] = destY[address] = Double.NaN;
+	}
+
+	/**
+	 * Sets the location of a host
+	 * @param address Address of the host
+	 * @param c The location or null for no location
+	 */
+	void setLocation(int address, Coord c) {
+		x[address] = (c == null ? Double.NaN : c.getX());
+		y[address] = (c == null ? Double.NaN : c.getY());
+	}
+
+	/**
+	 * Sets the location of a host's current destination
+	 * @param address Address of the host
+	 * @param c The destination or null for no destination
+	 */
+	void setDestination(int address, Coord c) {
+		destX[address] = (c == null ? Double.NaN : c.getX());
+		destY[address] = (c == null ? Double.NaN : c.getY());
+	}
+
+	/**
+	 * Returns the x coordinate of a host's location
+	 * @param address Address of the host
+	 * @return The x coordinate (NaN if the host has no location)
+	 */
+	public double getX(int address) {
+		return x[address];
+	}
+
+	/**
+	 * Returns the y coordinate of a host's location
+	 * @param address Address of the host
+	 * @return The y coordinate (NaN if the host has no location)
+	 */
+	public double getY(int address) {
+		return y[address];
+	}
+
+	/**
+	 * Returns the current speed of a host
+	 * @param address Address of the host
+	 * @return The speed
+	 */
+	public double getSpeed(int address) {
+		return speed[address];
+	}
+
+	/**
+	 * Returns the x coordinate of a host's current destination
+	 * @param address Address of the host
+	 * @return The x coordinate (NaN if the host has no destination)
+	 */
+	public double getDestinationX(int address) {
+		return destX[address];
+	}
+
+	/**
+	 * Returns the y coordinate of a host's current destination
+	 * @param address Address of the host
+	 * @return The y coordinate (NaN if the host has no destination)
+	 */
+	public double getDestinationY(int address) {
+		return destY[address];
+	}
+}
@@ -25,7 +25,6 @@ public class Message implements Comparable<Message> {
 	/** List of nodes this message has passed */
 	private List<DTNHost> path;
 	/** Next unique identifier to be given */
-	private static int nextUniqueId;
 	/** Unique ID of this message */
 	private int uniqueId;
 	/** The time this message was received */
@@ -68,7 +67,7 @@ public class Message implements Comparable<Message> {
 		this.id = id;
 		this.size = size;
 		this.path = new ArrayList<DTNHost>();
-		this.uniqueId = nextUniqueId;
+		this.uniqueId = SimulationContext.current().nextMessageId;
 
 		this.timeCreated = SimClock.getTime();
 		this.timeReceived = this.timeCreated;
@@ -78,7 +77,7 @@ public class Message implements Comparable<Message> {
 		this.properties = null;
 		this.appID = null;
 
-		Message.nextUniqueId++;
+		SimulationContext.current().nextMessageId++;
 		addNodeOnPath(from);
 	}
 
@@ -343,7 +342,7 @@ public class Message implements Comparable<Message> {
 	 * Resets all static fields to default values
 	 */
 	public static void reset() {
-		nextUniqueId = 0;
+		SimulationContext.current().nextMessageId = 0;
 	}
 
 	/**
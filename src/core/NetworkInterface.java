@@ -4,8 +4,8 @@
  */
 package core;
 
-import interfaces.ConnectivityGrid;
 import interfaces.ConnectivityOptimizer;
+import interfaces.RangeKernel;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -25,6 +25,13 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	public static final String TRANSMIT_SPEED_S = "transmitSpeed";
 	/** scanning interval -setting id ({@value})*/
 	public static final String SCAN_INTERVAL_S = "scanInterval";
+	/**
+	 * connectivity optimizer -setting id ({@value}). Simple class name of
+	 * the connectivity optimizer of the interface type (e.g.,
+	 * KDTreeOptimizer). Default = the optimizer selected by the
+	 * optimization settings (see {@link ConnectivityOptimizer#getOptimizer})
+	 */
+	public static final String OPTIMIZER_S = "connectivityOptimizer";
 
 	/**
 	 * Sub-namespace for the network related settings in the Group namespace
@@ -49,17 +56,20 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	private static final int CON_UP = 1;
 	private static final int CON_DOWN = 2;
 
-	private static Random rng;
 	protected DTNHost host = null;
 
 	protected String interfacetype;
 	protected List<Connection> connections; // connected hosts
 	private List<ConnectionListener> cListeners = null; // list of listeners
 	private int address; // network interface address
+	/** table of the connections of this simulation context */
+	private ConnectionTable connectionTable;
 	protected double transmitRange;
 	protected double oldTransmitRange;
 	protected int transmitSpeed;
 	protected ConnectivityOptimizer optimizer = null;
+	/** type of the connectivity optimizer or null for the default */
+	private String optimizerType;
 	/** scanning interval, or 0.0 if n/a */
 	private double scanInterval;
 	private double lastScanTime;
@@ -71,6 +81,19 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	/** this interface's activeness jitter value */
 	private int activenessJitterValue;
 
+	/** is this interface scanning on the current two-phase update round */
+	private boolean scanningNow;
+	/** connections found to be out of range by the detection phase */
+	private List<Connection> lostConnections;
+	/** interfaces found to be connectable by the detection phase */
+	private List<NetworkInterface> newContacts;
+	/** number of connections that are transferring a message (kept up to
+	 * date by the connections) */
+	private int nrofTransfers;
+	/** batch where the connection changes are collected, or null if the
+	 * listeners and routers are informed immediately */
+	private ConnectionEventBatch connectionBatch;
+
 	static {
 		DTNSim.registerForReset(NetworkInterface.class.getCanonicalName());
 		reset();
@@ -80,7 +103,10 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	 * Resets the static fields of the class
 	 */
 	public static void reset() {
-		rng = new Random(0);
+		SimulationContext c = SimulationContext.current();
+		c.interfaceRng = new Random(0);
+		c.nextInterfaceAddress = 0;
+		c.connectionTable = new ConnectionTable();
 	}
 
 	/**
@@ -94,6 +120,7 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 		this.transmitSpeed = s.getInt(TRANSMIT_SPEED_S);
 		ensurePositiveValue(transmitRange, TRANSMIT_RANGE_S);
 		ensurePositiveValue(transmitSpeed, TRANSMIT_SPEED_S);
+		this.optimizerType = s.getSetting(OPTIMIZER_S, null);
 	}
 
 	/**
@@ -111,12 +138,15 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 		this.connections = new ArrayList<Connection>();
 		this.host = ni.host;
 		this.cListeners = ni.cListeners;
+		this.connectionBatch = ni.connectionBatch;
 		this.interfacetype = ni.interfacetype;
 		this.transmitRange = ni.transmitRange;
 		this.transmitSpeed = ni.transmitSpeed;
 		this.scanInterval = ni.scanInterval;
+		this.optimizerType = ni.optimizerType;
 		this.ah = ni.ah;
 
+		Random rng = SimulationContext.current().interfaceRng;
 		if (ni.activenessJitterMax > 0) {
 			this.activenessJitterValue = rng.nextInt(ni.activenessJitterMax);
 		} else {
@@ -140,6 +170,9 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	 */
 	public void setHost(DTNHost host) {
 		this.host = host;
+		SimulationContext c = SimulationContext.current();
+		this.address = c.nextInterfaceAddress++;
+		this.connectionTable = c.connectionTable;
 		ModuleCommunicationBus comBus = host.getComBus();
 
 		if (!comBus.containsProperty(SCAN_INTERVAL_ID) &&
@@ -155,7 +188,7 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 		}
 
 		if (transmitRange > 0) {
-			optimizer = ConnectivityGrid.ConnectivityGridFactory(
+			optimizer = ConnectivityOptimizer.getOptimizer(optimizerType,
 					this.interfacetype.hashCode(), transmitRange);
 			optimizer.addInterface(this);
 		} else {
@@ -198,6 +231,23 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 		this.cListeners = cListeners;
 	}
 
+	/**
+	 * Returns the connection listeners of this interface
+	 * @return The listeners or null if there are none
+	 */
+	List<ConnectionListener> getConnectionListeners() {
+		return this.cListeners;
+	}
+
+	/**
+	 * Sets the batch where the connection changes of this interface are
+	 * collected instead of informing the listeners and routers immediately
+	 * @param batch The batch or null to inform about the changes immediately
+	 */
+	void setConnectionBatch(ConnectionEventBatch batch) {
+		this.connectionBatch = batch;
+	}
+
 	/**
 	 * Returns the transmit range of this network layer
 	 * @return the transmit range
@@ -290,12 +340,25 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	 * @return true if the interface transferring
 	 */
 	public boolean isTransferring() {
-		for (Connection c : this.connections) {
-			if (c.isTransferring()) {
-				return true;
-			}
-		}
-		return false;
+		return this.nrofTransfers > 0;
+	}
+
+	/**
+	 * Returns the number of connections of this interface that are
+	 * transferring a message
+	 * @return The number of ongoing transfers
+	 */
+	public int getNrofTransfers() {
+		return this.nrofTransfers;
+	}
+
+	/**
+	 * Called by the connections of this interface when a transfer starts
+	 * or ends, or a transferring connection goes down
+	 * @param delta The change of the number of transfers
+	 */
+	void transferCountChanged(int delta) {
+		this.nrofTransfers += delta;
 	}
 
 	/**
@@ -317,7 +380,14 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	 */
 	protected void connect(Connection con, NetworkInterface anotherInterface) {
 		this.connections.add(con);
-		notifyConnectionListeners(CON_UP, anotherInterface.getHost());
+		this.connectionTable.put(this, anotherInterface, con);
+		if (this.connectionBatch != null) {
+			anotherInterface.getConnections().add(con);
+			this.connectionBatch.add(new ConnectionChange(true, con, this,
+					anotherInterface));
+			return;
+		}
+		notifyConnectionListeners(CON_UP, anotherInterface);
 
 		// set up bidirectional connection
 		anotherInterface.getConnections().add(con);
@@ -335,7 +405,10 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	protected void disconnect(Connection con,
 			NetworkInterface anotherInterface) {
 		con.setUpState(false);
-		notifyConnectionListeners(CON_DOWN, anotherInterface.getHost());
+		this.connectionTable.remove(this, anotherInterface, con);
+		if (this.connectionBatch == null) {
+			notifyConnectionListeners(CON_DOWN, anotherInterface);
+		}
 
 		// tear down bidirectional connection
 		if (!anotherInterface.getConnections().remove(con)) {
@@ -343,10 +416,41 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 					anotherInterface);
 		}
 
+		connectionDown(con, anotherInterface);
+	}
+
+	/**
+	 * Informs the routers of both hosts about a connection that went down,
+	 * or adds the change to the connection batch if there is one
+	 * @param con The connection that went down
+	 * @param anotherInterface The interface at the other end
+	 */
+	private void connectionDown(Connection con,
+			NetworkInterface anotherInterface) {
+		if (this.connectionBatch != null) {
+			this.connectionBatch.add(new ConnectionChange(false, con, this,
+					anotherInterface));
+			return;
+		}
 		this.host.connectionDown(con);
 		anotherInterface.getHost().connectionDown(con);
 	}
 
+	/**
+	 * Tries to connect to the near interfaces given by the connectivity
+	 * optimizer (see {@link #connect(NetworkInterface)}) if this interface
+	 * is scanning. On the update rounds when the interface doesn't scan, the
+	 * near interfaces are not searched for at all.
+	 */
+	protected void connectToNearInterfaces() {
+		if (!isScanning()) {
+			return;
+		}
+		for (NetworkInterface ni : optimizer.getNearInterfaces(this)) {
+			connect(ni);
+		}
+	}
+
 	/**
 	 * Returns true if another interface is within radio range of this interface
 	 * and this interface is also within radio range of the another interface.
@@ -360,8 +464,10 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 			smallerRange = myRange;
 		}
 
-		return this.host.getLocation().distance(
-				anotherInterface.getHost().getLocation()) <= smallerRange;
+		DTNHost other = anotherInterface.getHost();
+		return RangeKernel.isWithinRange(
+				host.getLocationX() - other.getLocationX(),
+				host.getLocationY() - other.getLocationY(), smallerRange);
 	}
 
 	/**
@@ -370,13 +476,7 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	 * @return True if the two hosts are connected
 	 */
 	protected boolean isConnected(NetworkInterface netinterface) {
-		for (int i = 0; i < this.connections.size(); i++) {
-			if (this.connections.get(i).getOtherInterface(this) ==
-				netinterface) {
-				return true;
-			}
-		}
-		return false;
+		return this.connectionTable.get(this, netinterface) != null;
 	}
 
 	/**
@@ -398,22 +498,105 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	 */
 	abstract public void update();
 
+	/**
+	 * Prepares this interface for a two-phase connectivity update (see
+	 * {@link #detectConnectivityChanges()}): updates the location in the
+	 * connectivity optimizer and checks the scanning state. Must be called
+	 * for all interfaces, from a single thread, before the detection phase.
+	 */
+	public void prepareConnectivityChanges() {
+		if (optimizer == null) {
+			return;
+		}
+		if (this.lostConnections == null) {
+			this.lostConnections = new ArrayList<Connection>();
+			this.newContacts = new ArrayList<NetworkInterface>();
+		}
+		optimizer.updateLocation(this);
+		this.scanningNow = isScanning();
+	}
+
+	/**
+	 * Detection phase of a two-phase connectivity update. Finds the
+	 * connections that are out of range and the near interfaces that this
+	 * interface could connect to, but doesn't change any connections.
+	 * Reads only state that doesn't change during the phase, so the method
+	 * can be called for different interfaces from different threads.
+	 */
+	public void detectConnectivityChanges() {
+		if (optimizer == null) {
+			return;
+		}
+
+		for (int i=0, n=this.connections.size(); i<n; i++) {
+			Connection con = this.connections.get(i);
+			if (!isWithinRange(con.getOtherInterface(this))) {
+				this.lostConnections.add(con);
+			}
+		}
+
+		if (!this.scanningNow) {
+			return;
+		}
+		for (NetworkInterface ni : optimizer.getNearInterfaces(this)) {
+			if (ni != this && ni.getHost().wasRadioActive()
+					&& isWithinRange(ni) && !isConnected(ni)) {
+				this.newContacts.add(ni);
+			}
+		}
+	}
+
+	/**
+	 * Commit phase of a two-phase connectivity update. Tears down and
+	 * creates the connections found by {@link #detectConnectivityChanges()}
+	 * and informs the listeners and routers about them. Connections that the
+	 * other end already handled on this round are skipped.
+	 */
+	public void commitConnectivityChanges() {
+		if (optimizer == null) {
+			return;
+		}
+
+		for (Connection con : this.lostConnections) {
+			if (con.isUp()) {
+				disconnect(con, con.getOtherInterface(this));
+				this.connections.remove(con);
+			}
+		}
+		for (NetworkInterface ni : this.newContacts) {
+			connect(ni);
+		}
+		this.lostConnections.clear();
+		this.newContacts.clear();
+
+		connectionsUpdated();
+	}
+
+	/**
+	 * Called after the connections of this interface have been updated.
+	 * Subclasses can override this to update, e.g., the transmission speeds
+	 * of the connections. This implementation does nothing.
+	 */
+	protected void connectionsUpdated() { }
+
 	/**
 	 * Notifies all the connection listeners about a change in connections.
+	 * {@link InterfaceConnectionListener}s are also told the interfaces.
 	 * @param type Type of the change (e.g. {@link #CON_DOWN} )
-	 * @param otherHost The other host on the other end of the connection.
+	 * @param otherInterface The interface on the other end of the connection.
 	 */
-	private void notifyConnectionListeners(int type, DTNHost otherHost) {
+	private void notifyConnectionListeners(int type,
+			NetworkInterface otherInterface) {
 		if (this.cListeners == null) {
 			return;
 		}
 		for (ConnectionListener cl : this.cListeners) {
 			switch (type) {
 			case CON_UP:
-				cl.hostsConnected(this.host, otherHost);
+				notifyConnectionListener(cl, true, otherInterface);
 				break;
 			case CON_DOWN:
-				cl.hostsDisconnected(this.host, otherHost);
+				notifyConnectionListener(cl, false, otherInterface);
 				break;
 			default:
 				assert false : type;	// invalid type code
@@ -421,6 +604,32 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 		}
 	}
 
+	/**
+	 * Notifies one connection listener about a change in connections.
+	 * {@link InterfaceConnectionListener}s are also told the interfaces.
+	 * @param cl The listener
+	 * @param up True if the connection went up, false if it went down
+	 * @param otherInterface The interface on the other end of the connection.
+	 */
+	void notifyConnectionListener(ConnectionListener cl, boolean up,
+			NetworkInterface otherInterface) {
+		DTNHost otherHost = otherInterface.getHost();
+		if (up) {
+			cl.hostsConnected(this.host, otherHost);
+			if (cl instanceof InterfaceConnectionListener) {
+				((InterfaceConnectionListener)cl).interfacesConnected(
+						this, otherInterface);
+			}
+		}
+		else {
+			cl.hostsDisconnected(this.host, otherHost);
+			if (cl instanceof InterfaceConnectionListener) {
+				((InterfaceConnectionListener)cl).interfacesDisconnected(
+						this, otherInterface);
+			}
+		}
+	}
+
 	/**
 	 * This method is called by the {@link ModuleCommunicationBus} when/if
 	 * someone changes the scanning interval, transmit speed, or range
@@ -476,7 +685,10 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 		Connection con = this.connections.get(index);
 		DTNHost anotherNode = anotherInterface.getHost();
 		con.setUpState(false);
-		notifyConnectionListeners(CON_DOWN, anotherNode);
+		this.connectionTable.remove(this, anotherInterface, con);
+		if (this.connectionBatch == null) {
+			notifyConnectionListeners(CON_DOWN, anotherInterface);
+		}
 
 		// tear down bidirectional connection
 		if (!anotherInterface.getConnections().remove(con)) {
@@ -484,12 +696,20 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 					anotherNode);
 		}
 
-		this.host.connectionDown(con);
-		anotherNode.connectionDown(con);
+		connectionDown(con, anotherInterface);
 
 		connections.remove(index);
 	}
 
+	/**
+	 * Returns the address of this interface. The addresses are unique among
+	 * the interfaces of all hosts.
+	 * @return The address
+	 */
+	public int getAddress() {
+		return this.address;
+	}
+
 	/**
 	 * Returns the DTNHost of this interface
 	 */
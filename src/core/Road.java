@@ -1,33 +1,121 @@
 package core;
 
-import movement.map.MapNode;
+import java.io.Serializable;
 
-public class Road<String, S, E> {
-	
-	private final S startpoint;
-	private final E endpoint;
-	private final String roadName;
+/**
+ * A directed road from one waypoint to the next. The roads of a map are
+ * interned in a {@link RoadNetwork}: there is one road object per directed
+ * map edge, with an id, length, heading and a link to the road of the
+ * opposite direction, and roads are compared by id. Roads that are not on
+ * the map (e.g., the first road of a host, which starts from nowhere) have
+ * the id -1 and are compared by their end points.
+ */
+public class Road implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final int id;
+	private final Coord startpoint;
+	private final Coord endpoint;
+	private final double length;
+	private final double heading;
+	/** the road of the opposite direction (or null) */
+	private Road reverse;
+	/** name of the road (created when first asked for) */
+	private String roadName;
 	private String roadStatus;
 
-	public static <String, S, E> Road<String, S, E> makeRoad(String roadName, S startpoint, E endpoint){
-		return new Road<String, S, E>(roadName, startpoint, endpoint);
+	public static Road makeRoad(String roadName, Coord startpoint,
+			Coord endpoint) {
+		return new Road(roadName, startpoint, endpoint);
 	}
-	
-	public Road(String roadName, S startpoint, E endpoint) {
+
+	/**
+	 * Creates a road that is not on the map
+	 * @param roadName Name of the road or null for the default name
+	 * (see {@link #getRoadName()})
+	 * @param startpoint Where the road starts (may be null)
+	 * @param endpoint Where the road ends
+	 */
+	public Road(String roadName, Coord startpoint, Coord endpoint) {
+		this(-1, startpoint, endpoint);
 		this.roadName = roadName;
+	}
+
+	/**
+	 * Creates a road of a road network
+	 * @param id Id of the road in the network
+	 * @param startpoint Where the road starts
+	 * @param endpoint Where the road ends
+	 */
+	Road(int id, Coord startpoint, Coord endpoint) {
+		this.id = id;
 		this.startpoint = startpoint;
 		this.endpoint = endpoint;
+		if (startpoint != null && endpoint != null) {
+			this.length = startpoint.distance(endpoint);
+			this.heading = Math.atan2(endpoint.getY() - startpoint.getY(),
+					endpoint.getX() - startpoint.getX());
+		}
+		else {
+			this.length = Double.NaN;
+			this.heading = Double.NaN;
+		}
+	}
+
+	/**
+	 * Returns the id of the road in its road network
+	 * @return The id or -1 if the road is not on the map
+	 */
+	public int getId() {
+		return this.id;
 	}
-	
-	public S getStartpoint() {
+
+	public Coord getStartpoint() {
 		return this.startpoint;
 	}
 
-	public E getEndpoint() {
+	public Coord getEndpoint() {
 		return this.endpoint;
 	}
 
+	/**
+	 * Returns the distance from the start point to the end point
+	 * @return The length or NaN if the road has no start point
+	 */
+	public double getLength() {
+		return this.length;
+	}
+
+	/**
+	 * Returns the direction of the road as an angle from the x axis
+	 * @return The heading in radians (-pi...pi) or NaN if the road has no
+	 * start point
+	 */
+	public double getHeading() {
+		return this.heading;
+	}
+
+	/**
+	 * Returns the road of the opposite direction
+	 * @return The opposite road or null if it's not on the map
+	 */
+	public Road getReverse() {
+		return this.reverse;
+	}
+
+	void setReverse(Road reverse) {
+		this.reverse = reverse;
+	}
+
+	/**
+	 * Returns the name of the road. Unless a name was given, the name is
+	 * made of the start and end points ("start, end").
+	 * @return The name of the road
+	 */
 	public String getRoadName() {
+		if (this.roadName == null) {
+			this.roadName = this.startpoint + ", " + this.endpoint;
+		}
 		return this.roadName;
 	}
 
@@ -38,18 +126,44 @@ public class Road<String, S, E> {
 	public void setRoadStatus(String roadStatus) {
 		this.roadStatus = roadStatus;
 	}
-	
-	public boolean isIntersection() {
-		MapNode m = (MapNode) this.endpoint;
-		if(m.getNeighbors().size() > 2)
-			return true;
-		return false;
+
+	/**
+	 * Returns true if the other road is the same road as this one
+	 * @param r The other road (may be null)
+	 * @return True if the roads are the same
+	 */
+	public boolean isSameRoad(Road r) {
+		if (r == null) {
+			return false;
+		}
+		if (this.id >= 0 && r.id >= 0) {
+			return this.id == r.id;
+		}
+		return sameCoord(this.startpoint, r.startpoint) &&
+			sameCoord(this.endpoint, r.endpoint);
 	}
-	
+
+	/**
+	 * Returns true if the other road is the opposite lane of this road
+	 * @param r The other road (may be null)
+	 * @return True if the other road goes the opposite way
+	 */
 	public boolean isOppositeLane(Road r) {
-		if(this.startpoint.equals(r.getEndpoint()) && this.endpoint.equals(r.getStartpoint()))
-			return true;
-		return false;
-		
+		if (r == null) {
+			return false;
+		}
+		if (this.id >= 0 && r.id >= 0) {
+			return this.reverse != null && this.reverse.id == r.id;
+		}
+		return this.startpoint != null &&
+			sameCoord(this.startpoint, r.endpoint) &&
+			sameCoord(this.endpoint, r.startpoint);
+	}
+
+	/**
+	 * Returns true if both coordinates are null or at the same location
+	 */
+	private static boolean sameCoord(Coord c1, Coord c2) {
+		return (c1 == null ? c2 == null : c1.equals((Object)c2));
 	}
 }
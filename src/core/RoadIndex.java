@@ -0,0 +1,338 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * <P>
+ * Index of the vehicles on each directed road (map edge from one waypoint
+ * to the next). The vehicles of a road are ordered by the distance they
+ * have travelled on it, so the vehicle in front of a host and the nearest
+ * oncoming vehicle on the opposite lane are found with a binary search
+ * instead of looping over the host's connections. The lookups don't
+ * depend on the radio range: all vehicles on the road are seen.</P>
+ *
+ * <P>
+ * The index is rebuilt by the world from the movement snapshots (see
+ * {@link DTNHost#getCurrentRoad()}) before every movement phase and only
+ * read while the hosts move, so the lookups can be done from parallel
+ * movement workers.
+ * </P>
+ */
+public class RoadIndex {
+	/**
+	 * Road index -setting id ({@value}). Boolean. If true, car-following
+	 * finds the vehicles on the same and the opposite lane from a road
+	 * index instead of the host's connections.
+	 * Used in {@link World#OPTIMIZATION_SETTINGS_NS} name space.
+	 * Default = false.
+	 */
+	public static final String ROAD_INDEX_S = "roadIndex";
+
+	/** orders the vehicles by the distance travelled on their roads */
+	private static final Comparator<Vehicle> BY_POSITION =
+		new Comparator<Vehicle>() {
+			public int compare(Vehicle v1, Vehicle v2) {
+				return Double.compare(v1.position, v2.position);
+			}
+		};
+
+	/** lanes of the roads of a road network, by road id */
+	private Lane[] networkLanes;
+	/** lanes of the other roads that have had vehicles on them */
+	private HashMap<Lane, Lane> lanes;
+	/** the vehicles of the latest build */
+	private Vehicle[] vehicles;
+	private int nrofVehicles;
+
+	/**
+	 * Creates a new, empty index
+	 */
+	public RoadIndex() {
+		this.networkLanes = new Lane[0];
+		this.lanes = new HashMap<Lane, Lane>();
+		this.vehicles = new Vehicle[0];
+		this.nrofVehicles = 0;
+	}
+
+	/**
+	 * Removes all vehicles from the index
+	 */
+	public void clear() {
+		for (Lane lane : networkLanes) {
+			if (lane != null) {
+				lane.clear();
+			}
+		}
+		for (Lane lane : lanes.values()) {
+			lane.clear();
+		}
+		nrofVehicles = 0;
+	}
+
+	/**
+	 * Adds a vehicle to the index. The vehicles are not found before
+	 * {@link #build()} is called.
+	 * @param host The vehicle
+	 * @param road The road the vehicle is on
+	 * @param location Location of the vehicle
+	 */
+	public void add(DTNHost host, Road road, Coord location) {
+		if (!isValid(road) || location == null) {
+			return;
+		}
+		Coord start = road.getStartpoint();
+		Lane lane = getLane(road, false, true);
+
+		if (nrofVehicles == vehicles.length) {
+			vehicles = Arrays.copyOf(vehicles, Math.max(16, nrofVehicles*2));
+		}
+		Vehicle v = vehicles[nrofVehicles];
+		if (v == null) {
+			v = vehicles[nrofVehicles] = new Vehicle();
+		}
+		v.host = host;
+		v.lane = lane;
+		v.position = start.distance(location);
+		nrofVehicles++;
+	}
+
+	/**
+	 * Orders the added vehicles on their lanes
+	 */
+	public void build() {
+		/* one sort of all vehicles leaves every lane in order */
+		Arrays.sort(vehicles, 0, nrofVehicles, BY_POSITION);
+		for (int i=0; i<nrofVehicles; i++) {
+			Vehicle v = vehicles[i];
+			v.lane.add(v.host, v.position);
+		}
+	}
+
+	/**
+	 * Rebuilds the index from the movement snapshots of the hosts
+	 * @param hosts All hosts of the world
+	 */
+	void update(List<DTNHost> hosts) {
+		clear();
+		for (int i=0, n=hosts.size(); i<n; i++) {
+			DTNHost h = hosts.get(i);
+			add(h, h.getSnapshotRoad(), h.getSnapshotLocation());
+		}
+		build();
+	}
+
+	/**
+	 * Returns the nearest vehicle in front of a host on the same lane
+	 * @param host The host
+	 * @param road The road the host is on
+	 * @param location Location of the host
+	 * @return The vehicle in front or null if there's no vehicle in front
+	 */
+	public DTNHost getFrontNode(DTNHost host, Road road, Coord location) {
+		Lane lane = getLane(road, false, false);
+		if (lane == null || location == null) {
+			return null;
+		}
+		double position = road.getStartpoint().distance(location);
+		for (int i = lane.firstAfter(position); i < lane.size; i++) {
+			if (lane.hosts[i] != host) {
+				return lane.hosts[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the nearest oncoming vehicle on the opposite lane that hasn't
+	 * passed the host yet
+	 * @param host The host
+	 * @param road The road the host is on
+	 * @param location Location of the host
+	 * @return The oncoming vehicle or null if there are no oncoming
+	 * vehicles ahead
+	 */
+	public DTNHost getOncomingNode(DTNHost host, Road road, Coord location) {
+		Lane lane = getLane(road, true, false);
+		if (lane == null || location == null) {
+			return null;
+		}
+		/* distance left to the end is the limit on the opposite lane */
+		double limit = road.getLength() -
+			road.getStartpoint().distance(location);
+		for (int i = lane.firstAfter(limit) - 1; i >= 0; i--) {
+			if (lane.hosts[i] != host) {
+				return lane.hosts[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the vehicles on a road ordered by the distance travelled
+	 * @param road The road
+	 * @return The vehicles on the road (an empty list if there are none)
+	 */
+	public List<DTNHost> getHostsOnRoad(Road road) {
+		Lane lane = getLane(road, false, false);
+		if (lane == null) {
+			return new ArrayList<DTNHost>(0);
+		}
+		List<DTNHost> list = new ArrayList<DTNHost>(lane.size);
+		for (int i=0; i<lane.size; i++) {
+			list.add(lane.hosts[i]);
+		}
+		return list;
+	}
+
+	/**
+	 * Returns the lane of a road or of its opposite road. The lanes of the
+	 * roads of a road network are found by road id and the lanes of other
+	 * roads by the locations of their end points.
+	 * @param road The road
+	 * @param opposite If true, the lane of the opposite road is returned
+	 * @param create If true, a missing lane is created
+	 * @return The lane or null if the road is not valid or (when not
+	 * created) there is no lane for it
+	 */
+	private Lane getLane(Road road, boolean opposite, boolean create) {
+		if (!isValid(road)) {
+			return null;
+		}
+		Road r = (opposite ? road.getReverse() : road);
+		if (r != null && r.getId() >= 0) {
+			return getNetworkLane(r, create);
+		}
+		Coord from = road.getStartpoint();
+		Coord to = road.getEndpoint();
+		Lane key = (opposite ? new Lane(to, from) : new Lane(from, to));
+		Lane lane = lanes.get(key);
+		if (lane == null && create) {
+			lanes.put(key, key);
+			lane = key;
+		}
+		return lane;
+	}
+
+	/**
+	 * Returns the lane of a road of a road network
+	 * @param road The road
+	 * @param create If true, a missing lane is created
+	 * @return The lane or null if there is no lane for the road
+	 */
+	private Lane getNetworkLane(Road road, boolean create) {
+		int id = road.getId();
+		if (id >= networkLanes.length) {
+			if (!create) {
+				return null;
+			}
+			networkLanes = Arrays.copyOf(networkLanes,
+					Math.max(id + 1, networkLanes.length * 2));
+		}
+		Lane lane = networkLanes[id];
+		if (lane == null && create) {
+			lane = networkLanes[id] = new Lane(road.getStartpoint(),
+					road.getEndpoint());
+		}
+		return lane;
+	}
+
+	/**
+	 * Returns true if the road has both end points (a host's first road
+	 * starts from nowhere)
+	 */
+	private static boolean isValid(Road road) {
+		return road != null && road.getStartpoint() != null &&
+			road.getEndpoint() != null;
+	}
+
+	/**
+	 * A vehicle of the latest build
+	 */
+	private static class Vehicle {
+		private DTNHost host;
+		private Lane lane;
+		private double position;
+	}
+
+	/**
+	 * Vehicles on one directed road, ordered by position. Lanes are equal
+	 * if their end points are at the same locations.
+	 */
+	private static class Lane {
+		private final double x1, y1, x2, y2;
+		private DTNHost[] hosts;
+		private double[] positions;
+		private int size;
+
+		private Lane(Coord from, Coord to) {
+			this.x1 = from.getX();
+			this.y1 = from.getY();
+			this.x2 = to.getX();
+			this.y2 = to.getY();
+			this.hosts = new DTNHost[0];
+			this.positions = new double[0];
+			this.size = 0;
+		}
+
+		private void clear() {
+			Arrays.fill(hosts, 0, size, null);
+			size = 0;
+		}
+
+		private void add(DTNHost host, double position) {
+			if (size == hosts.length) {
+				int capacity = Math.max(4, size * 2);
+				hosts = Arrays.copyOf(hosts, capacity);
+				positions = Arrays.copyOf(positions, capacity);
+			}
+			hosts[size] = host;
+			positions[size] = position;
+			size++;
+		}
+
+		/**
+		 * Returns the index of the first vehicle whose position is greater
+		 * than the given position (or size if there is no such vehicle)
+		 */
+		private int firstAfter(double position) {
+			int lo = 0;
+			int hi = size;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (positions[mid] <= position) {
+					lo = mid + 1;
+				}
+				else {
+					hi = mid;
+				}
+			}
+			return lo;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Lane)) {
+				return false;
+			}
+			Lane l = (Lane)o;
+			return x1 == l.x1 && y1 == l.y1 && x2 == l.x2 && y2 == l.y2;
+		}
+
+		@Override
+		public int hashCode() {
+			long h = Double.doubleToLongBits(x1);
+			h = h * 31 + Double.doubleToLongBits(y1);
+			h = h * 31 + Double.doubleToLongBits(x2);
+			h = h * 31 + Double.doubleToLongBits(y2);
+			return (int)(h ^ (h >>> 32));
+		}
+	}
+}
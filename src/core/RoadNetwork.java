@@ -0,0 +1,198 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import movement.map.MapNode;
+import movement.map.SimMap;
+
+/**
+ * The directed roads of a map. Every map edge in each direction has one
+ * {@link Road} object with an id (0...{@link #getNrofRoads()}-1), so the
+ * hosts moving on the map share the road objects and roads are compared
+ * by id. The map nodes are numbered too (0...{@link #getNrofNodes()}-1),
+ * so route searches can work on arrays. The network doesn't change after
+ * it has been built and can be read from any thread.
+ * @see SimMap#getRoadNetwork()
+ */
+public class RoadNetwork {
+	/** the roads by id */
+	private final Road[] roads;
+	/** start and end node of each road */
+	private final int[] startNodes, endNodes;
+	/** locations of the map nodes by node index */
+	private final Coord[] locations;
+	/** node indexes by the location objects of the map nodes */
+	private final IdentityHashMap<Coord, Integer> nodeIndexes;
+	/** the roads starting from and ending to each node */
+	private final Road[][] roadsFrom, roadsTo;
+
+	/**
+	 * Builds the road network of a map
+	 * @param map The map
+	 */
+	public RoadNetwork(SimMap map) {
+		List<MapNode> nodes = map.getNodes();
+		int nrofNodes = nodes.size();
+		this.locations = new Coord[nrofNodes];
+		this.nodeIndexes = new IdentityHashMap<Coord, Integer>();
+		for (int i=0; i<nrofNodes; i++) {
+			this.locations[i] = nodes.get(i).getLocation();
+			this.nodeIndexes.put(this.locations[i], i);
+		}
+
+		List<Road> all = new ArrayList<Road>();
+		int[] nrofRoadsTo = new int[nrofNodes];
+		this.roadsFrom = new Road[nrofNodes][];
+		for (int i=0; i<nrofNodes; i++) {
+			List<MapNode> neighbors = nodes.get(i).getNeighbors();
+			Road[] out = new Road[neighbors.size()];
+			for (int j=0; j<out.length; j++) {
+				Coord to = neighbors.get(j).getLocation();
+				out[j] = new Road(all.size(), this.locations[i], to);
+				all.add(out[j]);
+				nrofRoadsTo[getNode(to)]++;
+			}
+			this.roadsFrom[i] = out;
+		}
+
+		this.roads = all.toArray(new Road[all.size()]);
+		this.startNodes = new int[roads.length];
+		this.endNodes = new int[roads.length];
+		this.roadsTo = new Road[nrofNodes][];
+		for (int i=0; i<nrofNodes; i++) {
+			this.roadsTo[i] = new Road[nrofRoadsTo[i]];
+			nrofRoadsTo[i] = 0;
+		}
+		for (Road r : this.roads) {
+			int from = getNode(r.getStartpoint());
+			int to = getNode(r.getEndpoint());
+			this.startNodes[r.getId()] = from;
+			this.endNodes[r.getId()] = to;
+			this.roadsTo[to][nrofRoadsTo[to]++] = r;
+			r.setReverse(find(r.getEndpoint(), r.getStartpoint()));
+		}
+	}
+
+	/**
+	 * Returns the road from a waypoint to the next one. The waypoints of
+	 * the paths on the map are the locations of the map nodes; for other
+	 * waypoints a new road that is not on the map is returned.
+	 * @param from The previous waypoint (may be null)
+	 * @param to The next waypoint
+	 * @return The road between the waypoints
+	 */
+	public Road getRoad(Coord from, Coord to) {
+		Road road = find(from, to);
+		if (road == null) {
+			road = new Road(null, from, to);
+		}
+		return road;
+	}
+
+	/**
+	 * Returns the road with the given id
+	 * @param id Id of the road
+	 * @return The road
+	 */
+	public Road getRoad(int id) {
+		return this.roads[id];
+	}
+
+	/**
+	 * Returns the number of roads (two for every two-way map edge)
+	 * @return The number of roads
+	 */
+	public int getNrofRoads() {
+		return this.roads.length;
+	}
+
+	/**
+	 * Returns the number of map nodes
+	 * @return The number of nodes
+	 */
+	public int getNrofNodes() {
+		return this.locations.length;
+	}
+
+	/**
+	 * Returns the index of the map node at a waypoint
+	 * @param location The location object of a map node
+	 * @return The index of the node or -1 if the location isn't (the
+	 * location object of) a map node
+	 */
+	public int getNode(Coord location) {
+		Integer index = (location == null ? null :
+			this.nodeIndexes.get(location));
+		return (index == null ? -1 : index);
+	}
+
+	/**
+	 * Returns the location of a map node
+	 * @param node Index of the node
+	 * @return The location object of the node
+	 */
+	public Coord getLocation(int node) {
+		return this.locations[node];
+	}
+
+	/**
+	 * Returns the node where a road starts
+	 * @param road Id of the road
+	 * @return Index of the start node
+	 */
+	public int getStartNode(int road) {
+		return this.startNodes[road];
+	}
+
+	/**
+	 * Returns the node where a road ends
+	 * @param road Id of the road
+	 * @return Index of the end node
+	 */
+	public int getEndNode(int road) {
+		return this.endNodes[road];
+	}
+
+	/**
+	 * Returns the roads that start from a node. The array must not be
+	 * modified.
+	 * @param node Index of the node
+	 * @return The roads from the node
+	 */
+	public Road[] getRoadsFrom(int node) {
+		return this.roadsFrom[node];
+	}
+
+	/**
+	 * Returns the roads that end to a node. The array must not be
+	 * modified.
+	 * @param node Index of the node
+	 * @return The roads to the node
+	 */
+	public Road[] getRoadsTo(int node) {
+		return this.roadsTo[node];
+	}
+
+	/**
+	 * Returns the road of the map between the locations of two map nodes
+	 * or null if there is no such road
+	 */
+	private Road find(Coord from, Coord to) {
+		int node = getNode(from);
+		if (node < 0) {
+			return null;
+		}
+		for (Road r : this.roadsFrom[node]) {
+			if (r.getEndpoint() == to) {
+				return r;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+/**
+ * Update listener that isn't interested in every update cycle. Instead of
+ * calling the listener on every cycle, the world asks when the listener
+ * wants its next update and calls it at the end of the first update cycle
+ * at or after that time. Listeners that are not due cost nothing on the
+ * update cycles.
+ */
+public interface ScheduledUpdateListener extends UpdateListener {
+	/** next update time of a listener that doesn't want any more updates */
+	public static final double NO_UPDATES = Double.MAX_VALUE;
+
+	/**
+	 * Returns the simulation time of the next update the listener wants.
+	 * Called when the listener is registered to the world and after every
+	 * {@link #updated(java.util.List)} call. If the returned time isn't
+	 * after the current time, the listener is updated on the next cycle.
+	 * @return The time of the next update or {@link #NO_UPDATES}
+	 */
+	public double nextUpdateTime();
+}
@@ -8,10 +8,8 @@ import java.io.*;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.Properties;
 import java.util.Scanner;
-import java.util.Set;
 import java.util.Stack;
 
 import util.Range;
@@ -51,10 +49,6 @@ public class Settings {
 
 	/** Stream where all read settings are written to */
 	private static PrintStream out = null;
-	private static Set<String> writtenSettings = new HashSet<String>();
-
-	/** run index for run-specific settings */
-	private static int runIndex = 0;
 	private String namespace = null; // namespace to look the settings from
 	private String secondaryNamespace = null;
 	private Stack<String> oldNamespaces;
@@ -95,8 +89,9 @@ public class Settings {
 	 * -1 to disable run indexing
 	 */
 	public static void setRunIndex(int index) {
-		runIndex = index;
-		writtenSettings.clear();
+		SimulationContext c = SimulationContext.current();
+		c.runIndex = index;
+		c.writtenSettings.clear();
 	}
 
 	/**
@@ -329,13 +324,14 @@ public class Settings {
 	 * Writes the given setting string to the settings output (if any)
 	 * @param setting The string to write
 	 */
-	private static void outputSetting(String setting) {
-		if (out != null && !writtenSettings.contains(setting)) {
-			if (writtenSettings.size() == 0) {
-				out.println("# Settings for run " + (runIndex + 1));
+	private static synchronized void outputSetting(String setting) {
+		SimulationContext c = SimulationContext.current();
+		if (out != null && !c.writtenSettings.contains(setting)) {
+			if (c.writtenSettings.size() == 0) {
+				out.println("# Settings for run " + (c.runIndex + 1));
 			}
 			out.println(setting);
-			writtenSettings.add(setting);
+			c.writtenSettings.add(setting);
 		}
 	}
 
@@ -435,6 +431,16 @@ public class Settings {
 		}
 	}
 
+	/**
+	 * Returns the value of a setting for the current run without writing
+	 * it to the settings output
+	 * @param value The value as it is in the settings file(s)
+	 * @return The value for the current run
+	 */
+	static String runValue(String value) {
+		return parseRunSetting(value.trim());
+	}
+
 	/**
 	 * Parses run-specific settings from a String value
 	 * @param value The String to parse
@@ -445,6 +451,7 @@ public class Settings {
 		final String RUN_ARRAY_END = "]";
 		final String RUN_ARRAY_DELIM = ";";
 		final int MIN_LENGTH = 3; // minimum run is one value. e.g. "[v]"
+		int runIndex = SimulationContext.current().runIndex;
 
 		if (!value.startsWith(RUN_ARRAY_START) ||
 			!value.endsWith(RUN_ARRAY_END) ||
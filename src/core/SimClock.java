@@ -8,10 +8,9 @@ package core;
  * Wall clock for checking the simulation time.
  */
 public class SimClock {
-	private static double clockTime = 0.0;
-	private static SimClock clock = null;
 
-	private SimClock() {}
+	/** Use {@link #getInstance()} to get the clock of the current run */
+	SimClock() {}
 
 	static {
 		DTNSim.registerForReset(SimClock.class.getCanonicalName());
@@ -20,13 +19,14 @@ public class SimClock {
 
 	/**
 	 * Get the instance of the class that can also change the time.
-	 * @return The instance of this clock
+	 * @return The clock of the current simulation run
 	 */
 	public static SimClock getInstance() {
-		if (clock == null) {
-			clock = new SimClock();
+		SimulationContext c = SimulationContext.current();
+		if (c.clock == null) {
+			c.clock = new SimClock();
 		}
-		return clock;
+		return c.clock;
 	}
 
 	/**
@@ -34,7 +34,7 @@ public class SimClock {
 	 * @return Time as a double
 	 */
 	public static double getTime() {
-		return clockTime;
+		return SimulationContext.current().clockTime;
 	}
 
 	/**
@@ -42,7 +42,7 @@ public class SimClock {
 	 * @return Time as integer
 	 */
 	public static int getIntTime() {
-		return (int)Math.round(clockTime);
+		return (int)Math.round(getTime());
 	}
 
 	/**
@@ -52,7 +52,7 @@ public class SimClock {
 	 * @return The sim time
 	 */
 	public static String getFormattedTime(int decimals) {
-		return String.format("%." + decimals + "f", clockTime);
+		return String.format("%." + decimals + "f", getTime());
 	}
 
 	/**
@@ -60,7 +60,7 @@ public class SimClock {
 	 * @param time Nrof seconds to increase the time
 	 */
 	public void advance(double time) {
-		clockTime += time;
+		SimulationContext.current().clockTime += time;
 	}
 
 	/**
@@ -68,7 +68,7 @@ public class SimClock {
 	 * @param time the time to set
 	 */
 	public void setTime(double time) {
-		clockTime = time;
+		SimulationContext.current().clockTime = time;
 	}
 
 	/**
@@ -76,13 +76,13 @@ public class SimClock {
 	 * @return the current simulation time in a string
 	 */
 	public String toString() {
-		return "SimTime: " + clockTime;
+		return "SimTime: " + getTime();
 	}
 
 	/**
 	 * Resets the static fields of the class
 	 */
 	public static void reset() {
-		clockTime = 0;
+		SimulationContext.current().clockTime = 0;
 	}
 }
@@ -22,9 +22,6 @@ import routing.MessageRouter;
  */
 public class SimScenario implements Serializable {
 
-	/** a way to get a hold of this... */
-	private static SimScenario myinstance=null;
-
 	/** namespace of scenario settings ({@value})*/
 	public static final String SCENARIO_NS = "Scenario";
 	/** number of host groups -setting id ({@value})*/
@@ -39,6 +36,10 @@ public class SimScenario implements Serializable {
 	public static final String UP_INT_S = "updateInterval";
 	/** simulate connections -setting id ({@value})*/
 	public static final String SIM_CON_S = "simulateConnections";
+	/** simulate movement -setting id ({@value}). If false, the hosts stay
+	 * in their initial locations (e.g., when replaying a contact trace).
+	 * Default = true. */
+	public static final String SIM_MOVEMENT_S = "simulateMovement";
 
 	/** namespace for interface type settings ({@value}) */
 	public static final String INTTYPE_NS = "Interface";
@@ -104,6 +105,7 @@ public class SimScenario implements Serializable {
 	private EventQueueHandler eqHandler;
 	/** Should connections between hosts be simulated */
 	private boolean simulateConnections;
+	private boolean simulateMovement;
 	/** Map used for host movement (if any) */
 	private SimMap simMap;
 
@@ -117,6 +119,8 @@ public class SimScenario implements Serializable {
 	private List<UpdateListener> updateListeners;
 	/** Global application event listeners */
 	private List<ApplicationListener> appListeners;
+	/** Profiler of the world updates or null if profiling is disabled */
+	private TickProfiler tickProfiler;
 
 	static {
 		DTNSim.registerForReset(SimScenario.class.getCanonicalName());
@@ -124,7 +128,7 @@ public class SimScenario implements Serializable {
 	}
 
 	public static void reset() {
-		myinstance = null;
+		SimulationContext.current().scenario = null;
 	}
 
 	/**
@@ -138,6 +142,7 @@ public class SimScenario implements Serializable {
 		this.endTime = s.getDouble(END_TIME_S);
 		this.updateInterval = s.getDouble(UP_INT_S);
 		this.simulateConnections = s.getBoolean(SIM_CON_S);
+		this.simulateMovement = s.getBoolean(SIM_MOVEMENT_S, true);
 
 		s.ensurePositiveValue(nrofGroups, NROF_GROUPS_S);
 		s.ensurePositiveValue(endTime, END_TIME_S);
@@ -164,16 +169,24 @@ public class SimScenario implements Serializable {
 		this.world = new World(hosts, worldSizeX, worldSizeY, updateInterval,
 				updateListeners, simulateConnections,
 				eqHandler.getEventQueues());
+		this.world.setSimulateMovement(simulateMovement);
+
+		this.tickProfiler = null;
+		s.setNameSpace(TickProfiler.PROFILER_NS);
+		if (s.getBoolean(TickProfiler.ENABLED_S, false)) {
+			enableTickProfiler();
+		}
 	}
 
 	/**
 	 * Returns the SimScenario instance and creates one if it doesn't exist yet
 	 */
 	public static SimScenario getInstance() {
-		if (myinstance == null) {
-			myinstance = new SimScenario();
+		SimulationContext c = SimulationContext.current();
+		if (c.scenario == null) {
+			c.scenario = new SimScenario();
 		}
-		return myinstance;
+		return c.scenario;
 	}
 
 
@@ -419,4 +432,29 @@ public class SimScenario implements Serializable {
 		return this.world;
 	}
 
+	/**
+	 * Enables profiling of the world updates (if it isn't enabled yet) and
+	 * returns the profiler
+	 * @return The profiler of this scenario
+	 */
+	public TickProfiler enableTickProfiler() {
+		if (this.tickProfiler == null) {
+			this.tickProfiler = new TickProfiler();
+			addConnectionListener(this.tickProfiler);
+			addMessageListener(this.tickProfiler);
+			this.tickProfiler.registerMBean(
+					SimulationContext.current().getRunIndex());
+			this.world.setTickProfiler(this.tickProfiler);
+		}
+		return this.tickProfiler;
+	}
+
+	/**
+	 * Returns the profiler of the world updates
+	 * @return The profiler or null if profiling isn't enabled
+	 */
+	public TickProfiler getTickProfiler() {
+		return this.tickProfiler;
+	}
+
 }
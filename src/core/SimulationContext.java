@@ -0,0 +1,203 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Per-run state of a simulation: the scenario, simulation clock, run index,
+ * id counters, the movement state of the hosts and the state of the modules
+ * that would otherwise keep it in static fields (e.g., connectivity grids
+ * and bus control systems).
+ * <P>
+ * Every thread works in one context. Unless another context has been entered
+ * (see {@link #enter()}), all threads share the default context, which is
+ * reset between sequential batch runs using the reset methods registered with
+ * {@link DTNSim#registerForReset(String)}. Concurrent batch runs each run in
+ * a thread of their own with a fresh context.
+ * </P>
+ * <P>
+ * Modules outside the core package store their per-run state using
+ * {@link #getModuleState(Class)} and {@link #setModuleState(Class, Object)}.
+ * If a module has no state in the current context yet, its reset method is
+ * called to create the state.
+ * </P>
+ */
+public class SimulationContext {
+	/** the context of all threads that haven't entered another context */
+	private static final SimulationContext defaultContext =
+		new SimulationContext(0);
+	private static final ThreadLocal<SimulationContext> threadContext =
+		new ThreadLocal<SimulationContext>();
+	/** has any thread entered a context other than the default context */
+	private static volatile boolean multipleContexts = false;
+
+	/** run index for run-specific settings */
+	int runIndex;
+	/** settings already written to the settings output on this run */
+	final Set<String> writtenSettings;
+	/** current simulation time */
+	double clockTime;
+	/** clock that can change the time of this context (created lazily) */
+	SimClock clock;
+	/** the scenario of this run, or null if not created yet */
+	SimScenario scenario;
+	/** unique id for the next message */
+	int nextMessageId;
+	/** address for the next host */
+	int nextHostAddress;
+	/** random number generator for network interfaces */
+	Random interfaceRng;
+	/** address for the next network interface */
+	int nextInterfaceAddress;
+	/** connections that are up, by their interfaces */
+	ConnectionTable connectionTable;
+	/** movement state of the hosts */
+	HostStates hostStates;
+
+	private final Map<Class<?>, Object> moduleStates;
+
+	/**
+	 * Creates a new context with its clock at zero
+	 * @param runIndex The run index for run-specific settings
+	 */
+	public SimulationContext(int runIndex) {
+		this.runIndex = runIndex;
+		this.writtenSettings = new HashSet<String>();
+		this.clockTime = 0;
+		this.clock = null;
+		this.scenario = null;
+		this.nextMessageId = 0;
+		this.nextHostAddress = 0;
+		this.interfaceRng = new Random(0);
+		this.nextInterfaceAddress = 0;
+		this.connectionTable = new ConnectionTable();
+		this.hostStates = new HostStates();
+		this.moduleStates = new HashMap<Class<?>, Object>();
+	}
+
+	/**
+	 * Returns the context of the calling thread
+	 * @return the context of the calling thread
+	 */
+	public static SimulationContext current() {
+		if (!multipleContexts) {
+			return defaultContext;
+		}
+		SimulationContext c = threadContext.get();
+		return (c != null ? c : defaultContext);
+	}
+
+	/**
+	 * Makes this context the context of the calling thread
+	 */
+	public void enter() {
+		if (this != defaultContext) {
+			multipleContexts = true;
+		}
+		threadContext.set(this);
+	}
+
+	/**
+	 * Returns the calling thread to the default context
+	 */
+	public static void exit() {
+		threadContext.remove();
+	}
+
+	/**
+	 * Returns the run index of this context
+	 * @return the run index
+	 */
+	public int getRunIndex() {
+		return this.runIndex;
+	}
+
+	/**
+	 * Returns the movement state store of the hosts created in this context
+	 * @return the host state store
+	 */
+	public HostStates getHostStates() {
+		return this.hostStates;
+	}
+
+	/**
+	 * Returns the state a module has stored to the current context. If the
+	 * module hasn't stored anything yet, the module's reset method (if any)
+	 * is called first.
+	 * @param owner The module (class) whose state is requested
+	 * @return The state object or null if the module has no state
+	 */
+	public static Object getModuleState(Class<?> owner) {
+		SimulationContext c = current();
+		synchronized (c.moduleStates) {
+			if (!c.moduleStates.containsKey(owner)) {
+				c.moduleStates.put(owner, null);
+				DTNSim.resetClass(owner);
+			}
+			return c.moduleStates.get(owner);
+		}
+	}
+
+	/**
+	 * Stores the state of a module to the current context
+	 * @param owner The module (class) whose state is stored
+	 * @param state The state object
+	 */
+	public static void setModuleState(Class<?> owner, Object state) {
+		SimulationContext c = current();
+		synchronized (c.moduleStates) {
+			c.moduleStates.put(owner, state);
+		}
+	}
+
+	/**
+	 * Returns a copy of the module states stored to this context
+	 * @return Module states by their owner classes
+	 */
+	Map<Class<?>, Object> getModuleStates() {
+		synchronized (moduleStates) {
+			return new HashMap<Class<?>, Object>(moduleStates);
+		}
+	}
+
+	/**
+	 * Creates a fork-join pool whose worker threads work in this context
+	 * @param parallelism Number of worker threads
+	 * @return The new pool
+	 */
+	public ForkJoinPool createWorkerPool(int parallelism) {
+		return new ForkJoinPool(parallelism,
+			new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+				public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+					return new WorkerThread(pool, SimulationContext.this);
+				}
+			}, null, false);
+	}
+
+	/**
+	 * Fork-join worker thread that enters a context when it starts
+	 */
+	private static class WorkerThread extends ForkJoinWorkerThread {
+		private final SimulationContext context;
+
+		private WorkerThread(ForkJoinPool pool, SimulationContext context) {
+			super(pool);
+			this.context = context;
+		}
+
+		@Override
+		protected void onStart() {
+			super.onStart();
+			context.enter();
+		}
+	}
+}
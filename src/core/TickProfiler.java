@@ -0,0 +1,234 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Records where the time of {@link World#update()} goes: the wall time of
+ * the update phases (external events, movement, connectivity, router and
+ * application updates and update listeners), the number of processed
+ * events, connection churn and the number of transferred messages. All
+ * values are totals since the start of the run.
+ * <P>
+ * The profiler is created (see {@link SimScenario#enableTickProfiler()})
+ * only if profiling is enabled with the {@link #ENABLED_S} setting or by a
+ * report that needs it; without a profiler the world doesn't measure
+ * anything. While enabled, the profiler is also available over JMX as
+ * {@value #JMX_DOMAIN}:type=TickProfiler,run=&lt;run index&gt;. Values read
+ * over JMX during a run may be slightly out of sync with each other.
+ * </P>
+ */
+public class TickProfiler implements TickProfilerMBean, ConnectionListener,
+		MessageListener {
+	/** name space of profiler settings ({@value}) */
+	public static final String PROFILER_NS = "Profiler";
+	/**
+	 * Should the update phases be profiled -setting id ({@value}). Boolean
+	 * (true/false) variable. Default is false.
+	 */
+	public static final String ENABLED_S = "enabled";
+	/** JMX domain of the profiler MBean ({@value}) */
+	public static final String JMX_DOMAIN = "one";
+
+	/** external event processing phase */
+	public static final int PHASE_EVENTS = 0;
+	/** host movement phase */
+	public static final int PHASE_MOVEMENT = 1;
+	/** connectivity (network interface) update phase */
+	public static final int PHASE_CONNECTIVITY = 2;
+	/** router (and application) update phase */
+	public static final int PHASE_ROUTING = 3;
+	/** update listener phase */
+	public static final int PHASE_LISTENERS = 4;
+	/** names of the phases */
+	public static final String[] PHASE_NAMES = {"events", "movement",
+		"connectivity", "routing", "listeners"};
+
+	private final long[] phaseTimes;
+	private long ticks;
+	private long lastTickTime;
+	private long events;
+	private long connectionsUp;
+	private long connectionsDown;
+	private long messagesTransferred;
+	private ObjectName jmxName;
+
+	/**
+	 * Creates a new profiler with all values at zero
+	 */
+	public TickProfiler() {
+		this.phaseTimes = new long[PHASE_NAMES.length];
+	}
+
+	/**
+	 * Adds time to a phase
+	 * @param phase The phase (one of the PHASE_ constants)
+	 * @param nanos The time to add (nanoseconds)
+	 */
+	public void addTime(int phase, long nanos) {
+		this.phaseTimes[phase] += nanos;
+	}
+
+	/**
+	 * Records a processed external event
+	 */
+	public void eventProcessed() {
+		this.events++;
+	}
+
+	/**
+	 * Records the end of a tick
+	 * @param nanos Total wall time of the tick (nanoseconds)
+	 */
+	public void tickDone(long nanos) {
+		this.ticks++;
+		this.lastTickTime = nanos;
+	}
+
+	/**
+	 * Returns the total time spent in a phase
+	 * @param phase The phase (one of the PHASE_ constants)
+	 * @return The time in nanoseconds
+	 */
+	public long getPhaseTime(int phase) {
+		return this.phaseTimes[phase];
+	}
+
+	/**
+	 * Returns the total time of all phases
+	 * @return The time in nanoseconds
+	 */
+	public long getTotalTime() {
+		long total = 0;
+		for (long t : this.phaseTimes) {
+			total += t;
+		}
+		return total;
+	}
+
+	/**
+	 * Returns a short, multi-line breakdown of the time per phase
+	 * @return The breakdown
+	 */
+	public String getSummary() {
+		StringBuilder sb = new StringBuilder();
+		long total = getTotalTime();
+		for (int i=0; i<PHASE_NAMES.length; i++) {
+			sb.append(String.format("%-13s %10.1f ms %5.1f%%\n",
+					PHASE_NAMES[i], phaseTimes[i] / 1e6,
+					total > 0 ? 100.0 * phaseTimes[i] / total : 0));
+		}
+		sb.append(String.format("%d ticks, %d events, %d connections up, " +
+				"%d down, %d messages transferred", ticks, events,
+				connectionsUp, connectionsDown, messagesTransferred));
+		return sb.toString();
+	}
+
+	/**
+	 * Registers the profiler to the platform MBean server
+	 * @param runIndex Run index of the simulation run (used in the name)
+	 */
+	void registerMBean(int runIndex) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(JMX_DOMAIN +
+					":type=TickProfiler,run=" + runIndex);
+			if (server.isRegistered(name)) { // left from an earlier run
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(this, name);
+			this.jmxName = name;
+		} catch (JMException e) {
+			throw new SimError(e);
+		}
+	}
+
+	/**
+	 * Unregisters the profiler from the platform MBean server (if it was
+	 * registered)
+	 */
+	public void unregisterMBean() {
+		if (this.jmxName == null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(
+					this.jmxName);
+		} catch (JMException e) {
+			throw new SimError(e);
+		}
+		this.jmxName = null;
+	}
+
+	public long getTicks() {
+		return this.ticks;
+	}
+
+	public double getLastTickMillis() {
+		return this.lastTickTime / 1e6;
+	}
+
+	public double getEventMillis() {
+		return this.phaseTimes[PHASE_EVENTS] / 1e6;
+	}
+
+	public double getMovementMillis() {
+		return this.phaseTimes[PHASE_MOVEMENT] / 1e6;
+	}
+
+	public double getConnectivityMillis() {
+		return this.phaseTimes[PHASE_CONNECTIVITY] / 1e6;
+	}
+
+	public double getRoutingMillis() {
+		return this.phaseTimes[PHASE_ROUTING] / 1e6;
+	}
+
+	public double getListenerMillis() {
+		return this.phaseTimes[PHASE_LISTENERS] / 1e6;
+	}
+
+	public long getEvents() {
+		return this.events;
+	}
+
+	public long getConnectionsUp() {
+		return this.connectionsUp;
+	}
+
+	public long getConnectionsDown() {
+		return this.connectionsDown;
+	}
+
+	public long getMessagesTransferred() {
+		return this.messagesTransferred;
+	}
+
+	public void hostsConnected(DTNHost host1, DTNHost host2) {
+		this.connectionsUp++;
+	}
+
+	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+		this.connectionsDown++;
+	}
+
+	public void messageTransferred(Message m, DTNHost from, DTNHost to,
+			boolean firstDelivery) {
+		this.messagesTransferred++;
+	}
+
+	public void newMessage(Message m) {}
+
+	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {}
+
+	public void messageDeleted(Message m, DTNHost where, boolean dropped) {}
+
+	public void messageTransferAborted(Message m, DTNHost from, DTNHost to) {}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+/**
+ * JMX management interface of the {@link TickProfiler}. Times are totals
+ * since the start of the run in milliseconds.
+ */
+public interface TickProfilerMBean {
+
+	/** @return Number of completed ticks (world updates) */
+	public long getTicks();
+
+	/** @return Wall time of the last tick */
+	public double getLastTickMillis();
+
+	/** @return Time spent processing external events */
+	public double getEventMillis();
+
+	/** @return Time spent moving the hosts */
+	public double getMovementMillis();
+
+	/** @return Time spent updating the network interfaces */
+	public double getConnectivityMillis();
+
+	/** @return Time spent updating the routers and applications */
+	public double getRoutingMillis();
+
+	/** @return Time spent in the update listeners */
+	public double getListenerMillis();
+
+	/** @return Number of processed external events */
+	public long getEvents();
+
+	/** @return Number of connections that have come up */
+	public long getConnectionsUp();
+
+	/** @return Number of connections that have gone down */
+	public long getConnectionsDown();
+
+	/** @return Number of transferred messages */
+	public long getMessagesTransferred();
+}
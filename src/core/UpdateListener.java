@@ -16,7 +16,8 @@ import java.util.List;
 public interface UpdateListener {
 
 	/**
-	 * Method is called on every update cycle.
+	 * Method is called on every update cycle (or, for
+	 * {@link ScheduledUpdateListener}s, on the cycles the listener asks for).
 	 * @param hosts A list of all hosts in the world
 	 */
 	public void updated(List<DTNHost> hosts);
@@ -53,7 +53,7 @@ public class VBRConnection extends Connection {
 		int retVal = getOtherNode(from).receiveMessage(newMessage, from);
 
 		if (retVal == MessageRouter.RCV_OK) {
-			this.msgOnFly = newMessage;
+			setMsgOnFly(newMessage);
 			this.msgsize = m.getSize();
 			this.msgsent = 0;
 		}
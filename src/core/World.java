@@ -4,7 +4,9 @@
  */
 package core;
 
+import input.DTN2Events;
 import input.EventQueue;
+import input.EventScheduler;
 import input.ExternalEvent;
 import input.ScheduledUpdatesQueue;
 
@@ -12,6 +14,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * World contains all the nodes and is responsible for updating their
@@ -37,9 +41,45 @@ public class World {
 	 */
 	public static final String SIMULATE_CON_ONCE_S = "simulateConnectionsOnce";
 
+	/**
+	 * Should the hosts be moved in parallel -setting id ({@value}). Boolean
+	 * (true/false) variable. Parallel movement gives the same results as the
+	 * serial movement as long as the movement models don't plan their paths
+	 * based on other hosts' current locations. Default is false.
+	 */
+	public static final String PARALLEL_MOVEMENT_S = "parallelMovement";
+	/**
+	 * Should the connectivity be updated in two phases -setting id
+	 * ({@value}). Boolean (true/false) variable. If true, the new and lost
+	 * connections of all interfaces are first detected in parallel and then
+	 * committed serially, in the (possibly randomized) update order of the
+	 * hosts. Default is false.
+	 */
+	public static final String PARALLEL_CONNECTIVITY_S =
+		"parallelConnectivity";
+	/**
+	 * Number of worker threads used for parallel movement and connectivity
+	 * detection -setting id ({@value}). Integer value. Default is the number
+	 * of available processors.
+	 */
+	public static final String WORKER_THREADS_S = "workerThreads";
+	/**
+	 * Should the connection changes be delivered in batches -setting id
+	 * ({@value}). Boolean (true/false) variable. If true, the connectivity of
+	 * all hosts is updated first, then the connection listeners and routers
+	 * are informed about all the changes of the round at once (see
+	 * {@link BatchConnectionListener} and
+	 * {@link routing.MessageRouter#changedConnections(List)}) and finally
+	 * the routers are updated. Default is false.
+	 */
+	public static final String BATCH_CONNECTION_EVENTS_S =
+		"batchConnectionEvents";
+	/** minimum number of hosts (address range) handled by one parallel
+	 * task */
+	private static final int MIN_TASK_CHUNK = 32;
+
 	private int sizeX;
 	private int sizeY;
-	private List<EventQueue> eventQueues;
 	private double updateInterval;
 	private SimClock simClock;
 	private double nextQueueEventTime;
@@ -47,15 +87,45 @@ public class World {
 	/** list of nodes; nodes are indexed by their network address */
 	private List<DTNHost> hosts;
 	private boolean simulateConnections;
+	/** should the hosts be moved */
+	private boolean simulateMovement;
+	/** batch of the connection changes of an update round, or null if the
+	 * changes are not batched */
+	private ConnectionEventBatch connectionBatch;
+	/** active hosts whose routers are updated after the batch delivery */
+	private List<DTNHost> batchedHosts;
 	/** nodes in the order they should be updated (if the order should be
 	 * randomized; null value means that the order should not be randomized) */
 	private ArrayList<DTNHost> updateOrder;
 	/** is cancellation of simulation requested from UI */
 	private boolean isCancelled;
+	/** all update listeners (the list may grow during the simulation) */
 	private List<UpdateListener> updateListeners;
+	/** update listeners that are called on every update cycle */
+	private List<UpdateListener> everyCycleListeners;
+	/** schedules the updates of the {@link ScheduledUpdateListener}s */
+	private EventScheduler listenerScheduler;
+	/** how many of the update listeners have been registered to the above */
+	private int nrofKnownListeners;
 	/** Queue of scheduled update requests */
 	private ScheduledUpdatesQueue scheduledUpdates;
+	/** Finds the queue with the next event */
+	private EventScheduler eventScheduler;
 	private boolean simulateConOnce;
+	/** thread pool for the parallel phases or null if nothing is parallel */
+	private ForkJoinPool workerPool;
+	/** how many hosts one parallel task handles at most */
+	private int taskChunk;
+	/** should hosts be moved in parallel */
+	private boolean parallelMovement;
+	/** should connectivity be detected in parallel and committed serially */
+	private boolean parallelConnectivity;
+	/** writes and restores checkpoints of the world's movement state */
+	private Checkpoint checkpoint;
+	/** profiler of the updates or null if profiling is disabled */
+	private TickProfiler profiler;
+	/** index of the vehicles on the roads or null if not in use */
+	private RoadIndex roadIndex;
 
 	/**
 	 * Constructor.
@@ -68,15 +138,31 @@ public class World {
 		this.sizeY = sizeY;
 		this.updateInterval = updateInterval;
 		this.updateListeners = updateListeners;
+		this.everyCycleListeners = new ArrayList<UpdateListener>();
+		this.listenerScheduler = new EventScheduler();
+		this.nrofKnownListeners = 0;
 		this.simulateConnections = simulateConnections;
-		this.eventQueues = eventQueues;
+		this.simulateMovement = true;
 
 		this.simClock = SimClock.getInstance();
 		this.scheduledUpdates = new ScheduledUpdatesQueue();
 		this.isCancelled = false;
 
+		this.eventScheduler = new EventScheduler();
+		this.eventScheduler.register(scheduledUpdates);
+		for (EventQueue eq : eventQueues) {
+			if (eq instanceof DTN2Events) { // gets events from other threads
+				this.eventScheduler.registerPolled(eq);
+			}
+			else {
+				this.eventScheduler.register(eq);
+			}
+		}
+
 		setNextEventQueue();
 		initSettings();
+		this.checkpoint = new Checkpoint(this);
+		this.profiler = null;
 	}
 
 	/**
@@ -91,6 +177,40 @@ public class World {
 		}
 		simulateConOnce = s.getBoolean(SIMULATE_CON_ONCE_S, false);
 
+		parallelMovement = s.getBoolean(PARALLEL_MOVEMENT_S, false);
+		parallelConnectivity = s.getBoolean(PARALLEL_CONNECTIVITY_S, false);
+		if (s.getBoolean(RoadIndex.ROAD_INDEX_S, false)) {
+			this.roadIndex = new RoadIndex();
+			for (DTNHost host : hosts) {
+				host.setRoadIndex(this.roadIndex);
+			}
+		}
+		else {
+			this.roadIndex = null;
+		}
+		if (s.getBoolean(BATCH_CONNECTION_EVENTS_S, false)) {
+			this.connectionBatch = new ConnectionEventBatch();
+			this.batchedHosts = new ArrayList<DTNHost>();
+			for (DTNHost host : hosts) {
+				host.setConnectionBatch(this.connectionBatch);
+			}
+		}
+		else {
+			this.connectionBatch = null;
+		}
+		if (parallelMovement || parallelConnectivity) {
+			int threads = s.getInt(WORKER_THREADS_S,
+					Runtime.getRuntime().availableProcessors());
+			s.ensurePositiveValue(threads, WORKER_THREADS_S);
+			this.workerPool = SimulationContext.current().createWorkerPool(
+				Math.max(threads, 1));
+			this.taskChunk = Math.max(MIN_TASK_CHUNK,
+					hosts.size() / (threads * 4 + 1));
+		}
+		else {
+			this.workerPool = null;
+		}
+
 		if(randomizeUpdates) {
 			// creates the update order array that can be shuffled
 			this.updateOrder = new ArrayList<DTNHost>(this.hosts);
@@ -103,13 +223,24 @@ public class World {
 	/**
 	 * Moves hosts in the world for the time given time initialize host
 	 * positions properly. SimClock must be set to <CODE>-time</CODE> before
-	 * calling this method.
+	 * calling this method. If checkpoint settings are given, the state may
+	 * be restored from a checkpoint instead (see {@link Checkpoint}).
 	 * @param time The total time (seconds) to move
 	 */
 	public void warmupMovementModel(double time) {
+		if (this.checkpoint.resume()) {
+			return;
+		}
 		if (time <= 0) {
 			return;
 		}
+		if (!this.simulateMovement) {
+			simClock.setTime(0);
+			return;
+		}
+		if (this.checkpoint.restoreWarmup()) {
+			return;
+		}
 
 		while(SimClock.getTime() < -updateInterval) {
 			moveHosts(updateInterval);
@@ -120,26 +251,79 @@ public class World {
 
 		moveHosts(finalStep);
 		simClock.setTime(0);
+		this.checkpoint.saveWarmup();
 	}
 
 	/**
-	 * Goes through all event Queues and sets the
-	 * event queue that has the next event.
+	 * Discards the events of all event queues up to (and including) the
+	 * given time without processing them. Used when a run is resumed from
+	 * a checkpoint.
+	 * @param time The time until which the events are discarded
 	 */
-	public void setNextEventQueue() {
-		EventQueue nextQueue = scheduledUpdates;
-		double earliest = nextQueue.nextEventsTime();
+	void skipEvents(double time) {
+		setNextEventQueue();
+		while (this.nextQueueEventTime <= time) {
+			this.nextEventQueue.nextEvent();
+			eventScheduler.update(this.nextEventQueue);
+			setNextEventQueue();
+		}
+	}
 
-		/* find the queue that has the next event */
-		for (EventQueue eq : eventQueues) {
-			if (eq.nextEventsTime() < earliest){
-				nextQueue = eq;
-				earliest = eq.nextEventsTime();
-			}
+	/**
+	 * Returns the addresses of the hosts in the current update order
+	 * @return The addresses or null if the update order isn't randomized
+	 */
+	int[] getUpdateOrder() {
+		if (this.updateOrder == null) {
+			return null;
+		}
+		int[] order = new int[this.updateOrder.size()];
+		for (int i=0; i<order.length; i++) {
+			order[i] = this.updateOrder.get(i).getAddress();
+		}
+		return order;
+	}
+
+	/**
+	 * Sets the update order of the hosts
+	 * @param order Addresses of the hosts in the new update order; ignored
+	 * if null or if the update order isn't randomized
+	 */
+	void setUpdateOrder(int[] order) {
+		if (order == null || this.updateOrder == null) {
+			return;
+		}
+		for (int i=0; i<order.length; i++) {
+			this.updateOrder.set(i, this.hosts.get(order[i]));
 		}
+	}
 
-		this.nextEventQueue = nextQueue;
-		this.nextQueueEventTime = earliest;
+	/**
+	 * Sets whether the hosts are moved. If not, they stay in their initial
+	 * locations and all connections come from external events (e.g., a
+	 * contact trace).
+	 * @param simulateMovement True if the hosts should be moved
+	 */
+	void setSimulateMovement(boolean simulateMovement) {
+		this.simulateMovement = simulateMovement;
+	}
+
+	/**
+	 * Sets the profiler that records the time of the update phases
+	 * @param profiler The profiler or null to disable profiling
+	 */
+	void setTickProfiler(TickProfiler profiler) {
+		this.profiler = profiler;
+	}
+
+	/**
+	 * Sets the event queue that has the next event. If many queues have
+	 * events at the same time, the scheduled updates come first and then
+	 * the queues in the order they were given to the constructor.
+	 */
+	public void setNextEventQueue() {
+		this.nextEventQueue = eventScheduler.nextQueue();
+		this.nextQueueEventTime = eventScheduler.nextEventsTime();
 	}
 
 	/**
@@ -148,6 +332,9 @@ public class World {
 	 * this method is called and after one update interval.
 	 */
 	public void update () {
+		final TickProfiler p = this.profiler;
+		long tickStart = (p != null ? System.nanoTime() : 0);
+		long start = tickStart;
 		double runUntil = SimClock.getTime() + this.updateInterval;
 
 		setNextEventQueue();
@@ -156,20 +343,90 @@ public class World {
 		while (this.nextQueueEventTime <= runUntil) {
 			simClock.setTime(this.nextQueueEventTime);
 			ExternalEvent ee = this.nextEventQueue.nextEvent();
+			eventScheduler.update(this.nextEventQueue);
 			ee.processEvent(this);
-			updateHosts(); // update all hosts after every event
+			if (p != null) {
+				p.addTime(TickProfiler.PHASE_EVENTS, System.nanoTime() - start);
+				p.eventProcessed();
+			}
+			/* update all hosts after every event; without movement, the
+			 * hosts are updated at the end of the tick at the same time */
+			if (this.simulateMovement || this.nextQueueEventTime < runUntil) {
+				updateHosts();
+			}
+			if (p != null) {
+				start = System.nanoTime();
+			}
 			setNextEventQueue();
 		}
 
+		if (p != null) {
+			long now = System.nanoTime();
+			p.addTime(TickProfiler.PHASE_EVENTS, now - start);
+			start = now;
+		}
 		moveHosts(this.updateInterval);
 		simClock.setTime(runUntil);
+		if (p != null) {
+			p.addTime(TickProfiler.PHASE_MOVEMENT, System.nanoTime() - start);
+		}
 
 		updateHosts();
 
 		/* inform all update listeners */
-		for (UpdateListener ul : this.updateListeners) {
+		if (p != null) {
+			start = System.nanoTime();
+		}
+		if (this.updateListeners.size() != this.nrofKnownListeners) {
+			registerNewListeners();
+		}
+		for (UpdateListener ul : this.everyCycleListeners) {
 			ul.updated(this.hosts);
 		}
+		updateScheduledListeners();
+
+		this.checkpoint.updated();
+		if (p != null) {
+			long now = System.nanoTime();
+			p.addTime(TickProfiler.PHASE_LISTENERS, now - start);
+			p.tickDone(now - tickStart);
+		}
+	}
+
+	/**
+	 * Registers the update listeners that have been added to the listener
+	 * list after the previous update cycle. Scheduled update listeners
+	 * are registered to the listener scheduler and the other listeners to
+	 * the listeners called on every cycle.
+	 */
+	private void registerNewListeners() {
+		for (int i = this.nrofKnownListeners, n = this.updateListeners.size();
+				i < n; i++) {
+			UpdateListener ul = this.updateListeners.get(i);
+			if (ul instanceof ScheduledUpdateListener) {
+				this.listenerScheduler.register(new ListenerQueue(
+						(ScheduledUpdateListener)ul));
+			}
+			else {
+				this.everyCycleListeners.add(ul);
+			}
+		}
+		this.nrofKnownListeners = this.updateListeners.size();
+	}
+
+	/**
+	 * Updates the scheduled update listeners whose update time has come.
+	 * Listeners that are due at the same time are updated in the order they
+	 * were added. Every listener is updated at most once per cycle.
+	 */
+	private void updateScheduledListeners() {
+		double now = SimClock.getTime();
+		while (this.listenerScheduler.nextEventsTime() <= now) {
+			ListenerQueue q = (ListenerQueue)this.listenerScheduler.nextQueue();
+			q.listener.updated(this.hosts);
+			q.time = Math.max(q.listener.nextUpdateTime(), Math.nextUp(now));
+			this.listenerScheduler.update(q);
+		}
 	}
 
 	/**
@@ -178,12 +435,15 @@ public class World {
 	 * are made in random order.
 	 */
 	private void updateHosts() {
-		if (this.updateOrder == null) { // randomizing is off
+		if (this.parallelConnectivity) {
+			updateHostsInTwoPhases();
+		}
+		else if (this.updateOrder == null) { // randomizing is off
 			for (int i=0, n = hosts.size();i < n; i++) {
 				if (this.isCancelled) {
 					break;
 				}
-				hosts.get(i).update(simulateConnections);
+				updateHost(hosts.get(i));
 			}
 		}
 		else { // update order randomizing is on
@@ -195,26 +455,184 @@ public class World {
 				if (this.isCancelled) {
 					break;
 				}
-				this.updateOrder.get(i).update(simulateConnections);
+				updateHost(this.updateOrder.get(i));
 			}
 		}
 
+		if (this.connectionBatch != null) {
+			deliverConnectionBatch();
+		}
+
 		if (simulateConOnce && simulateConnections) {
 			simulateConnections = false;
 		}
 	}
 
 	/**
-	 * Moves all hosts in the world for a given amount of time
+	 * Updates one host and records the time of the connectivity and router
+	 * updates if profiling is enabled
+	 * @param host The host to update
+	 */
+	private void updateHost(DTNHost host) {
+		if (this.profiler == null && this.connectionBatch == null) {
+			host.update(simulateConnections);
+			return;
+		}
+		long start = (this.profiler != null ? System.nanoTime() : 0);
+		boolean active = host.updateConnectivity(simulateConnections);
+		routeOrDefer(host, active, start);
+	}
+
+	/**
+	 * Updates the router of a host whose connectivity has been updated, or
+	 * leaves it for {@link #deliverConnectionBatch()} if the connection
+	 * changes are batched, and records the times if profiling is enabled
+	 * @param host The host
+	 * @param active Was the host's radio active
+	 * @param start Start time of the host's connectivity update
+	 */
+	private void routeOrDefer(DTNHost host, boolean active, long start) {
+		if (this.connectionBatch != null) {
+			if (active) {
+				this.batchedHosts.add(host);
+			}
+			if (this.profiler != null) {
+				this.profiler.addTime(TickProfiler.PHASE_CONNECTIVITY,
+						System.nanoTime() - start);
+			}
+			return;
+		}
+		long connected = System.nanoTime();
+		if (active) {
+			host.updateRouter();
+		}
+		this.profiler.addTime(TickProfiler.PHASE_CONNECTIVITY,
+				connected - start);
+		this.profiler.addTime(TickProfiler.PHASE_ROUTING,
+				System.nanoTime() - connected);
+	}
+
+	/**
+	 * Updates all hosts so that first the connectivity changes of all hosts
+	 * are detected in parallel and then the changes are committed, and the
+	 * routers updated, host by host in the update order (randomized if
+	 * update order randomizing is on).
+	 */
+	private void updateHostsInTwoPhases() {
+		int n = hosts.size();
+		List<DTNHost> order = this.hosts;
+
+		if (this.updateOrder != null) {
+			assert this.updateOrder.size() == this.hosts.size() :
+				"Nrof hosts has changed unexpectedly";
+			Random rng = new Random(SimClock.getIntTime());
+			Collections.shuffle(this.updateOrder, rng);
+			order = this.updateOrder;
+		}
+
+		long start = (this.profiler != null ? System.nanoTime() : 0);
+		for (int i=0; i<n; i++) {
+			hosts.get(i).prepareTwoPhaseUpdate(simulateConnections);
+		}
+		if (simulateConnections) {
+			this.workerPool.invoke(new HostTask(0, n, 0, false));
+		}
+		if (this.profiler != null) {
+			this.profiler.addTime(TickProfiler.PHASE_CONNECTIVITY,
+					System.nanoTime() - start);
+		}
+		for (int i=0; i<n; i++) {
+			if (this.isCancelled) {
+				break;
+			}
+			commitHost(order.get(i));
+		}
+	}
+
+	/**
+	 * Commits the two-phase update of one host and records the time of the
+	 * connectivity and router updates if profiling is enabled
+	 * @param host The host whose update is committed
+	 */
+	private void commitHost(DTNHost host) {
+		if (this.profiler == null && this.connectionBatch == null) {
+			host.commitTwoPhaseUpdate(simulateConnections);
+			return;
+		}
+		long start = (this.profiler != null ? System.nanoTime() : 0);
+		boolean active = host.commitConnectivityChanges(simulateConnections);
+		routeOrDefer(host, active, start);
+	}
+
+	/**
+	 * Informs the listeners and routers about the batched connection changes
+	 * of the update round and then updates the routers of the hosts that
+	 * were active, in the update order
+	 */
+	private void deliverConnectionBatch() {
+		long start = (this.profiler != null ? System.nanoTime() : 0);
+		this.connectionBatch.flush();
+		long delivered = (this.profiler != null ? System.nanoTime() : 0);
+		for (int i=0, n=this.batchedHosts.size(); i<n; i++) {
+			if (this.isCancelled) {
+				break;
+			}
+			this.batchedHosts.get(i).updateRouter();
+		}
+		this.batchedHosts.clear();
+		if (this.profiler != null) {
+			this.profiler.addTime(TickProfiler.PHASE_CONNECTIVITY,
+					delivered - start);
+			this.profiler.addTime(TickProfiler.PHASE_ROUTING,
+					System.nanoTime() - delivered);
+		}
+	}
+
+	/**
+	 * Moves all hosts in the world for a given amount of time. All hosts see
+	 * each other's locations and speeds as they were before the movement, so
+	 * the result doesn't depend on the order (or parallelism) of the moves.
 	 * @param timeIncrement The time how long all nodes should move
 	 */
 	private void moveHosts(double timeIncrement) {
-		for (int i=0,n = hosts.size(); i<n; i++) {
+		if (!this.simulateMovement) {
+			return;
+		}
+		int n = hosts.size();
+
+		for (int i=0; i<n; i++) {
+			hosts.get(i).snapshotMovementState();
+		}
+		if (this.roadIndex != null) {
+			this.roadIndex.update(hosts);
+		}
+
+		if (this.parallelMovement) {
+			this.workerPool.invoke(new HostTask(0, n, timeIncrement, true));
+			/* finish the moves that needed the movement models */
+			for (int i=0; i<n; i++) {
+				hosts.get(i).completeConcurrentMove();
+			}
+			return;
+		}
+
+		for (int i=0; i<n; i++) {
 			DTNHost host = hosts.get(i);
 			host.move(timeIncrement);
 		}
 	}
 
+	/**
+	 * Releases the resources of the world after the simulation run has
+	 * finished: shuts down the worker threads of the parallel phases
+	 */
+	public void done() {
+		if (this.workerPool != null) {
+			this.workerPool.shutdown();
+			this.workerPool = null;
+		}
+	}
+
 	/**
 	 * Asynchronously cancels the currently running simulation
 	 */
@@ -271,5 +689,76 @@ public class World {
 	 */
 	public void scheduleUpdate(double simTime) {
 		scheduledUpdates.addUpdate(simTime);
+		eventScheduler.update(scheduledUpdates);
+	}
+
+	/**
+	 * Event queue whose only event is the next update of a scheduled update
+	 * listener
+	 */
+	private static class ListenerQueue implements EventQueue {
+		private final ScheduledUpdateListener listener;
+		private double time;
+
+		private ListenerQueue(ScheduledUpdateListener listener) {
+			this.listener = listener;
+			this.time = listener.nextUpdateTime();
+		}
+
+		public ExternalEvent nextEvent() {
+			return new ExternalEvent(this.time);
+		}
+
+		public double nextEventsTime() {
+			return this.time;
+		}
+	}
+
+	/**
+	 * Parallel task that moves, or detects the connectivity changes of, the
+	 * hosts in an address range. Ranges larger than the task chunk are split
+	 * in two.
+	 */
+	@SuppressWarnings("serial")
+	private class HostTask extends RecursiveAction {
+		private final int from;
+		private final int to;
+		private final double timeIncrement;
+		private final boolean move;
+
+		/**
+		 * Creates a new task
+		 * @param from Address of the first host to handle
+		 * @param to Address after the last host to handle
+		 * @param timeIncrement The time how long the nodes should move
+		 * @param move If true, the hosts are moved; if false, their
+		 * connectivity changes are detected
+		 */
+		private HostTask(int from, int to, double timeIncrement,
+				boolean move) {
+			this.from = from;
+			this.to = to;
+			this.timeIncrement = timeIncrement;
+			this.move = move;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > taskChunk) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new HostTask(from, mid, timeIncrement, move),
+						new HostTask(mid, to, timeIncrement, move));
+				return;
+			}
+
+			for (int i=from; i<to; i++) {
+				if (move) {
+					hosts.get(i).moveConcurrently(timeIncrement);
+				}
+				else {
+					hosts.get(i).detectConnectivityChanges();
+				}
+			}
+		}
 	}
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import core.DTNHost;
+import core.World;
+
+/**
+ * All connection up/down changes of a contact trace that happen at the
+ * same time (see {@link ContactTraceReader}). Processing them as one event
+ * updates the hosts once instead of once per change.
+ */
+public class ContactTraceEvent extends ExternalEvent {
+	private static final long serialVersionUID = 1L;
+
+	private final int[] fromAddrs;
+	private final int[] toAddrs;
+	private final String[] interfaceIds;
+	private final boolean[] ups;
+
+	/**
+	 * Creates a new event
+	 * @param time Time of the changes
+	 * @param fromAddrs Addresses of the hosts that initiated the changes
+	 * @param toAddrs Addresses of the hosts at the other ends
+	 * @param interfaceIds Interface types of the connections
+	 * @param ups For each change, true for "connection up" and false for
+	 * "connection down"
+	 */
+	public ContactTraceEvent(double time, int[] fromAddrs, int[] toAddrs,
+			String[] interfaceIds, boolean[] ups) {
+		super(time);
+		this.fromAddrs = fromAddrs;
+		this.toAddrs = toAddrs;
+		this.interfaceIds = interfaceIds;
+		this.ups = ups;
+	}
+
+	@Override
+	public void processEvent(World world) {
+		for (int i=0; i<fromAddrs.length; i++) {
+			DTNHost from = world.getNodeByAddress(fromAddrs[i]);
+			DTNHost to = world.getNodeByAddress(toAddrs[i]);
+			from.forceConnection(to, interfaceIds[i], ups[i]);
+		}
+	}
+
+	/**
+	 * Returns the number of connection changes of the event
+	 * @return The number of changes
+	 */
+	public int getNrofChanges() {
+		return fromAddrs.length;
+	}
+
+	/**
+	 * Returns the address of the host that initiated a change
+	 * @param i Index of the change
+	 * @return The address of the host
+	 */
+	public int getFromAddress(int i) {
+		return fromAddrs[i];
+	}
+
+	/**
+	 * Returns the address of the host at the other end of a change
+	 * @param i Index of the change
+	 * @return The address of the host
+	 */
+	public int getToAddress(int i) {
+		return toAddrs[i];
+	}
+
+	/**
+	 * Returns the interface type of a change
+	 * @param i Index of the change
+	 * @return The interface type
+	 */
+	public String getInterfaceId(int i) {
+		return interfaceIds[i];
+	}
+
+	/**
+	 * Returns true if a change is "connection up"
+	 * @param i Index of the change
+	 * @return True for "connection up", false for "connection down"
+	 */
+	public boolean isUp(int i) {
+		return ups[i];
+	}
+
+	@Override
+	public String toString() {
+		return "CONN TRACE @" + this.time + " " + fromAddrs.length +
+			" changes";
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import core.SimError;
+
+/**
+ * <P>
+ * Reads connection up/down events from a binary contact trace (created
+ * with {@link report.ContactTraceReport}). The changes that happen at the
+ * same time are read as one {@link ContactTraceEvent}.</P>
+ *
+ * <P>
+ * The trace starts with {@link #MAGIC} and {@link #VERSION} (ints) and is
+ * followed by records that start with a tag byte:
+ * <UL>
+ * <LI>{@link #TAG_INTERFACE}: interface type (UTF). The interface types
+ * are indexed in the order they appear in the trace.</LI>
+ * <LI>{@link #TAG_CHANGES}: time (double) and the number of changes (int),
+ * followed by the changes: addresses of the two hosts (ints), index of the
+ * interface type (short) and up/down (boolean)</LI>
+ * </UL>
+ * </P>
+ *
+ * <P>
+ * A trace can be replayed instead of simulating the movement and the
+ * connectivity by using it as the file of an {@link ExternalEventsQueue}
+ * with <CODE>Scenario.simulateConnections = false</CODE> and
+ * <CODE>Scenario.simulateMovement = false</CODE>. The hosts must be the
+ * same as in the run where the trace was captured.
+ * </P>
+ */
+public class ContactTraceReader implements ExternalEventsReader {
+	/** Extension of contact trace files */
+	public static final String TRACE_EXT = ".ctrace";
+	/** Magic number at the start of a contact trace */
+	public static final int MAGIC = 0x4F4E4543;
+	/** Version of the contact trace format */
+	public static final int VERSION = 1;
+	/** Tag of an interface type record */
+	public static final int TAG_INTERFACE = 0;
+	/** Tag of a connection changes record */
+	public static final int TAG_CHANGES = 1;
+
+	private DataInputStream in;
+	private List<String> interfaceIds;
+	private boolean eof;
+
+	/**
+	 * Constructor.
+	 * @param traceFile The file where the trace is read
+	 */
+	public ContactTraceReader(File traceFile) {
+		this.interfaceIds = new ArrayList<String>();
+		try {
+			this.in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(traceFile)));
+			if (in.readInt() != MAGIC) {
+				throw new SimError("Not a contact trace: " +
+						traceFile.getAbsolutePath());
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new SimError("Unsupported contact trace version " +
+						version + " in " + traceFile.getAbsolutePath());
+			}
+		} catch (IOException e) {
+			throw new SimError(e);
+		}
+		this.eof = false;
+	}
+
+	/**
+	 * Reads the connection changes of at most nrof different times
+	 * @param nrof Maximum number of events to read
+	 * @return Events in an ArrayList (empty list if didn't read any)
+	 */
+	public List<ExternalEvent> readEvents(int nrof) {
+		ArrayList<ExternalEvent> events = new ArrayList<ExternalEvent>();
+
+		try {
+			while (events.size() < nrof && !eof) {
+				int tag = in.read();
+				if (tag == -1) {
+					eof = true;
+					in.close();
+				}
+				else if (tag == TAG_INTERFACE) {
+					interfaceIds.add(in.readUTF());
+				}
+				else if (tag == TAG_CHANGES) {
+					events.add(readChanges());
+				}
+				else {
+					throw new SimError("Invalid record tag " + tag +
+							" in contact trace");
+				}
+			}
+		} catch (EOFException e) {
+			throw new SimError("Contact trace ends in the middle of a record",
+					e);
+		} catch (IOException e) {
+			throw new SimError(e);
+		}
+
+		return events;
+	}
+
+	/**
+	 * Reads the rest of a connection changes record
+	 */
+	private ContactTraceEvent readChanges() throws IOException {
+		double time = in.readDouble();
+		int n = in.readInt();
+		int[] from = new int[n];
+		int[] to = new int[n];
+		String[] ids = new String[n];
+		boolean[] ups = new boolean[n];
+
+		for (int i=0; i<n; i++) {
+			from[i] = in.readInt();
+			to[i] = in.readInt();
+			int index = in.readShort();
+			if (index < 0 || index >= interfaceIds.size()) {
+				throw new SimError("Invalid interface index " + index +
+						" in contact trace");
+			}
+			ids[i] = interfaceIds.get(index);
+			ups[i] = in.readBoolean();
+		}
+
+		return new ContactTraceEvent(time, from, to, ids, ups);
+	}
+
+	/**
+	 * Checks if the given file is a contact trace file
+	 * @param file The file to check
+	 * @return True if the file's extension and magic number match
+	 */
+	public static boolean isContactTraceFile(File file) {
+		if (!file.getName().endsWith(TRACE_EXT)) {
+			return false;
+		}
+
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new FileInputStream(file));
+			return in.readInt() == MAGIC;
+		} catch (IOException e) {
+			return false;
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					/* nothing to do */
+				}
+			}
+		}
+	}
+
+	public void close() {
+		try {
+			this.in.close();
+		}
+		catch (IOException ioe) {
+			throw new SimError(ioe);
+		}
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Keeps track of which of the registered event queues has the next event.
+ * The queues are kept in a binary heap ordered by their next event's time,
+ * so finding the next queue takes constant time and updating a queue's
+ * place takes logarithmic time in the number of queues. Queues with events
+ * at the same time are ordered by their registration order.
+ * <P>
+ * The scheduler assumes that a queue's next event time changes only when
+ * {@link EventQueue#nextEvent()} is called. If the time changes otherwise
+ * (e.g., a new update is scheduled), {@link #update(EventQueue)} must be
+ * called. Queues that get events asynchronously (e.g., from other threads)
+ * can be registered as polled queues with {@link #registerPolled(EventQueue)};
+ * their times are checked on every lookup.
+ * </P>
+ */
+public class EventScheduler {
+	/** the heap of queue entries (the queue with the next event first) */
+	private Entry[] heap;
+	private int size;
+	private HashMap<EventQueue, Entry> entries;
+	/** queues whose times are checked on every lookup */
+	private List<Entry> polled;
+	private int nrofRegistered;
+
+	/**
+	 * Creates a new scheduler without any queues
+	 */
+	public EventScheduler() {
+		this.heap = new Entry[8];
+		this.size = 0;
+		this.entries = new HashMap<EventQueue, Entry>();
+		this.polled = new ArrayList<Entry>();
+		this.nrofRegistered = 0;
+	}
+
+	/**
+	 * Registers a queue to the scheduler
+	 * @param queue The queue to register
+	 */
+	public void register(EventQueue queue) {
+		Entry e = new Entry(queue, nrofRegistered++);
+		entries.put(queue, e);
+		if (size == heap.length) {
+			Entry[] newHeap = new Entry[heap.length * 2];
+			System.arraycopy(heap, 0, newHeap, 0, size);
+			heap = newHeap;
+		}
+		e.heapIndex = size;
+		heap[size++] = e;
+		siftUp(e.heapIndex);
+	}
+
+	/**
+	 * Registers a queue whose next event time is checked on every lookup
+	 * @param queue The queue to register
+	 */
+	public void registerPolled(EventQueue queue) {
+		Entry e = new Entry(queue, nrofRegistered++);
+		e.heapIndex = -1;
+		polled.add(e);
+	}
+
+	/**
+	 * Updates the place of a queue whose next event's time may have changed.
+	 * Must be called after taking an event from a queue.
+	 * @param queue The queue to update
+	 */
+	public void update(EventQueue queue) {
+		Entry e = entries.get(queue);
+		if (e == null) {
+			return; /* a polled queue or not registered at all */
+		}
+		e.time = queue.nextEventsTime();
+		if (!siftUp(e.heapIndex)) {
+			siftDown(e.heapIndex);
+		}
+	}
+
+	/**
+	 * Returns the queue that has the next event
+	 * @return The queue that has the next event or null if there are no
+	 * queues
+	 */
+	public EventQueue nextQueue() {
+		Entry next = nextEntry();
+		return (next == null ? null : next.queue);
+	}
+
+	/**
+	 * Returns the time of the next event in any of the queues
+	 * @return The time of the next event or Double.MAX_VALUE if there are
+	 * no events
+	 */
+	public double nextEventsTime() {
+		Entry next = nextEntry();
+		return (next == null ? Double.MAX_VALUE : next.time);
+	}
+
+	private Entry nextEntry() {
+		Entry next = (size > 0 ? heap[0] : null);
+		for (Entry e : polled) {
+			e.time = e.queue.nextEventsTime();
+			if (next == null || e.isBefore(next)) {
+				next = e;
+			}
+		}
+		return next;
+	}
+
+	/**
+	 * Moves an entry up in the heap until its parent is before it
+	 * @return true if the entry was moved
+	 */
+	private boolean siftUp(int index) {
+		Entry e = heap[index];
+		int start = index;
+		while (index > 0) {
+			int parent = (index - 1) / 2;
+			if (!e.isBefore(heap[parent])) {
+				break;
+			}
+			heap[index] = heap[parent];
+			heap[index].heapIndex = index;
+			index = parent;
+		}
+		heap[index] = e;
+		e.heapIndex = index;
+		return index != start;
+	}
+
+	/**
+	 * Moves an entry down in the heap until its children are after it
+	 */
+	private void siftDown(int index) {
+		Entry e = heap[index];
+		while (true) {
+			int child = 2 * index + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && heap[child + 1].isBefore(heap[child])) {
+				child++;
+			}
+			if (!heap[child].isBefore(e)) {
+				break;
+			}
+			heap[index] = heap[child];
+			heap[index].heapIndex = index;
+			index = child;
+		}
+		heap[index] = e;
+		e.heapIndex = index;
+	}
+
+	/**
+	 * A queue and its next event's time
+	 */
+	private static class Entry {
+		private final EventQueue queue;
+		private final int order;
+		private double time;
+		private int heapIndex;
+
+		private Entry(EventQueue queue, int order) {
+			this.queue = queue;
+			this.order = order;
+			this.time = queue.nextEventsTime();
+		}
+
+		/**
+		 * Returns true if this entry's event is before the other's
+		 */
+		private boolean isBefore(Entry other) {
+			if (this.time != other.time) {
+				return this.time < other.time;
+			}
+			return this.order < other.order;
+		}
+	}
+}
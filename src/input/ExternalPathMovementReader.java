@@ -20,7 +20,9 @@ import java.util.Scanner;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
+import core.DTNSim;
 import core.SettingsError;
+import core.SimulationContext;
 
 
 /**
@@ -53,9 +55,11 @@ import core.SettingsError;
  *
  */
 public class ExternalPathMovementReader {
-	 // Singletons are evil, but I'm lazy
-	private static Map<String, ExternalPathMovementReader> singletons =
-		new HashMap<String, ExternalPathMovementReader>();
+	static {
+		DTNSim.registerForReset(
+				ExternalPathMovementReader.class.getCanonicalName());
+		reset();
+	}
 
 	/**
 	 * Represents a point on the path.
@@ -340,15 +344,34 @@ public class ExternalPathMovementReader {
 	 */
 	public static ExternalPathMovementReader getInstance(String traceFilePath,
 			String activeFilePath) {
-		if (!ExternalPathMovementReader.singletons.containsKey(traceFilePath)) {
+		Map<String, ExternalPathMovementReader> singletons = getReaders();
+		if (!singletons.containsKey(traceFilePath)) {
 			try {
-				ExternalPathMovementReader.singletons.put(traceFilePath,
+				singletons.put(traceFilePath,
 						new ExternalPathMovementReader(traceFilePath,
 								activeFilePath));
 			} catch (IOException e) {
 				System.exit(1);
 			}
 		}
-		return ExternalPathMovementReader.singletons.get(traceFilePath);
+		return singletons.get(traceFilePath);
+	}
+
+	/**
+	 * Forgets the readers of the current simulation run
+	 */
+	public static void reset() {
+		SimulationContext.setModuleState(ExternalPathMovementReader.class,
+				new HashMap<String, ExternalPathMovementReader>());
+	}
+
+	/**
+	 * Returns the readers of the current simulation run by their trace files
+	 * @return The readers
+	 */
+	@SuppressWarnings("unchecked")
+	private static Map<String, ExternalPathMovementReader> getReaders() {
+		return (Map<String, ExternalPathMovementReader>)
+			SimulationContext.getModuleState(ExternalPathMovementReader.class);
 	}
 }
@@ -4,8 +4,7 @@
  */
 package input;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.TreeSet;
 
 /**
  * Event queue where simulation objects can request an update to happen
@@ -13,16 +12,14 @@ import java.util.List;
  * are merged to a single update.
  */
 public class ScheduledUpdatesQueue implements EventQueue {
-	/** Time of the event (simulated seconds) */
-	private ExternalEvent nextEvent;
-	private List<ExternalEvent> updates;
+	/** Times of the requested updates (simulated seconds), in order */
+	private TreeSet<Double> updates;
 
 	/**
 	 * Constructor. Creates an empty update queue.
 	 */
 	public ScheduledUpdatesQueue(){
-		this.nextEvent = new ExternalEvent(Double.MAX_VALUE);
-		this.updates = new ArrayList<ExternalEvent>();
+		this.updates = new TreeSet<Double>();
 	}
 
 	/**
@@ -31,16 +28,10 @@ public class ScheduledUpdatesQueue implements EventQueue {
 	 * @return the next scheduled event
 	 */
 	public ExternalEvent nextEvent() {
-		ExternalEvent event = this.nextEvent;
-
-		if (this.updates.size() == 0) {
-			this.nextEvent = new ExternalEvent(Double.MAX_VALUE);
-		}
-		else {
-			this.nextEvent = this.updates.remove(0);
+		if (this.updates.isEmpty()) {
+			return new ExternalEvent(Double.MAX_VALUE);
 		}
-
-		return event;
+		return new ExternalEvent(this.updates.pollFirst());
 	}
 
 	/**
@@ -49,55 +40,30 @@ public class ScheduledUpdatesQueue implements EventQueue {
 	 * @return the next scheduled event's time
 	 */
 	public double nextEventsTime() {
-		return this.nextEvent.getTime();
+		if (this.updates.isEmpty()) {
+			return Double.MAX_VALUE;
+		}
+		return this.updates.first();
 	}
 
 	/**
-	 * Add a new update request for the given time
+	 * Add a new update request for the given time. Requests for a time that
+	 * is already requested are ignored.
 	 * @param simTime The time when the update should happen
 	 */
 	public void addUpdate(double simTime) {
-		ExternalEvent ee = new ExternalEvent(simTime);
-
-		if (ee.compareTo(nextEvent) == 0) { // this event is already next
-			return;
-		}
-		else if (this.nextEvent.getTime() > simTime) { // new nextEvent
-			putToQueue(this.nextEvent); // put the old nextEvent back to q
-			this.nextEvent = ee;
-		}
-		else { // given event happens later..
-			putToQueue(ee);
-		}
-	}
-
-	/**
-	 * Puts a event to the queue in the right place
-	 * @param ee The event to put to the queue
-	 */
-	private void putToQueue(ExternalEvent ee) {
-		double eeTime = ee.getTime();
-
-		for (int i=0, n=this.updates.size(); i<n; i++) {
-			double time = updates.get(i).getTime();
-			if (time == eeTime) {
-				return; // update with the given time exists -> no need for new
-			}
-			else if (eeTime < time) {
-				this.updates.add(i, ee);
-				return;
-			}
-		}
-
-		/* all existing updates are earlier -> add to the end of the list */
-		this.updates.add(ee);
+		this.updates.add(simTime + 0.0); // +0.0 merges -0.0 with 0.0
 	}
 
 	public String toString() {
-		String times = "updates @ " + this.nextEvent.getTime();
+		String times = "updates @ " + nextEventsTime();
+		boolean first = true;
 
-		for (ExternalEvent ee : this.updates) {
-			times += ", " + ee.getTime();
+		for (Double time : this.updates) {
+			if (!first) {
+				times += ", " + time;
+			}
+			first = false;
 		}
 
 		return times;
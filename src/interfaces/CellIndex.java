@@ -0,0 +1,131 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package interfaces;
+
+import java.util.Arrays;
+
+/**
+ * Grid of square cells over the simulation world where points (indexed
+ * 0...n-1) are sorted by cell like in a counting sort. The members of cell
+ * c are <CODE>members[start[c]...start[c+1]-1]</CODE>, and their
+ * coordinates are also copied to {@link #xs} and {@link #ys} in the same
+ * order, so the members of a cell and of a row of neighbor cells can be
+ * processed as packed runs.
+ */
+class CellIndex {
+	/** offsets (rows, columns) of the forward half of the neighbor cells:
+	 * checking a cell against itself and these visits every neighbor
+	 * pair of cells once */
+	static final int[][] HALF_STENCIL = {{0, 1}, {1, -1}, {1, 0}, {1, 1}};
+	/** offsets (rows, columns) of a cell itself and all its neighbors */
+	static final int[][] FULL_STENCIL = {{-1, -1}, {-1, 0}, {-1, 1},
+		{0, -1}, {0, 0}, {0, 1}, {1, -1}, {1, 0}, {1, 1}};
+
+	private final int worldSizeX;
+	private final int worldSizeY;
+	/** index of the first member of each cell in members (and the end) */
+	int[] start;
+	/** point indexes sorted by cell */
+	int[] members;
+	/** coordinates of the points in members order */
+	double[] xs, ys;
+	/** cell of each point */
+	private int[] cellOf;
+	int rows;
+	int cols;
+
+	/**
+	 * Creates a new, empty index
+	 * @param worldSizeX Width of the simulation world
+	 * @param worldSizeY Height of the simulation world
+	 */
+	CellIndex(int worldSizeX, int worldSizeY) {
+		this.worldSizeX = worldSizeX;
+		this.worldSizeY = worldSizeY;
+		this.start = new int[1];
+		this.members = this.cellOf = new int[0];
+		this.xs = this.ys = new double[0];
+	}
+
+	/**
+	 * Sorts the points to cells that are at least as large as the given
+	 * minimum size (but there are no more cells than points)
+	 * @param pxs X coordinates of the points
+	 * @param pys Y coordinates of the points
+	 * @param n Number of points
+	 * @param minCellSize Minimum size of the cells
+	 */
+	void build(double[] pxs, double[] pys, int n, double minCellSize) {
+		if (members.length != n) {
+			members = new int[n];
+			cellOf = new int[n];
+			xs = new double[n];
+			ys = new double[n];
+		}
+
+		double cellSize = Math.max(minCellSize,
+				Math.sqrt((double)worldSizeX * worldSizeY / Math.max(n, 1)));
+		cellSize = Math.max(cellSize, 1);
+		rows = (int)(worldSizeY / cellSize) + 1;
+		cols = (int)(worldSizeX / cellSize) + 1;
+		int nrofCells = rows * cols;
+		if (start.length < nrofCells + 1) {
+			start = new int[nrofCells + 1];
+		}
+		else {
+			Arrays.fill(start, 0, nrofCells + 1, 0);
+		}
+
+		for (int i=0; i<n; i++) {
+			int row = clamp((int)(pys[i] / cellSize), rows);
+			int col = clamp((int)(pxs[i] / cellSize), cols);
+			cellOf[i] = row * cols + col;
+			start[cellOf[i] + 1]++;
+		}
+		for (int c=0; c<nrofCells; c++) {
+			start[c + 1] += start[c];
+		}
+		int[] next = Arrays.copyOf(start, nrofCells);
+		for (int i=0; i<n; i++) {
+			int k = next[cellOf[i]]++;
+			members[k] = i;
+			xs[k] = pxs[i];
+			ys[k] = pys[i];
+		}
+	}
+
+	/**
+	 * Returns the cell of a point
+	 * @param point Index of the point
+	 * @return Index of the cell
+	 */
+	int getCell(int point) {
+		return cellOf[point];
+	}
+
+	/**
+	 * Returns the cell at the given offset from a cell, or -1 if it is
+	 * outside the grid
+	 * @param row Row of the cell
+	 * @param col Column of the cell
+	 * @param offset Offset (rows, columns) of the other cell
+	 * @return Index of the other cell or -1
+	 */
+	int neighbor(int row, int col, int[] offset) {
+		int r = row + offset[0];
+		int c = col + offset[1];
+		if (r < 0 || r >= rows || c < 0 || c >= cols) {
+			return -1;
+		}
+		return r * cols + c;
+	}
+
+	/**
+	 * Returns the value limited to the range [0, size-1]
+	 */
+	private static int clamp(int value, int size) {
+		return (value < 0 ? 0 : (value >= size ? size - 1 : value));
+	}
+}
@@ -10,11 +10,12 @@ import java.util.HashMap;
 
 import movement.MovementModel;
 
-import core.Coord;
+import core.DTNHost;
 import core.DTNSim;
 import core.NetworkInterface;
 import core.Settings;
 import core.SettingsError;
+import core.SimulationContext;
 import core.World;
 
 /**
@@ -59,45 +60,54 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 	private int cellSize;
 	private int rows;
 	private int cols;
-	private static int worldSizeX;
-	private static int worldSizeY;
-	private static int cellSizeMultiplier;
-
-	static HashMap<Integer,ConnectivityGrid> gridobjects;
 
 	static {
 		DTNSim.registerForReset(ConnectivityGrid.class.getCanonicalName());
 		reset();
 	}
 
+	/**
+	 * The grid objects and grid settings of a simulation run
+	 */
+	private static class GridObjects {
+		private HashMap<Integer,ConnectivityGrid> grids =
+			new HashMap<Integer, ConnectivityGrid>();
+		private int worldSizeX;
+		private int worldSizeY;
+		private int cellSizeMultiplier;
+	}
+
 	public static void reset() {
-		gridobjects = new HashMap<Integer, ConnectivityGrid>();
+		GridObjects objects = new GridObjects();
 
 		Settings s = new Settings(MovementModel.MOVEMENT_MODEL_NS);
 		int [] worldSize = s.getCsvInts(MovementModel.WORLD_SIZE,2);
-		worldSizeX = worldSize[0];
-		worldSizeY = worldSize[1];
+		objects.worldSizeX = worldSize[0];
+		objects.worldSizeY = worldSize[1];
 
 		s.setNameSpace(World.OPTIMIZATION_SETTINGS_NS);
 		if (s.contains(CELL_SIZE_MULT_S)) {
-			cellSizeMultiplier = s.getInt(CELL_SIZE_MULT_S);
+			objects.cellSizeMultiplier = s.getInt(CELL_SIZE_MULT_S);
 		}
 		else {
-			cellSizeMultiplier = DEF_CON_CELL_SIZE_MULT;
+			objects.cellSizeMultiplier = DEF_CON_CELL_SIZE_MULT;
 		}
-		if (cellSizeMultiplier < 1) {
-			throw new SettingsError("Too small value (" + cellSizeMultiplier +
-					") for " + World.OPTIMIZATION_SETTINGS_NS +
-					"." + CELL_SIZE_MULT_S);
+		if (objects.cellSizeMultiplier < 1) {
+			throw new SettingsError("Too small value (" +
+					objects.cellSizeMultiplier + ") for " +
+					World.OPTIMIZATION_SETTINGS_NS + "." + CELL_SIZE_MULT_S);
 		}
+		SimulationContext.setModuleState(ConnectivityGrid.class, objects);
 	}
 
 	/**
 	 * Creates a new overlay connectivity grid
 	 * @param cellSize Cell's edge's length (must be larger than the largest
 	 * 	radio coverage's diameter)
+	 * @param worldSizeX Width of the simulation world
+	 * @param worldSizeY Height of the simulation world
 	 */
-	private ConnectivityGrid(int cellSize) {
+	private ConnectivityGrid(int cellSize, int worldSizeX, int worldSizeY) {
 		this.rows = worldSizeY/cellSize + 1;
 		this.cols = worldSizeX/cellSize + 1;
 		// leave empty cells on both sides to make neighbor search easier
@@ -121,13 +131,16 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 	 */
 	public static ConnectivityGrid ConnectivityGridFactory(int key,
 			double maxRange) {
-		if (gridobjects.containsKey((Integer)key)) {
-			return (ConnectivityGrid)gridobjects.get((Integer)key);
+		GridObjects objects = (GridObjects)SimulationContext.getModuleState(
+				ConnectivityGrid.class);
+		if (objects.grids.containsKey((Integer)key)) {
+			return (ConnectivityGrid)objects.grids.get((Integer)key);
 		} else {
 			ConnectivityGrid newgrid =
 				new ConnectivityGrid((int)Math.ceil(maxRange *
-						cellSizeMultiplier));
-			gridobjects.put((Integer)key,newgrid);
+						objects.cellSizeMultiplier), objects.worldSizeX,
+						objects.worldSizeY);
+			objects.grids.put((Integer)key,newgrid);
 			return newgrid;
 		}
 	}
@@ -137,7 +150,7 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 	 * @param ni The new network interface
 	 */
 	public void addInterface(NetworkInterface ni) {
-		GridCell c = cellFromCoord(ni.getLocation());
+		GridCell c = cellFromLocation(ni.getHost());
 		c.addInterface(ni);
 		ginterfaces.put(ni,c);
 	}
@@ -170,7 +183,7 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 	 */
 	public void updateLocation(NetworkInterface ni) {
 		GridCell oldCell = (GridCell)ginterfaces.get(ni);
-		GridCell newCell = cellFromCoord(ni.getLocation());
+		GridCell newCell = cellFromLocation(ni.getHost());
 
 		if (newCell != oldCell) {
 			oldCell.moveInterface(ni, newCell);
@@ -179,14 +192,15 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 	}
 
 	/**
-	 * Finds all neighboring cells and the cell itself based on the coordinates
-	 * @param c The coordinates
+	 * Finds all neighboring cells and the cell itself based on the location
+	 * of a host
+	 * @param host The host
 	 * @return Array of neighboring cells
 	 */
-	private GridCell[] getNeighborCellsByCoord(Coord c) {
+	private GridCell[] getNeighborCellsByLocation(DTNHost host) {
 		// +1 due empty cells on both sides of the matrix
-		int row = (int)(c.getY()/cellSize) + 1;
-		int col = (int)(c.getX()/cellSize) + 1;
+		int row = (int)(host.getLocationY()/cellSize) + 1;
+		int col = (int)(host.getLocationX()/cellSize) + 1;
 		return getNeighborCells(row,col);
 	}
 
@@ -206,17 +220,17 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 	}
 
 	/**
-	 * Get the cell having the specific coordinates
-	 * @param c Coordinates
+	 * Get the cell having the location of a host
+	 * @param host The host
 	 * @return The cell
 	 */
-	private GridCell cellFromCoord(Coord c) {
+	private GridCell cellFromLocation(DTNHost host) {
 		// +1 due empty cells on both sides of the matrix
-		int row = (int)(c.getY()/cellSize) + 1;
-		int col = (int)(c.getX()/cellSize) + 1;
+		int row = (int)(host.getLocationY()/cellSize) + 1;
+		int col = (int)(host.getLocationX()/cellSize) + 1;
 
 		assert row > 0 && row <= rows && col > 0 && col <= cols : "Location " +
-		c + " is out of world's bounds";
+		host.getLocation() + " is out of world's bounds";
 
 		return this.cells[row][col];
 	}
@@ -241,7 +255,7 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 
 		if (loc != null) {
 			GridCell[] neighbors =
-				getNeighborCellsByCoord(ni.getLocation());
+				getNeighborCellsByLocation(ni.getHost());
 			for (int i=0; i < neighbors.length; i++) {
 				niList.addAll(neighbors[i].getInterfaces());
 			}
@@ -7,6 +7,7 @@ package interfaces;
 import java.util.Collection;
 
 import core.NetworkInterface;
+import core.SettingsError;
 
 /**
  * A superclass for schemes for optimizing the location of possible contacts
@@ -14,6 +15,55 @@ import core.NetworkInterface;
  */
 abstract public class ConnectivityOptimizer {
 
+	/**
+	 * Returns the connectivity optimizer of the given type for the
+	 * interfaces with the given key
+	 * @param type Simple class name of the optimizer ({@link ConnectivityGrid},
+	 * {@link IndexedConnectivityGrid}, {@link KDTreeOptimizer},
+	 * {@link SharedSpatialIndex} or {@link KineticContactPredictor}) or null
+	 * for the type selected by the optimization settings
+	 * @param key A hash value that separates different interfaces from
+	 * each other
+	 * @param maxRange Maximum transmit range of the interfaces
+	 * @return The optimizer
+	 * @throws SettingsError if the type is unknown
+	 */
+	public static ConnectivityOptimizer getOptimizer(String type, int key,
+			double maxRange) {
+		if (type == null) {
+			if (KineticContactPredictor.isEnabled()) {
+				type = KineticContactPredictor.class.getSimpleName();
+			}
+			else if (SharedSpatialIndex.isEnabled()) {
+				type = SharedSpatialIndex.class.getSimpleName();
+			}
+			else if (IndexedConnectivityGrid.isEnabled()) {
+				type = IndexedConnectivityGrid.class.getSimpleName();
+			}
+			else {
+				type = ConnectivityGrid.class.getSimpleName();
+			}
+		}
+
+		if (type.equals(ConnectivityGrid.class.getSimpleName())) {
+			return ConnectivityGrid.ConnectivityGridFactory(key, maxRange);
+		}
+		else if (type.equals(IndexedConnectivityGrid.class.getSimpleName())) {
+			return IndexedConnectivityGrid.getGrid(key);
+		}
+		else if (type.equals(KDTreeOptimizer.class.getSimpleName())) {
+			return KDTreeOptimizer.getOptimizer(key);
+		}
+		else if (type.equals(SharedSpatialIndex.class.getSimpleName())) {
+			return SharedSpatialIndex.getOptimizer(key);
+		}
+		else if (type.equals(KineticContactPredictor.class.getSimpleName())) {
+			return KineticContactPredictor.getPredictor(key);
+		}
+		throw new SettingsError("Unknown connectivity optimizer '" + type +
+				"'");
+	}
+
 	/**
 	 * Adds a network interface to the optimizer (unless it is already present)
 	 */
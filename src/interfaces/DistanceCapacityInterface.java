@@ -4,7 +4,6 @@
  */
 package interfaces;
 
-import java.util.Collection;
 import core.Connection;
 import core.NetworkInterface;
 import core.Settings;
@@ -53,11 +52,12 @@ public class DistanceCapacityInterface extends NetworkInterface {
 	/**
 	 * Tries to connect this host to another host. The other host must be
 	 * active and within range of this host for the connection to succeed.
+	 * Whether this interface is scanning is checked by the caller (see
+	 * {@link #connectToNearInterfaces()}).
 	 * @param anotherInterface The interface to connect to
 	 */
 	public void connect(NetworkInterface anotherInterface) {
-		if (isScanning()
-				&& anotherInterface.getHost().isRadioActive()
+		if (anotherInterface.getHost().isRadioActive()
 				&& isWithinRange(anotherInterface)
 				&& !isConnected(anotherInterface)
 				&& (this != anotherInterface)) {
@@ -95,13 +95,16 @@ public class DistanceCapacityInterface extends NetworkInterface {
 			}
 		}
 		// Then find new possible connections
-		Collection<NetworkInterface> interfaces =
-			optimizer.getNearInterfaces(this);
-		for (NetworkInterface i : interfaces) {
-			connect(i);
-		}
+		connectToNearInterfaces();
+
+		connectionsUpdated();
+	}
 
-		/* update all connections */
+	/**
+	 * Updates all connections (their speed depends on the distance)
+	 */
+	@Override
+	protected void connectionsUpdated() {
 		for (Connection con : getConnections()) {
 			con.update();
 		}
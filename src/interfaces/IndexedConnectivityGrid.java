@@ -0,0 +1,166 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package interfaces;
+
+import java.util.HashMap;
+
+import movement.MovementModel;
+import core.DTNSim;
+import core.Settings;
+import core.SimulationContext;
+import core.World;
+
+/**
+ * <P>
+ * Connectivity grid that finds the interfaces within range of each other
+ * for all interfaces at once (see {@link SweepingOptimizer}). The
+ * interfaces are sorted by cell in a {@link CellIndex} that is rebuilt
+ * when any host has moved.</P>
+ *
+ * <P>The cells are as large as the largest transmit range (but there are
+ * no more cells than interfaces), so interfaces within range of each other
+ * are always in the same or neighboring cells. Every candidate pair is
+ * enumerated only once per update using a half-neighbourhood stencil (the
+ * cell itself and the neighbors right, below-left, below and below-right)
+ * and the range is checked once, on coordinates packed in cell order.
+ * </P>
+ */
+public class IndexedConnectivityGrid extends SweepingOptimizer {
+
+	/**
+	 * Indexed connectivity grid -setting id ({@value}). Boolean. If true,
+	 * indexed grids are used instead of connectivity grids.
+	 * Used in {@link World#OPTIMIZATION_SETTINGS_NS} name space.
+	 * Default = false.
+	 */
+	public static final String INDEXED_GRID_S = "indexedGrid";
+
+	/** the interfaces sorted by cell */
+	private final CellIndex cells;
+	/** ranges of the interfaces in cell order */
+	private double[] cellRanges;
+
+	static {
+		DTNSim.registerForReset(IndexedConnectivityGrid.class.
+				getCanonicalName());
+		reset();
+	}
+
+	/**
+	 * The grids and settings of a simulation run
+	 */
+	private static class Grids {
+		private HashMap<Integer, IndexedConnectivityGrid> grids =
+			new HashMap<Integer, IndexedConnectivityGrid>();
+		private boolean enabled;
+		private int worldSizeX;
+		private int worldSizeY;
+	}
+
+	public static void reset() {
+		Grids g = new Grids();
+		Settings s = new Settings(MovementModel.MOVEMENT_MODEL_NS);
+		int [] worldSize = s.getCsvInts(MovementModel.WORLD_SIZE,2);
+		g.worldSizeX = worldSize[0];
+		g.worldSizeY = worldSize[1];
+
+		s.setNameSpace(World.OPTIMIZATION_SETTINGS_NS);
+		g.enabled = s.getBoolean(INDEXED_GRID_S, false);
+		SimulationContext.setModuleState(IndexedConnectivityGrid.class, g);
+	}
+
+	/**
+	 * Returns true if indexed grids are enabled in the settings
+	 * (see {@link #INDEXED_GRID_S})
+	 * @return true if indexed grids should be used instead of grids
+	 */
+	public static boolean isEnabled() {
+		return getGrids().enabled;
+	}
+
+	/**
+	 * Returns an indexed grid based on a hash value
+	 * @param key A hash value that separates different interfaces from
+	 * each other
+	 * @return The indexed grid for a specific interface
+	 */
+	public static IndexedConnectivityGrid getGrid(int key) {
+		Grids g = getGrids();
+		IndexedConnectivityGrid grid = g.grids.get(key);
+		if (grid == null) {
+			grid = new IndexedConnectivityGrid(g.worldSizeX, g.worldSizeY);
+			g.grids.put(key, grid);
+		}
+		return grid;
+	}
+
+	private static Grids getGrids() {
+		return (Grids)SimulationContext.getModuleState(
+				IndexedConnectivityGrid.class);
+	}
+
+	/**
+	 * Creates a new grid without any interfaces
+	 * @param worldSizeX Width of the simulation world
+	 * @param worldSizeY Height of the simulation world
+	 */
+	private IndexedConnectivityGrid(int worldSizeX, int worldSizeY) {
+		this.cells = new CellIndex(worldSizeX, worldSizeY);
+		this.cellRanges = new double[0];
+	}
+
+	/**
+	 * Sorts the interfaces to cells and checks the pairs in the same and
+	 * in neighboring cells
+	 */
+	@Override
+	protected void findPairs(int n) {
+		CellIndex c = this.cells;
+		c.build(xs, ys, n, maxRange);
+		if (cellRanges.length != n) {
+			cellRanges = new double[n];
+		}
+		for (int k=0; k<n; k++) {
+			cellRanges[k] = ranges[c.members[k]];
+		}
+
+		for (int row=0; row<c.rows; row++) {
+			for (int col=0; col<c.cols; col++) {
+				int cell = row * c.cols + col;
+				int start = c.start[cell];
+				int end = c.start[cell + 1];
+				if (start == end) {
+					continue;
+				}
+				/* pairs inside the cell */
+				for (int i=start; i<end; i++) {
+					checkPairs(c.members[i], c.xs, c.ys, cellRanges,
+							c.members, i + 1, end, -1);
+				}
+				/* pairs with the forward half of the neighbors */
+				for (int[] offset : CellIndex.HALF_STENCIL) {
+					int other = c.neighbor(row, col, offset);
+					if (other < 0 || c.start[other] == c.start[other + 1]) {
+						continue;
+					}
+					for (int i=start; i<end; i++) {
+						checkPairs(c.members[i], c.xs, c.ys, cellRanges,
+								c.members, c.start[other],
+								c.start[other + 1], -1);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns a string representation of the grid
+	 * @return a string representation of the grid
+	 */
+	public String toString() {
+		return getClass().getSimpleName() + " of size " + cells.cols + "x" +
+			cells.rows + " with " + getAllInterfaces().size() + " interfaces";
+	}
+}
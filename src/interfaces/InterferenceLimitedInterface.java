@@ -4,7 +4,7 @@
  */
 package interfaces;
 
-import java.util.Collection;
+import java.util.Arrays;
 
 import core.Connection;
 import core.NetworkInterface;
@@ -18,6 +18,10 @@ import core.VBRConnection;
  * transmissions. The configured transmit speed is the maximum obtainable speed.
  */
 public class InterferenceLimitedInterface extends NetworkInterface {
+	/** sqrt(n * ln(n)) of the Gupta and Kumar capacity for n active
+	 * stations, indexed by n (grows when needed) */
+	private static volatile double[] capacityDivisors = new double[0];
+
 	protected int currentTransmitSpeed;
 	protected int numberOfTransmissions;
 
@@ -56,11 +60,12 @@ public class InterferenceLimitedInterface extends NetworkInterface {
 	/**
 	 * Tries to connect this host to another host. The other host must be
 	 * active and within range of this host for the connection to succeed.
+	 * Whether this interface is scanning is checked by the caller (see
+	 * {@link #connectToNearInterfaces()}).
 	 * @param anotherInterface The host to connect to
 	 */
 	public void connect(NetworkInterface anotherInterface) {
-		if (isScanning()
-				&& anotherInterface.getHost().isRadioActive()
+		if (anotherInterface.getHost().isRadioActive()
 				&& isWithinRange(anotherInterface)
 				&& !isConnected(anotherInterface)
 				&& (this != anotherInterface)) {
@@ -98,21 +103,24 @@ public class InterferenceLimitedInterface extends NetworkInterface {
 			}
 		}
 		// Then find new possible connections
-		Collection<NetworkInterface> interfaces =
-			optimizer.getNearInterfaces(this);
-		for (NetworkInterface i : interfaces)
-			connect(i);
+		connectToNearInterfaces();
+
+		connectionsUpdated();
+	}
 
-		// Find the current number of transmissions
+	/**
+	 * Recalculates the current transmission speed and updates the
+	 * connections
+	 */
+	@Override
+	protected void connectionsUpdated() {
+		// The current number of transmissions is counted by the connections
 		// (to calculate the current transmission speed
-		numberOfTransmissions = 0;
+		numberOfTransmissions = getNrofTransfers();
 		int numberOfActive = 1;
-		for (Connection con : this.connections) {
-			if (con.getMessage() != null) {
-				numberOfTransmissions++;
-			}
-			if (((InterferenceLimitedInterface)con.getOtherInterface(this)).
-					isTransferring() == true) {
+		for (int i=0, n=this.connections.size(); i<n; i++) {
+			if (((InterferenceLimitedInterface)this.connections.get(i).
+					getOtherInterface(this)).isTransferring()) {
 				numberOfActive++;
 			}
 		}
@@ -124,15 +132,32 @@ public class InterferenceLimitedInterface extends NetworkInterface {
 		// Based on the equation of Gupta and Kumar - and the transmission speed
 		// is divided equally to all the ongoing transmissions
 		currentTransmitSpeed = (int)Math.floor((double)transmitSpeed /
-				(Math.sqrt((1.0*numberOfActive) *
-						Math.log(1.0*numberOfActive))) /
-							ntrans );
+				capacityDivisor(numberOfActive) / ntrans );
 
 		for (Connection con : getConnections()) {
 			con.update();
 		}
 	}
 
+	/**
+	 * Returns sqrt(n * ln(n)) from the table of the divisors
+	 * @param n Number of active stations
+	 * @return The divisor of the transmit speed
+	 */
+	private static double capacityDivisor(int n) {
+		double[] divisors = capacityDivisors;
+		if (n >= divisors.length) {
+			int oldSize = divisors.length;
+			divisors = Arrays.copyOf(divisors,
+					Math.max(n + 1, oldSize * 2));
+			for (int i=oldSize; i<divisors.length; i++) {
+				divisors[i] = Math.sqrt((1.0*i) * Math.log(1.0*i));
+			}
+			capacityDivisors = divisors;
+		}
+		return divisors[n];
+	}
+
 	/**
 	 * Creates a connection to another host. This method does not do any checks
 	 * on whether the other node is in range or active
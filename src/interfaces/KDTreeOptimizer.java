@@ -0,0 +1,230 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package interfaces;
+
+import java.util.HashMap;
+
+import core.DTNSim;
+import core.SimulationContext;
+
+/**
+ * <P>
+ * Connectivity optimizer that finds the interfaces within range of each
+ * other for all interfaces at once (see {@link SweepingOptimizer}) using a
+ * KD-tree of the interface locations. Unlike the cells of a grid, the tree
+ * adapts to the distribution of the hosts: the nodes are split at the
+ * median location along the axis where the interfaces are spread the most,
+ * so dense clusters (e.g., cars queued on the same road) are split into
+ * small leaves and empty areas cost nothing.</P>
+ *
+ * <P>
+ * The tree is stored implicitly in an array of interface indexes (the
+ * split interface of a node is in the middle of the node's range) and
+ * rebuilt when any host has moved. Every interface then queries the
+ * interfaces within its own transmit range and every pair is checked once.
+ * </P>
+ */
+public class KDTreeOptimizer extends SweepingOptimizer {
+	/** maximum number of interfaces in a leaf node */
+	private static final int LEAF_SIZE = 8;
+
+	/** indexes of the interfaces in tree order */
+	private int[] perm;
+	/** split axis (0 = x, 1 = y) of each node, by the node's middle index */
+	private byte[] axes;
+	/** locations and ranges of the interfaces in tree order */
+	private double[] treeXs, treeYs, treeRanges;
+
+	static {
+		DTNSim.registerForReset(KDTreeOptimizer.class.getCanonicalName());
+		reset();
+	}
+
+	/**
+	 * The trees of a simulation run
+	 */
+	private static class Trees {
+		private HashMap<Integer, KDTreeOptimizer> trees =
+			new HashMap<Integer, KDTreeOptimizer>();
+	}
+
+	public static void reset() {
+		SimulationContext.setModuleState(KDTreeOptimizer.class, new Trees());
+	}
+
+	/**
+	 * Returns a KD-tree optimizer based on a hash value
+	 * @param key A hash value that separates different interfaces from
+	 * each other
+	 * @return The KD-tree optimizer for a specific interface
+	 */
+	public static KDTreeOptimizer getOptimizer(int key) {
+		Trees t = (Trees)SimulationContext.getModuleState(
+				KDTreeOptimizer.class);
+		KDTreeOptimizer tree = t.trees.get(key);
+		if (tree == null) {
+			tree = new KDTreeOptimizer();
+			t.trees.put(key, tree);
+		}
+		return tree;
+	}
+
+	/**
+	 * Creates a new optimizer without any interfaces
+	 */
+	private KDTreeOptimizer() {
+		this.perm = new int[0];
+		this.axes = new byte[0];
+		this.treeXs = this.treeYs = this.treeRanges = new double[0];
+	}
+
+	/**
+	 * Builds the tree and queries the near interfaces of every interface
+	 */
+	@Override
+	protected void findPairs(int n) {
+		if (perm.length != n) {
+			perm = new int[n];
+			axes = new byte[n];
+			treeXs = new double[n];
+			treeYs = new double[n];
+			treeRanges = new double[n];
+		}
+		for (int i=0; i<n; i++) {
+			perm[i] = i;
+		}
+		build(0, n);
+		for (int k=0; k<n; k++) {
+			treeXs[k] = xs[perm[k]];
+			treeYs[k] = ys[perm[k]];
+			treeRanges[k] = ranges[perm[k]];
+		}
+
+		for (int i=0; i<n; i++) {
+			query(0, n, i, xs[i], ys[i], ranges[i]);
+		}
+	}
+
+	/**
+	 * Builds the subtree of the interfaces in perm[lo, hi)
+	 */
+	private void build(int lo, int hi) {
+		if (hi - lo <= LEAF_SIZE) {
+			return;
+		}
+
+		/* split along the axis where the interfaces are spread the most */
+		double minX = Double.MAX_VALUE, maxX = -Double.MAX_VALUE;
+		double minY = Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+		for (int k=lo; k<hi; k++) {
+			int i = perm[k];
+			minX = Math.min(minX, xs[i]);
+			maxX = Math.max(maxX, xs[i]);
+			minY = Math.min(minY, ys[i]);
+			maxY = Math.max(maxY, ys[i]);
+		}
+		double[] coords = (maxX - minX >= maxY - minY ? xs : ys);
+		int mid = (lo + hi) >>> 1;
+		axes[mid] = (byte)(coords == xs ? 0 : 1);
+
+		select(coords, lo, hi - 1, mid);
+		build(lo, mid);
+		build(mid + 1, hi);
+	}
+
+	/**
+	 * Reorders perm[lo, hi] so that the interface with the k:th smallest
+	 * coordinate is at k, smaller or equal ones before it and greater or
+	 * equal ones after it (quickselect with median of three pivots)
+	 */
+	private void select(double[] coords, int lo, int hi, int k) {
+		while (hi > lo) {
+			int m = (lo + hi) >>> 1;
+			if (coords[perm[m]] < coords[perm[lo]]) {
+				swap(m, lo);
+			}
+			if (coords[perm[hi]] < coords[perm[lo]]) {
+				swap(hi, lo);
+			}
+			if (coords[perm[hi]] < coords[perm[m]]) {
+				swap(hi, m);
+			}
+			double pivot = coords[perm[m]];
+
+			int i = lo;
+			int j = hi;
+			while (i <= j) {
+				while (coords[perm[i]] < pivot) {
+					i++;
+				}
+				while (coords[perm[j]] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					swap(i, j);
+					i++;
+					j--;
+				}
+			}
+
+			if (k <= j) {
+				hi = j;
+			}
+			else if (k >= i) {
+				lo = i;
+			}
+			else {
+				return;
+			}
+		}
+	}
+
+	private void swap(int a, int b) {
+		int tmp = perm[a];
+		perm[a] = perm[b];
+		perm[b] = tmp;
+	}
+
+	/**
+	 * Checks the pairs of interface i and the interfaces with a greater
+	 * index that are in the subtree perm[lo, hi) and may be within the range
+	 * r from (x, y)
+	 */
+	private void query(int lo, int hi, int i, double x, double y, double r) {
+		while (hi - lo > LEAF_SIZE) {
+			int mid = (lo + hi) >>> 1;
+			int split = perm[mid];
+			double d = (axes[mid] == 0 ? x - xs[split] : y - ys[split]);
+
+			if (split > i) {
+				checkPair(i, split);
+			}
+			/* continue on the near side, recurse on the far side if needed */
+			if (d <= 0) {
+				if (d + r >= 0) {
+					query(mid + 1, hi, i, x, y, r);
+				}
+				hi = mid;
+			}
+			else {
+				if (d - r <= 0) {
+					query(lo, mid, i, x, y, r);
+				}
+				lo = mid + 1;
+			}
+		}
+
+		checkPairs(i, treeXs, treeYs, treeRanges, perm, lo, hi, i);
+	}
+
+	/**
+	 * Returns a string representation of the optimizer
+	 * @return a string representation of the optimizer
+	 */
+	public String toString() {
+		return getClass().getSimpleName() + " with " +
+			getAllInterfaces().size() + " interfaces";
+	}
+}
@@ -0,0 +1,640 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package interfaces;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import movement.MovementModel;
+import core.Coord;
+import core.DTNHost;
+import core.DTNSim;
+import core.NetworkInterface;
+import core.Settings;
+import core.SimClock;
+import core.SimulationContext;
+import core.World;
+
+/**
+ * <P>
+ * Kinetic connectivity optimizer that predicts when interfaces get in and out
+ * of each other's range instead of checking the ranges on every update.</P>
+ *
+ * <P>Hosts move along straight lines at a constant speed until they reach
+ * their next waypoint, so the time when the distance of two interfaces
+ * crosses their transmit range can be solved from a quadratic equation.
+ * The predicted contact start and end times are kept in a priority queue
+ * and every interface has a list of the interfaces it is (predicted to be)
+ * within range of. On an update, only the events that are due are
+ * processed, and only when the near interfaces are first asked for, so the
+ * update rounds when no interface is scanning skip the work. The
+ * predictions of an interface are recalculated only when its host's
+ * movement changes, i.e., the host gets a new waypoint, changes its speed
+ * or doesn't end up where predicted (e.g., when a car slows down or
+ * overtakes).
+ * </P>
+ *
+ * <P>
+ * The interfaces are still connected and disconnected on the normal
+ * updates, so the results are the same as with {@link ConnectivityGrid}
+ * (the near interfaces are only returned in a different order).
+ * </P>
+ *
+ * <P>
+ * The interfaces are re-predicted only against the interfaces in the same
+ * and neighboring cells of a {@link CellIndex}. The cells are as large as
+ * the transmit range plus the distance that two hosts may move apart from
+ * their indexed locations ({@link #MAX_DRIFT} of the range each). When any
+ * host has moved farther, the index is rebuilt and all pairs of near cells
+ * are predicted again. An update therefore takes time in proportion to the
+ * number of hosts whose movement changed and the number of hosts near them,
+ * not to the number of all interfaces.
+ * </P>
+ */
+public class KineticContactPredictor extends ConnectivityOptimizer {
+
+	/**
+	 * Kinetic contact prediction -setting id ({@value}). Boolean. If true,
+	 * kinetic contact predictors are used instead of connectivity grids.
+	 * Used in {@link World#OPTIMIZATION_SETTINGS_NS} name space.
+	 * Default = false.
+	 */
+	public static final String CONTACT_PREDICTION_S = "contactPrediction";
+
+	/** maximum accepted difference (meters) of predicted and real location */
+	private static final double LOCATION_TOLERANCE = 1e-6;
+	/** extra range for predictions so that rounding errors don't make an
+	 * interface that is within range look like one that isn't */
+	private static final double RANGE_MARGIN = 1e-5;
+	/** how far (as a fraction of the largest transmit range) a host may
+	 * move from its location in the cell index before the index is rebuilt */
+	private static final double MAX_DRIFT = 0.5;
+
+	/** the motions of all interfaces, in the order they were added */
+	private List<Motion> motions;
+	private HashMap<NetworkInterface, Motion> motionMap;
+	/** predicted contact events, ordered by time */
+	private PriorityQueue<ContactEvent> events;
+	/** sequence number for ordering simultaneous events */
+	private long nextEventSeq;
+	/** simulation time of the latest predictions */
+	private double predictionTime;
+	/** sequence number of the latest location sweep */
+	private int sweepNr;
+	/** are there interfaces without predictions */
+	private boolean newInterfaces;
+	/** may the locations have changed after the latest predictions */
+	private volatile boolean updatePending;
+	/** the motions sorted by cell at their locations on the latest rebuild */
+	private final CellIndex cells;
+	/** the largest transmit range on the latest rebuild */
+	private double indexedRange;
+	/** squared distance a host may move from its indexed location */
+	private double maxDriftSq;
+	/** locations of the motions for building the cell index */
+	private double[] indexXs, indexYs;
+
+	static {
+		DTNSim.registerForReset(KineticContactPredictor.class.
+				getCanonicalName());
+		reset();
+	}
+
+	/**
+	 * The predictors and settings of a simulation run
+	 */
+	private static class Predictors {
+		private HashMap<Integer, KineticContactPredictor> predictors =
+			new HashMap<Integer, KineticContactPredictor>();
+		private boolean enabled;
+		private int worldSizeX;
+		private int worldSizeY;
+	}
+
+	public static void reset() {
+		Predictors p = new Predictors();
+		Settings s = new Settings(MovementModel.MOVEMENT_MODEL_NS);
+		int [] worldSize = s.getCsvInts(MovementModel.WORLD_SIZE,2);
+		p.worldSizeX = worldSize[0];
+		p.worldSizeY = worldSize[1];
+
+		s.setNameSpace(World.OPTIMIZATION_SETTINGS_NS);
+		p.enabled = s.getBoolean(CONTACT_PREDICTION_S, false);
+		SimulationContext.setModuleState(KineticContactPredictor.class, p);
+	}
+
+	/**
+	 * Returns true if kinetic contact prediction is enabled in the settings
+	 * (see {@link #CONTACT_PREDICTION_S})
+	 * @return true if predictors should be used instead of grids
+	 */
+	public static boolean isEnabled() {
+		return getPredictors().enabled;
+	}
+
+	/**
+	 * Returns a contact predictor based on a hash value
+	 * @param key A hash value that separates different interfaces from
+	 * each other
+	 * @return The contact predictor for a specific interface
+	 */
+	public static KineticContactPredictor getPredictor(int key) {
+		Predictors p = getPredictors();
+		KineticContactPredictor kcp = p.predictors.get(key);
+		if (kcp == null) {
+			kcp = new KineticContactPredictor(p.worldSizeX, p.worldSizeY);
+			p.predictors.put(key, kcp);
+		}
+		return kcp;
+	}
+
+	private static Predictors getPredictors() {
+		return (Predictors)SimulationContext.getModuleState(
+				KineticContactPredictor.class);
+	}
+
+	/**
+	 * Creates a new predictor without any interfaces
+	 * @param worldSizeX Width of the simulation world
+	 * @param worldSizeY Height of the simulation world
+	 */
+	private KineticContactPredictor(int worldSizeX, int worldSizeY) {
+		this.motions = new ArrayList<Motion>();
+		this.motionMap = new HashMap<NetworkInterface, Motion>();
+		this.events = new PriorityQueue<ContactEvent>();
+		this.nextEventSeq = 0;
+		this.predictionTime = Double.NEGATIVE_INFINITY;
+		this.sweepNr = 0;
+		this.newInterfaces = false;
+		this.updatePending = false;
+		this.cells = new CellIndex(worldSizeX, worldSizeY);
+		this.indexXs = this.indexYs = new double[0];
+	}
+
+	@Override
+	public void addInterface(NetworkInterface ni) {
+		if (!motionMap.containsKey(ni)) {
+			Motion m = new Motion(ni, motions.size());
+			motions.add(m);
+			motionMap.put(ni, m);
+			newInterfaces = true;
+		}
+	}
+
+	@Override
+	public void addInterfaces(Collection<NetworkInterface> interfaces) {
+		for (NetworkInterface ni : interfaces) {
+			addInterface(ni);
+		}
+	}
+
+	/**
+	 * Marks the predictions to be brought up to date with the locations
+	 * when the near interfaces are asked for the next time. On the update
+	 * rounds when no interface is scanning, nobody asks and the events and
+	 * predictions are handled on the next round that has a scan.
+	 * @param ni The interface that is updated
+	 */
+	@Override
+	public void updateLocation(NetworkInterface ni) {
+		if (updatePending) {
+			return;
+		}
+		Motion m = motionMap.get(ni);
+		/* the host may have moved after predictions made at the same time,
+		 * e.g., by an external event at the start of the update round */
+		if (SimClock.getTime() != predictionTime || newInterfaces ||
+				m == null || m.hasMoved()) {
+			updatePending = true;
+		}
+	}
+
+	/**
+	 * Brings the predictions up to date with the current locations of all
+	 * the interfaces if an update is pending. Only one thread updates; the
+	 * others wait for it.
+	 */
+	private synchronized void updateIfPending() {
+		if (!updatePending) {
+			return;
+		}
+		updatePredictions(SimClock.getTime());
+		updatePending = false;
+	}
+
+	/**
+	 * Processes the due events and re-predicts the interfaces whose
+	 * movement has changed (if any host has moved after the latest
+	 * predictions)
+	 * @param now Current simulation time
+	 */
+	private void updatePredictions(double now) {
+		if (!newInterfaces && !anyHostMoved()) {
+			return; /* e.g., an external event between two updates */
+		}
+
+		predictionTime = now;
+		boolean rebuild = newInterfaces;
+		newInterfaces = false;
+		sweepNr++;
+
+		processEvents(now);
+
+		List<Motion> changed = new ArrayList<Motion>();
+		for (Motion m : motions) {
+			if (m.hasChanged(now)) {
+				m.reset(now, sweepNr);
+				changed.add(m);
+			}
+			m.storeLocation();
+			if (!rebuild && (m.range > indexedRange ||
+					m.hasDrifted(maxDriftSq))) {
+				rebuild = true;
+			}
+		}
+		if (rebuild) {
+			predictAll(now);
+			return;
+		}
+		for (Motion m : changed) {
+			predictNear(m, now);
+		}
+	}
+
+	/**
+	 * Rebuilds the cell index at the current locations of the interfaces
+	 * and predicts all pairs of interfaces in the same or neighboring cells
+	 * from scratch
+	 * @param now Current simulation time
+	 */
+	private void predictAll(double now) {
+		int n = motions.size();
+		if (indexXs.length != n) {
+			indexXs = new double[n];
+			indexYs = new double[n];
+		}
+		indexedRange = 0;
+		for (Motion m : motions) {
+			if (m.changedOnSweep != sweepNr) {
+				m.reset(now, sweepNr); /* invalidates the old events */
+			}
+			m.near.clear();
+			m.indexX = indexXs[m.index] = m.x;
+			m.indexY = indexYs[m.index] = m.y;
+			indexedRange = Math.max(indexedRange, m.range);
+		}
+		events.clear();
+		double drift = indexedRange * MAX_DRIFT;
+		maxDriftSq = drift * drift;
+
+		CellIndex c = this.cells;
+		c.build(indexXs, indexYs, n, indexedRange + 2 * drift + RANGE_MARGIN);
+		for (int row=0; row<c.rows; row++) {
+			for (int col=0; col<c.cols; col++) {
+				int cell = row * c.cols + col;
+				int start = c.start[cell];
+				int end = c.start[cell + 1];
+				for (int i=start; i<end; i++) {
+					Motion a = motions.get(c.members[i]);
+					for (int j=i+1; j<end; j++) {
+						predict(a, motions.get(c.members[j]), now);
+					}
+					for (int[] offset : CellIndex.HALF_STENCIL) {
+						int other = c.neighbor(row, col, offset);
+						if (other < 0) {
+							continue;
+						}
+						for (int j=c.start[other]; j<c.start[other+1]; j++) {
+							predict(a, motions.get(c.members[j]), now);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Predicts the contacts of a changed motion with the motions in the
+	 * same and neighboring cells of the cell index
+	 * @param m The motion
+	 * @param now Current simulation time
+	 */
+	private void predictNear(Motion m, double now) {
+		CellIndex c = this.cells;
+		int cell = c.getCell(m.index);
+		int row = cell / c.cols;
+		int col = cell % c.cols;
+		for (int[] offset : CellIndex.FULL_STENCIL) {
+			int other = c.neighbor(row, col, offset);
+			if (other < 0) {
+				continue;
+			}
+			for (int k=c.start[other]; k<c.start[other+1]; k++) {
+				Motion o = motions.get(c.members[k]);
+				if (o == m || (o.changedOnSweep == sweepNr &&
+						o.index < m.index)) {
+					continue; /* this pair is already predicted */
+				}
+				predict(m, o, now);
+			}
+		}
+	}
+
+	/**
+	 * Returns true if any host has moved since the latest predictions
+	 * @return true if the location of some interface has changed
+	 */
+	private boolean anyHostMoved() {
+		for (Motion m : motions) {
+			if (m.hasMoved()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Applies all valid contact events that are due
+	 * @param now Current simulation time
+	 */
+	private void processEvents(double now) {
+		while (!events.isEmpty() && events.peek().time <= now) {
+			ContactEvent e = events.poll();
+			if (!e.isValid()) {
+				continue; /* movement of either host has changed */
+			}
+			if (e.start) {
+				setNear(e.a, e.b, true);
+				addEvent(e.a, e.b, e.endTime, false, Double.NaN);
+			}
+			else {
+				setNear(e.a, e.b, false);
+			}
+		}
+	}
+
+	/**
+	 * Predicts the next contact event of two interfaces and updates their
+	 * current contact state
+	 * @param a The first interface's motion
+	 * @param b The second interface's motion
+	 * @param now Current simulation time
+	 */
+	private void predict(Motion a, Motion b, double now) {
+		double range = Math.min(a.range, b.range) + RANGE_MARGIN;
+		double dx = b.x - a.x;
+		double dy = b.y - a.y;
+		double vx = b.vx - a.vx;
+		double vy = b.vy - a.vy;
+		double c = dx*dx + dy*dy - range*range;
+		boolean inRange = c <= 0;
+
+		setNear(a, b, inRange);
+
+		double aa = vx*vx + vy*vy;
+		if (aa == 0) {
+			return; /* distance doesn't change */
+		}
+		double bb = 2 * (dx*vx + dy*vy);
+		double disc = bb*bb - 4*aa*c;
+		if (disc < 0) {
+			return; /* never within range */
+		}
+		double sqrtDisc = Math.sqrt(disc);
+		double enter = now + (-bb - sqrtDisc) / (2*aa);
+		double exit = now + (-bb + sqrtDisc) / (2*aa);
+		double validUntil = Math.min(a.validUntil, b.validUntil);
+
+		if (inRange) {
+			if (exit <= validUntil) {
+				addEvent(a, b, exit, false, Double.NaN);
+			}
+		}
+		else if (enter > now && enter <= validUntil) {
+			addEvent(a, b, enter, true, exit);
+		}
+	}
+
+	private void addEvent(Motion a, Motion b, double time, boolean start,
+			double endTime) {
+		events.add(new ContactEvent(a, b, time, start, endTime,
+				nextEventSeq++));
+	}
+
+	/**
+	 * Sets whether two interfaces are near each other
+	 */
+	private void setNear(Motion a, Motion b, boolean near) {
+		if (near) {
+			if (!a.near.contains(b.ni)) {
+				a.near.add(b.ni);
+				b.near.add(a.ni);
+			}
+		}
+		else if (a.near.remove(b.ni)) {
+			b.near.remove(a.ni);
+		}
+	}
+
+	/**
+	 * Returns how many times the predictions have been brought up to date
+	 * @return The number of prediction updates
+	 */
+	public int getNrofSweeps() {
+		return sweepNr;
+	}
+
+	/**
+	 * Returns all interfaces that use the same technology and channel
+	 */
+	@Override
+	public Collection<NetworkInterface> getAllInterfaces() {
+		return motionMap.keySet();
+	}
+
+	/**
+	 * Returns the interfaces that are predicted to be within range of the
+	 * given interface. The locations of the interfaces must be updated (see
+	 * {@link #updateLocation(NetworkInterface)}).
+	 * @param ni The interface whose near interfaces are returned
+	 * @return List of near interfaces
+	 */
+	@Override
+	public Collection<NetworkInterface> getNearInterfaces(
+			NetworkInterface ni) {
+		if (updatePending) {
+			updateIfPending();
+		}
+		Motion m = motionMap.get(ni);
+		if (m == null) {
+			return new ArrayList<NetworkInterface>();
+		}
+		return m.near;
+	}
+
+	/**
+	 * Linear motion of an interface (i.e., its host) since the latest
+	 * change in the host's movement
+	 */
+	private static class Motion {
+		private final NetworkInterface ni;
+		private final DTNHost host;
+		private final int index;
+		/** interfaces predicted to be within range */
+		private final List<NetworkInterface> near;
+		/** location at the time of the latest predictions */
+		private double x, y;
+		/** velocity */
+		private double vx, vy;
+		/** time until which the velocity is valid (arrival to waypoint) */
+		private double validUntil;
+		/** time of the location */
+		private double time;
+		private Coord destination;
+		private double speed;
+		private double range;
+		/** version of the motion; events of old versions are invalid */
+		private int version;
+		private int changedOnSweep;
+		/** the real location of the host on the previous sweep */
+		private double lastX, lastY;
+		/** location of the motion in the cell index */
+		private double indexX, indexY;
+
+		private Motion(NetworkInterface ni, int index) {
+			this.ni = ni;
+			this.host = ni.getHost();
+			this.index = index;
+			this.near = new ArrayList<NetworkInterface>();
+			this.version = -1; /* no predictions yet */
+			this.lastX = this.lastY = Double.NaN;
+		}
+
+		/**
+		 * Returns true if the host's location has changed since the
+		 * previous sweep
+		 */
+		private boolean hasMoved() {
+			return host.getLocationX() != lastX ||
+				host.getLocationY() != lastY;
+		}
+
+		private void storeLocation() {
+			lastX = host.getLocationX();
+			lastY = host.getLocationY();
+		}
+
+		/**
+		 * Returns true if the host has moved from its location in the cell
+		 * index farther than the given distance
+		 * @param maxDistSq The distance squared
+		 */
+		private boolean hasDrifted(double maxDistSq) {
+			double dx = lastX - indexX;
+			double dy = lastY - indexY;
+			return dx*dx + dy*dy > maxDistSq;
+		}
+
+		/**
+		 * Returns true if the host's movement doesn't match the predicted
+		 * motion anymore. If it matches, moves the location of the motion
+		 * to the given time.
+		 * @param now Current simulation time
+		 */
+		private boolean hasChanged(double now) {
+			if (version < 0 || now > validUntil ||
+					host.getCurrentSpeed() != speed ||
+					host.getCurrentDestination() != destination ||
+					ni.getTransmitRange() != range) {
+				return true;
+			}
+			double px = x + vx * (now - time);
+			double py = y + vy * (now - time);
+			if (Math.abs(host.getLocationX() - px) > LOCATION_TOLERANCE ||
+					Math.abs(host.getLocationY() - py) > LOCATION_TOLERANCE) {
+				return true;
+			}
+			x = px;
+			y = py;
+			time = now;
+			return false;
+		}
+
+		/**
+		 * Starts a new motion from the host's current location and movement
+		 * @param now Current simulation time
+		 * @param sweepNr Number of the current sweep
+		 */
+		private void reset(double now, int sweepNr) {
+			x = host.getLocationX();
+			y = host.getLocationY();
+			time = now;
+			destination = host.getCurrentDestination();
+			speed = host.getCurrentSpeed();
+			range = ni.getTransmitRange();
+			version++;
+			changedOnSweep = sweepNr;
+
+			double dx = 0, dy = 0;
+			if (destination != null) {
+				dx = destination.getX() - x;
+				dy = destination.getY() - y;
+			}
+			double dist = Math.sqrt(dx*dx + dy*dy);
+			if (dist == 0 || speed <= 0) {
+				vx = vy = 0;
+				validUntil = Double.POSITIVE_INFINITY;
+			}
+			else {
+				vx = dx / dist * speed;
+				vy = dy / dist * speed;
+				validUntil = now + dist / speed;
+			}
+		}
+	}
+
+	/**
+	 * Predicted start or end of a contact between two interfaces
+	 */
+	private static class ContactEvent implements Comparable<ContactEvent> {
+		private final Motion a, b;
+		private final int versionA, versionB;
+		private final double time;
+		private final boolean start;
+		/** predicted end time of the contact for start events */
+		private final double endTime;
+		private final long seq;
+
+		private ContactEvent(Motion a, Motion b, double time, boolean start,
+				double endTime, long seq) {
+			this.a = a;
+			this.b = b;
+			this.versionA = a.version;
+			this.versionB = b.version;
+			this.time = time;
+			this.start = start;
+			this.endTime = endTime;
+			this.seq = seq;
+		}
+
+		/**
+		 * Returns true if neither of the motions has changed after the
+		 * event was predicted
+		 */
+		private boolean isValid() {
+			return a.version == versionA && b.version == versionB;
+		}
+
+		public int compareTo(ContactEvent o) {
+			if (this.time != o.time) {
+				return this.time < o.time ? -1 : 1;
+			}
+			return this.seq < o.seq ? -1 : (this.seq == o.seq ? 0 : 1);
+		}
+	}
+}
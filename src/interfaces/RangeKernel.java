@@ -0,0 +1,90 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package interfaces;
+
+/**
+ * <P>
+ * Range checks on squared distances. The checks give exactly the same
+ * results as comparing <CODE>Math.sqrt(dx*dx + dy*dy)</CODE> to the range
+ * (like {@link core.Coord#distance(core.Coord)} based checks do): the
+ * square root is only taken when the squared distance is so close to the
+ * squared range that rounding could change the result.</P>
+ *
+ * <P>
+ * The batch check works on packed coordinate arrays with a simple loop
+ * that the JIT compiler can unroll and vectorize.</P>
+ */
+public final class RangeKernel {
+	/** relative width of the band around the squared range where the
+	 * square root is needed for an exact result */
+	private static final double EXACT_BAND = 1e-12;
+
+	private RangeKernel() { }
+
+	/**
+	 * Returns true if a point at the given offset is within the range,
+	 * i.e., if <CODE>Math.sqrt(dx*dx + dy*dy) <= range</CODE>
+	 * @param dx Offset in the x direction
+	 * @param dy Offset in the y direction
+	 * @param range The range
+	 * @return True if the point is within the range
+	 */
+	public static boolean isWithinRange(double dx, double dy, double range) {
+		double d2 = dx*dx + dy*dy;
+		double r2 = range * range;
+		if (Math.abs(d2 - r2) > r2 * EXACT_BAND) {
+			return d2 <= r2;
+		}
+		return Math.sqrt(d2) <= range;
+	}
+
+	/**
+	 * Checks which of the candidates at positions [from, to) of the packed
+	 * arrays are within range of the given point. The range of a pair is
+	 * the smaller of the point's range and the candidate's range.
+	 * @param x X coordinate of the point
+	 * @param y Y coordinate of the point
+	 * @param range Range of the point
+	 * @param xs X coordinates of the candidates
+	 * @param ys Y coordinates of the candidates
+	 * @param ranges Ranges of the candidates
+	 * @param from Position of the first candidate
+	 * @param to Position after the last candidate
+	 * @param hits Hit mask where hits[k - from] is set to true if candidate
+	 * k is within range and to false if not (must have room for all)
+	 * @return The number of candidates within range
+	 */
+	public static int withinRange(double x, double y, double range,
+			double[] xs, double[] ys, double[] ranges, int from, int to,
+			boolean[] hits) {
+		int nrofHits = 0;
+		int uncertain = 0;
+		for (int k=from; k<to; k++) {
+			double dx = x - xs[k];
+			double dy = y - ys[k];
+			double r = Math.min(range, ranges[k]);
+			double d2 = dx*dx + dy*dy;
+			double r2 = r * r;
+			boolean hit = d2 <= r2;
+			hits[k - from] = hit;
+			nrofHits += (hit ? 1 : 0);
+			uncertain += (Math.abs(d2 - r2) <= r2 * EXACT_BAND ? 1 : 0);
+		}
+
+		if (uncertain > 0) { /* rare: decide the boundary cases exactly */
+			for (int k=from; k<to; k++) {
+				double dx = x - xs[k];
+				double dy = y - ys[k];
+				double r = Math.min(range, ranges[k]);
+				boolean hit = isWithinRange(dx, dy, r);
+				if (hit != hits[k - from]) {
+					hits[k - from] = hit;
+					nrofHits += (hit ? 1 : -1);
+				}
+			}
+		}
+		return nrofHits;
+	}
+}
@@ -0,0 +1,446 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package interfaces;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+import movement.MovementModel;
+import core.DTNHost;
+import core.DTNSim;
+import core.NetworkInterface;
+import core.Settings;
+import core.SimClock;
+import core.SimulationContext;
+import core.World;
+
+/**
+ * <P>
+ * Spatial index shared by the network interfaces of all interface types.
+ * Each host is in the index only once, however many interfaces it has. On
+ * the first location update after any host has moved (or any range has
+ * changed), the host locations are copied and sorted to a
+ * {@link CellIndex} with cells as large as the longest transmit range.
+ * Every candidate host pair is checked once against the hosts' longest
+ * ranges, and only the pairs within range are matched interface by
+ * interface: interfaces of the same type are near each other if they are
+ * within the smaller of their ranges. The sweep is done only when the near
+ * interfaces are first asked for, so the update rounds when no interface is
+ * scanning skip it.</P>
+ *
+ * <P>
+ * Each interface type gets its own view of the index as its
+ * {@link ConnectivityOptimizer}. The connections are the same as with the
+ * other optimizers, but the near interfaces are returned in a different
+ * order.</P>
+ */
+public class SharedSpatialIndex {
+
+	/**
+	 * Shared spatial index -setting id ({@value}). Boolean. If true, the
+	 * interfaces of all types use one shared index instead of a grid per
+	 * interface type. Used in {@link World#OPTIMIZATION_SETTINGS_NS} name
+	 * space. Default = false.
+	 */
+	public static final String SHARED_INDEX_S = "sharedIndex";
+
+	/** the hosts in the index */
+	private List<DTNHost> hosts;
+	/** the indexed interfaces of each host, by host index */
+	private List<ArrayList<Entry>> hostEntries;
+	private HashMap<DTNHost, Integer> hostIndexes;
+	private HashMap<NetworkInterface, Entry> entries;
+	/** host locations on the latest sweep */
+	private double[] xs, ys;
+	/** longest transmit range of each host on the latest sweep */
+	private double[] hostRanges;
+	/** longest transmit ranges of the hosts in cell order */
+	private double[] cellRanges;
+	private final CellIndex cells;
+	/** hit mask of the batch range checks */
+	private boolean[] hits;
+	/** simulation time of the latest sweep */
+	private double sweepTime;
+	/** have interfaces been added after the latest sweep */
+	private boolean newInterfaces;
+	/** may the locations have changed after the latest sweep */
+	private volatile boolean sweepPending;
+
+	static {
+		DTNSim.registerForReset(SharedSpatialIndex.class.getCanonicalName());
+		reset();
+	}
+
+	/**
+	 * The shared index and its views of a simulation run
+	 */
+	private static class Indexes {
+		private SharedSpatialIndex index;
+		private HashMap<Integer, View> views = new HashMap<Integer, View>();
+		private boolean enabled;
+	}
+
+	/**
+	 * An interface in the index
+	 */
+	private static class Entry {
+		private final NetworkInterface ni;
+		private final View view;
+		private final ArrayList<NetworkInterface> near;
+		/** transmit range on the latest sweep */
+		private double range;
+
+		private Entry(NetworkInterface ni, View view) {
+			this.ni = ni;
+			this.view = view;
+			this.near = new ArrayList<NetworkInterface>();
+		}
+	}
+
+	public static void reset() {
+		Indexes x = new Indexes();
+		Settings s = new Settings(MovementModel.MOVEMENT_MODEL_NS);
+		int [] worldSize = s.getCsvInts(MovementModel.WORLD_SIZE,2);
+		x.index = new SharedSpatialIndex(worldSize[0], worldSize[1]);
+
+		s.setNameSpace(World.OPTIMIZATION_SETTINGS_NS);
+		x.enabled = s.getBoolean(SHARED_INDEX_S, false);
+		SimulationContext.setModuleState(SharedSpatialIndex.class, x);
+	}
+
+	/**
+	 * Returns true if the shared index is enabled in the settings
+	 * (see {@link #SHARED_INDEX_S})
+	 * @return true if the shared index should be used instead of grids
+	 */
+	public static boolean isEnabled() {
+		return getIndexes().enabled;
+	}
+
+	/**
+	 * Returns the view of the shared index for the interfaces with the
+	 * given key
+	 * @param key A hash value that separates different interfaces from
+	 * each other
+	 * @return The connectivity optimizer for a specific interface
+	 */
+	public static ConnectivityOptimizer getOptimizer(int key) {
+		Indexes x = getIndexes();
+		View view = x.views.get(key);
+		if (view == null) {
+			view = new View(x.index);
+			x.views.put(key, view);
+		}
+		return view;
+	}
+
+	private static Indexes getIndexes() {
+		return (Indexes)SimulationContext.getModuleState(
+				SharedSpatialIndex.class);
+	}
+
+	/**
+	 * Creates a new index without any interfaces
+	 * @param worldSizeX Width of the simulation world
+	 * @param worldSizeY Height of the simulation world
+	 */
+	private SharedSpatialIndex(int worldSizeX, int worldSizeY) {
+		this.hosts = new ArrayList<DTNHost>();
+		this.hostEntries = new ArrayList<ArrayList<Entry>>();
+		this.hostIndexes = new HashMap<DTNHost, Integer>();
+		this.entries = new HashMap<NetworkInterface, Entry>();
+		this.xs = this.ys = this.hostRanges = this.cellRanges = new double[0];
+		this.cells = new CellIndex(worldSizeX, worldSizeY);
+		this.hits = new boolean[0];
+		this.sweepTime = Double.NEGATIVE_INFINITY;
+		this.newInterfaces = false;
+		this.sweepPending = false;
+	}
+
+	/**
+	 * Adds an interface to the index (unless it is already present)
+	 * @return True if the interface was added
+	 */
+	private boolean add(NetworkInterface ni, View view) {
+		if (entries.containsKey(ni)) {
+			return false;
+		}
+		DTNHost host = ni.getHost();
+		Integer index = hostIndexes.get(host);
+		if (index == null) {
+			index = hosts.size();
+			hostIndexes.put(host, index);
+			hosts.add(host);
+			hostEntries.add(new ArrayList<Entry>(1));
+		}
+		Entry e = new Entry(ni, view);
+		hostEntries.get(index).add(e);
+		entries.put(ni, e);
+		newInterfaces = true;
+		return true;
+	}
+
+	/**
+	 * Marks the locations to be checked (and swept if they have changed)
+	 * when near interfaces are asked for the next time. The location of
+	 * the updated interface's host is checked too, as it may have moved
+	 * after a sweep done at the same time.
+	 * @param ni The interface that is updated
+	 */
+	private void update(NetworkInterface ni) {
+		double now = SimClock.getTime();
+		if (now != sweepTime || newInterfaces) {
+			sweepTime = now;
+			sweepPending = true;
+		}
+		else if (!sweepPending && hasChanged(ni)) {
+			sweepPending = true;
+		}
+	}
+
+	/**
+	 * Returns true if the location of an interface's host or the range of
+	 * the interface has changed since the latest sweep
+	 */
+	private boolean hasChanged(NetworkInterface ni) {
+		Entry e = entries.get(ni);
+		Integer index = hostIndexes.get(ni.getHost());
+		if (e == null || index == null || index >= xs.length) {
+			return true;
+		}
+		DTNHost h = ni.getHost();
+		int i = index;
+		return h.getLocationX() != xs[i] || h.getLocationY() != ys[i] ||
+			ni.getTransmitRange() != e.range;
+	}
+
+	/**
+	 * Finds the near interfaces of all interfaces if the locations have
+	 * changed after the latest sweep. Only one thread sweeps; the others
+	 * wait for it.
+	 */
+	private synchronized void sweepIfChanged() {
+		if (!sweepPending) {
+			return;
+		}
+		if (newInterfaces || anyChanged()) {
+			newInterfaces = false;
+			sweep();
+		}
+		sweepPending = false;
+	}
+
+	/**
+	 * Returns true if the location of any host or the range of any
+	 * interface has changed since the latest sweep
+	 */
+	private boolean anyChanged() {
+		for (int i=0, n=hosts.size(); i<n; i++) {
+			DTNHost h = hosts.get(i);
+			if (h.getLocationX() != xs[i] || h.getLocationY() != ys[i]) {
+				return true;
+			}
+			for (Entry e : hostEntries.get(i)) {
+				if (e.ni.getTransmitRange() != e.range) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Copies the host locations and interface ranges and finds the near
+	 * interfaces of all interfaces
+	 */
+	private void sweep() {
+		int n = hosts.size();
+		if (xs.length != n) {
+			xs = new double[n];
+			ys = new double[n];
+			hostRanges = new double[n];
+			cellRanges = new double[n];
+		}
+
+		double maxRange = 0;
+		for (int i=0; i<n; i++) {
+			DTNHost h = hosts.get(i);
+			xs[i] = h.getLocationX();
+			ys[i] = h.getLocationY();
+			double hostRange = 0;
+			for (Entry e : hostEntries.get(i)) {
+				e.range = e.ni.getTransmitRange();
+				e.near.clear();
+				hostRange = Math.max(hostRange, e.range);
+			}
+			hostRanges[i] = hostRange;
+			maxRange = Math.max(maxRange, hostRange);
+		}
+
+		CellIndex c = this.cells;
+		c.build(xs, ys, n, maxRange);
+		for (int k=0; k<n; k++) {
+			cellRanges[k] = hostRanges[c.members[k]];
+		}
+
+		for (int row=0; row<c.rows; row++) {
+			for (int col=0; col<c.cols; col++) {
+				int cell = row * c.cols + col;
+				int start = c.start[cell];
+				int end = c.start[cell + 1];
+				if (start == end) {
+					continue;
+				}
+				for (int i=start; i<end; i++) {
+					checkHosts(c.members[i], i + 1, end);
+				}
+				for (int[] offset : CellIndex.HALF_STENCIL) {
+					int other = c.neighbor(row, col, offset);
+					if (other < 0 || c.start[other] == c.start[other + 1]) {
+						continue;
+					}
+					for (int i=start; i<end; i++) {
+						checkHosts(c.members[i], c.start[other],
+								c.start[other + 1]);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks a host against a run of hosts in cell order and matches the
+	 * interfaces of the hosts that are within range
+	 * @param a Index of the host
+	 * @param from Position of the first candidate in cell order
+	 * @param to Position after the last candidate
+	 */
+	private void checkHosts(int a, int from, int to) {
+		if (to - from > hits.length) {
+			hits = new boolean[Math.max(to - from, 2 * hits.length)];
+		}
+		if (RangeKernel.withinRange(xs[a], ys[a], hostRanges[a], cells.xs,
+				cells.ys, cellRanges, from, to, hits) == 0) {
+			return;
+		}
+		for (int k=from; k<to; k++) {
+			if (hits[k - from]) {
+				matchInterfaces(a, cells.members[k]);
+			}
+		}
+	}
+
+	/**
+	 * Adds the interfaces of the same type of two hosts that are within
+	 * range of each other to each other's near interfaces
+	 * @param a Index of one host
+	 * @param b Index of the other host
+	 */
+	private void matchInterfaces(int a, int b) {
+		List<Entry> as = hostEntries.get(a);
+		List<Entry> bs = hostEntries.get(b);
+		if (as.size() == 1 && bs.size() == 1) {
+			/* the host ranges were the interface ranges */
+			if (as.get(0).view == bs.get(0).view) {
+				link(as.get(0), bs.get(0));
+			}
+			return;
+		}
+
+		double dx = xs[a] - xs[b];
+		double dy = ys[a] - ys[b];
+		for (int i=0, na=as.size(); i<na; i++) {
+			Entry ea = as.get(i);
+			for (int j=0, nb=bs.size(); j<nb; j++) {
+				Entry eb = bs.get(j);
+				if (ea.view == eb.view && RangeKernel.isWithinRange(dx, dy,
+						Math.min(ea.range, eb.range))) {
+					link(ea, eb);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds two interfaces to each other's near interfaces
+	 */
+	private static void link(Entry a, Entry b) {
+		a.near.add(b.ni);
+		b.near.add(a.ni);
+	}
+
+	/**
+	 * Returns the near interfaces of an interface on the latest sweep
+	 */
+	private Collection<NetworkInterface> getNear(NetworkInterface ni) {
+		if (sweepPending) {
+			sweepIfChanged();
+		}
+		Entry e = entries.get(ni);
+		if (e == null) {
+			return new ArrayList<NetworkInterface>();
+		}
+		return e.near;
+	}
+
+	/**
+	 * Returns a string representation of the index
+	 * @return a string representation of the index
+	 */
+	public String toString() {
+		return getClass().getSimpleName() + " with " + hosts.size() +
+			" hosts and " + entries.size() + " interfaces";
+	}
+
+	/**
+	 * The view of the shared index for the interfaces of one type
+	 */
+	private static class View extends ConnectivityOptimizer {
+		private final SharedSpatialIndex index;
+		private final List<NetworkInterface> interfaces;
+
+		private View(SharedSpatialIndex index) {
+			this.index = index;
+			this.interfaces = new ArrayList<NetworkInterface>();
+		}
+
+		@Override
+		public void addInterface(NetworkInterface ni) {
+			if (index.add(ni, this)) {
+				interfaces.add(ni);
+			}
+		}
+
+		@Override
+		public void addInterfaces(Collection<NetworkInterface> interfaces) {
+			for (NetworkInterface ni : interfaces) {
+				addInterface(ni);
+			}
+		}
+
+		@Override
+		public void updateLocation(NetworkInterface ni) {
+			index.update(ni);
+		}
+
+		@Override
+		public Collection<NetworkInterface> getNearInterfaces(
+				NetworkInterface ni) {
+			return index.getNear(ni);
+		}
+
+		@Override
+		public Collection<NetworkInterface> getAllInterfaces() {
+			return interfaces;
+		}
+
+		public String toString() {
+			return "View of " + index + " for " + interfaces.size() +
+				" interfaces";
+		}
+	}
+}
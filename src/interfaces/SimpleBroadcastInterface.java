@@ -4,8 +4,6 @@
  */
 package interfaces;
 
-import java.util.Collection;
-
 import core.CBRConnection;
 import core.Connection;
 import core.NetworkInterface;
@@ -39,11 +37,12 @@ public class SimpleBroadcastInterface extends NetworkInterface {
 	/**
 	 * Tries to connect this host to another host. The other host must be
 	 * active and within range of this host for the connection to succeed.
+	 * Whether this interface is scanning is checked by the caller (see
+	 * {@link #connectToNearInterfaces()}).
 	 * @param anotherInterface The interface to connect to
 	 */
 	public void connect(NetworkInterface anotherInterface) {
-		if (isScanning()
-				&& anotherInterface.getHost().isRadioActive()
+		if (anotherInterface.getHost().isRadioActive()
 				&& isWithinRange(anotherInterface)
 				&& !isConnected(anotherInterface)
 				&& (this != anotherInterface)) {
@@ -87,11 +86,7 @@ public class SimpleBroadcastInterface extends NetworkInterface {
 			}
 		}
 		// Then find new possible connections
-		Collection<NetworkInterface> interfaces =
-			optimizer.getNearInterfaces(this);
-		for (NetworkInterface i : interfaces) {
-			connect(i);
-		}
+		connectToNearInterfaces();
 	}
 
 	/**
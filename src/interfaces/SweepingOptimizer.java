@@ -0,0 +1,282 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package interfaces;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+import core.DTNHost;
+import core.NetworkInterface;
+import core.SimClock;
+
+/**
+ * <P>
+ * Superclass of connectivity optimizers that find the interfaces within
+ * range of each other for all interfaces at once. When the near
+ * interfaces are first asked for after any host has moved (or any range
+ * has changed), the locations and ranges of all interfaces are copied to
+ * arrays indexed by interface index and the subclass finds the pairs of
+ * interfaces that are within range ({@link #findPairs(int)}). Each pair is
+ * given to both interfaces, and
+ * {@link #getNearInterfaces(NetworkInterface)} returns the stored list
+ * without creating new lists. On the update rounds when no interface is
+ * scanning (see {@link NetworkInterface#isScanning()}), nobody asks and
+ * the sweep is skipped.</P>
+ *
+ * <P>
+ * The interfaces are still connected and disconnected on the normal
+ * updates, so the connections are the same as with {@link ConnectivityGrid}
+ * (the near interfaces are only returned in a different order).
+ * </P>
+ */
+public abstract class SweepingOptimizer extends ConnectivityOptimizer {
+	private List<NetworkInterface> interfaces;
+	private HashMap<NetworkInterface, Integer> indexes;
+	/** the interfaces within range of each interface */
+	private List<ArrayList<NetworkInterface>> near;
+	/** locations of the interfaces on the latest sweep */
+	protected double[] xs, ys;
+	/** transmit ranges of the interfaces on the latest sweep */
+	protected double[] ranges;
+	/** largest transmit range on the latest sweep */
+	protected double maxRange;
+	/** simulation time of the latest sweep */
+	private double sweepTime;
+	/** have interfaces been added after the latest sweep */
+	private boolean newInterfaces;
+	/** may the locations have changed after the latest sweep */
+	private volatile boolean sweepPending;
+	/** hit mask of the batch range checks */
+	private boolean[] hits;
+	/** number of sweeps done */
+	private int nrofSweeps;
+
+	/**
+	 * Creates a new optimizer without any interfaces
+	 */
+	protected SweepingOptimizer() {
+		this.interfaces = new ArrayList<NetworkInterface>();
+		this.indexes = new HashMap<NetworkInterface, Integer>();
+		this.near = new ArrayList<ArrayList<NetworkInterface>>();
+		this.xs = this.ys = this.ranges = new double[0];
+		this.maxRange = 0;
+		this.hits = new boolean[0];
+		this.sweepTime = Double.NEGATIVE_INFINITY;
+		this.newInterfaces = false;
+		this.sweepPending = false;
+		this.nrofSweeps = 0;
+	}
+
+	@Override
+	public void addInterface(NetworkInterface ni) {
+		if (!indexes.containsKey(ni)) {
+			indexes.put(ni, interfaces.size());
+			interfaces.add(ni);
+			near.add(new ArrayList<NetworkInterface>());
+			newInterfaces = true;
+		}
+	}
+
+	@Override
+	public void addInterfaces(Collection<NetworkInterface> interfaces) {
+		for (NetworkInterface ni : interfaces) {
+			addInterface(ni);
+		}
+	}
+
+	/**
+	 * Marks the locations to be checked (and swept if they have changed)
+	 * when the near interfaces are asked for the next time. Within one
+	 * update round, the interface's host may have moved after a sweep done
+	 * at the same time (e.g., by an external event at the start of the
+	 * round), so its location is checked too.
+	 * @param ni The interface that is updated
+	 */
+	@Override
+	public void updateLocation(NetworkInterface ni) {
+		double now = SimClock.getTime();
+		if (now != sweepTime || newInterfaces) {
+			sweepTime = now;
+			sweepPending = true;
+		}
+		else if (!sweepPending && hasChanged(ni)) {
+			sweepPending = true;
+		}
+	}
+
+	/**
+	 * Returns true if the location or range of an interface has changed
+	 * since the latest sweep
+	 */
+	private boolean hasChanged(NetworkInterface ni) {
+		Integer index = indexes.get(ni);
+		if (index == null || index >= xs.length) {
+			return true;
+		}
+		int i = index;
+		DTNHost h = ni.getHost();
+		return h.getLocationX() != xs[i] || h.getLocationY() != ys[i] ||
+			ni.getTransmitRange() != ranges[i];
+	}
+
+	/**
+	 * Finds the interfaces within range of each other for all interfaces
+	 * if the locations have changed after the latest sweep. Only one thread
+	 * sweeps; the others wait for it.
+	 */
+	private synchronized void sweepIfChanged() {
+		if (!sweepPending) {
+			return;
+		}
+		if (newInterfaces || anyChanged()) {
+			newInterfaces = false;
+			sweep();
+		}
+		sweepPending = false;
+	}
+
+	/**
+	 * Returns true if the location or range of any interface has changed
+	 * since the latest sweep
+	 */
+	private boolean anyChanged() {
+		for (int i=0, n=interfaces.size(); i<n; i++) {
+			NetworkInterface ni = interfaces.get(i);
+			DTNHost h = ni.getHost();
+			if (h.getLocationX() != xs[i] || h.getLocationY() != ys[i] ||
+					ni.getTransmitRange() != ranges[i]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Copies the current locations and ranges of the interfaces and finds
+	 * the pairs of interfaces that are within range of each other
+	 */
+	private void sweep() {
+		int n = interfaces.size();
+		if (xs.length != n) {
+			xs = new double[n];
+			ys = new double[n];
+			ranges = new double[n];
+		}
+
+		maxRange = 0;
+		for (int i=0; i<n; i++) {
+			NetworkInterface ni = interfaces.get(i);
+			xs[i] = ni.getHost().getLocationX();
+			ys[i] = ni.getHost().getLocationY();
+			ranges[i] = ni.getTransmitRange();
+			maxRange = Math.max(maxRange, ranges[i]);
+			near.get(i).clear();
+		}
+
+		findPairs(n);
+		nrofSweeps++;
+	}
+
+	/**
+	 * Finds the pairs of interfaces that may be within range of each other
+	 * and checks each of them once with {@link #checkPair(int, int)} or
+	 * {@link #checkPairs}. The
+	 * locations and ranges of the interfaces are in {@link #xs},
+	 * {@link #ys} and {@link #ranges}.
+	 * @param n Number of interfaces
+	 */
+	protected abstract void findPairs(int n);
+
+	/**
+	 * Checks if two interfaces are within range of each other (the same
+	 * way as {@link NetworkInterface} does) and if they are, adds them to
+	 * each other's near interfaces
+	 * @param a Index of the first interface
+	 * @param b Index of the second interface
+	 */
+	protected final void checkPair(int a, int b) {
+		if (RangeKernel.isWithinRange(xs[a] - xs[b], ys[a] - ys[b],
+				Math.min(ranges[a], ranges[b]))) {
+			addPair(a, b);
+		}
+	}
+
+	/**
+	 * Checks an interface against a run of candidates in packed arrays
+	 * (see {@link RangeKernel#withinRange}) and adds the pairs that are
+	 * within range to each other's near interfaces, in the order of the
+	 * candidates
+	 * @param a Index of the interface
+	 * @param px X coordinates of the candidates
+	 * @param py Y coordinates of the candidates
+	 * @param pr Ranges of the candidates
+	 * @param ids Interface indexes of the candidates
+	 * @param from Position of the first candidate in the arrays
+	 * @param to Position after the last candidate
+	 * @param minId Only the candidates whose interface index is greater
+	 * than this are paired (-1 for all)
+	 */
+	protected final void checkPairs(int a, double[] px, double[] py,
+			double[] pr, int[] ids, int from, int to, int minId) {
+		if (to - from > hits.length) {
+			hits = new boolean[Math.max(to - from, 2 * hits.length)];
+		}
+		if (RangeKernel.withinRange(xs[a], ys[a], ranges[a], px, py, pr,
+				from, to, hits) == 0) {
+			return;
+		}
+		for (int k=from; k<to; k++) {
+			if (hits[k - from] && ids[k] > minId) {
+				addPair(a, ids[k]);
+			}
+		}
+	}
+
+	/**
+	 * Adds two interfaces to each other's near interfaces
+	 */
+	private void addPair(int a, int b) {
+		near.get(a).add(interfaces.get(b));
+		near.get(b).add(interfaces.get(a));
+	}
+
+	/**
+	 * Returns how many times the near interfaces have been searched for
+	 * @return The number of sweeps
+	 */
+	public int getNrofSweeps() {
+		return nrofSweeps;
+	}
+
+	/**
+	 * Returns all interfaces that use the same technology and channel
+	 */
+	@Override
+	public Collection<NetworkInterface> getAllInterfaces() {
+		return interfaces;
+	}
+
+	/**
+	 * Returns the interfaces that are within range of the given interface.
+	 * The locations must be up to date (see
+	 * {@link #updateLocation(NetworkInterface)}).
+	 * @param ni The interface whose near interfaces are returned
+	 * @return List of near interfaces
+	 */
+	@Override
+	public Collection<NetworkInterface> getNearInterfaces(
+			NetworkInterface ni) {
+		if (sweepPending) {
+			sweepIfChanged();
+		}
+		Integer index = indexes.get(ni);
+		if (index == null) {
+			return new ArrayList<NetworkInterface>();
+		}
+		return near.get(index);
+	}
+}
@@ -4,6 +4,7 @@
  */
 package movement;
 
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -11,6 +12,7 @@ import java.util.List;
 import movement.map.SimMap;
 import core.Coord;
 import core.DTNSim;
+import core.SimulationContext;
 
 /**
  * This class controls busses and passengers that can use the bus.
@@ -19,10 +21,10 @@ import core.DTNSim;
  *
  * @author Frans Ekman
  */
-public class BusControlSystem {
-	public static final String BUS_CONTROL_SYSTEM_NR = "busControlSystemNr";
+public class BusControlSystem implements Serializable {
+	private static final long serialVersionUID = 1L;
 
-	private static HashMap<Integer, BusControlSystem> systems;
+	public static final String BUS_CONTROL_SYSTEM_NR = "busControlSystemNr";
 
 	private HashMap<Integer, BusMovement> busses;
 	private HashMap<Integer, BusTravellerMovement> travellers;
@@ -46,7 +48,18 @@ public class BusControlSystem {
 	}
 
 	public static void reset() {
-		systems = new HashMap<Integer, BusControlSystem>();
+		SimulationContext.setModuleState(BusControlSystem.class,
+				new HashMap<Integer, BusControlSystem>());
+	}
+
+	/**
+	 * Returns the bus control systems of the current simulation run
+	 * @return The bus control systems mapped by their IDs
+	 */
+	@SuppressWarnings("unchecked")
+	private static HashMap<Integer, BusControlSystem> getSystems() {
+		return (HashMap<Integer, BusControlSystem>)
+			SimulationContext.getModuleState(BusControlSystem.class);
 	}
 
 	/**
@@ -85,6 +98,7 @@ public class BusControlSystem {
 	public static BusControlSystem getBusControlSystem(int systemID) {
 		Integer id = new Integer(systemID);
 
+		HashMap<Integer, BusControlSystem> systems = getSystems();
 		if (systems.containsKey(id)) {
 			return systems.get(id);
 		} else {
@@ -4,12 +4,14 @@
  */
 package movement;
 
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Random;
 
 import core.Coord;
 import core.DTNSim;
+import core.SimulationContext;
 
 /**
  * This class controls the group mobility of the people meeting their friends in
@@ -17,7 +19,8 @@ import core.DTNSim;
  *
  * @author Frans Ekman
  */
-public class EveningActivityControlSystem {
+public class EveningActivityControlSystem implements Serializable {
+	private static final long serialVersionUID = 1L;
 
 	private HashMap<Integer, EveningActivityMovement> eveningActivityNodes;
 	private List<Coord> meetingSpots;
@@ -25,9 +28,6 @@ public class EveningActivityControlSystem {
 
 	private Random rng;
 
-	private static HashMap<Integer, EveningActivityControlSystem>
-		controlSystems;
-
 	static {
 		DTNSim.registerForReset(EveningActivityControlSystem.class.
 				getCanonicalName());
@@ -44,7 +44,8 @@ public class EveningActivityControlSystem {
 	}
 
 	public static void reset() {
-		controlSystems = new HashMap<Integer, EveningActivityControlSystem>();
+		SimulationContext.setModuleState(EveningActivityControlSystem.class,
+				new HashMap<Integer, EveningActivityControlSystem>());
 	}
 
 	/**
@@ -127,6 +128,10 @@ public class EveningActivityControlSystem {
 	 */
 	public static EveningActivityControlSystem getEveningActivityControlSystem(
 			int id) {
+		@SuppressWarnings("unchecked")
+		HashMap<Integer, EveningActivityControlSystem> controlSystems =
+			(HashMap<Integer, EveningActivityControlSystem>)SimulationContext.
+			getModuleState(EveningActivityControlSystem.class);
 		if (controlSystems.containsKey(new Integer(id))) {
 			return controlSystems.get(new Integer(id));
 		} else {
@@ -15,6 +15,7 @@ import movement.map.MapNode;
 import movement.map.SimMap;
 import core.Coord;
 import core.Settings;
+import core.SimulationContext;
 
 /**
  * A Class to model movement when people are out shopping or doing other
@@ -26,6 +27,7 @@ import core.Settings;
  */
 public class EveningActivityMovement extends MapBasedMovement
 	implements SwitchableMovement {
+	private static final long serialVersionUID = 1L;
 
 	private static final int WALKING_TO_MEETING_SPOT_MODE = 0;
 	private static final int EVENING_ACTIVITY_MODE = 1;
@@ -60,8 +62,6 @@ public class EveningActivityMovement extends MapBasedMovement
 
 	private int id;
 
-	private static int nextID = 0;
-
 	private int minGroupSize;
 	private int maxGroupSize;
 
@@ -120,7 +120,7 @@ public class EveningActivityMovement extends MapBasedMovement
 			}
 		}
 
-		this.id = nextID++;
+		this.id = nextID();
 
 		int scsID = settings.getInt(EVENING_ACTIVITY_CONTROL_SYSTEM_NR_SETTING);
 
@@ -144,7 +144,7 @@ public class EveningActivityMovement extends MapBasedMovement
 		super(proto);
 		this.pathFinder = proto.pathFinder;
 		this.mode = proto.mode;
-		this.id = nextID++;
+		this.id = nextID();
 		scs = proto.scs;
 		scs.addEveningActivityNode(this);
 		this.setMinGroupSize(proto.getMinGroupSize());
@@ -277,7 +277,19 @@ public class EveningActivityMovement extends MapBasedMovement
 	}
 
 	public static void reset() {
-		nextID = 0;
+		SimulationContext.setModuleState(EveningActivityMovement.class, 0);
+	}
+
+	/**
+	 * Returns the next free ID of the current simulation run
+	 * @return The ID
+	 */
+	private static int nextID() {
+		Integer next = (Integer)SimulationContext.getModuleState(
+				EveningActivityMovement.class);
+		int id = (next == null ? 0 : next);
+		SimulationContext.setModuleState(EveningActivityMovement.class, id + 1);
+		return id;
 	}
 
 	public int getMinGroupSize() {
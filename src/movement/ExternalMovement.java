@@ -18,11 +18,14 @@ import core.Coord;
 import core.DTNSim;
 import core.Settings;
 import core.SimClock;
+import core.SimulationContext;
 
 /**
  * Movement model that uses external data of node locations.
  */
 public class ExternalMovement extends MovementModel {
+	private static final long serialVersionUID = 1L;
+
 	/** Namespace for settings */
 	public static final String EXTERNAL_MOVEMENT_NS = "ExternalMovement";
 	/** external locations file's path -setting id ({@value})*/
@@ -32,24 +35,12 @@ public class ExternalMovement extends MovementModel {
 
 	/** default initial location for excess nodes */
 	private static final Coord DEF_INIT_LOC = new Coord(0,0);
-	private static ExternalMovementReader reader;
-	private static String inputFileName;
-
-	/** mapping of external id to movement model */
-	private static Map<String, ExternalMovement> idMapping;
-	/** initial locations for nodes */
-	private static List<Tuple<String, Coord>> initLocations;
-	/** time of the very first location data */
-	private static double initTime;
-	/** sampling interval (seconds) of the location data */
-	private static double samplingInterval;
-	/** last read time stamp after preloading */
-	private static double lastPreloadTime;
-	/** how many time intervals to load on every preload run */
-	private static double nrofPreload = 10;
 	/** minimum number intervals that should be preloaded ahead of sim time */
 	private static final double MIN_AHEAD_INTERVALS = 2;
 
+	/** the external trace (shared by all nodes of the simulation run) */
+	private Trace trace;
+
 	/** the very first location of the node */
 	private Coord intialLocation;
 	/** queue of path-start-time, path tuples */
@@ -77,25 +68,12 @@ public class ExternalMovement extends MovementModel {
 	public ExternalMovement(Settings settings) {
 		super(settings);
 
-		if (idMapping == null) {
+		trace = (Trace)SimulationContext.getModuleState(
+				ExternalMovement.class);
+		if (trace == null) {
 			// run these the first time object is created or after reset call
-			Settings s = new Settings(EXTERNAL_MOVEMENT_NS);
-			idMapping = new HashMap<String, ExternalMovement>();
-			inputFileName = s.getSetting(MOVEMENT_FILE_S);
-			reader = new ExternalMovementReader(inputFileName);
-
-			initLocations = reader.readNextMovements();
-			initTime = reader.getLastTimeStamp();
-			samplingInterval = -1;
-			lastPreloadTime = -1;
-
-			s.setNameSpace(EXTERNAL_MOVEMENT_NS);
-			if (s.contains(NROF_PRELOAD_S)) {
-				nrofPreload = s.getInt(NROF_PRELOAD_S);
-				if (nrofPreload <= 0) {
-					nrofPreload = 1;
-				}
-			}
+			trace = new Trace(new Settings(EXTERNAL_MOVEMENT_NS));
+			SimulationContext.setModuleState(ExternalMovement.class, trace);
 		}
 	}
 
@@ -107,17 +85,18 @@ public class ExternalMovement extends MovementModel {
 	private ExternalMovement(MovementModel mm) {
 		super(mm);
 
+		trace = ((ExternalMovement)mm).trace;
 		pathQueue = new LinkedList<Tuple<Double, Path>>();
 		latestPath = null;
 
-		if (initLocations.size() > 0) { // we have location data left
+		if (trace.initLocations.size() > 0) { // we have location data left
 			// gets a new location from the list
-			Tuple<String, Coord> initLoc = initLocations.remove(0);
+			Tuple<String, Coord> initLoc = trace.initLocations.remove(0);
 			this.intialLocation = this.latestLocation = initLoc.getValue();
-			this.latestPathStartTime = initTime;
+			this.latestPathStartTime = trace.initTime;
 
 			// puts the new model to model map for later updates
-			idMapping.put(initLoc.getKey(), this);
+			trace.idMapping.put(initLoc.getKey(), this);
 			isActive = true;
 		}
 		else {
@@ -127,24 +106,6 @@ public class ExternalMovement extends MovementModel {
 		}
 	}
 
-	/**
-	 * Checks if more paths should be preloaded and preloads them if
-	 * needed.
-	 */
-	private static void checkPathNeed() {
-		if (samplingInterval == -1) { // first preload
-			lastPreloadTime = readMorePaths();
-		}
-
-		if (!Double.isNaN(lastPreloadTime) && SimClock.getTime() >=
-				lastPreloadTime - (samplingInterval * MIN_AHEAD_INTERVALS) ) {
-			for (int i=0; i < nrofPreload &&
-					!Double.isNaN(lastPreloadTime); i++) {
-				lastPreloadTime = readMorePaths();
-			}
-		}
-	}
-
 	@Override
 	public Coord getInitialLocation() {
 		return this.intialLocation;
@@ -163,7 +124,7 @@ public class ExternalMovement extends MovementModel {
 	 * @param time When should the node be there
 	 */
 	private void addLocation(Coord loc, double time) {
-		assert samplingInterval > 0 : "Non-positive sampling interval!";
+		assert trace.samplingInterval > 0 : "Non-positive sampling interval!";
 
 		if (loc.equals(latestLocation)) { // node didn't move
 			if (latestPath != null) {
@@ -181,7 +142,8 @@ public class ExternalMovement extends MovementModel {
 			latestPath = new Path();
 		}
 
-		double speed = loc.distance(this.latestLocation) / samplingInterval;
+		double speed = loc.distance(this.latestLocation) /
+			trace.samplingInterval;
 		latestPath.addWaypoint(loc, speed);
 
 		this.latestLocation = loc;
@@ -205,7 +167,7 @@ public class ExternalMovement extends MovementModel {
 	public Path getPath() {
 		Path p;
 
-		checkPathNeed(); // check if we should preload more paths
+		trace.checkPathNeed(); // check if we should preload more paths
 
 		if (SimClock.getTime() < this.nextPathAvailable()) {
 			return null;
@@ -224,12 +186,12 @@ public class ExternalMovement extends MovementModel {
 
 	@Override
 	public int getMaxX() {
-		return (int)(reader.getMaxX() - reader.getMinX()) + 1;
+		return (int)(trace.reader.getMaxX() - trace.reader.getMinX()) + 1;
 	}
 
 	@Override
 	public int getMaxY() {
-		return (int)(reader.getMaxY() - reader.getMinY()) + 1;
+		return (int)(trace.reader.getMaxY() - trace.reader.getMinY()) + 1;
 	}
 
 
@@ -239,39 +201,98 @@ public class ExternalMovement extends MovementModel {
 	}
 
 	/**
-	 * Reads paths for the next time instance from the reader
-	 * @return The time stamp of the reading or Double.NaN if no movements
-	 * were read.
+	 * Reset state so that next instance will have a fresh state
 	 */
-	private static double readMorePaths() {
-		List<Tuple<String, Coord>> list = reader.readNextMovements();
-		double time = reader.getLastTimeStamp();
+	public static void reset() {
+		SimulationContext.setModuleState(ExternalMovement.class, null);
+	}
 
-		if (samplingInterval == -1) {
-			samplingInterval = time - initTime;
-		}
+	/**
+	 * The external location data of a simulation run
+	 */
+	private static class Trace {
+		private ExternalMovementReader reader;
+
+		/** mapping of external id to movement model */
+		private Map<String, ExternalMovement> idMapping;
+		/** initial locations for nodes */
+		private List<Tuple<String, Coord>> initLocations;
+		/** time of the very first location data */
+		private double initTime;
+		/** sampling interval (seconds) of the location data */
+		private double samplingInterval;
+		/** last read time stamp after preloading */
+		private double lastPreloadTime;
+		/** how many time intervals to load on every preload run */
+		private double nrofPreload = 10;
+
+		/**
+		 * Opens the external trace and reads the initial locations
+		 * @param s Settings (in the external movement namespace)
+		 */
+		private Trace(Settings s) {
+			idMapping = new HashMap<String, ExternalMovement>();
+			reader = new ExternalMovementReader(s.getSetting(MOVEMENT_FILE_S));
 
-		for (Tuple<String, Coord> t : list) {
-			ExternalMovement em = idMapping.get(t.getKey());
-			if (em != null) { // skip unknown IDs, i.e. IDs not mentioned in...
-				// ...init phase or if there are more IDs than nodes
-				em.addLocation(t.getValue(), time);
+			initLocations = reader.readNextMovements();
+			initTime = reader.getLastTimeStamp();
+			samplingInterval = -1;
+			lastPreloadTime = -1;
+
+			if (s.contains(NROF_PRELOAD_S)) {
+				nrofPreload = s.getInt(NROF_PRELOAD_S);
+				if (nrofPreload <= 0) {
+					nrofPreload = 1;
+				}
 			}
 		}
 
-		if (list.size() > 0) {
-			return time;
-		}
-		else {
-			return Double.NaN;
+		/**
+		 * Checks if more paths should be preloaded and preloads them if
+		 * needed.
+		 */
+		private void checkPathNeed() {
+			if (samplingInterval == -1) { // first preload
+				lastPreloadTime = readMorePaths();
+			}
+
+			if (!Double.isNaN(lastPreloadTime) && SimClock.getTime() >=
+					lastPreloadTime - (samplingInterval * MIN_AHEAD_INTERVALS)) {
+				for (int i=0; i < nrofPreload &&
+						!Double.isNaN(lastPreloadTime); i++) {
+					lastPreloadTime = readMorePaths();
+				}
+			}
 		}
-	}
 
-	/**
-	 * Reset state so that next instance will have a fresh state
-	 */
-	public static void reset() {
-		idMapping = null;
+		/**
+		 * Reads paths for the next time instance from the reader
+		 * @return The time stamp of the reading or Double.NaN if no movements
+		 * were read.
+		 */
+		private double readMorePaths() {
+			List<Tuple<String, Coord>> list = reader.readNextMovements();
+			double time = reader.getLastTimeStamp();
+
+			if (samplingInterval == -1) {
+				samplingInterval = time - initTime;
+			}
+
+			for (Tuple<String, Coord> t : list) {
+				ExternalMovement em = idMapping.get(t.getKey());
+				if (em != null) { // skip unknown IDs, i.e. IDs not mentioned...
+					// ...in init phase or if there are more IDs than nodes
+					em.addLocation(t.getValue(), time);
+				}
+			}
+
+			if (list.size() > 0) {
+				return time;
+			}
+			else {
+				return Double.NaN;
+			}
+		}
 	}
 
 }
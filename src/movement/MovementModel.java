@@ -4,6 +4,7 @@
  */
 package movement;
 
+import java.io.Serializable;
 import java.util.Random;
 
 import util.ActivenessHandler;
@@ -15,6 +16,7 @@ import core.ModuleCommunicationBus;
 import core.Settings;
 import core.SimClock;
 import core.SimError;
+import core.SimulationContext;
 
 /**
  * <P>Superclass for all movement models. All subclasses must contain at least a
@@ -26,7 +28,9 @@ import core.SimError;
  * {@link #getInitialLocation()} and {@link #getPath()} are worthwhile to
  * override.</P>
  */
-public abstract class MovementModel {
+public abstract class MovementModel implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	/** node's speed CSV (min, max) -setting id ({@value})*/
 	public static final String SPEED = "speed";
 	/** node's wait time CSV (min, max) -setting id ({@value})*/
@@ -45,8 +49,8 @@ public abstract class MovementModel {
 	/** movement models' rng seed -setting id ({@value})*/
 	public static final String RNG_SEED = "rngSeed";
 
-	/** common rng for all movement models in the simulation */
-	protected static Random rng;
+	/** common rng for all movement models in the simulation run */
+	protected Random rng;
 
 	/** DTNHost to which this movement model is attached */
 	protected DTNHost host;
@@ -93,6 +97,7 @@ public abstract class MovementModel {
 	 */
 	public MovementModel() {
 		super();
+		this.rng = getRunRng();
 	}
 
 	/**
@@ -104,6 +109,7 @@ public abstract class MovementModel {
 		double[] times;
 
 		ah = new ActivenessHandler(settings);
+		rng = getRunRng();
 
 		if (settings.contains(SPEED)) {
 			speeds = settings.getCsvDoubles(SPEED, 2);
@@ -148,6 +154,7 @@ public abstract class MovementModel {
 		this.maxX = mm.maxX;
 		this.maxY = mm.maxY;
 		this.ah = mm.ah;
+		this.rng = mm.rng;
 		this.comBus = null;
 	}
 
@@ -276,6 +283,7 @@ public abstract class MovementModel {
 	 */
 	public static void reset() {
 		Settings s = new Settings(MOVEMENT_MODEL_NS);
+		Random rng;
 		if (s.contains(RNG_SEED)) {
 			int seed = s.getInt(RNG_SEED);
 			rng = new Random(seed);
@@ -283,6 +291,15 @@ public abstract class MovementModel {
 		else {
 			rng = new Random(0);
 		}
+		SimulationContext.setModuleState(MovementModel.class, rng);
+	}
+
+	/**
+	 * Returns the movement models' common rng of the current simulation run
+	 * @return The random number generator
+	 */
+	private static Random getRunRng() {
+		return (Random)SimulationContext.getModuleState(MovementModel.class);
 	}
 
 }
@@ -4,6 +4,7 @@
  */
 package movement.map;
 
+import java.io.Serializable;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -19,22 +20,29 @@ import movement.Path;
 /**
  * Implementation of the Dijkstra's shortest path algorithm.
  */
-public class DijkstraPathFinder {
+public class DijkstraPathFinder implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	/** Value for infinite distance  */
 	private static final Double INFINITY = Double.MAX_VALUE;
 	/** Initial size of the priority queue */
 	private static final int PQ_INIT_SIZE = 11;
 
+	/* the search state is created for each search, so it isn't serialized */
 	/** Map of node distances from the source node */
-	private DistanceMap distances;
+	private transient DistanceMap distances;
 	/** Set of already visited nodes (where the shortest path is known) */
-	private Set<MapNode> visited;
+	private transient Set<MapNode> visited;
 	/** Priority queue of unvisited nodes discovered so far */
-	private Queue<MapNode> unvisited;
+	private transient Queue<MapNode> unvisited;
 	/** Map of previous nodes on the shortest path(s) */
-	private Map<MapNode, MapNode> prevNodes;
+	private transient Map<MapNode, MapNode> prevNodes;
 
 	private int [] okMapNodes;
+	/** the route cache of the run (or null if it's disabled) */
+	private transient RouteCache cache;
+	/** has the route cache been looked up */
+	private transient boolean cacheResolved;
 
 	/**
 	 * Constructor.
@@ -66,7 +74,9 @@ public class DijkstraPathFinder {
 	}
 
 	/**
-	 * Finds and returns a shortest path between two map nodes
+	 * Finds and returns a shortest path between two map nodes. If the
+	 * {@link RouteCache} is enabled, the paths are looked up from (and
+	 * added to) it. The cache of the run is looked up on the first search.
 	 * @param from The source of the path
 	 * @param to The destination of the path
 	 * @return a shortest path between the source and destination nodes in
@@ -80,6 +90,33 @@ public class DijkstraPathFinder {
 			return path;
 		}
 
+		if (!cacheResolved) {
+			cache = RouteCache.getInstance();
+			cacheResolved = true;
+		}
+		if (cache != null) {
+			List<MapNode> cached = cache.get(from, to, okMapNodes);
+			if (cached != null) {
+				path.addAll(cached);
+				return path;
+			}
+			path = findShortestPath(from, to);
+			cache.put(from, to, okMapNodes, path);
+			return path;
+		}
+		return findShortestPath(from, to);
+	}
+
+	/**
+	 * Finds a shortest path between two different map nodes with
+	 * Dijkstra's algorithm
+	 * @param from The source of the path
+	 * @param to The destination of the path
+	 * @return The path or an empty list if such path is not available
+	 */
+	private List<MapNode> findShortestPath(MapNode from, MapNode to) {
+		List<MapNode> path = new LinkedList<MapNode>();
+
 		initWith(from);
 		MapNode node = null;
 
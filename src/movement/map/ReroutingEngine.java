@@ -0,0 +1,473 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package movement.map;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import movement.Path;
+import core.Coord;
+import core.DTNSim;
+import core.Road;
+import core.RoadNetwork;
+import core.Settings;
+import core.SimulationContext;
+
+/**
+ * <P>
+ * Finds the fastest routes on a road network when the travel time of each
+ * road is its length divided by the latest speed reported on it (or by the
+ * free-flow speed if nothing has been reported).</P>
+ *
+ * <P>
+ * For each destination the engine keeps a shortest-path tree of the travel
+ * times from every node to the destination, so all hosts going to the same
+ * destination share one search. When travel times change, the trees are
+ * repaired incrementally the next time they are used: only the nodes whose
+ * route used a slowed down road are searched again, and sped up roads are
+ * propagated from their start nodes. Small changes of the travel times are
+ * ignored so that every speed report doesn't touch the trees. Only the
+ * trees of the most recently used destinations are kept; the others are
+ * dropped and searched again from scratch if they are needed later.</P>
+ *
+ * <P>
+ * All roads of the map are used regardless of the map node types.</P>
+ */
+public class ReroutingEngine {
+	/** Rerouting engine settings name space ({@value}) */
+	public static final String REROUTING_ENGINE_NS = "ReroutingEngine";
+	/**
+	 * Free-flow speed -setting id ({@value}). Double. Speed (m/s) on the
+	 * roads that have no speed reports. Default = 10.
+	 */
+	public static final String FREE_FLOW_SPEED_S = "freeFlowSpeed";
+	/**
+	 * Maximum number of route trees -setting id ({@value}). Integer. How
+	 * many destinations' shortest-path trees are kept; 0 keeps none.
+	 * Default = 64.
+	 */
+	public static final String MAX_TREES_S = "maxRouteTrees";
+
+	/** default value for the free-flow speed */
+	public static final double DEFAULT_FREE_FLOW_SPEED = 10;
+	/** default value for the maximum number of route trees */
+	public static final int DEFAULT_MAX_TREES = 64;
+	/** speeds below this (m/s) are rounded up so that travel times stay
+	 * finite */
+	private static final double MIN_SPEED = 0.1;
+	/** relative change of a travel time that is applied to the routes */
+	private static final double MIN_RELATIVE_CHANGE = 0.2;
+
+	private final RoadNetwork network;
+	private final double freeFlowSpeed;
+	/** current travel time of each road */
+	private final double[] travelTimes;
+	/** shortest-path trees by destination node, least recently used
+	 * first */
+	private final Map<Integer, RouteTree> trees;
+
+	static {
+		DTNSim.registerForReset(ReroutingEngine.class.getCanonicalName());
+		reset();
+	}
+
+	/**
+	 * Creates a new engine where all roads have free-flow travel times and
+	 * that keeps the default number of route trees
+	 * @param network The road network
+	 * @param freeFlowSpeed Speed on the roads without speed reports
+	 */
+	public ReroutingEngine(RoadNetwork network, double freeFlowSpeed) {
+		this(network, freeFlowSpeed, DEFAULT_MAX_TREES);
+	}
+
+	/**
+	 * Creates a new engine where all roads have free-flow travel times
+	 * @param network The road network
+	 * @param freeFlowSpeed Speed on the roads without speed reports
+	 * @param maxTrees Maximum number of route trees kept
+	 */
+	public ReroutingEngine(RoadNetwork network, double freeFlowSpeed,
+			final int maxTrees) {
+		this.network = network;
+		this.freeFlowSpeed = freeFlowSpeed;
+		this.travelTimes = new double[network.getNrofRoads()];
+		for (int i=0; i<travelTimes.length; i++) {
+			travelTimes[i] = network.getRoad(i).getLength() / freeFlowSpeed;
+		}
+		this.trees = new LinkedHashMap<Integer, RouteTree>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<Integer, RouteTree> eldest) {
+				return size() > maxTrees;
+			}
+		};
+	}
+
+	public static void reset() {
+		SimulationContext.setModuleState(ReroutingEngine.class,
+				new HashMap<RoadNetwork, ReroutingEngine>());
+	}
+
+	/**
+	 * Returns the engine of a road network for this simulation run. The
+	 * engine is created with the free-flow speed of the settings when it's
+	 * first asked for.
+	 * @param network The road network
+	 * @return The engine of the network
+	 */
+	@SuppressWarnings("unchecked")
+	public static ReroutingEngine getInstance(RoadNetwork network) {
+		Map<RoadNetwork, ReroutingEngine> engines =
+			(Map<RoadNetwork, ReroutingEngine>)
+			SimulationContext.getModuleState(ReroutingEngine.class);
+		ReroutingEngine engine = engines.get(network);
+		if (engine == null) {
+			Settings s = new Settings(REROUTING_ENGINE_NS);
+			int maxTrees = s.getInt(MAX_TREES_S, DEFAULT_MAX_TREES);
+			s.ensurePositiveValue(maxTrees, MAX_TREES_S);
+			engine = new ReroutingEngine(network,
+					s.getDouble(FREE_FLOW_SPEED_S, DEFAULT_FREE_FLOW_SPEED),
+					maxTrees);
+			engines.put(network, engine);
+		}
+		return engine;
+	}
+
+	/**
+	 * Sets the speed on a road. The travel time of the road changes only
+	 * if the change is large enough.
+	 * @param road The road (roads that are not on the map are ignored)
+	 * @param speed The speed on the road (m/s)
+	 */
+	public void setSpeed(Road road, double speed) {
+		int id = (road == null ? -1 : road.getId());
+		if (id < 0 || id >= travelTimes.length ||
+				network.getRoad(id) != road || Double.isNaN(speed)) {
+			return;
+		}
+		double time = road.getLength() / Math.max(speed, MIN_SPEED);
+		double old = travelTimes[id];
+		if (Math.abs(time - old) <= old * MIN_RELATIVE_CHANGE) {
+			return;
+		}
+		travelTimes[id] = time;
+		for (RouteTree tree : trees.values()) {
+			tree.roadChanged(id);
+		}
+	}
+
+	/**
+	 * Returns the current travel time of a road of the network
+	 * @param road Id of the road
+	 * @return The travel time (seconds)
+	 */
+	public double getTravelTime(int road) {
+		return travelTimes[road];
+	}
+
+	/**
+	 * Returns the number of route trees the engine keeps at the moment
+	 * @return The number of trees
+	 */
+	public int getNrofTrees() {
+		return trees.size();
+	}
+
+	/**
+	 * Returns the free-flow speed of the engine
+	 * @return The speed on the roads without speed reports
+	 */
+	public double getFreeFlowSpeed() {
+		return this.freeFlowSpeed;
+	}
+
+	/**
+	 * Returns the travel time of the fastest route between two map nodes
+	 * @param from Location of the start node
+	 * @param to Location of the destination node
+	 * @return The travel time or {@link Double#POSITIVE_INFINITY} if there
+	 * is no route (or the locations are not map nodes)
+	 */
+	public double getTravelTime(Coord from, Coord to) {
+		int start = network.getNode(from);
+		int goal = network.getNode(to);
+		if (start < 0 || goal < 0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return getTree(goal).dist[start];
+	}
+
+	/**
+	 * Returns the fastest route between two map nodes
+	 * @param from Location of the start node (the first waypoint)
+	 * @param to Location of the destination node
+	 * @param speed Speed of the returned path
+	 * @return The path through the locations of the map nodes or null if
+	 * there is no route (or the locations are not map nodes)
+	 */
+	public Path getPath(Coord from, Coord to, double speed) {
+		int start = network.getNode(from);
+		int goal = network.getNode(to);
+		if (start < 0 || goal < 0) {
+			return null;
+		}
+		RouteTree tree = getTree(goal);
+		if (tree.dist[start] == Double.POSITIVE_INFINITY) {
+			return null;
+		}
+
+		Path path = new Path(speed);
+		path.addWaypoint(network.getLocation(start));
+		for (int node = start; node != goal; ) {
+			node = network.getEndNode(tree.next[node]);
+			path.addWaypoint(network.getLocation(node));
+		}
+		return path;
+	}
+
+	/**
+	 * Returns the up-to-date shortest-path tree of a destination. A new
+	 * tree may drop the least recently used one.
+	 */
+	private RouteTree getTree(int goal) {
+		RouteTree tree = trees.get(goal);
+		if (tree == null) {
+			tree = new RouteTree(goal);
+			trees.put(goal, tree);
+		}
+		else {
+			tree.repair();
+		}
+		return tree;
+	}
+
+	/**
+	 * Travel times from every node to one destination and the first road
+	 * of each fastest route
+	 */
+	private class RouteTree {
+		private final int goal;
+		/** travel time from each node to the goal */
+		private final double[] dist;
+		/** id of the first road from each node on its route (or -1) */
+		private final int[] next;
+		/** the travel times the tree was built with */
+		private final double[] times;
+		/** ids of the roads whose travel time changed after the repair */
+		private int[] changed;
+		private int nrofChanged;
+		private final boolean[] isChanged;
+		private final NodeHeap heap;
+
+		private RouteTree(int goal) {
+			int nrofNodes = network.getNrofNodes();
+			this.goal = goal;
+			this.dist = new double[nrofNodes];
+			this.next = new int[nrofNodes];
+			this.times = travelTimes.clone();
+			this.changed = new int[16];
+			this.isChanged = new boolean[times.length];
+			this.heap = new NodeHeap(dist);
+
+			Arrays.fill(dist, Double.POSITIVE_INFINITY);
+			Arrays.fill(next, -1);
+			dist[goal] = 0;
+			heap.update(goal);
+			propagate();
+		}
+
+		/**
+		 * Marks the travel time of a road changed
+		 */
+		private void roadChanged(int road) {
+			if (isChanged[road]) {
+				return;
+			}
+			if (nrofChanged == changed.length) {
+				changed = Arrays.copyOf(changed, nrofChanged * 2);
+			}
+			changed[nrofChanged++] = road;
+			isChanged[road] = true;
+		}
+
+		/**
+		 * Updates the tree to the current travel times
+		 */
+		private void repair() {
+			if (nrofChanged == 0) {
+				return;
+			}
+
+			/* nodes whose route uses a slowed down road lose their route */
+			int[] lost = new int[0];
+			int nrofLost = 0;
+			for (int i=0; i<nrofChanged; i++) {
+				int road = changed[i];
+				int from = network.getStartNode(road);
+				if (travelTimes[road] > times[road] && next[from] == road) {
+					int first = nrofLost;
+					lost = grow(lost, nrofLost + 1);
+					lost[nrofLost++] = from;
+					next[from] = -1;
+					/* the nodes whose route goes through a lost node */
+					for (int k=first; k<nrofLost; k++) {
+						for (Road r : network.getRoadsTo(lost[k])) {
+							int w = network.getStartNode(r.getId());
+							if (next[w] == r.getId()) {
+								lost = grow(lost, nrofLost + 1);
+								lost[nrofLost++] = w;
+								next[w] = -1;
+							}
+						}
+					}
+				}
+			}
+			for (int i=0; i<nrofChanged; i++) {
+				times[changed[i]] = travelTimes[changed[i]];
+			}
+			for (int k=0; k<nrofLost; k++) {
+				dist[lost[k]] = Double.POSITIVE_INFINITY;
+			}
+
+			/* the lost nodes start from their best remaining neighbor */
+			for (int k=0; k<nrofLost; k++) {
+				int node = lost[k];
+				for (Road r : network.getRoadsFrom(node)) {
+					relax(r.getId());
+				}
+			}
+			/* sped up roads may give shorter routes to their start nodes */
+			for (int i=0; i<nrofChanged; i++) {
+				relax(changed[i]);
+				isChanged[changed[i]] = false;
+			}
+			nrofChanged = 0;
+			propagate();
+		}
+
+		/**
+		 * Takes a road to the start node's route if it makes the route
+		 * faster
+		 */
+		private void relax(int road) {
+			int from = network.getStartNode(road);
+			double d = dist[network.getEndNode(road)] + times[road];
+			if (d < dist[from]) {
+				dist[from] = d;
+				next[from] = road;
+				heap.update(from);
+			}
+		}
+
+		/**
+		 * Propagates the distances of the nodes in the heap to the nodes
+		 * whose routes can go through them (Dijkstra's algorithm)
+		 */
+		private void propagate() {
+			while (!heap.isEmpty()) {
+				int node = heap.poll();
+				for (Road r : network.getRoadsTo(node)) {
+					relax(r.getId());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the array or a larger copy of it if it's smaller than the
+	 * given size
+	 */
+	private static int[] grow(int[] array, int size) {
+		if (size <= array.length) {
+			return array;
+		}
+		return Arrays.copyOf(array, Math.max(size, array.length * 2));
+	}
+
+	/**
+	 * Binary min-heap of node indexes ordered by their distances (and
+	 * indexes). The distance of a node in the heap may only decrease.
+	 */
+	private static class NodeHeap {
+		private final double[] dist;
+		private final int[] heap;
+		/** position of each node in the heap or -1 */
+		private final int[] pos;
+		private int size;
+
+		private NodeHeap(double[] dist) {
+			this.dist = dist;
+			this.heap = new int[dist.length];
+			this.pos = new int[dist.length];
+			Arrays.fill(pos, -1);
+			this.size = 0;
+		}
+
+		private boolean isEmpty() {
+			return size == 0;
+		}
+
+		/**
+		 * Adds a node or moves it up after its distance decreased
+		 */
+		private void update(int node) {
+			int i = pos[node];
+			if (i < 0) {
+				i = size++;
+			}
+			while (i > 0) {
+				int parent = (i - 1) / 2;
+				if (!less(node, heap[parent])) {
+					break;
+				}
+				set(i, heap[parent]);
+				i = parent;
+			}
+			set(i, node);
+		}
+
+		/**
+		 * Removes and returns the node with the smallest distance
+		 */
+		private int poll() {
+			int top = heap[0];
+			pos[top] = -1;
+			int last = heap[--size];
+			if (size > 0) {
+				int i = 0;
+				while (true) {
+					int child = 2 * i + 1;
+					if (child >= size) {
+						break;
+					}
+					if (child + 1 < size && less(heap[child + 1], heap[child])) {
+						child++;
+					}
+					if (!less(heap[child], last)) {
+						break;
+					}
+					set(i, heap[child]);
+					i = child;
+				}
+				set(i, last);
+			}
+			return top;
+		}
+
+		private boolean less(int a, int b) {
+			return dist[a] < dist[b] || (dist[a] == dist[b] && a < b);
+		}
+
+		private void set(int i, int node) {
+			heap[i] = node;
+			pos[node] = i;
+		}
+	}
+}
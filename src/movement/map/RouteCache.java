@@ -0,0 +1,201 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package movement.map;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import core.DTNSim;
+import core.Settings;
+import core.SimulationContext;
+import core.World;
+
+/**
+ * Cache of the shortest paths found by {@link DijkstraPathFinder}s, shared
+ * by all path finders of a simulation run. The paths are keyed by the
+ * source and destination nodes and the allowed map node types, and the
+ * least recently used paths are dropped when the cache is full. The cache
+ * can be used from several threads.
+ */
+public class RouteCache {
+	/**
+	 * Route cache size -setting id ({@value}). Integer. Maximum number of
+	 * shortest paths cached; 0 disables the cache.
+	 * Used in {@link World#OPTIMIZATION_SETTINGS_NS} name space.
+	 * Default = 0.
+	 */
+	public static final String ROUTE_CACHE_SIZE_S = "routeCacheSize";
+
+	/** marks that the settings have been read and there is no cache */
+	private static final RouteCache DISABLED = new RouteCache(0);
+
+	private final Map<RouteKey, List<MapNode>> routes;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	static {
+		DTNSim.registerForReset(RouteCache.class.getCanonicalName());
+		reset();
+	}
+
+	/**
+	 * Creates a new, empty cache
+	 * @param capacity Maximum number of cached paths
+	 */
+	public RouteCache(final int capacity) {
+		this.routes = new LinkedHashMap<RouteKey, List<MapNode>>(16, 0.75f,
+				true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<RouteKey, List<MapNode>> eldest) {
+				if (size() > capacity) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	public static void reset() {
+		SimulationContext.setModuleState(RouteCache.class, null);
+	}
+
+	/**
+	 * Returns the route cache of the current simulation run. The cache is
+	 * created when it's first asked for.
+	 * @return The cache or null if route caching is disabled
+	 */
+	public static synchronized RouteCache getInstance() {
+		RouteCache cache = (RouteCache)SimulationContext.getModuleState(
+				RouteCache.class);
+		if (cache == null) {
+			Settings s = new Settings(World.OPTIMIZATION_SETTINGS_NS);
+			int size = s.getInt(ROUTE_CACHE_SIZE_S, 0);
+			cache = (size > 0 ? new RouteCache(size) : DISABLED);
+			SimulationContext.setModuleState(RouteCache.class, cache);
+		}
+		return (cache == DISABLED ? null : cache);
+	}
+
+	/**
+	 * Returns a cached shortest path
+	 * @param from The source node
+	 * @param to The destination node
+	 * @param okMapNodes The map node types allowed on the path (or null)
+	 * @return The path (which must not be modified) or null if it's not
+	 * in the cache
+	 */
+	public synchronized List<MapNode> get(MapNode from, MapNode to,
+			int[] okMapNodes) {
+		List<MapNode> path = routes.get(new RouteKey(from, to, okMapNodes));
+		if (path != null) {
+			hits++;
+		}
+		else {
+			misses++;
+		}
+		return path;
+	}
+
+	/**
+	 * Adds a shortest path to the cache
+	 * @param from The source node
+	 * @param to The destination node
+	 * @param okMapNodes The map node types allowed on the path (or null)
+	 * @param path The path (a copy is cached)
+	 */
+	public synchronized void put(MapNode from, MapNode to, int[] okMapNodes,
+			List<MapNode> path) {
+		routes.put(new RouteKey(from, to,
+				okMapNodes == null ? null : okMapNodes.clone()),
+				Collections.unmodifiableList(Arrays.asList(
+						path.toArray(new MapNode[path.size()]))));
+	}
+
+	/**
+	 * Returns the number of cached paths
+	 * @return The number of paths
+	 */
+	public synchronized int size() {
+		return routes.size();
+	}
+
+	/**
+	 * Returns the number of lookups that found a path
+	 * @return The number of hits
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of lookups that didn't find a path
+	 * @return The number of misses
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the number of paths dropped because the cache was full
+	 * @return The number of evictions
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Returns a one-line summary of the cache usage
+	 * @return The summary
+	 */
+	public synchronized String toString() {
+		long lookups = hits + misses;
+		return String.format("route cache: %d hits, %d misses (%.1f%% hits)" +
+				", %d evictions, %d routes", hits, misses,
+				lookups > 0 ? 100.0 * hits / lookups : 0, evictions,
+				routes.size());
+	}
+
+	/**
+	 * Key of a cached path. The nodes are compared by identity.
+	 */
+	private static class RouteKey {
+		private final MapNode from;
+		private final MapNode to;
+		private final int[] okMapNodes;
+		private final int hash;
+
+		private RouteKey(MapNode from, MapNode to, int[] okMapNodes) {
+			this.from = from;
+			this.to = to;
+			this.okMapNodes = okMapNodes;
+			this.hash = (System.identityHashCode(from) * 31 +
+				System.identityHashCode(to)) * 31 +
+				Arrays.hashCode(okMapNodes);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof RouteKey)) {
+				return false;
+			}
+			RouteKey k = (RouteKey)o;
+			return from == k.from && to == k.to &&
+				Arrays.equals(okMapNodes, k.okMapNodes);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
@@ -4,17 +4,24 @@
  */
 package movement.map;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
 import core.Coord;
+import core.RoadNetwork;
 
 /**
  * A simulation map for node movement.
  */
 public class SimMap implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	private Coord minBound;
 	private Coord maxBound;
 	/** list representation of the map for efficient list-returning */
@@ -28,6 +35,8 @@ public class SimMap implements Serializable {
 
 	/** is re-hash needed before using hash mode (some coordinates changed) */
 	private boolean needsRehash = false;
+	/** the directed roads of the map (built when first asked for) */
+	private transient RoadNetwork roadNetwork;
 
 	public SimMap(Map<Coord, MapNode> nodes) {
 		this.offset = new Coord(0,0);
@@ -51,17 +60,30 @@ public class SimMap implements Serializable {
 	 * @param c The coordinate
 	 * @return The map node in that location or null if it doesn't exist
 	 */
-	public MapNode getNodeByCoord(Coord c) {
+	public synchronized MapNode getNodeByCoord(Coord c) {
 		if (needsRehash) { // some coordinates have changed after creating hash
 			nodesMap.clear();
 			for (MapNode node : getNodes()) {
 				nodesMap.put(node.getLocation(), node); // re-hash
 			}
+			needsRehash = false;
 		}
 
 		return nodesMap.get(c);
 	}
 
+	/**
+	 * Returns the road network of this map. The network is built when it's
+	 * first asked for, so the map must not be changed after that.
+	 * @return The road network of the map
+	 */
+	public synchronized RoadNetwork getRoadNetwork() {
+		if (roadNetwork == null) {
+			roadNetwork = new RoadNetwork(this);
+		}
+		return roadNetwork;
+	}
+
 	/**
 	 * Returns the upper left corner coordinate of the map
 	 * @return the upper left corner coordinate of the map
@@ -111,6 +133,7 @@ public class SimMap implements Serializable {
 		offset.translate(dx, dy);
 
 		needsRehash = true;
+		roadNetwork = null;
 	}
 
 	/**
@@ -127,6 +150,7 @@ public class SimMap implements Serializable {
 		setBounds();
 		this.isMirrored = true;
 		needsRehash = true;
+		roadNetwork = null;
 	}
 
 	/**
@@ -157,6 +181,35 @@ public class SimMap implements Serializable {
 		maxBound = new Coord(maxX, maxY);
 	}
 
+	/**
+	 * Writes the map with the neighbors of each node as node indexes
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		IdentityHashMap<MapNode, Integer> indexes =
+			new IdentityHashMap<MapNode, Integer>();
+		for (int i=0, n=nodes.size(); i<n; i++) {
+			indexes.put(nodes.get(i), i);
+		}
+		for (MapNode node : nodes) {
+			List<MapNode> neighbors = node.getNeighbors();
+			out.writeInt(neighbors.size());
+			for (MapNode neighbor : neighbors) {
+				out.writeInt(indexes.get(neighbor));
+			}
+		}
+	}
+
+	private void readObject(ObjectInputStream in)
+		throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		for (MapNode node : nodes) {
+			for (int i=0, n=in.readInt(); i<n; i++) {
+				node.addNeighbor(nodes.get(in.readInt()));
+			}
+		}
+	}
+
 	/**
 	 * Returns a String representation of the map
 	 * @return a String representation of the map
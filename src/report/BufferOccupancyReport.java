@@ -21,11 +21,12 @@ package report;
 import java.util.List;
 
 import core.DTNHost;
+import core.ScheduledUpdateListener;
 import core.Settings;
 import core.SimClock;
-import core.UpdateListener;
 
-public class BufferOccupancyReport extends Report implements UpdateListener {
+public class BufferOccupancyReport extends Report
+	implements ScheduledUpdateListener {
 
 	/**
 	 * Record occupancy every nth second -setting id ({@value}).
@@ -64,6 +65,10 @@ public class BufferOccupancyReport extends Report implements UpdateListener {
 		}
 	}
 
+	public double nextUpdateTime() {
+		return lastRecord + interval;
+	}
+
 	/**
 	 * Prints a snapshot of the average buffer occupancy
 	 * @param hosts The list of hosts in the simulation
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import input.ContactTraceReader;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+
+import core.DTNHost;
+import core.InterfaceConnectionListener;
+import core.NetworkInterface;
+import core.SimError;
+
+/**
+ * Captures all connection up/down events, with the interface types, to a
+ * binary contact trace that can be replayed without simulating the
+ * movement or the connectivity (see {@link ContactTraceReader} for the
+ * format and the replay settings). Unless an output file is given, the
+ * trace is written to a file with the {@link ContactTraceReader#TRACE_EXT}
+ * extension. The warm up setting is ignored since the replay needs all
+ * events.
+ */
+public class ContactTraceReport extends Report
+	implements InterfaceConnectionListener {
+	private DataOutputStream traceOut;
+	/** indexes of the interface types already written to the trace */
+	private HashMap<String, Integer> interfaceIndexes;
+	/** the changes of the current time, written when the time changes */
+	private ByteArrayOutputStream batch;
+	private DataOutputStream batchOut;
+	private int batchSize;
+	private double batchTime;
+
+	/**
+	 * Constructor.
+	 */
+	public ContactTraceReport() {
+		String fileName = getOutputFileName();
+		if (fileName.endsWith(OUT_SUFFIX)) {
+			fileName = fileName.substring(0, fileName.length() -
+					OUT_SUFFIX.length()) + ContactTraceReader.TRACE_EXT;
+		}
+
+		this.interfaceIndexes = new HashMap<String, Integer>();
+		this.batch = new ByteArrayOutputStream();
+		this.batchOut = new DataOutputStream(batch);
+		this.batchSize = 0;
+		this.batchTime = Double.NaN;
+
+		try {
+			this.traceOut = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(fileName)));
+			traceOut.writeInt(ContactTraceReader.MAGIC);
+			traceOut.writeInt(ContactTraceReader.VERSION);
+		} catch (IOException e) {
+			throw new SimError("Couldn't open file '" + fileName +
+					"' for report output\n" + e.getMessage(), e);
+		}
+	}
+
+	public void hostsConnected(DTNHost host1, DTNHost host2) {
+		/* recorded with the interfaces */
+	}
+
+	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+		/* recorded with the interfaces */
+	}
+
+	public void interfacesConnected(NetworkInterface ni1,
+			NetworkInterface ni2) {
+		record(ni1, ni2, true);
+	}
+
+	public void interfacesDisconnected(NetworkInterface ni1,
+			NetworkInterface ni2) {
+		record(ni1, ni2, false);
+	}
+
+	/**
+	 * Adds a connection change to the changes of the current time
+	 */
+	private void record(NetworkInterface ni1, NetworkInterface ni2,
+			boolean up) {
+		double time = getSimTime();
+		try {
+			if (time != batchTime) {
+				writeBatch();
+				batchTime = time;
+			}
+
+			String type = ni1.getInterfaceType();
+			Integer index = interfaceIndexes.get(type);
+			if (index == null) {
+				index = interfaceIndexes.size();
+				interfaceIndexes.put(type, index);
+				traceOut.writeByte(ContactTraceReader.TAG_INTERFACE);
+				traceOut.writeUTF(type);
+			}
+
+			batchOut.writeInt(ni1.getHost().getAddress());
+			batchOut.writeInt(ni2.getHost().getAddress());
+			batchOut.writeShort(index);
+			batchOut.writeBoolean(up);
+			batchSize++;
+		} catch (IOException e) {
+			throw new SimError(e);
+		}
+	}
+
+	/**
+	 * Writes the changes of the current time (if any) to the trace
+	 */
+	private void writeBatch() throws IOException {
+		if (batchSize == 0) {
+			return;
+		}
+		traceOut.writeByte(ContactTraceReader.TAG_CHANGES);
+		traceOut.writeDouble(batchTime);
+		traceOut.writeInt(batchSize);
+		batch.writeTo(traceOut);
+		batch.reset();
+		batchSize = 0;
+	}
+
+	@Override
+	public void done() {
+		try {
+			writeBatch();
+			traceOut.close();
+		} catch (IOException e) {
+			throw new SimError(e);
+		}
+		super.done();
+	}
+}
@@ -10,7 +10,7 @@ import java.util.List;
 
 import core.ConnectionListener;
 import core.DTNHost;
-import core.UpdateListener;
+import core.ScheduledUpdateListener;
 
 /**
  * The number of contacts during an inter-contact time metric is similar to
@@ -24,7 +24,7 @@ import core.UpdateListener;
  * @author Frans Ekman
  */
 public class ContactsDuringAnICTReport extends Report
-	implements ConnectionListener, UpdateListener {
+	implements ConnectionListener, ScheduledUpdateListener {
 
 	private boolean[][] areDisconnected;
 	private int[][] contactCount;
@@ -90,6 +90,13 @@ public class ContactsDuringAnICTReport extends Report
 		updateHasBeenCalled = true;
 	}
 
+	/**
+	 * Returns the time of the next update: only the first update is needed
+	 */
+	public double nextUpdateTime() {
+		return (updateHasBeenCalled ? NO_UPDATES : 0);
+	}
+
 	@Override
 	public void done() {
 		Integer[] contacts = (Integer[])contactsDuringIC.toArray(new Integer[0]);
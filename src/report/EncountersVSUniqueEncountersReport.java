@@ -8,7 +8,7 @@ import java.util.List;
 
 import core.ConnectionListener;
 import core.DTNHost;
-import core.UpdateListener;
+import core.ScheduledUpdateListener;
 
 /**
  * The total- vs. the unique encounters for each node
@@ -16,7 +16,7 @@ import core.UpdateListener;
  * @author Frans Ekman
  */
 public class EncountersVSUniqueEncountersReport extends Report
-	implements ConnectionListener, UpdateListener {
+	implements ConnectionListener, ScheduledUpdateListener {
 
 	private TotalEncountersReport totalEncountersReport;
 	private UniqueEncountersReport uniqueEncountersReport;
@@ -41,6 +41,11 @@ public class EncountersVSUniqueEncountersReport extends Report
 		uniqueEncountersReport.updated(hosts);
 	}
 
+	public double nextUpdateTime() {
+		return Math.min(totalEncountersReport.nextUpdateTime(),
+				uniqueEncountersReport.nextUpdateTime());
+	}
+
 	@Override
 	public void done() {
 		int[] totalEncounters = totalEncountersReport.getEncounters();
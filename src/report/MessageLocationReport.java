@@ -9,15 +9,16 @@ import java.util.List;
 
 import core.DTNHost;
 import core.Message;
+import core.ScheduledUpdateListener;
 import core.Settings;
-import core.UpdateListener;
 
 
 /**
  * Message location report. Reports the location (coordinates) of messages.
  * The messages that are reported and the reporting interval can be configured.
  */
-public class MessageLocationReport extends Report implements UpdateListener {
+public class MessageLocationReport extends Report
+	implements ScheduledUpdateListener {
 	/** Reporting granularity -setting id ({@value}).
 	 * Defines the interval how often (seconds) a new snapshot of message
 	 * locations is created */
@@ -67,6 +68,15 @@ public class MessageLocationReport extends Report implements UpdateListener {
 		}
 	}
 
+	/**
+	 * Returns the time of the next snapshot
+	 * @return The time when "granularity" seconds have passed since the
+	 * last snapshot
+	 */
+	public double nextUpdateTime() {
+		return lastUpdate + granularity;
+	}
+
 	/**
 	 * Returns true if the given message is tracked by the report
 	 * @param m The message
@@ -256,6 +256,15 @@ public abstract class Report {
 		this.prefix = txt;
 	}
 
+	/**
+	 * Returns the name (and path) of the report's output file. For reports
+	 * that write their own output instead of using {@link #init()}.
+	 * @return The name of the output file
+	 */
+	protected String getOutputFileName() {
+		return this.outFileName;
+	}
+
 	/**
 	 * Returns the name of the scenario as read from the settings
 	 * @return the name of the scenario as read from the settings
@@ -1,10 +1,10 @@
 package report;
 
 import core.DTNHost;
+import core.ScheduledUpdateListener;
 import core.Settings;
 import core.SettingsError;
 import core.SimClock;
-import core.UpdateListener;
 
 import java.util.List;
 
@@ -15,7 +15,7 @@ import java.util.List;
  */
 public abstract class SamplingReport
 extends Report
-implements UpdateListener {
+implements ScheduledUpdateListener {
 
 	//========================================================================//
 	// Settings
@@ -61,7 +61,7 @@ implements UpdateListener {
 
 
 	//========================================================================//
-	// UpdateListener
+	// ScheduledUpdateListener
 	//========================================================================//
 	@Override
 	public void updated(final List<DTNHost> hosts) {
@@ -70,5 +70,10 @@ implements UpdateListener {
 
 		this.sample(hosts);
 	}
+
+	@Override
+	public double nextUpdateTime() {
+		return lastRecord + interval;
+	}
 	//========================================================================//
 }
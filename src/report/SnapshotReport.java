@@ -8,15 +8,16 @@ import java.util.HashSet;
 import java.util.List;
 
 import core.DTNHost;
+import core.ScheduledUpdateListener;
 import core.Settings;
-import core.UpdateListener;
 
 /**
  * Node snapshot report superclass. Reports some characteristic of all 
  * (or only some, see {@link #REPORTED_NODES}) nodes every 
  * configurable-amount-of seconds (see {@link #GRANULARITY}).
  */
-public abstract class SnapshotReport extends Report implements UpdateListener {
+public abstract class SnapshotReport extends Report
+	implements ScheduledUpdateListener {
 	/** Reporting granularity -setting id ({@value}).
 	 * Defines the interval how often (seconds) a new snapshot is created */
 	public static final String GRANULARITY = "granularity";
@@ -67,6 +68,15 @@ public abstract class SnapshotReport extends Report implements UpdateListener {
 			this.lastUpdate = simTime - simTime % granularity;
 		}
 	}
+
+	/**
+	 * Returns the time of the next snapshot
+	 * @return The time when "granularity" seconds have passed since the
+	 * last snapshot (but not before the end of the warmup period)
+	 */
+	public double nextUpdateTime() {
+		return Math.max(lastUpdate + granularity, warmupTime);
+	}
 	
 	
 	/**
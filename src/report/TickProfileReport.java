@@ -0,0 +1,79 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.util.List;
+
+import movement.map.RouteCache;
+import core.DTNHost;
+import core.SimClock;
+import core.SimScenario;
+import core.TickProfiler;
+
+/**
+ * Reports where the time of the world updates goes (see
+ * {@link TickProfiler}). Enables the profiler if it isn't enabled yet.
+ * Every {@link SamplingReport#SAMPLE_INTERVAL_SETTING} seconds (use 1 for
+ * per-tick values) a line with the values since the previous line is
+ * written:
+ * <p>
+ * [Simulation time] [events ms] [movement ms] [connectivity ms]
+ * [routing ms] [listeners ms] [events] [connections up] [connections down]
+ * [messages transferred]
+ * </p>
+ * The time of the listener phase of the tick when a line is written is
+ * included in the next line. At the end, a summary of the whole run is
+ * written, with the usage of the {@link RouteCache} if it was used.
+ */
+public class TickProfileReport extends SamplingReport {
+	private final TickProfiler profiler;
+	/** values of the profiler when the previous line was written */
+	private final long[] lastTimes;
+	private long lastEvents;
+	private long lastUp;
+	private long lastDown;
+	private long lastTransferred;
+
+	/**
+	 * Constructor.
+	 */
+	public TickProfileReport() {
+		super();
+		this.profiler = SimScenario.getInstance().enableTickProfiler();
+		this.lastTimes = new long[TickProfiler.PHASE_NAMES.length];
+	}
+
+	@Override
+	protected void sample(List<DTNHost> hosts) {
+		StringBuilder line = new StringBuilder(format(SimClock.getTime()));
+		for (int i=0; i<lastTimes.length; i++) {
+			long t = profiler.getPhaseTime(i);
+			line.append(" " + format((t - lastTimes[i]) / 1e6));
+			lastTimes[i] = t;
+		}
+		line.append(" " + (profiler.getEvents() - lastEvents));
+		line.append(" " + (profiler.getConnectionsUp() - lastUp));
+		line.append(" " + (profiler.getConnectionsDown() - lastDown));
+		line.append(" " + (profiler.getMessagesTransferred() -
+				lastTransferred));
+		write(line.toString());
+
+		lastEvents = profiler.getEvents();
+		lastUp = profiler.getConnectionsUp();
+		lastDown = profiler.getConnectionsDown();
+		lastTransferred = profiler.getMessagesTransferred();
+	}
+
+	@Override
+	public void done() {
+		write("");
+		write(profiler.getSummary());
+		RouteCache cache = RouteCache.getInstance();
+		if (cache != null && cache.getHits() + cache.getMisses() > 0) {
+			write(cache.toString());
+		}
+		super.done();
+	}
+}
@@ -7,7 +7,7 @@ package report;
 import java.util.List;
 
 import core.DTNHost;
-import core.UpdateListener;
+import core.ScheduledUpdateListener;
 
 /**
  * Report for total amount of contact times among hosts. Reports how long all
@@ -18,7 +18,7 @@ import core.UpdateListener;
  * warmup period are ignored.
  */
 public class TotalContactTimeReport extends ContactTimesReport implements
-		UpdateListener {
+		ScheduledUpdateListener {
 
 	/** The header of every report file */
 	public static final String HEADER = "# time totalContactTime";
@@ -76,4 +76,8 @@ public class TotalContactTimeReport extends ContactTimesReport implements
 		write(format(simTime) + " " + format(totalTime));
 		lastReportedTime = totalTime;
 	}
+
+	public double nextUpdateTime() {
+		return Math.max(lastWrite + granularity, warmupTime);
+	}
 }
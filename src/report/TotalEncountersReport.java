@@ -8,7 +8,7 @@ import java.util.List;
 
 import core.ConnectionListener;
 import core.DTNHost;
-import core.UpdateListener;
+import core.ScheduledUpdateListener;
 
 /**
  * A report of the distribution of how many encounters (contacts) a node has had
@@ -16,7 +16,7 @@ import core.UpdateListener;
  * @author Frans Ekman
  */
 public class TotalEncountersReport extends Report implements ConnectionListener,
-	UpdateListener {
+	ScheduledUpdateListener {
 
 	private int[] encounters;
 
@@ -40,6 +40,13 @@ public class TotalEncountersReport extends Report implements ConnectionListener,
 		}
 	}
 
+	/**
+	 * Returns the time of the next update: only the first update is needed
+	 */
+	public double nextUpdateTime() {
+		return (encounters == null ? 0 : NO_UPDATES);
+	}
+
 	@Override
 	public void done() {
 
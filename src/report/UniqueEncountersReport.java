@@ -8,7 +8,7 @@ import java.util.List;
 
 import core.ConnectionListener;
 import core.DTNHost;
-import core.UpdateListener;
+import core.ScheduledUpdateListener;
 
 /**
  * UniqueEncountersReport class creates a report of the distribution of how
@@ -17,7 +17,7 @@ import core.UpdateListener;
  * @author Frans Ekman
  */
 public class UniqueEncountersReport extends Report implements
-	ConnectionListener, UpdateListener {
+	ConnectionListener, ScheduledUpdateListener {
 
 	private int[][] nodeRelationships;
 
@@ -41,6 +41,13 @@ public class UniqueEncountersReport extends Report implements
 		}
 	}
 
+	/**
+	 * Returns the time of the next update: only the first update is needed
+	 */
+	public double nextUpdateTime() {
+		return (nodeRelationships == null ? 0 : NO_UPDATES);
+	}
+
 	@Override
 	public void done() {
 		int[] distribution = new int[1000];
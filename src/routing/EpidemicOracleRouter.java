@@ -21,8 +21,8 @@ import static core.Constants.DEBUG;
  */
 public class EpidemicOracleRouter extends ActiveRouter {
 
-	/** List of all routers in this node group */
-	private static List<EpidemicOracleRouter> allRouters;
+	/** List of all routers in this node group (in this simulation run) */
+	private List<EpidemicOracleRouter> allRouters;
 
 	static {
 		DTNSim.registerForReset(EpidemicOracleRouter.class.getCanonicalName());
@@ -44,6 +44,7 @@ public class EpidemicOracleRouter extends ActiveRouter {
 	 */
 	protected EpidemicOracleRouter(EpidemicOracleRouter r) {
 		super(r);
+		this.allRouters = getAllRouters();
 		allRouters.add(this);
 	}
 
@@ -177,7 +178,18 @@ public class EpidemicOracleRouter extends ActiveRouter {
 	 * Resets the static router list
 	 */
 	public static void reset() {
-		allRouters = new ArrayList<EpidemicOracleRouter>();
+		SimulationContext.setModuleState(EpidemicOracleRouter.class,
+				new ArrayList<EpidemicOracleRouter>());
+	}
+
+	/**
+	 * Returns the list of routers of the current simulation run
+	 * @return The router list
+	 */
+	@SuppressWarnings("unchecked")
+	private static List<EpidemicOracleRouter> getAllRouters() {
+		return (List<EpidemicOracleRouter>)SimulationContext.getModuleState(
+				EpidemicOracleRouter.class);
 	}
 
 }
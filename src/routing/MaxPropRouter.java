@@ -20,8 +20,10 @@ import routing.util.RoutingInfo;
 import util.Tuple;
 import core.Connection;
 import core.DTNHost;
+import core.DTNSim;
 import core.Message;
 import core.Settings;
+import core.SimulationContext;
 
 /**
  * Implementation of MaxProp router as described in
@@ -44,7 +46,6 @@ public class MaxPropRouter extends ActiveRouter {
 	public static final String PROB_SET_MAX_SIZE_S = "probSetMaxSize";
     /** Default value for the meeting probability set maximum size ({@value}).*/
     public static final int DEFAULT_PROB_SET_MAX_SIZE = 50;
-    private static int probSetMaxSize;
 
 	/** probabilities of meeting hosts */
 	private MeetingProbabilitySet probs;
@@ -83,6 +84,11 @@ public class MaxPropRouter extends ActiveRouter {
 	/** The default value for alpha */
 	public static final double DEFAULT_ALPHA = 1.0;
 
+	static {
+		DTNSim.registerForReset(MaxPropRouter.class.getCanonicalName());
+		reset();
+	}
+
 	/**
 	 * Constructor. Creates a new prototype router based on the settings in
 	 * the given Settings object.
@@ -99,9 +105,9 @@ public class MaxPropRouter extends ActiveRouter {
 
         Settings mpSettings = new Settings(MAXPROP_NS);
         if (mpSettings.contains(PROB_SET_MAX_SIZE_S)) {
-            probSetMaxSize = mpSettings.getInt(PROB_SET_MAX_SIZE_S);
+            setProbSetMaxSize(mpSettings.getInt(PROB_SET_MAX_SIZE_S));
         } else {
-            probSetMaxSize = DEFAULT_PROB_SET_MAX_SIZE;
+            setProbSetMaxSize(DEFAULT_PROB_SET_MAX_SIZE);
         }
 	}
 
@@ -112,7 +118,8 @@ public class MaxPropRouter extends ActiveRouter {
 	protected MaxPropRouter(MaxPropRouter r) {
 		super(r);
 		this.alpha = r.alpha;
-		this.probs = new MeetingProbabilitySet(probSetMaxSize, this.alpha);
+		this.probs = new MeetingProbabilitySet(getProbSetMaxSize(),
+				this.alpha);
 		this.allProbs = new HashMap<Integer, MeetingProbabilitySet>();
 		this.dijkstra = new MaxPropDijkstra(this.allProbs);
 		this.ackedMessageIds = new HashSet<String>();
@@ -597,4 +604,29 @@ public class MaxPropRouter extends ActiveRouter {
 		MaxPropRouter r = new MaxPropRouter(this);
 		return r;
 	}
+
+	/**
+	 * Resets the meeting probability set maximum size to the default
+	 */
+	public static void reset() {
+		setProbSetMaxSize(DEFAULT_PROB_SET_MAX_SIZE);
+	}
+
+	/**
+	 * Sets the meeting probability set maximum size of the current
+	 * simulation run
+	 * @param size The maximum size
+	 */
+	private static void setProbSetMaxSize(int size) {
+		SimulationContext.setModuleState(MaxPropRouter.class, size);
+	}
+
+	/**
+	 * Returns the meeting probability set maximum size of the current
+	 * simulation run
+	 * @return The maximum size
+	 */
+	private static int getProbSetMaxSize() {
+		return (Integer)SimulationContext.getModuleState(MaxPropRouter.class);
+	}
 }
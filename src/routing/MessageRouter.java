@@ -13,6 +13,7 @@ import java.util.List;
 import java.util.Random;
 import core.Application;
 import core.Connection;
+import core.ConnectionChange;
 import core.DTNHost;
 import core.Message;
 import core.MessageListener;
@@ -195,6 +196,20 @@ public abstract class MessageRouter {
 	 */
 	public abstract void changedConnection(Connection con);
 
+	/**
+	 * Informs the router about all the changes in its connections on an
+	 * update round when the connection events are batched (see
+	 * {@link core.World#BATCH_CONNECTION_EVENTS_S}). This implementation
+	 * calls {@link #changedConnection(Connection)} for every change; routers
+	 * can override this to, e.g., recalculate their state once per round.
+	 * @param changes The changes in the order they happened
+	 */
+	public void changedConnections(List<ConnectionChange> changes) {
+		for (int i=0, n=changes.size(); i<n; i++) {
+			changedConnection(changes.get(i).getConnection());
+		}
+	}
+
 	/**
 	 * Returns a message by ID.
 	 * @param id ID of the message
@@ -57,7 +57,6 @@ public class EnergyModel implements ModuleCommunicationListener {
 	/** sim time of the last energy updated */
 	private double lastUpdate;
 	private ModuleCommunicationBus comBus;
-	private static Random rng = null;
 
 	/**
 	 * Constructor. Creates a new message router based on the settings in
@@ -118,8 +117,11 @@ public class EnergyModel implements ModuleCommunicationListener {
 			this.currentEnergy = range[0];
 		}
 		else {
+			Random rng = (Random)SimulationContext.getModuleState(
+					EnergyModel.class);
 			if (rng == null) {
 				rng = new Random((int)(range[0] + range[1]));
+				SimulationContext.setModuleState(EnergyModel.class, rng);
 			}
 			this.currentEnergy = range[0] +
 				rng.nextDouble() * (range[1] - range[0]);
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import interfaces.ConnectivityOptimizer;
+import interfaces.RangeKernel;
+import interfaces.SimpleBroadcastInterface;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import routing.PassiveRouter;
+import core.Coord;
+import core.DTNHost;
+import core.ModuleCommunicationBus;
+import core.NetworkInterface;
+import core.SimClock;
+import core.SimulationContext;
+
+/**
+ * Superclass for connectivity optimizer tests. Every test runs in a
+ * simulation context of its own, so the optimizers of the tests don't
+ * share interfaces, and the near interfaces that an optimizer returns can
+ * be compared with a brute-force check of all pairs of interfaces.
+ */
+public abstract class AbstractOptimizerTest extends TestCase {
+	/** type of the interfaces of {@link #createScanningHosts} */
+	protected static final String SCANNING_IFACE = "scanningInterface";
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		new TestSettings(); /* default world size */
+		new SimulationContext(0).enter();
+	}
+
+	protected void tearDown() throws Exception {
+		SimulationContext.exit();
+		super.tearDown();
+	}
+
+	/**
+	 * Creates a stationary host with one interface
+	 * @param interfaceType Type (settings namespace) of the interface
+	 * @param optimizer Class of the connectivity optimizer the interface
+	 * uses
+	 * @param range Transmit range of the interface
+	 * @param loc Location of the host
+	 * @return The new host
+	 */
+	protected DTNHost createHost(String interfaceType,
+			Class<? extends ConnectivityOptimizer> optimizer, double range,
+			Coord loc) {
+		TestSettings ts = new TestSettings(interfaceType);
+		ts.putSetting(NetworkInterface.TRANSMIT_RANGE_S, "" + range);
+		ts.putSetting(NetworkInterface.TRANSMIT_SPEED_S, "1");
+		ts.putSetting(NetworkInterface.OPTIMIZER_S, optimizer.getSimpleName());
+		return new TestUtils(null, null, ts).createHost(loc);
+	}
+
+	/**
+	 * Creates stationary hosts, all within range of each other, with a
+	 * broadcast interface that scans only once in a scan interval (each
+	 * interface starting at a random time)
+	 * @param optimizer Class of the connectivity optimizer the interfaces
+	 * use
+	 * @param nrof Number of hosts
+	 * @param scanInterval Scan interval of the interfaces
+	 * @return The new hosts
+	 */
+	protected List<DTNHost> createScanningHosts(
+			Class<? extends ConnectivityOptimizer> optimizer, int nrof,
+			double scanInterval) {
+		TestSettings ts = new TestSettings(SCANNING_IFACE);
+		ts.putSetting(NetworkInterface.TRANSMIT_RANGE_S, "50");
+		ts.putSetting(NetworkInterface.TRANSMIT_SPEED_S, "1");
+		ts.putSetting(NetworkInterface.OPTIMIZER_S, optimizer.getSimpleName());
+		ts.putSetting(NetworkInterface.NET_SUB_NS + "." +
+				NetworkInterface.SCAN_INTERVAL_S, "" + scanInterval);
+		NetworkInterface proto = new SimpleBroadcastInterface(ts);
+		proto.setGroupSettings(ts);
+		List<NetworkInterface> ifaces = new ArrayList<NetworkInterface>();
+		ifaces.add(proto);
+
+		List<DTNHost> hosts = new ArrayList<DTNHost>();
+		for (int i=0; i<nrof; i++) {
+			hosts.add(new DTNHost(null, null, "s", ifaces,
+					new ModuleCommunicationBus(), new StationaryMovement(
+							new Coord(100 + i * 10, 100)),
+					new PassiveRouter(ts)));
+		}
+		return hosts;
+	}
+
+	/**
+	 * Moves the hosts a little, advances the simulation clock by a second
+	 * and updates the interfaces of the hosts like on an update round
+	 * @param hosts The hosts
+	 * @param rng Random number generator for the moves
+	 * @return True if any interface scanned on the round
+	 */
+	protected boolean updateInterfaces(List<DTNHost> hosts, Random rng) {
+		for (DTNHost h : hosts) {
+			Coord c = h.getLocation().clone();
+			c.translate(rng.nextDouble() - 0.5, rng.nextDouble() - 0.5);
+			h.setLocation(c);
+		}
+		SimClock.getInstance().advance(1);
+
+		boolean scanned = false;
+		for (DTNHost h : hosts) {
+			for (NetworkInterface ni : h.getInterfaces()) {
+				ni.update();
+			}
+		}
+		for (DTNHost h : hosts) {
+			for (NetworkInterface ni : h.getInterfaces()) {
+				/* true after the update only if the interface scanned */
+				scanned |= ni.isScanning();
+			}
+		}
+		return scanned;
+	}
+
+	/**
+	 * Updates the interfaces of two scanning hosts like on an update round
+	 * with an external event at its end: the interfaces are updated for the
+	 * event (after the second host has moved a little), the second host
+	 * moves into range, and the interfaces are updated again at the same
+	 * simulation time
+	 * @param optimizer Class of the connectivity optimizer the interfaces
+	 * use
+	 * @return True if the hosts got connected
+	 */
+	protected boolean connectsAfterSameTimeMove(
+			Class<? extends ConnectivityOptimizer> optimizer) {
+		List<DTNHost> hosts = createScanningHosts(optimizer, 2, 0);
+		hosts.get(1).setLocation(new Coord(400, 100));
+		SimClock.getInstance().advance(1);
+		updateAll(hosts);
+		assertTrue(hosts.get(0).getConnections().isEmpty());
+
+		hosts.get(1).setLocation(new Coord(390, 100));
+		SimClock.getInstance().advance(1);
+		updateAll(hosts); /* the event; sweeps with the earlier move */
+		hosts.get(1).setLocation(new Coord(120, 100));
+		updateAll(hosts);
+		return !hosts.get(0).getConnections().isEmpty();
+	}
+
+	private void updateAll(List<DTNHost> hosts) {
+		for (DTNHost h : hosts) {
+			for (NetworkInterface ni : h.getInterfaces()) {
+				ni.update();
+			}
+		}
+	}
+
+	/**
+	 * Advances the simulation clock and updates the locations of all the
+	 * interfaces of an optimizer (like the hosts do on an update round)
+	 * @param opt The optimizer
+	 * @param time How much the clock is advanced
+	 */
+	protected void advance(ConnectivityOptimizer opt, double time) {
+		SimClock.getInstance().advance(time);
+		for (NetworkInterface ni : opt.getAllInterfaces()) {
+			opt.updateLocation(ni);
+		}
+	}
+
+	/**
+	 * Asserts that the optimizer returns exactly the interfaces within range
+	 * as the near interfaces of all its interfaces (see
+	 * {@link #assertNearInterfaces(ConnectivityOptimizer, double)})
+	 * @param opt The optimizer
+	 * @return Number of pairs within range
+	 */
+	protected int assertNearInterfaces(ConnectivityOptimizer opt) {
+		return assertNearInterfaces(opt, 0);
+	}
+
+	/**
+	 * Asserts that the near interfaces of every interface of the optimizer
+	 * include all the other interfaces within range (the smaller range of
+	 * the two), but no interfaces that are farther than the range plus a
+	 * margin, and no interface twice
+	 * @param opt The optimizer
+	 * @param margin How much farther than the range a near interface may
+	 * be
+	 * @return Number of pairs within range
+	 */
+	protected int assertNearInterfaces(ConnectivityOptimizer opt,
+			double margin) {
+		int nrofPairs = 0;
+		for (NetworkInterface a : opt.getAllInterfaces()) {
+			Collection<NetworkInterface> near = opt.getNearInterfaces(a);
+			Set<NetworkInterface> nearSet = new HashSet<NetworkInterface>(near);
+			assertEquals("Duplicate near interfaces for " + a,
+					nearSet.size(), near.size());
+			assertFalse(nearSet.contains(a));
+
+			for (NetworkInterface b : opt.getAllInterfaces()) {
+				if (a == b) {
+					continue;
+				}
+				DTNHost ha = a.getHost();
+				DTNHost hb = b.getHost();
+				double dx = ha.getLocationX() - hb.getLocationX();
+				double dy = ha.getLocationY() - hb.getLocationY();
+				double range = Math.min(a.getTransmitRange(),
+						b.getTransmitRange());
+				String pair = ha.getLocation() + " - " + hb.getLocation() +
+					" (range " + range + ") at " + SimClock.getTime();
+				if (RangeKernel.isWithinRange(dx, dy, range)) {
+					assertTrue("Missing near interface: " + pair,
+							nearSet.contains(b));
+					nrofPairs++;
+				}
+				else if (!RangeKernel.isWithinRange(dx, dy, range + margin)) {
+					assertFalse("Too far near interface: " + pair,
+							nearSet.contains(b));
+				}
+			}
+		}
+		return nrofPairs / 2;
+	}
+}
@@ -38,6 +38,7 @@ public class AllTests {
 		suite.addTestSuite(ExternalEventsQueueTest.class);
 		suite.addTestSuite(ContactTimesReportTest.class);
 		suite.addTestSuite(TotalContactTimeReportTest.class);
+		suite.addTestSuite(ContactTraceReportTest.class);
 		suite.addTestSuite(EpidemicRouterTest.class);
 		suite.addTestSuite(ProphetRouterTest.class);
 		suite.addTestSuite(SettingsTest.class);
@@ -50,6 +51,22 @@ public class AllTests {
 		suite.addTestSuite(MessageTest.class);
 		suite.addTestSuite(ModuleCommunicationBusTest.class);
 		suite.addTestSuite(DTNHostTest.class);
+		suite.addTestSuite(SimulationContextTest.class);
+		suite.addTestSuite(EventSchedulerTest.class);
+		suite.addTestSuite(RoadIndexTest.class);
+		suite.addTestSuite(ConnectionEventBatchTest.class);
+		suite.addTestSuite(ConnectionTableTest.class);
+		suite.addTestSuite(RangeKernelTest.class);
+		suite.addTestSuite(RoadNetworkTest.class);
+		suite.addTestSuite(RoadSpeedAggregatorTest.class);
+		suite.addTestSuite(BeaconTest.class);
+		suite.addTestSuite(ReroutingEngineTest.class);
+		suite.addTestSuite(RouteCacheTest.class);
+		suite.addTestSuite(KineticContactPredictorTest.class);
+		suite.addTestSuite(CheckpointTest.class);
+		suite.addTestSuite(IndexedConnectivityGridTest.class);
+		suite.addTestSuite(KDTreeOptimizerTest.class);
+		suite.addTestSuite(SharedSpatialIndexTest.class);
 		//$JUnit-END$
 		return suite;
 	}
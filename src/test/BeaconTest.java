@@ -0,0 +1,90 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import core.Application;
+import core.Beacon;
+import core.Coord;
+import core.DTNHost;
+import core.Message;
+
+/**
+ * Tests for sending beacons to the applications of the connected hosts
+ */
+public class BeaconTest extends TestCase {
+	private static final String APP = "beaconApp";
+	private TestUtils utils;
+	private DTNHost h1, h2, h3, h4;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.utils = new TestUtils(null, null, new TestSettings());
+		utils.setTransmitRange(3);
+		this.h1 = utils.createHost(new Coord(0, 0), "h1");
+		this.h2 = utils.createHost(new Coord(1, 0), "h2");
+		this.h3 = utils.createHost(new Coord(0, 1), "h3");
+		this.h4 = utils.createHost(new Coord(2, 0), "h4");
+	}
+
+	public void testBeaconIsGivenToConnectedHosts() {
+		RecordingApp app2 = addApp(h2, APP);
+		RecordingApp other2 = addApp(h2, "otherApp");
+		RecordingApp all3 = addApp(h3, null);
+		RecordingApp app4 = addApp(h4, APP);
+		h1.connect(h2);
+		h1.connect(h3);
+		h4.connect(h2); /* h4 isn't connected to h1 */
+
+		Beacon b = new Beacon(h1, APP);
+		assertEquals(2, h1.sendBeacon(b));
+		assertEquals(1, app2.beacons.size());
+		assertSame(b, app2.beacons.get(0));
+		assertEquals(h2, app2.hosts.get(0));
+		assertEquals(0, other2.beacons.size());
+		assertEquals(1, all3.beacons.size());
+		assertEquals(0, app4.beacons.size());
+
+		assertEquals(h1, b.getFrom());
+		assertEquals(new Coord(0, 0), b.getLocation());
+		assertNotSame(h1.getLocation(), b.getLocation());
+		assertEquals(0, h2.getRouter().getNrofMessages());
+	}
+
+	private RecordingApp addApp(DTNHost host, String id) {
+		RecordingApp app = new RecordingApp();
+		app.setAppID(id);
+		host.getRouter().addApplication(app);
+		return app;
+	}
+
+	private static class RecordingApp extends Application {
+		private List<Beacon> beacons = new ArrayList<Beacon>();
+		private List<DTNHost> hosts = new ArrayList<DTNHost>();
+
+		@Override
+		public Message handle(Message msg, DTNHost host) {
+			return msg;
+		}
+
+		@Override
+		public void handleBeacon(Beacon beacon, DTNHost host) {
+			beacons.add(beacon);
+			hosts.add(host);
+		}
+
+		@Override
+		public void update(DTNHost host) {
+		}
+
+		@Override
+		public Application replicate() {
+			return new RecordingApp();
+		}
+	}
+}
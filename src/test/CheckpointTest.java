@@ -0,0 +1,136 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import movement.Path;
+import movement.map.RouteCache;
+import core.Checkpoint;
+import core.Coord;
+import core.DTNHost;
+import core.RoadIndex;
+import core.SimClock;
+import core.TickProfiler;
+import core.World;
+
+/**
+ * Tests for the Checkpoint class
+ */
+public class CheckpointTest extends TestCase {
+	private static final int NROF_HOSTS = 30;
+	/** ticks before the checkpoint is written */
+	private static final int WARMUP_TICKS = 50;
+	/** ticks that are compared after the checkpoint */
+	private static final int NROF_TICKS = 100;
+
+	private File file;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		file = File.createTempFile("checkpoint", ".ckp");
+	}
+
+	protected void tearDown() throws Exception {
+		file.delete();
+		super.tearDown();
+	}
+
+	/**
+	 * Writes a checkpoint of a running world, restores it in a new world
+	 * and checks that both worlds continue the same way
+	 */
+	public void testRestoredWorldContinuesTheSame() throws Exception {
+		MapTestWorld world = new MapTestWorld(new TestSettings(), NROF_HOSTS,
+				false);
+		List<Coord> savedLocations;
+		List<String> savedPaths;
+		double savedTime;
+		List<List<Coord>> expected = new ArrayList<List<Coord>>();
+		List<String> expectedPaths;
+		try {
+			world.update(WARMUP_TICKS);
+			new Checkpoint(world.getWorld()).write(file);
+			savedLocations = world.getLocations();
+			savedPaths = getPaths(world);
+			savedTime = SimClock.getTime();
+
+			for (int i=0; i<NROF_TICKS; i++) {
+				world.update(1);
+				expected.add(world.getLocations());
+			}
+			expectedPaths = getPaths(world);
+		} finally {
+			world.exit();
+		}
+
+		MapTestWorld restored = new MapTestWorld(new TestSettings(),
+				NROF_HOSTS, false);
+		try {
+			assertFalse(savedLocations.equals(restored.getLocations()));
+			assertTrue(new Checkpoint(restored.getWorld()).read(file));
+			assertEquals(savedTime, SimClock.getTime());
+			assertEquals(savedLocations, restored.getLocations());
+			assertEquals(savedPaths, getPaths(restored));
+
+			/* new paths and speeds come from the restored RNGs */
+			for (int i=0; i<NROF_TICKS; i++) {
+				restored.update(1);
+				assertEquals("Locations differ at tick " + i, expected.get(i),
+						restored.getLocations());
+			}
+			assertEquals(expectedPaths, getPaths(restored));
+		} finally {
+			restored.exit();
+		}
+	}
+
+	/**
+	 * A checkpoint is restored only if the settings that may change the
+	 * results are the same; e.g., the number of worker threads doesn't
+	 * matter but the update order does
+	 */
+	public void testOnlyNeutralSettingsMayDiffer() throws Exception {
+		TestSettings ts = new TestSettings();
+		String ns = World.OPTIMIZATION_SETTINGS_NS + ".";
+		MapTestWorld world = new MapTestWorld(ts, NROF_HOSTS, false);
+		try {
+			world.update(WARMUP_TICKS);
+			new Checkpoint(world.getWorld()).write(file);
+
+			ts.putSetting(ns + World.WORKER_THREADS_S, "3");
+			ts.putSetting(ns + RouteCache.ROUTE_CACHE_SIZE_S, "100");
+			ts.putSetting(TickProfiler.PROFILER_NS + "." +
+					TickProfiler.ENABLED_S, "true");
+			assertTrue(new Checkpoint(world.getWorld()).read(file));
+
+			ts.putSetting(ns + World.RANDOMIZE_UPDATES_S, "false");
+			assertFalse(new Checkpoint(world.getWorld()).read(file));
+
+			new Checkpoint(world.getWorld()).write(file);
+			ts.putSetting(ns + RoadIndex.ROAD_INDEX_S, "true");
+			assertFalse(new Checkpoint(world.getWorld()).read(file));
+		} finally {
+			world.exit();
+		}
+	}
+
+	/**
+	 * Returns the paths of the world's hosts as strings that include the
+	 * speeds and the index of the next waypoint
+	 */
+	private List<String> getPaths(MapTestWorld world) {
+		List<String> paths = new ArrayList<String>();
+		for (DTNHost h : world.getHosts()) {
+			Path p = h.getPath();
+			paths.add(p == null ? "none" : p + " " + p.getSpeeds() + " " +
+					p.getWaypointIndex());
+		}
+		return paths;
+	}
+}
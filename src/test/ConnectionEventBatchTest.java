@@ -0,0 +1,147 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import routing.MessageRouter;
+import routing.PassiveRouter;
+import core.BatchConnectionListener;
+import core.ConnectionChange;
+import core.ConnectionEventBatch;
+import core.ConnectionListener;
+import core.Coord;
+import core.DTNHost;
+
+/**
+ * Tests for the batched delivery of connection changes
+ */
+public class ConnectionEventBatchTest extends TestCase {
+	private ConnectionEventBatch batch;
+	private RecordingListener listener;
+	private RecordingBatchListener batchListener;
+	private TestUtils utils;
+	private DTNHost h1;
+	private DTNHost h2;
+	private DTNHost h3;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.batch = new ConnectionEventBatch();
+		this.listener = new RecordingListener();
+		this.batchListener = new RecordingBatchListener();
+		List<ConnectionListener> cl = new ArrayList<ConnectionListener>();
+		cl.add(listener);
+		cl.add(batchListener);
+
+		TestSettings ts = new TestSettings();
+		this.utils = new TestUtils(cl, null, ts);
+		utils.setMessageRouterProto(new RecordingRouter(ts));
+		utils.setTransmitRange(3);
+		this.h1 = utils.createHost(new Coord(0, 0), "h1");
+		this.h2 = utils.createHost(new Coord(1, 0), "h2");
+		this.h3 = utils.createHost(new Coord(2, 0), "h3");
+		for (DTNHost h : utils.getAllHosts()) {
+			h.setConnectionBatch(batch);
+		}
+	}
+
+	public void testDeliveryIsDelayed() {
+		h1.connect(h2);
+		h3.connect(h2);
+
+		assertEquals(2, batch.size());
+		assertEquals(1, h1.getConnections().size());
+		assertEquals(2, h2.getConnections().size());
+		assertEquals("", listener.log.toString());
+		assertEquals(0, batchListener.calls);
+		assertEquals(0, router(h2).calls);
+
+		batch.flush();
+		assertEquals(0, batch.size());
+		assertEquals("+h1-h2 +h3-h2 ", listener.log.toString());
+		assertEquals(1, batchListener.calls);
+		assertEquals(2, batchListener.changes.size());
+		assertEquals(h1, batchListener.changes.get(0).getHost());
+		assertEquals(h3, batchListener.changes.get(1).getHost());
+
+		assertEquals(1, router(h1).calls);
+		assertEquals(1, router(h2).calls);
+		assertEquals(2, router(h2).changes.size());
+		assertEquals(1, router(h3).changes.size());
+	}
+
+	public void testUpAndDownInSameBatch() {
+		h1.connect(h2);
+		h2.setLocation(new Coord(10, 10));
+		h1.update(true);
+		assertEquals(0, h1.getConnections().size());
+
+		batch.flush();
+		assertEquals("+h1-h2 -h1-h2 ", listener.log.toString());
+		assertEquals(2, router(h1).changes.size());
+		assertTrue(router(h1).changes.get(0).isUp());
+		assertFalse(router(h1).changes.get(1).isUp());
+		assertFalse(router(h1).changes.get(0).getConnection().isUp());
+
+		batch.flush(); // nothing more to deliver
+		assertEquals(1, batchListener.calls);
+		assertEquals(1, router(h1).calls);
+	}
+
+	private static RecordingRouter router(DTNHost h) {
+		return (RecordingRouter)h.getRouter();
+	}
+
+	private static class RecordingListener implements ConnectionListener {
+		private StringBuilder log = new StringBuilder();
+
+		public void hostsConnected(DTNHost host1, DTNHost host2) {
+			log.append("+" + host1 + "-" + host2 + " ");
+		}
+
+		public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+			log.append("-" + host1 + "-" + host2 + " ");
+		}
+	}
+
+	private static class RecordingBatchListener extends RecordingListener
+			implements BatchConnectionListener {
+		private int calls;
+		private List<ConnectionChange> changes;
+
+		public void connectionsChanged(List<ConnectionChange> changes) {
+			this.calls++;
+			this.changes = changes;
+		}
+	}
+
+	private static class RecordingRouter extends PassiveRouter {
+		private int calls;
+		private List<ConnectionChange> changes =
+			new ArrayList<ConnectionChange>();
+
+		public RecordingRouter(TestSettings s) {
+			super(s);
+		}
+
+		protected RecordingRouter(RecordingRouter r) {
+			super(r);
+		}
+
+		@Override
+		public void changedConnections(List<ConnectionChange> changes) {
+			this.calls++;
+			this.changes.addAll(changes);
+		}
+
+		@Override
+		public MessageRouter replicate() {
+			return new RecordingRouter(this);
+		}
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import core.CBRConnection;
+import core.Connection;
+import core.ConnectionTable;
+import core.NetworkInterface;
+
+/**
+ * Tests for the ConnectionTable class
+ */
+public class ConnectionTableTest extends TestCase {
+	private static final int NROF_HOSTS = 40;
+
+	private ConnectionTable table;
+	private List<NetworkInterface> interfaces;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.table = new ConnectionTable();
+		this.interfaces = new ArrayList<NetworkInterface>();
+		TestUtils utils = new TestUtils(null, null, new TestSettings());
+		for (int i=0; i<NROF_HOSTS; i++) {
+			interfaces.add(utils.createHost().getInterfaces().get(0));
+		}
+	}
+
+	private Connection newConnection(NetworkInterface a, NetworkInterface b) {
+		return new CBRConnection(a.getHost(), a, b.getHost(), b, 1);
+	}
+
+	public void testPutGetRemove() {
+		NetworkInterface a = interfaces.get(0);
+		NetworkInterface b = interfaces.get(1);
+		NetworkInterface c = interfaces.get(2);
+		Connection ab = newConnection(a, b);
+		Connection other = newConnection(b, a);
+
+		assertNull(table.get(a, b));
+		table.put(a, b, ab);
+		assertEquals(ab, table.get(a, b));
+		assertEquals(ab, table.get(b, a));
+		assertNull(table.get(a, c));
+		assertEquals(1, table.size());
+
+		assertFalse(table.remove(b, a, other));
+		assertFalse(table.remove(a, c, ab));
+		assertTrue(table.remove(b, a, ab));
+		assertNull(table.get(a, b));
+		assertEquals(0, table.size());
+	}
+
+	public void testRandomOperations() {
+		Random rng = new Random(42);
+		Map<String, Connection> expected = new HashMap<String, Connection>();
+
+		for (int round=0; round<5000; round++) {
+			NetworkInterface a = interfaces.get(rng.nextInt(NROF_HOSTS));
+			NetworkInterface b = interfaces.get(rng.nextInt(NROF_HOSTS));
+			if (a == b) {
+				continue;
+			}
+			String key = Math.min(a.getAddress(), b.getAddress()) + "-" +
+				Math.max(a.getAddress(), b.getAddress());
+			Connection con = expected.get(key);
+			if (con == null) {
+				con = newConnection(a, b);
+				table.put(a, b, con);
+				expected.put(key, con);
+			}
+			else {
+				assertTrue(table.remove(a, b, con));
+				expected.remove(key);
+			}
+			assertEquals(expected.size(), table.size());
+		}
+
+		for (NetworkInterface a : interfaces) {
+			for (NetworkInterface b : interfaces) {
+				if (a == b) {
+					continue;
+				}
+				String key = Math.min(a.getAddress(), b.getAddress()) + "-" +
+					Math.max(a.getAddress(), b.getAddress());
+				assertEquals(expected.get(key), table.get(a, b));
+			}
+		}
+	}
+
+	public void testUniqueAddresses() {
+		for (int i=1; i<NROF_HOSTS; i++) {
+			assertTrue(interfaces.get(i).getAddress() >
+				interfaces.get(i-1).getAddress());
+		}
+	}
+}
@@ -159,6 +159,45 @@ public class ConnectionTest extends TestCase {
 		assertTrue(c[0].isMessageTransferred());
 	}
 
+	public void testGetNrofTransfers() {
+		int[] counts = {2, 2, 1, 1, 0}; /* transfers started in setUp */
+		assertNrofTransfers(counts);
+
+		c[0].finalizeTransfer(); /* h0 -> h1 */
+		counts = new int[] {1, 1, 1, 1, 0};
+		assertNrofTransfers(counts);
+
+		c[1].abortTransfer(); /* h0 -> h2 */
+		counts = new int[] {0, 1, 0, 1, 0};
+		assertNrofTransfers(counts);
+
+		c[3].startTransfer(h[2], m[3]); /* h2 -> h4 */
+		counts = new int[] {0, 1, 1, 1, 1};
+		assertNrofTransfers(counts);
+
+		/* a connection that goes down isn't counted even if the transfer
+		 * is aborted only after that */
+		c[3].setUpState(false);
+		counts = new int[] {0, 1, 0, 1, 0};
+		assertNrofTransfers(counts);
+		c[3].abortTransfer();
+		assertNrofTransfers(counts);
+
+		c[2].setUpState(false); /* h1 -> h3 */
+		c[2].finalizeTransfer();
+		counts = new int[] {0, 0, 0, 0, 0};
+		assertNrofTransfers(counts);
+	}
+
+	private void assertNrofTransfers(int[] counts) {
+		for (int i=0; i<nrof; i++) {
+			NetworkInterface ni = h[i].getInterfaces().get(0);
+			assertEquals("transfers of host " + i, counts[i],
+					ni.getNrofTransfers());
+			assertEquals(counts[i] > 0, ni.isTransferring());
+		}
+	}
+
 	public void testIsReadyForTransfer() {
 		assertFalse(c[0].isReadyForTransfer());
 		assertFalse(c[1].isReadyForTransfer());
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import input.ContactTraceEvent;
+import input.ContactTraceReader;
+import input.ExternalEvent;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import report.ContactTraceReport;
+import report.Report;
+import core.DTNHost;
+import core.NetworkInterface;
+import core.SimClock;
+
+/**
+ * Tests writing a contact trace with ContactTraceReport and reading it
+ * back with ContactTraceReader
+ */
+public class ContactTraceReportTest extends TestCase {
+	private static final String WLAN = "wlanInterface";
+	private static final String BT = "btInterface";
+
+	private File traceFile;
+	private ContactTraceReport report;
+	/** the changes given to the report, as strings */
+	private List<String> expected;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		TestSettings ts = new TestSettings();
+		traceFile = File.createTempFile("cttrace",
+				ContactTraceReader.TRACE_EXT);
+		ts.putSetting(ContactTraceReport.class.getSimpleName() + "." +
+				Report.OUTPUT_SETTING, traceFile.getAbsolutePath());
+		report = new ContactTraceReport();
+		expected = new ArrayList<String>();
+	}
+
+	protected void tearDown() throws Exception {
+		traceFile.delete();
+		SimClock.reset();
+		super.tearDown();
+	}
+
+	private List<DTNHost> createHosts(String interfaceType, int nrof) {
+		TestSettings ts = new TestSettings(interfaceType);
+		ts.putSetting(NetworkInterface.TRANSMIT_RANGE_S, "10");
+		ts.putSetting(NetworkInterface.TRANSMIT_SPEED_S, "1");
+		TestUtils utils = new TestUtils(null, null, ts);
+		for (int i=0; i<nrof; i++) {
+			utils.createHost();
+		}
+		return utils.getAllHosts();
+	}
+
+	/**
+	 * Gives a connection change to the report
+	 */
+	private void change(double time, DTNHost from, DTNHost to, boolean up) {
+		SimClock.getInstance().setTime(time);
+		NetworkInterface ni1 = from.getInterface(1);
+		NetworkInterface ni2 = to.getInterface(1);
+		if (up) {
+			report.interfacesConnected(ni1, ni2);
+		}
+		else {
+			report.interfacesDisconnected(ni1, ni2);
+		}
+		expected.add(toString(time, from.getAddress(), to.getAddress(),
+				ni1.getInterfaceType(), up));
+	}
+
+	private String toString(double time, int from, int to, String type,
+			boolean up) {
+		return time + " " + from + "-" + to + " " + type +
+			(up ? " up" : " down");
+	}
+
+	public void testRoundTrip() {
+		List<DTNHost> w = createHosts(WLAN, 4);
+		List<DTNHost> b = createHosts(BT, 3);
+
+		change(1, w.get(0), w.get(1), true);
+		change(1, w.get(3), w.get(2), true);
+		change(1, b.get(0), b.get(1), true); /* new type within a batch */
+		change(2.5, w.get(0), w.get(1), false);
+		change(3, b.get(1), b.get(2), true);
+		change(3, w.get(1), w.get(2), true);
+		change(3, b.get(0), b.get(1), false);
+		change(3, w.get(3), w.get(2), false);
+		change(7.25, b.get(2), b.get(1), false);
+		change(7.25, w.get(0), w.get(3), true);
+		report.done();
+
+		assertTrue(ContactTraceReader.isContactTraceFile(traceFile));
+		ContactTraceReader reader = new ContactTraceReader(traceFile);
+		List<ExternalEvent> events = new ArrayList<ExternalEvent>();
+		events.addAll(reader.readEvents(3));
+		assertEquals(3, events.size());
+		events.addAll(reader.readEvents(100));
+		assertEquals(0, reader.readEvents(100).size());
+		reader.close();
+
+		double[] times = {1, 2.5, 3, 7.25};
+		int[] nrofChanges = {3, 1, 4, 2};
+		assertEquals(times.length, events.size());
+		List<String> changes = new ArrayList<String>();
+		for (int i=0; i<events.size(); i++) {
+			ContactTraceEvent e = (ContactTraceEvent)events.get(i);
+			assertEquals(times[i], e.getTime());
+			assertEquals(nrofChanges[i], e.getNrofChanges());
+			for (int j=0; j<e.getNrofChanges(); j++) {
+				changes.add(toString(e.getTime(), e.getFromAddress(j),
+						e.getToAddress(j), e.getInterfaceId(j), e.isUp(j)));
+			}
+		}
+		assertEquals(expected, changes);
+	}
+}
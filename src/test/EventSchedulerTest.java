@@ -0,0 +1,89 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import input.EventScheduler;
+import input.ScheduledUpdatesQueue;
+import junit.framework.TestCase;
+
+/**
+ * Tests for the EventScheduler
+ */
+public class EventSchedulerTest extends TestCase {
+	private static double MAX = Double.MAX_VALUE;
+	private EventScheduler es;
+	private ScheduledUpdatesQueue q1;
+	private ScheduledUpdatesQueue q2;
+	private ScheduledUpdatesQueue q3;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		es = new EventScheduler();
+		q1 = new ScheduledUpdatesQueue();
+		q2 = new ScheduledUpdatesQueue();
+		q3 = new ScheduledUpdatesQueue();
+	}
+
+	public void testEmpty() {
+		assertNull(es.nextQueue());
+		assertEquals(MAX, es.nextEventsTime());
+		es.register(q1);
+		assertEquals(q1, es.nextQueue());
+		assertEquals(MAX, es.nextEventsTime());
+	}
+
+	public void testOrder() {
+		q1.addUpdate(5);
+		q1.addUpdate(7);
+		q2.addUpdate(2);
+		q2.addUpdate(6);
+		q3.addUpdate(4);
+		es.register(q1);
+		es.register(q2);
+		es.register(q3);
+
+		double[] times = {2, 4, 5, 6, 7};
+		Object[] queues = {q2, q3, q1, q2, q1};
+		for (int i=0; i<times.length; i++) {
+			assertEquals(times[i], es.nextEventsTime());
+			assertEquals(queues[i], es.nextQueue());
+			es.nextQueue().nextEvent();
+			es.update(es.nextQueue());
+		}
+		assertEquals(MAX, es.nextEventsTime());
+	}
+
+	public void testTiesInRegistrationOrder() {
+		q1.addUpdate(3);
+		q2.addUpdate(1);
+		q3.addUpdate(1);
+		es.register(q3);
+		es.register(q2);
+		es.register(q1);
+
+		assertEquals(q3, es.nextQueue());
+		q3.nextEvent();
+		es.update(q3);
+		assertEquals(q2, es.nextQueue());
+		q2.nextEvent();
+		es.update(q2);
+		assertEquals(q1, es.nextQueue());
+	}
+
+	public void testUpdateAndPolled() {
+		q1.addUpdate(10);
+		es.register(q1);
+		es.registerPolled(q2);
+		assertEquals(q1, es.nextQueue());
+
+		q1.addUpdate(8);
+		es.update(q1);
+		assertEquals(8.0, es.nextEventsTime());
+
+		q2.addUpdate(1); // polled queues need no update call
+		assertEquals(q2, es.nextQueue());
+		assertEquals(1.0, es.nextEventsTime());
+	}
+}
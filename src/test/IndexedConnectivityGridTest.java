@@ -0,0 +1,174 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import interfaces.IndexedConnectivityGrid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import core.Coord;
+import core.DTNHost;
+
+/**
+ * Tests for the IndexedConnectivityGrid class. The test world is
+ * 1000x1000.
+ */
+public class IndexedConnectivityGridTest extends AbstractOptimizerTest {
+	private static final String IFACE = "gridInterface";
+	private static final int NROF_ROUNDS = 20;
+
+	private List<DTNHost> hosts;
+	private Random rng;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		hosts = new ArrayList<DTNHost>();
+		rng = new Random(11);
+	}
+
+	private void addHost(double range, double x, double y) {
+		hosts.add(createHost(IFACE, IndexedConnectivityGrid.class, range,
+				new Coord(x, y)));
+	}
+
+	private IndexedConnectivityGrid getGrid() {
+		return IndexedConnectivityGrid.getGrid(IFACE.hashCode());
+	}
+
+	/**
+	 * Moves the hosts randomly and checks the near interfaces after every
+	 * move. Every other move is done without advancing the clock, like when
+	 * the hosts are updated by an external event just before they move.
+	 * @param step Maximum distance a host moves on each axis
+	 * @param outside How far outside the world a host may move
+	 */
+	private void moveAndCheck(double step, double outside) {
+		for (int round=0; round<NROF_ROUNDS; round++) {
+			for (DTNHost h : hosts) {
+				Coord c = h.getLocation().clone();
+				c.translate((rng.nextDouble() * 2 - 1) * step,
+						(rng.nextDouble() * 2 - 1) * step);
+				c.setLocation(
+						Math.max(-outside, Math.min(1000 + outside, c.getX())),
+						Math.max(-outside, Math.min(1000 + outside, c.getY())));
+				h.setLocation(c);
+			}
+			advance(getGrid(), round % 2);
+			assertNearInterfaces(getGrid());
+		}
+	}
+
+	/**
+	 * Hosts on the corners of cells (which are as large as the range), one
+	 * range apart from each other, and hosts outside the world that are in
+	 * the clamped edge cells
+	 */
+	public void testHostsOnBordersAndOutside() {
+		for (int i=0; i<=10; i++) {
+			for (int j=0; j<=10; j++) {
+				addHost(100, i * 100, j * 100);
+			}
+		}
+		addHost(100, 250, 99.999999);
+		addHost(100, 250, 199.999999);
+		addHost(100, -30, 500);
+		addHost(100, -130, 500);
+		addHost(100, -500, -500);
+		addHost(100, -420, -450);
+		addHost(100, 1070, 1000);
+		addHost(100, 1000, 1099.9);
+		addHost(100, 2000, 500);
+		addHost(100, 500, -1e6);
+
+		advance(getGrid(), 1);
+		assertNearInterfaces(getGrid());
+		moveAndCheck(20, 300);
+	}
+
+	/**
+	 * So few hosts that the cells are much larger than the range (there
+	 * are no more cells than hosts)
+	 */
+	public void testFewHostsInLargeCells() {
+		for (int i=0; i<4; i++) {
+			double x = rng.nextDouble() * 1000;
+			double y = rng.nextDouble() * 1000;
+			addHost(10, x, y);
+			addHost(10, x + 6, y - 6);
+		}
+		/* around the border of the 2x2 cells */
+		addHost(10, 497, 500);
+		addHost(10, 503, 500);
+		addHost(10, 500, 505);
+
+		advance(getGrid(), 1);
+		assertNearInterfaces(getGrid());
+		moveAndCheck(5, 20);
+	}
+
+	/**
+	 * Many hosts with two ranges; the cells are as large as the larger range
+	 */
+	public void testRandomHostsWithTwoRanges() {
+		for (int i=0; i<300; i++) {
+			addHost(i % 3 == 0 ? 80 : 25, rng.nextDouble() * 1000,
+					rng.nextDouble() * 1000);
+		}
+		advance(getGrid(), 1);
+		assertNearInterfaces(getGrid());
+		moveAndCheck(30, 100);
+	}
+
+	/**
+	 * A host moves into range after the near interfaces were already
+	 * asked for at the same simulation time
+	 */
+	public void testMoveAtSameTime() {
+		addHost(100, 100, 100);
+		addHost(100, 500, 100);
+		advance(getGrid(), 1);
+		assertEquals(0, assertNearInterfaces(getGrid()));
+
+		hosts.get(1).setLocation(new Coord(120, 100));
+		advance(getGrid(), 0);
+		assertEquals(1, assertNearInterfaces(getGrid()));
+		hosts.get(1).setLocation(new Coord(500, 100));
+		advance(getGrid(), 0);
+		assertEquals(0, assertNearInterfaces(getGrid()));
+	}
+
+	public void testConnectsAfterSameTimeMove() {
+		assertTrue(connectsAfterSameTimeMove(IndexedConnectivityGrid.class));
+	}
+
+	/**
+	 * Checks that the grid sweeps only on the update rounds when some
+	 * interface is scanning
+	 */
+	public void testNoSweepWhenNotScanning() {
+		List<DTNHost> scanningHosts = createScanningHosts(
+				IndexedConnectivityGrid.class, 3, 5);
+		IndexedConnectivityGrid grid = IndexedConnectivityGrid.getGrid(
+				SCANNING_IFACE.hashCode());
+		int nrofScanRounds = 0;
+		int nrofIdleRounds = 0;
+		for (int i=0; i<60; i++) {
+			int sweeps = grid.getNrofSweeps();
+			if (updateInterfaces(scanningHosts, rng)) {
+				assertEquals(sweeps + 1, grid.getNrofSweeps());
+				nrofScanRounds++;
+			}
+			else {
+				assertEquals(sweeps, grid.getNrofSweeps());
+				nrofIdleRounds++;
+			}
+		}
+		assertTrue(nrofScanRounds > 0);
+		assertTrue(nrofIdleRounds > 0);
+		assertFalse(scanningHosts.get(0).getConnections().isEmpty());
+	}
+}
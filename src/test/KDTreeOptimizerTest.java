@@ -0,0 +1,127 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import interfaces.KDTreeOptimizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import core.Coord;
+import core.DTNHost;
+
+/**
+ * Tests for the KDTreeOptimizer class
+ */
+public class KDTreeOptimizerTest extends AbstractOptimizerTest {
+	private static final String IFACE = "treeInterface";
+	private static final double SHORT_RANGE = 15;
+	private static final double LONG_RANGE = 60;
+	private static final int NROF_ROUNDS = 20;
+
+	private List<DTNHost> hosts;
+	private Random rng;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		hosts = new ArrayList<DTNHost>();
+		rng = new Random(12);
+	}
+
+	private void addHost(double range, double x, double y) {
+		hosts.add(createHost(IFACE, KDTreeOptimizer.class, range,
+				new Coord(x, y)));
+	}
+
+	/** Returns one of the two ranges, the long one for every fourth host */
+	private double nextRange() {
+		return (rng.nextInt(4) == 0 ? LONG_RANGE : SHORT_RANGE);
+	}
+
+	private KDTreeOptimizer getTree() {
+		return KDTreeOptimizer.getOptimizer(IFACE.hashCode());
+	}
+
+	/**
+	 * Moves the hosts randomly and checks the near interfaces after every
+	 * move. Every other move is done without advancing the clock, like when
+	 * the hosts are updated by an external event just before they move.
+	 * @param snap Should the new locations be rounded to multiples of ten
+	 * (so many hosts share coordinates)
+	 */
+	private void moveAndCheck(boolean snap) {
+		for (int round=0; round<NROF_ROUNDS; round++) {
+			for (DTNHost h : hosts) {
+				Coord c = h.getLocation().clone();
+				c.translate(rng.nextDouble() * 40 - 20,
+						rng.nextDouble() * 40 - 20);
+				if (snap) {
+					c.setLocation(Math.round(c.getX() / 10) * 10,
+							Math.round(c.getY() / 10) * 10);
+				}
+				h.setLocation(c);
+			}
+			advance(getTree(), round % 2);
+			assertTrue(assertNearInterfaces(getTree()) > 0);
+		}
+	}
+
+	public void testRandomHosts() {
+		for (int i=0; i<500; i++) {
+			addHost(nextRange(), rng.nextDouble() * 1000,
+					rng.nextDouble() * 1000);
+		}
+		advance(getTree(), 1);
+		assertTrue(assertNearInterfaces(getTree()) > 0);
+		moveAndCheck(false);
+	}
+
+	/**
+	 * A host moves into range after the near interfaces were already
+	 * asked for at the same simulation time
+	 */
+	public void testMoveAtSameTime() {
+		addHost(SHORT_RANGE, 100, 100);
+		addHost(SHORT_RANGE, 500, 100);
+		advance(getTree(), 1);
+		assertEquals(0, assertNearInterfaces(getTree()));
+
+		hosts.get(1).setLocation(new Coord(110, 100));
+		advance(getTree(), 0);
+		assertEquals(1, assertNearInterfaces(getTree()));
+	}
+
+	/**
+	 * Hosts on a coarse lattice, so most split coordinates are shared by
+	 * many hosts on both sides of the split
+	 */
+	public void testDuplicateCoordinates() {
+		for (int i=0; i<400; i++) {
+			addHost(nextRange(), rng.nextInt(20) * 10, rng.nextInt(20) * 10);
+		}
+		advance(getTree(), 1);
+		assertTrue(assertNearInterfaces(getTree()) > 0);
+		moveAndCheck(true);
+	}
+
+	/**
+	 * Stacks of hosts in exactly the same location and hosts on the same
+	 * line, which give nodes with no spread along either axis
+	 */
+	public void testHostsInSameLocation() {
+		for (int i=0; i<30; i++) {
+			addHost(nextRange(), 500, 500);
+			addHost(nextRange(), 100, 100 + i * 7);
+			addHost(nextRange(), 500 + SHORT_RANGE, 500);
+		}
+		for (int i=0; i<30; i++) {
+			addHost(nextRange(), 500 + LONG_RANGE, 500);
+		}
+		advance(getTree(), 1);
+		assertTrue(assertNearInterfaces(getTree()) > 0);
+		moveAndCheck(true);
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import interfaces.KineticContactPredictor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import core.Coord;
+import core.DTNHost;
+import core.NetworkInterface;
+import core.World;
+
+/**
+ * Tests for the KineticContactPredictor class
+ */
+public class KineticContactPredictorTest extends AbstractOptimizerTest {
+	/** how much farther than the range a predicted near interface may be */
+	private static final double MARGIN = 1e-4;
+	private static final int NROF_TICKS = 200;
+
+	/**
+	 * Runs the map world with connectivity grids and with predictors and
+	 * checks the predicted near interfaces after every update
+	 */
+	public void testSameConnectionsAsGrid() {
+		List<List<String>> expected = runMapWorld(false);
+		List<List<String>> predicted = runMapWorld(true);
+		for (int i=0; i<NROF_TICKS; i++) {
+			assertEquals("Connections differ at tick " + i, expected.get(i),
+					predicted.get(i));
+		}
+	}
+
+	/**
+	 * Runs a map world and returns its connections after every tick
+	 * @param predict Should predictors be used instead of grids
+	 */
+	private List<List<String>> runMapWorld(boolean predict) {
+		TestSettings ts = new TestSettings();
+		ts.putSetting(World.OPTIMIZATION_SETTINGS_NS + "." +
+				KineticContactPredictor.CONTACT_PREDICTION_S, "" + predict);
+		MapTestWorld world = new MapTestWorld(ts, 40, true);
+		List<List<String>> connections = new ArrayList<List<String>>();
+		int nrofPairs = 0;
+		try {
+			KineticContactPredictor kcp = (predict ? KineticContactPredictor.
+				getPredictor(TestUtils.IFACE_NS.hashCode()) : null);
+			for (int i=0; i<NROF_TICKS; i++) {
+				world.update(1);
+				connections.add(world.getConnections());
+				if (predict) {
+					nrofPairs += assertNearInterfaces(kcp, MARGIN);
+				}
+			}
+		} finally {
+			world.exit();
+		}
+		if (predict) {
+			assertTrue(nrofPairs > 0);
+		}
+		return connections;
+	}
+
+	/**
+	 * Moves stationary hosts around, mostly a little but sometimes far and
+	 * out of the world, and checks the near interfaces after every move
+	 */
+	public void testJumpingHosts() {
+		TestSettings ts = new TestSettings();
+		ts.setNameSpace(TestUtils.IFACE_NS);
+		ts.putSetting(NetworkInterface.TRANSMIT_RANGE_S, "100");
+		ts.putSetting(NetworkInterface.TRANSMIT_SPEED_S, "1");
+		ts.putSetting(NetworkInterface.OPTIMIZER_S,
+				KineticContactPredictor.class.getSimpleName());
+		TestUtils utils = new TestUtils(null, null, ts);
+		Random rng = new Random(4);
+
+		List<DTNHost> hosts = new ArrayList<DTNHost>();
+		for (int i=0; i<60; i++) {
+			hosts.add(utils.createHost(new Coord(rng.nextInt(1000),
+					rng.nextInt(1000))));
+		}
+		KineticContactPredictor kcp = KineticContactPredictor.getPredictor(
+				TestUtils.IFACE_NS.hashCode());
+
+		int nrofPairs = 0;
+		for (int round=0; round<100; round++) {
+			for (DTNHost h : hosts) {
+				double r = rng.nextDouble();
+				Coord c = h.getLocation().clone();
+				if (r < 0.3) { /* a small step, less than the drift */
+					c.translate(rng.nextDouble() * 20 - 10,
+							rng.nextDouble() * 20 - 10);
+				}
+				else if (r < 0.32) { /* anywhere, also out of the world */
+					c.setLocation(rng.nextInt(1400) - 200,
+							rng.nextInt(1400) - 200);
+				}
+				h.setLocation(c);
+			}
+			advance(kcp, 1);
+			nrofPairs += assertNearInterfaces(kcp, MARGIN);
+		}
+		assertTrue(nrofPairs > 0);
+	}
+
+	public void testConnectsAfterSameTimeMove() {
+		assertTrue(connectsAfterSameTimeMove(KineticContactPredictor.class));
+	}
+
+	/**
+	 * Checks that the predictions are updated only on the update rounds
+	 * when some interface is scanning
+	 */
+	public void testNoPredictionsWhenNotScanning() {
+		Random rng = new Random(20);
+		List<DTNHost> hosts = createScanningHosts(
+				KineticContactPredictor.class, 3, 5);
+		KineticContactPredictor kcp = KineticContactPredictor.getPredictor(
+				SCANNING_IFACE.hashCode());
+		int nrofScanRounds = 0;
+		int nrofIdleRounds = 0;
+		for (int i=0; i<60; i++) {
+			int sweeps = kcp.getNrofSweeps();
+			if (updateInterfaces(hosts, rng)) {
+				assertEquals(sweeps + 1, kcp.getNrofSweeps());
+				nrofScanRounds++;
+			}
+			else {
+				assertEquals(sweeps, kcp.getNrofSweeps());
+				nrofIdleRounds++;
+			}
+		}
+		assertTrue(nrofScanRounds > 0);
+		assertTrue(nrofIdleRounds > 0);
+		assertFalse(hosts.get(0).getConnections().isEmpty());
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import input.EventQueue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import interfaces.SimpleBroadcastInterface;
+import movement.MapBasedMovement;
+import movement.MovementModel;
+import movement.map.MapNode;
+import movement.map.SimMap;
+import routing.PassiveRouter;
+import core.Connection;
+import core.Coord;
+import core.DTNHost;
+import core.ModuleCommunicationBus;
+import core.NetworkInterface;
+import core.SimulationContext;
+import core.UpdateListener;
+import core.World;
+
+/**
+ * A small world for tests that compare simulation runs: hosts with a
+ * broadcast interface that move randomly on a grid map. Every world is
+ * created in a simulation context of its own, so worlds created with the
+ * same settings start from the same state. The calling thread works in the
+ * world's context until {@link #exit()} is called.
+ */
+public class MapTestWorld {
+	/** number of map nodes on each side of the grid */
+	public static final int GRID_SIZE = 8;
+	/** distance between adjacent map nodes */
+	public static final double GRID_SPACING = 50;
+	/** transmit range of the interfaces */
+	public static final double RANGE = 40;
+	/** update interval of the world */
+	public static final double UP_INTERVAL = 1;
+
+	private final SimulationContext context;
+	private final List<DTNHost> hosts;
+	private final World world;
+
+	/**
+	 * Creates a new world. The optimization settings must be in the
+	 * settings before the world is created.
+	 * @param ts The test settings (movement and interface settings are
+	 * added to these)
+	 * @param nrofHosts Number of hosts
+	 * @param simulateConnections Should the world simulate connections
+	 */
+	public MapTestWorld(TestSettings ts, int nrofHosts,
+			boolean simulateConnections) {
+		this.context = new SimulationContext(0);
+		this.context.enter();
+
+		ts.putSetting(MovementModel.SPEED, "5,15");
+		ts.putSetting(MovementModel.WAIT_TIME, "0,10");
+		TestSettings ifaceSettings = new TestSettings(TestUtils.IFACE_NS);
+		ifaceSettings.putSetting(NetworkInterface.TRANSMIT_RANGE_S,
+				"" + RANGE);
+		ifaceSettings.putSetting(NetworkInterface.TRANSMIT_SPEED_S, "1000");
+
+		MovementModel mmProto = new MapBasedMovement(ts, createMap(), 1);
+		List<NetworkInterface> ifaces = new ArrayList<NetworkInterface>();
+		ifaces.add(new SimpleBroadcastInterface(ifaceSettings));
+		PassiveRouter router = new PassiveRouter(ts);
+
+		this.hosts = new ArrayList<DTNHost>();
+		for (int i=0; i<nrofHosts; i++) {
+			hosts.add(new DTNHost(null, null, "h", ifaces,
+					new ModuleCommunicationBus(), mmProto, router));
+		}
+		int size = (int)(GRID_SIZE * GRID_SPACING);
+		this.world = new World(hosts, size, size, UP_INTERVAL,
+				new ArrayList<UpdateListener>(), simulateConnections,
+				new ArrayList<EventQueue>());
+	}
+
+	/**
+	 * Creates a grid map of two-way roads
+	 */
+	private SimMap createMap() {
+		Map<Coord, MapNode> nodes = new HashMap<Coord, MapNode>();
+		MapNode[][] grid = new MapNode[GRID_SIZE][GRID_SIZE];
+		for (int i=0; i<GRID_SIZE; i++) {
+			for (int j=0; j<GRID_SIZE; j++) {
+				Coord c = new Coord(j * GRID_SPACING, i * GRID_SPACING);
+				grid[i][j] = new MapNode(c);
+				nodes.put(c, grid[i][j]);
+				if (j > 0) {
+					link(grid[i][j], grid[i][j-1]);
+				}
+				if (i > 0) {
+					link(grid[i][j], grid[i-1][j]);
+				}
+			}
+		}
+		return new SimMap(nodes);
+	}
+
+	private void link(MapNode n1, MapNode n2) {
+		n1.addNeighbor(n2);
+		n2.addNeighbor(n1);
+	}
+
+	/**
+	 * Makes the calling thread work in the context of this world
+	 */
+	public void enter() {
+		this.context.enter();
+	}
+
+	/**
+	 * Shuts down the world's worker threads and returns the calling thread
+	 * to the default context
+	 */
+	public void exit() {
+		this.world.done();
+		SimulationContext.exit();
+	}
+
+	/**
+	 * Updates the world
+	 * @param nrofTicks How many update intervals the world is updated
+	 */
+	public void update(int nrofTicks) {
+		for (int i=0; i<nrofTicks; i++) {
+			this.world.update();
+		}
+	}
+
+	public World getWorld() {
+		return this.world;
+	}
+
+	public List<DTNHost> getHosts() {
+		return this.hosts;
+	}
+
+	/**
+	 * Returns the locations of the hosts
+	 * @return The locations in the order of the host addresses
+	 */
+	public List<Coord> getLocations() {
+		List<Coord> locations = new ArrayList<Coord>();
+		for (DTNHost h : this.hosts) {
+			locations.add(h.getLocation().clone());
+		}
+		return locations;
+	}
+
+	/**
+	 * Returns the current speeds of the hosts
+	 * @return The speeds in the order of the host addresses
+	 */
+	public List<Double> getSpeeds() {
+		List<Double> speeds = new ArrayList<Double>();
+		for (DTNHost h : this.hosts) {
+			speeds.add(h.getCurrentSpeed());
+		}
+		return speeds;
+	}
+
+	/**
+	 * Returns the connections that are up as strings of the host addresses
+	 * (the smaller address first)
+	 * @return The connections, sorted
+	 */
+	public List<String> getConnections() {
+		List<String> cons = new ArrayList<String>();
+		for (DTNHost h : this.hosts) {
+			for (Connection c : h.getConnections()) {
+				DTNHost other = c.getOtherNode(h);
+				if (h.getAddress() < other.getAddress()) {
+					cons.add(h.getAddress() + "-" + other.getAddress());
+				}
+			}
+		}
+		Collections.sort(cons);
+		return cons;
+	}
+}
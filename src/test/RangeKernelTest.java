@@ -0,0 +1,57 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import interfaces.RangeKernel;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the RangeKernel class
+ */
+public class RangeKernelTest extends TestCase {
+
+	public void testSameAsSquareRoot() {
+		Random rng = new Random(1);
+		for (int i=0; i<100000; i++) {
+			double range = rng.nextDouble() * 100;
+			double angle = rng.nextDouble() * 2 * Math.PI;
+			/* points very close to the range boundary */
+			double d = range + (rng.nextInt(21) - 10) * Math.ulp(range);
+			double dx = d * Math.cos(angle);
+			double dy = d * Math.sin(angle);
+			assertEquals(Math.sqrt(dx*dx + dy*dy) <= range,
+					RangeKernel.isWithinRange(dx, dy, range));
+		}
+		assertTrue(RangeKernel.isWithinRange(0, 0, 0));
+		assertFalse(RangeKernel.isWithinRange(0, 1e-100, 0));
+		assertTrue(RangeKernel.isWithinRange(1e10, 1e10,
+				Double.POSITIVE_INFINITY));
+	}
+
+	public void testBatch() {
+		double[] xs = {0, 3, 0, 10, 6, 5};
+		double[] ys = {0, 4, 5, 0, 0, 0};
+		double[] ranges = {9, 9, 4, 9, 9, 9};
+		boolean[] hits = new boolean[xs.length];
+
+		int n = RangeKernel.withinRange(0, 0, 5, xs, ys, ranges, 0, 6, hits);
+		assertEquals(3, n);
+		assertTrue(hits[0]);
+		assertTrue(hits[1]);  /* exactly at the range */
+		assertFalse(hits[2]); /* the candidate's range is smaller */
+		assertFalse(hits[3]);
+		assertFalse(hits[4]);
+		assertTrue(hits[5]);
+
+		n = RangeKernel.withinRange(0, 0, 5, xs, ys, ranges, 3, 6, hits);
+		assertEquals(1, n);
+		assertFalse(hits[0]);
+		assertFalse(hits[1]);
+		assertTrue(hits[2]);
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import movement.Path;
+import movement.map.MapNode;
+import movement.map.ReroutingEngine;
+import movement.map.SimMap;
+import core.Coord;
+import core.Road;
+import core.RoadNetwork;
+
+/**
+ * Tests for the ReroutingEngine class
+ */
+public class ReroutingEngineTest extends TestCase {
+	private static final int SIZE = 6;
+	private MapNode[][] grid;
+	private RoadNetwork network;
+
+	/**
+	 * Creates a SIZE x SIZE grid of two-way roads that are 100 m long
+	 */
+	protected void setUp() throws Exception {
+		super.setUp();
+		Map<Coord, MapNode> nodes = new HashMap<Coord, MapNode>();
+		grid = new MapNode[SIZE][SIZE];
+		for (int i=0; i<SIZE; i++) {
+			for (int j=0; j<SIZE; j++) {
+				Coord c = new Coord(j * 100, i * 100);
+				grid[i][j] = new MapNode(c);
+				nodes.put(c, grid[i][j]);
+			}
+		}
+		for (int i=0; i<SIZE; i++) {
+			for (int j=0; j<SIZE; j++) {
+				if (j > 0) {
+					grid[i][j].addNeighbor(grid[i][j-1]);
+					grid[i][j-1].addNeighbor(grid[i][j]);
+				}
+				if (i > 0) {
+					grid[i][j].addNeighbor(grid[i-1][j]);
+					grid[i-1][j].addNeighbor(grid[i][j]);
+				}
+			}
+		}
+		network = new SimMap(nodes).getRoadNetwork();
+	}
+
+	private Coord loc(int i, int j) {
+		return grid[i][j].getLocation();
+	}
+
+	public void testCongestedRoadIsAvoided() {
+		ReroutingEngine engine = new ReroutingEngine(network, 10);
+		assertEquals(50.0, engine.getTravelTime(loc(0, 0), loc(0, 5)));
+		Path p = engine.getPath(loc(0, 0), loc(0, 5), 5);
+		assertEquals(6, p.getCoords().size());
+		assertSame(loc(0, 0), p.getCoords().get(0));
+		assertSame(loc(0, 5), p.getCoords().get(5));
+
+		/* a traffic jam on the road (0,2) -> (0,3) */
+		Road jam = network.getRoad(loc(0, 2), loc(0, 3));
+		engine.setSpeed(jam, 1);
+		assertEquals(70.0, engine.getTravelTime(loc(0, 0), loc(0, 5)));
+		List<Coord> coords = engine.getPath(loc(0, 0), loc(0, 5), 5).getCoords();
+		assertEquals(8, coords.size());
+		for (int k=1; k<coords.size(); k++) {
+			assertFalse(jam.isSameRoad(network.getRoad(coords.get(k-1),
+					coords.get(k))));
+		}
+		/* the other direction is still free */
+		assertEquals(50.0, engine.getTravelTime(loc(0, 5), loc(0, 0)));
+
+		/* small changes are ignored, the jam clearing isn't */
+		engine.setSpeed(jam, 1.1);
+		assertEquals(100.0, engine.getTravelTime(jam.getId()));
+		engine.setSpeed(jam, 10);
+		assertEquals(50.0, engine.getTravelTime(loc(0, 0), loc(0, 5)));
+	}
+
+	public void testNoRoute() {
+		ReroutingEngine engine = new ReroutingEngine(network, 10);
+		Coord notOnMap = new Coord(0, 0);
+		assertNull(engine.getPath(notOnMap, loc(0, 5), 5));
+		assertEquals(Double.POSITIVE_INFINITY,
+				engine.getTravelTime(loc(0, 0), notOnMap));
+		Path p = engine.getPath(loc(1, 1), loc(1, 1), 5);
+		assertEquals(1, p.getCoords().size());
+	}
+
+	public void testIncrementalRepairMatchesNewSearch() {
+		Random rng = new Random(1);
+		ReroutingEngine engine = new ReroutingEngine(network, 10);
+		/* the speed reports so far (road id, speed) */
+		List<double[]> reports = new ArrayList<double[]>();
+		int[] goals = {0, 7, 20, SIZE * SIZE - 1};
+
+		for (int round=0; round<30; round++) {
+			for (int goal : goals) { /* use (and repair) the trees */
+				engine.getTravelTime(loc(0, 0), network.getLocation(goal));
+			}
+			for (int k=0; k<5; k++) {
+				int road = rng.nextInt(network.getNrofRoads());
+				double speed = 0.5 + rng.nextDouble() * 15;
+				engine.setSpeed(network.getRoad(road), speed);
+				reports.add(new double[] {road, speed});
+			}
+
+			ReroutingEngine fresh = new ReroutingEngine(network, 10);
+			for (double[] report : reports) {
+				fresh.setSpeed(network.getRoad((int)report[0]), report[1]);
+			}
+			for (int road=0; road<network.getNrofRoads(); road++) {
+				assertEquals(fresh.getTravelTime(road),
+						engine.getTravelTime(road));
+			}
+			for (int goal : goals) {
+				for (int node=0; node<network.getNrofNodes(); node++) {
+					Coord from = network.getLocation(node);
+					Coord to = network.getLocation(goal);
+					double expected = fresh.getTravelTime(from, to);
+					assertEquals(expected, engine.getTravelTime(from, to),
+							1e-9);
+					assertEquals(expected, travelTime(engine,
+							engine.getPath(from, to, 1)), 1e-9);
+				}
+			}
+		}
+	}
+
+	/**
+	 * An engine that keeps only two trees gives the same routes as an
+	 * engine that keeps all of them, also when a dropped tree is needed
+	 * again
+	 */
+	public void testTreesAreBounded() {
+		ReroutingEngine small = new ReroutingEngine(network, 10, 2);
+		ReroutingEngine large = new ReroutingEngine(network, 10);
+		Random rng = new Random(2);
+		Coord start = loc(0, 0);
+
+		for (int round=0; round<20; round++) {
+			for (int k=0; k<3; k++) {
+				Road road = network.getRoad(rng.nextInt(
+						network.getNrofRoads()));
+				double speed = 0.5 + rng.nextDouble() * 15;
+				small.setSpeed(road, speed);
+				large.setSpeed(road, speed);
+			}
+			for (int k=0; k<3; k++) {
+				Coord goal = network.getLocation(rng.nextInt(
+						network.getNrofNodes()));
+				assertEquals(large.getTravelTime(start, goal),
+						small.getTravelTime(start, goal), 1e-9);
+				assertTrue(small.getNrofTrees() <= 2);
+			}
+		}
+		assertTrue(large.getNrofTrees() > 2);
+	}
+
+	/**
+	 * Returns the sum of the travel times of the roads of a path
+	 */
+	private double travelTime(ReroutingEngine engine, Path p) {
+		List<Coord> coords = p.getCoords();
+		double time = 0;
+		for (int k=1; k<coords.size(); k++) {
+			Road r = network.getRoad(coords.get(k-1), coords.get(k));
+			assertTrue(r.getId() >= 0);
+			time += engine.getTravelTime(r.getId());
+		}
+		return time;
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+import core.Coord;
+import core.DTNHost;
+import core.Road;
+import core.RoadIndex;
+
+/**
+ * Tests for the RoadIndex class
+ */
+public class RoadIndexTest extends TestCase {
+	private static final Coord A = new Coord(0, 0);
+	private static final Coord B = new Coord(100, 0);
+	private static final Coord C = new Coord(100, 100);
+
+	private RoadIndex index;
+	private TestUtils utils;
+	private Road ab;
+	private Road ba;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.index = new RoadIndex();
+		this.utils = new TestUtils(null, null, new TestSettings());
+		this.ab = new Road("ab", A, B);
+		this.ba = new Road("ba", B.clone(), A.clone());
+	}
+
+	public void testFrontNode() {
+		DTNHost h1 = utils.createHost();
+		DTNHost h2 = utils.createHost();
+		DTNHost h3 = utils.createHost();
+		DTNHost other = utils.createHost();
+		index.add(h3, ab, new Coord(70, 0));
+		index.add(h1, ab, new Coord(10, 0));
+		index.add(other, new Road("bc", B, C), new Coord(100, 20));
+		index.add(h2, ab, new Coord(40, 0));
+		index.build();
+
+		assertEquals(h2, index.getFrontNode(h1, ab, new Coord(10, 0)));
+		assertEquals(h3, index.getFrontNode(h2, ab, new Coord(40, 0)));
+		assertNull(index.getFrontNode(h3, ab, new Coord(70, 0)));
+		assertEquals(h1, index.getFrontNode(other, ab, new Coord(0, 0)));
+		assertNull(index.getFrontNode(h1, new Road("ca", C, A), A));
+
+		List<DTNHost> onRoad = index.getHostsOnRoad(ab);
+		assertEquals(3, onRoad.size());
+		assertEquals(h1, onRoad.get(0));
+		assertEquals(h2, onRoad.get(1));
+		assertEquals(h3, onRoad.get(2));
+	}
+
+	public void testOncomingNode() {
+		DTNHost h1 = utils.createHost();
+		DTNHost o1 = utils.createHost();
+		DTNHost o2 = utils.createHost();
+		index.add(h1, ab, new Coord(50, 0));
+		index.add(o1, ba, new Coord(80, 0)); /* ahead of h1 */
+		index.add(o2, ba, new Coord(30, 0)); /* already passed h1 */
+		index.build();
+
+		assertEquals(o1, index.getOncomingNode(h1, ab, new Coord(50, 0)));
+		assertEquals(o2, index.getOncomingNode(h1, ab, new Coord(20, 0)));
+		assertNull(index.getOncomingNode(h1, ab, new Coord(90, 0)));
+		assertEquals(h1, index.getOncomingNode(o1, ba, new Coord(80, 0)));
+	}
+
+	public void testClear() {
+		DTNHost h1 = utils.createHost();
+		DTNHost h2 = utils.createHost();
+		index.add(h1, ab, new Coord(10, 0));
+		index.add(h2, ab, new Coord(20, 0));
+		index.build();
+		index.clear();
+		index.add(h2, ab, new Coord(30, 0));
+		index.build();
+
+		assertNull(index.getFrontNode(h2, ab, new Coord(30, 0)));
+		assertEquals(h2, index.getFrontNode(h1, ab, new Coord(25, 0)));
+		assertEquals(1, index.getHostsOnRoad(ab).size());
+	}
+}
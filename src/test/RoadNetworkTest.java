@@ -0,0 +1,82 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import movement.map.MapNode;
+import movement.map.SimMap;
+import core.Coord;
+import core.Road;
+import core.RoadNetwork;
+
+/**
+ * Tests for the RoadNetwork and Road classes
+ */
+public class RoadNetworkTest extends TestCase {
+	private MapNode a, b, c;
+	private RoadNetwork network;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		Map<Coord, MapNode> nodes = new HashMap<Coord, MapNode>();
+		a = newNode(nodes, 0, 0);
+		b = newNode(nodes, 30, 40);
+		c = newNode(nodes, 30, 0);
+		/* a <-> b, b -> c (one-way) */
+		a.addNeighbor(b);
+		b.addNeighbor(a);
+		b.addNeighbor(c);
+		network = new SimMap(nodes).getRoadNetwork();
+	}
+
+	private MapNode newNode(Map<Coord, MapNode> nodes, double x, double y) {
+		Coord loc = new Coord(x, y);
+		MapNode node = new MapNode(loc);
+		nodes.put(loc, node);
+		return node;
+	}
+
+	public void testRoads() {
+		assertEquals(3, network.getNrofRoads());
+		Road ab = network.getRoad(a.getLocation(), b.getLocation());
+		Road ba = network.getRoad(b.getLocation(), a.getLocation());
+		Road bc = network.getRoad(b.getLocation(), c.getLocation());
+
+		assertSame(ab, network.getRoad(a.getLocation(), b.getLocation()));
+		assertSame(ab, network.getRoad(ab.getId()));
+		assertTrue(ab.getId() >= 0 && ab.getId() != ba.getId());
+		assertEquals(50.0, ab.getLength());
+		assertEquals(Math.atan2(40, 30), ab.getHeading());
+		assertEquals("(0.00,0.00), (30.00,40.00)", ab.getRoadName());
+
+		assertSame(ba, ab.getReverse());
+		assertSame(ab, ba.getReverse());
+		assertNull(bc.getReverse());
+		assertTrue(ab.isOppositeLane(ba));
+		assertFalse(ab.isOppositeLane(ab));
+		assertFalse(bc.isOppositeLane(ab));
+		assertTrue(ab.isSameRoad(ab));
+		assertFalse(ab.isSameRoad(ba));
+	}
+
+	public void testRoadsNotOnMap() {
+		Road first = network.getRoad(null, a.getLocation());
+		assertEquals(-1, first.getId());
+		assertEquals("null, (0.00,0.00)", first.getRoadName());
+		assertTrue(first.isSameRoad(network.getRoad(null, a.getLocation())));
+		assertFalse(first.isOppositeLane(first));
+
+		Road ca = network.getRoad(c.getLocation(), a.getLocation());
+		assertEquals(-1, ca.getId());
+		assertTrue(ca.isSameRoad(new Road("ca", new Coord(30, 0),
+				new Coord(0, 0))));
+		Road ab = network.getRoad(a.getLocation(), b.getLocation());
+		assertFalse(ca.isSameRoad(ab));
+		assertFalse(ab.isSameRoad(null));
+	}
+}
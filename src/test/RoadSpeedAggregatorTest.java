@@ -0,0 +1,74 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import junit.framework.TestCase;
+import applications.RoadSpeedAggregator;
+import core.Coord;
+import core.DTNHost;
+import core.Road;
+
+/**
+ * Tests for the RoadSpeedAggregator class
+ */
+public class RoadSpeedAggregatorTest extends TestCase {
+	private static final Coord A = new Coord(0, 0);
+	private static final Coord B = new Coord(100, 0);
+
+	private RoadSpeedAggregator speeds;
+	private Road ab;
+	private Road ba;
+	private DTNHost h1, h2, h3;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		TestUtils utils = new TestUtils(null, null, new TestSettings());
+		this.speeds = new RoadSpeedAggregator(10);
+		this.ab = new Road(null, A, B);
+		this.ba = new Road(null, B, A);
+		this.h1 = utils.createHost();
+		this.h2 = utils.createHost();
+		this.h3 = utils.createHost();
+	}
+
+	public void testAverage() {
+		assertEquals(0, speeds.getNrofSamples(ab, 0));
+		assertTrue(Double.isNaN(speeds.getAverageSpeed(ab, 0)));
+
+		speeds.addSample(h1, ab, 4, 0);
+		speeds.addSample(h2, ab, 8, 1);
+		speeds.addSample(h3, ba, 20, 1);
+		assertEquals(2, speeds.getNrofSamples(ab, 1));
+		assertEquals(6.0, speeds.getAverageSpeed(ab, 1));
+		assertEquals(20.0, speeds.getAverageSpeed(ba, 1));
+		assertEquals(3, speeds.size(1));
+
+		/* only the latest sample of a sender counts */
+		speeds.addSample(h1, ab, 10, 2);
+		assertEquals(2, speeds.getNrofSamples(ab, 2));
+		assertEquals(9.0, speeds.getAverageSpeed(ab, 2));
+		speeds.addSample(h2, ba, 10, 3);
+		assertEquals(1, speeds.getNrofSamples(ab, 3));
+		assertEquals(15.0, speeds.getAverageSpeed(ba, 3));
+		speeds.addSample(h3, null, 0, 3);
+		assertEquals(10.0, speeds.getAverageSpeed(ba, 3));
+		assertEquals(2, speeds.size(3));
+	}
+
+	public void testExpiry() {
+		speeds.addSample(h1, ab, 4, 0);
+		speeds.addSample(h2, ab, 8, 5);
+		speeds.addSample(h1, ab, 6, 6);
+		assertEquals(7.0, speeds.getAverageSpeed(ab, 10));
+		assertEquals(2, speeds.getNrofSamples(ab, 15));
+		assertEquals(1, speeds.getNrofSamples(ab, 15.5));
+		assertEquals(6.0, speeds.getAverageSpeed(ab, 15.5));
+		assertEquals(0, speeds.getNrofSamples(ab, 17));
+		assertEquals(0, speeds.size(17));
+
+		speeds.addSample(h2, ab, 2, 20);
+		assertEquals(2.0, speeds.getAverageSpeed(ab, 20));
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+import movement.map.DijkstraPathFinder;
+import movement.map.MapNode;
+import movement.map.RouteCache;
+import core.Coord;
+import core.World;
+
+/**
+ * Tests for the RouteCache class and its use in DijkstraPathFinder
+ */
+public class RouteCacheTest extends TestCase {
+	private static final int SIZE = 5;
+	private MapNode[] nodes;
+
+	/**
+	 * Creates a SIZE x SIZE grid of nodes with different edge lengths
+	 */
+	protected void setUp() throws Exception {
+		super.setUp();
+		nodes = new MapNode[SIZE * SIZE];
+		for (int i=0; i<nodes.length; i++) {
+			nodes[i] = new MapNode(new Coord((i % SIZE) * 10 + i % 3,
+					(i / SIZE) * 10));
+		}
+		for (int i=0; i<nodes.length; i++) {
+			if (i % SIZE > 0) {
+				link(nodes[i], nodes[i-1]);
+			}
+			if (i >= SIZE) {
+				link(nodes[i], nodes[i-SIZE]);
+			}
+		}
+	}
+
+	protected void tearDown() throws Exception {
+		new TestSettings(); /* drops the cache size setting */
+		RouteCache.reset();
+		super.tearDown();
+	}
+
+	private void link(MapNode n1, MapNode n2) {
+		n1.addNeighbor(n2);
+		n2.addNeighbor(n1);
+	}
+
+	private void enableCache(int size) {
+		TestSettings ts = new TestSettings();
+		ts.putSetting(World.OPTIMIZATION_SETTINGS_NS + "." +
+				RouteCache.ROUTE_CACHE_SIZE_S, "" + size);
+		RouteCache.reset();
+	}
+
+	public void testLeastRecentlyUsedPathIsDropped() {
+		RouteCache cache = new RouteCache(2);
+		List<MapNode> p01 = Arrays.asList(nodes[0], nodes[1]);
+		List<MapNode> p12 = Arrays.asList(nodes[1], nodes[2]);
+		List<MapNode> p23 = Arrays.asList(nodes[2], nodes[3]);
+
+		cache.put(nodes[0], nodes[1], null, p01);
+		cache.put(nodes[1], nodes[2], null, p12);
+		assertEquals(p01, cache.get(nodes[0], nodes[1], null));
+		cache.put(nodes[2], nodes[3], null, p23); /* drops 1 -> 2 */
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictions());
+		assertNull(cache.get(nodes[1], nodes[2], null));
+		assertEquals(p01, cache.get(nodes[0], nodes[1], null));
+		assertEquals(p23, cache.get(nodes[2], nodes[3], null));
+		assertEquals(3, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	public void testKeyIncludesNodeTypes() {
+		RouteCache cache = new RouteCache(10);
+		int[] types = {1, 2};
+		List<MapNode> path = Arrays.asList(nodes[0], nodes[1]);
+		cache.put(nodes[0], nodes[1], types, path);
+		types[0] = 3; /* the cached key isn't changed */
+
+		assertNull(cache.get(nodes[0], nodes[1], null));
+		assertNull(cache.get(nodes[0], nodes[1], new int[] {3, 2}));
+		assertNull(cache.get(nodes[1], nodes[0], new int[] {1, 2}));
+		assertEquals(path, cache.get(nodes[0], nodes[1], new int[] {1, 2}));
+	}
+
+	public void testCacheIsDisabledByDefault() {
+		new TestSettings();
+		RouteCache.reset();
+		assertNull(RouteCache.getInstance());
+	}
+
+	/**
+	 * A path finder looks up the cache of the run only on its first search
+	 */
+	public void testFinderKeepsItsCache() {
+		enableCache(100);
+		RouteCache cache = RouteCache.getInstance();
+		DijkstraPathFinder pf = new DijkstraPathFinder(null);
+		pf.getShortestPath(nodes[0], nodes[nodes.length-1]);
+
+		enableCache(100); /* a new cache for the next finders */
+		assertNotSame(cache, RouteCache.getInstance());
+		pf.getShortestPath(nodes[0], nodes[nodes.length-1]);
+		pf.getShortestPath(nodes[0], nodes[nodes.length-1]);
+		assertEquals(1, cache.getMisses());
+		assertEquals(2, cache.getHits());
+	}
+
+	public void testCachedPathsAreSame() {
+		DijkstraPathFinder pf = new DijkstraPathFinder(null);
+		List<List<MapNode>> expected = new ArrayList<List<MapNode>>();
+		for (int i=0; i<nodes.length; i++) {
+			expected.add(pf.getShortestPath(nodes[i], nodes[nodes.length-1-i]));
+		}
+
+		enableCache(100);
+		RouteCache cache = RouteCache.getInstance();
+		assertNotNull(cache);
+		for (int round=0; round<2; round++) {
+			for (int i=0; i<nodes.length; i++) {
+				List<MapNode> path = new DijkstraPathFinder(null).
+					getShortestPath(nodes[i], nodes[nodes.length-1-i]);
+				assertEquals(expected.get(i), path);
+				path.clear(); /* the returned paths are copies */
+			}
+		}
+		/* path from the center node to itself isn't looked up */
+		assertEquals(nodes.length - 1, cache.getMisses());
+		assertEquals(nodes.length - 1, cache.getHits());
+		assertEquals(nodes.length - 1, cache.size());
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import interfaces.ConnectivityOptimizer;
+import interfaces.SharedSpatialIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import routing.PassiveRouter;
+import core.Coord;
+import core.DTNHost;
+import core.ModuleCommunicationBus;
+import core.NetworkInterface;
+
+/**
+ * Tests for the SharedSpatialIndex class with hosts that have interfaces
+ * of two types with different ranges
+ */
+public class SharedSpatialIndexTest extends AbstractOptimizerTest {
+	private static final String WLAN = "wlanInterface";
+	private static final String BT = "btInterface";
+	private static final double WLAN_RANGE = 100;
+	private static final double BT_RANGE = 10;
+	private static final int NROF_ROUNDS = 20;
+
+	private List<DTNHost> hosts;
+	private Random rng;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		hosts = new ArrayList<DTNHost>();
+		rng = new Random(19);
+	}
+
+	/**
+	 * Creates a stationary host with an interface of each given type
+	 * @param loc Location of the host
+	 * @param types Types of the interfaces
+	 * @param ranges Ranges of the interfaces
+	 * @return The new host
+	 */
+	private DTNHost addHost(Coord loc, String[] types, double[] ranges) {
+		List<NetworkInterface> ifaces = new ArrayList<NetworkInterface>();
+		TestSettings ts = null;
+		for (int i=0; i<types.length; i++) {
+			ts = new TestSettings(types[i]);
+			ts.putSetting(NetworkInterface.TRANSMIT_RANGE_S, "" + ranges[i]);
+			ts.putSetting(NetworkInterface.TRANSMIT_SPEED_S, "1");
+			ts.putSetting(NetworkInterface.OPTIMIZER_S,
+					SharedSpatialIndex.class.getSimpleName());
+			ifaces.add(new TestInterface(ts));
+		}
+		DTNHost host = new DTNHost(null, null, "h", ifaces,
+				new ModuleCommunicationBus(), new StationaryMovement(loc),
+				new PassiveRouter(ts));
+		hosts.add(host);
+		return host;
+	}
+
+	private DTNHost addDualHost(double x, double y) {
+		return addHost(new Coord(x, y), new String[] {WLAN, BT},
+				new double[] {WLAN_RANGE, BT_RANGE});
+	}
+
+	private ConnectivityOptimizer getView(String type) {
+		return SharedSpatialIndex.getOptimizer(type.hashCode());
+	}
+
+	/**
+	 * Advances the clock and checks the near interfaces of both types
+	 * @param time How much the clock is advanced (0 is like an update
+	 * after the hosts have moved at the time of an external event)
+	 * @return Number of BT pairs within range
+	 */
+	private int advanceAndCheck(double time) {
+		advance(getView(WLAN), time);
+		advance(getView(BT), 0);
+		assertTrue(assertNearInterfaces(getView(WLAN)) > 0);
+		return assertNearInterfaces(getView(BT));
+	}
+
+	public void testTypesAreMatchedWithinTheirOwnRange() {
+		DTNHost h1 = addDualHost(500, 500);
+		DTNHost h2 = addDualHost(550, 500);
+		DTNHost h3 = addDualHost(505, 505);
+		advanceAndCheck(1);
+
+		/* within WLAN range but not within BT range */
+		assertTrue(getView(WLAN).getNearInterfaces(
+				h1.getInterface(1)).contains(h2.getInterface(1)));
+		assertFalse(getView(BT).getNearInterfaces(
+				h1.getInterface(2)).contains(h2.getInterface(2)));
+		/* within both ranges; never the interface of the other type */
+		assertTrue(getView(BT).getNearInterfaces(
+				h1.getInterface(2)).contains(h3.getInterface(2)));
+		assertFalse(getView(BT).getNearInterfaces(
+				h1.getInterface(2)).contains(h3.getInterface(1)));
+	}
+
+	/**
+	 * A host moves into range after the near interfaces of both types were
+	 * already asked for at the same simulation time
+	 */
+	public void testMoveAtSameTime() {
+		DTNHost h1 = addDualHost(100, 100);
+		DTNHost h2 = addDualHost(500, 100);
+		advance(getView(WLAN), 1);
+		advance(getView(BT), 0);
+		assertEquals(0, assertNearInterfaces(getView(WLAN)));
+
+		h2.setLocation(new Coord(105, 100));
+		advance(getView(BT), 0);
+		assertEquals(1, assertNearInterfaces(getView(BT)));
+		assertEquals(1, assertNearInterfaces(getView(WLAN)));
+		assertTrue(getView(WLAN).getNearInterfaces(
+				h1.getInterface(1)).contains(h2.getInterface(1)));
+	}
+
+	/**
+	 * Hosts with both types, only one of them, and two BT ranges, moving
+	 * randomly
+	 */
+	public void testRandomHostsWithTwoTypes() {
+		for (int i=0; i<300; i++) {
+			Coord c = new Coord(rng.nextDouble() * 1000,
+					rng.nextDouble() * 1000);
+			double btRange = (rng.nextBoolean() ? BT_RANGE : 2 * BT_RANGE);
+			switch (i % 3) {
+			case 0:
+				addHost(c, new String[] {WLAN, BT},
+						new double[] {WLAN_RANGE, btRange});
+				break;
+			case 1:
+				addHost(c, new String[] {BT, WLAN},
+						new double[] {btRange, WLAN_RANGE / 2});
+				break;
+			default:
+				addHost(c, new String[] {i % 2 == 0 ? WLAN : BT},
+						new double[] {i % 2 == 0 ? WLAN_RANGE : btRange});
+			}
+		}
+
+		int nrofBtPairs = advanceAndCheck(1);
+		for (int round=0; round<NROF_ROUNDS; round++) {
+			for (DTNHost h : hosts) {
+				Coord c = h.getLocation().clone();
+				c.translate(rng.nextDouble() * 20 - 10,
+						rng.nextDouble() * 20 - 10);
+				h.setLocation(c);
+			}
+			nrofBtPairs += advanceAndCheck(round % 2);
+		}
+		assertTrue(nrofBtPairs > 0);
+	}
+}
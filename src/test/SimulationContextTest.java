@@ -0,0 +1,103 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+import core.SimClock;
+import core.SimulationContext;
+
+/**
+ * Tests for the SimulationContext
+ */
+public class SimulationContextTest extends TestCase {
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		SimClock.reset();
+		SimulationContext.setModuleState(SimulationContextTest.class, null);
+	}
+
+	/**
+	 * Runs a task in a new thread that works in the given context
+	 */
+	private Object runIn(final SimulationContext c, final Callable<?> task)
+		throws Exception {
+		final Object[] result = new Object[1];
+		final Exception[] error = new Exception[1];
+		Thread t = new Thread() {
+			public void run() {
+				c.enter();
+				try {
+					result[0] = task.call();
+				} catch (Exception e) {
+					error[0] = e;
+				} finally {
+					SimulationContext.exit();
+				}
+			}
+		};
+		t.start();
+		t.join();
+		if (error[0] != null) {
+			throw error[0];
+		}
+		return result[0];
+	}
+
+	public void testClockIsPerContext() throws Exception {
+		SimClock.getInstance().setTime(10);
+		Object time = runIn(new SimulationContext(1), new Callable<Double>() {
+			public Double call() {
+				double start = SimClock.getTime();
+				SimClock.getInstance().advance(5);
+				return start + SimClock.getTime();
+			}
+		});
+		assertEquals(5.0, time);
+		assertEquals(10.0, SimClock.getTime());
+	}
+
+	public void testModuleStateIsPerContext() throws Exception {
+		final SimulationContext other = new SimulationContext(2);
+		SimulationContext.setModuleState(SimulationContextTest.class, "a");
+		Object state = runIn(other, new Callable<Object>() {
+			public Object call() {
+				Object old = SimulationContext.getModuleState(
+						SimulationContextTest.class);
+				SimulationContext.setModuleState(SimulationContextTest.class,
+						"b");
+				return old;
+			}
+		});
+		assertNull(state);
+		assertEquals("a", SimulationContext.getModuleState(
+				SimulationContextTest.class));
+		assertEquals(2, other.getRunIndex());
+	}
+
+	public void testWorkerPoolUsesContext() throws Exception {
+		final SimulationContext c = new SimulationContext(3);
+		Object inWorker = runIn(c, new Callable<Object>() {
+			public Object call() throws Exception {
+				SimClock.getInstance().setTime(42);
+				ForkJoinPool pool = c.createWorkerPool(2);
+				try {
+					return pool.submit(new Callable<Double>() {
+						public Double call() {
+							return SimClock.getTime();
+						}
+					}).get();
+				} finally {
+					pool.shutdown();
+				}
+			}
+		});
+		assertEquals(42.0, inWorker);
+		assertEquals(0.0, SimClock.getTime());
+	}
+}
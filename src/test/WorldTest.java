@@ -6,13 +6,17 @@ package test;
 
 import input.EventQueue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
 
 import junit.framework.TestCase;
+import core.Coord;
 import core.DTNHost;
 import core.ModuleCommunicationBus;
 import core.NetworkInterface;
+import core.ScheduledUpdateListener;
 import core.SimClock;
 import core.UpdateListener;
 import core.World;
@@ -32,6 +36,12 @@ public class WorldTest extends TestCase {
 	private double upInterval = 0.1;
 	private List<TestDTNHost> testHosts;
 	private List<EventQueue> eQueues;
+	private List<UpdateListener> updateListeners;
+	/* hosts and ticks of the map world runs that are compared */
+	private static final int MAP_HOSTS = 40;
+	private static final int MAP_TICKS = 200;
+	private MapTestWorld mapWorld;
+	private List<List<String>> mapConnections;
 
 	protected void setUp() throws Exception {
 		super.setUp();
@@ -42,6 +52,7 @@ public class WorldTest extends TestCase {
 		testSettings.putSetting(NetworkInterface.TRANSMIT_SPEED_S, "1");
 
 		this.eQueues = new ArrayList<EventQueue>();
+		this.updateListeners = new ArrayList<UpdateListener>();
 		this.testHosts = new ArrayList<TestDTNHost>();
 		for (int i=0; i<10; i++) {
 			NetworkInterface ni = new TestInterface(testSettings);
@@ -101,6 +112,118 @@ public class WorldTest extends TestCase {
 
 	}
 
+	public void testScheduledUpdateListeners() {
+		final int[] nrofPlainUpdates = {0};
+		UpdateListener everyCycle = new UpdateListener() {
+			public void updated(List<DTNHost> hosts) {
+				nrofPlainUpdates[0]++;
+			}
+		};
+		TestListener interval = new TestListener(0.25);
+		TestListener once = new TestListener(0);
+		updateListeners.add(everyCycle);
+		updateListeners.add(interval);
+
+		for (int i=0; i<5; i++) {
+			world.update();
+		}
+		assertEquals(5, nrofPlainUpdates[0]);
+		/* first update at 0.25 -> 0.3, next at 0.55 -> 0.6 */
+		assertEquals(1, interval.nrofUpdates);
+
+		updateListeners.add(once); // listeners can be added later too
+		for (int i=0; i<5; i++) {
+			world.update();
+		}
+		assertEquals(10, nrofPlainUpdates[0]);
+		assertEquals(3, interval.nrofUpdates); // at 0.6 and 0.9
+		assertEquals(1, once.nrofUpdates);
+	}
+
+	public void testParallelMovementIsSameAsSerial() {
+		String serialOut = runMapWorld();
+		List<Coord> locations = mapWorld.getLocations();
+		List<Double> speeds = mapWorld.getSpeeds();
+		String parallelOut = runMapWorld(World.PARALLEL_MOVEMENT_S, "true",
+				World.WORKER_THREADS_S, "4");
+
+		assertEquals(locations, mapWorld.getLocations());
+		assertEquals(speeds, mapWorld.getSpeeds());
+		assertEquals(serialOut, parallelOut);
+	}
+
+	public void testTwoPhaseConnectivityIsSameAsSerial() {
+		runMapWorld();
+		List<List<String>> serial = mapConnections;
+		assertTrue(serial.get(MAP_TICKS - 1).size() > 0);
+
+		for (String threads : new String[] {"1", "4"}) {
+			runMapWorld(World.PARALLEL_CONNECTIVITY_S, "true",
+					World.WORKER_THREADS_S, threads);
+			for (int i=0; i<MAP_TICKS; i++) {
+				assertEquals("Connections differ at tick " + i + " with " +
+						threads + " threads", serial.get(i),
+						mapConnections.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Runs a map world for MAP_TICKS ticks and leaves it to
+	 * {@link #mapWorld} and its connections after every tick to
+	 * {@link #mapConnections}
+	 * @param optimizations Names and values of optimization settings
+	 * @return What the hosts printed to the console during the run
+	 */
+	private String runMapWorld(String ... optimizations) {
+		TestSettings ts = new TestSettings();
+		for (int i=0; i<optimizations.length; i+=2) {
+			ts.putSetting(World.OPTIMIZATION_SETTINGS_NS + "." +
+					optimizations[i], optimizations[i+1]);
+		}
+
+		PrintStream out = System.out;
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		mapWorld = new MapTestWorld(ts, MAP_HOSTS, true);
+		mapConnections = new ArrayList<List<String>>();
+		try {
+			System.setOut(new PrintStream(buffer));
+			for (int i=0; i<MAP_TICKS; i++) {
+				mapWorld.update(1);
+				mapConnections.add(mapWorld.getConnections());
+			}
+		} finally {
+			System.setOut(out);
+			mapWorld.exit();
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * Scheduled update listener that counts its updates. If the interval is
+	 * zero, the listener wants only one update.
+	 */
+	private static class TestListener implements ScheduledUpdateListener {
+		private double interval;
+		private double lastUpdate = 0;
+		private int nrofUpdates = 0;
+
+		private TestListener(double interval) {
+			this.interval = interval;
+		}
+
+		public void updated(List<DTNHost> hosts) {
+			nrofUpdates++;
+			lastUpdate = SimClock.getTime();
+		}
+
+		public double nextUpdateTime() {
+			if (interval == 0) {
+				return (nrofUpdates == 0 ? 0 : NO_UPDATES);
+			}
+			return lastUpdate + interval;
+		}
+	}
 
 	/** Dummy scenario for providing test values for the World */
 	@SuppressWarnings("serial")
@@ -119,7 +242,7 @@ public class WorldTest extends TestCase {
 		}
 
 		public List<UpdateListener> getUpdateListeners() {
-			return new ArrayList<UpdateListener>();
+			return updateListeners;
 		}
 
 		public List<DTNHost> getHosts() {
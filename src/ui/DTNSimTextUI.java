@@ -4,6 +4,7 @@
  */
 package ui;
 
+import movement.map.RouteCache;
 import core.SimClock;
 
 /**
@@ -44,6 +45,14 @@ public class DTNSimTextUI extends DTNSimUI {
 
 		print("Simulation done in " + String.format("%.2f", duration) + "s");
 
+		if (scen.getTickProfiler() != null) {
+			print(scen.getTickProfiler().getSummary());
+			RouteCache cache = RouteCache.getInstance();
+			if (cache != null && cache.getHits() + cache.getMisses() > 0) {
+				print(cache.toString());
+			}
+		}
+
 	}
 
 	/**
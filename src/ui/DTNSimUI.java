@@ -132,6 +132,12 @@ public abstract class DTNSimUI {
 		for (Report r : this.reports) {
 			r.done();
 		}
+		if (scen.getTickProfiler() != null) {
+			scen.getTickProfiler().unregisterMBean();
+		}
+		if (this.world != null) {
+			this.world.done();
+		}
 	}
 
 	/**